@@ -0,0 +1,90 @@
+package org.broadinstitute.consent.http.benchmarks;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file against a baseline produced the same way and exits with a non-zero status when a
+ * benchmark regressed by more than the allowed fraction. Benchmarks missing from either file are reported and
+ * otherwise ignored.
+ *
+ * Usage: BenchmarkBaseline &lt;result.json&gt; &lt;baseline.json&gt; [tolerance, default 0.10]
+ */
+public class BenchmarkBaseline {
+
+    private static final double DEFAULT_TOLERANCE = 0.10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args[1].trim().isEmpty()) {
+            System.out.println("No benchmark baseline given, skipping comparison.");
+            return;
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE;
+        Map<String, JsonObject> results = read(args[0]);
+        Map<String, JsonObject> baseline = read(args[1]);
+        int regressions = 0;
+        for (Map.Entry<String, JsonObject> entry : results.entrySet()) {
+            JsonObject previous = baseline.get(entry.getKey());
+            if (previous == null) {
+                System.out.println(String.format("NEW        %s", entry.getKey()));
+                continue;
+            }
+            double score = score(entry.getValue());
+            double baselineScore = score(previous);
+            // Throughput is better when higher, every other mode reports time and is better when lower
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().get("mode").getAsString());
+            double change = baselineScore == 0 ? 0 : (score - baselineScore) / baselineScore;
+            boolean regressed = higherIsBetter ? change < -tolerance : change > tolerance;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.println(String.format("%-10s %s: %.3f -> %.3f %s (%+.1f%%)", regressed ? "REGRESSED" : "OK",
+                    entry.getKey(), baselineScore, score, unit(entry.getValue()), change * 100));
+        }
+        baseline.keySet().stream().filter(key -> !results.containsKey(key)).
+                forEach(key -> System.out.println(String.format("MISSING    %s", key)));
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed by more than " + (tolerance * 100) + "%.");
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonObject> read(String path) throws IOException {
+        Map<String, JsonObject> benchmarks = new TreeMap<>();
+        try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            for (JsonElement element : new JsonParser().parse(reader).getAsJsonArray()) {
+                JsonObject benchmark = element.getAsJsonObject();
+                benchmarks.put(key(benchmark), benchmark);
+            }
+        }
+        return benchmarks;
+    }
+
+    private static String key(JsonObject benchmark) {
+        StringBuilder key = new StringBuilder(benchmark.get("benchmark").getAsString());
+        if (benchmark.has("params")) {
+            Map<String, String> params = new TreeMap<>();
+            benchmark.getAsJsonObject("params").entrySet().forEach(e -> params.put(e.getKey(), e.getValue().getAsString()));
+            params.forEach((name, value) -> key.append(':').append(name).append('=').append(value));
+        }
+        return key.toString();
+    }
+
+    private static double score(JsonObject benchmark) {
+        return benchmark.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+    }
+
+    private static String unit(JsonObject benchmark) {
+        return benchmark.getAsJsonObject("primaryMetric").get("scoreUnit").getAsString();
+    }
+
+}
@@ -0,0 +1,57 @@
+package org.broadinstitute.consent.http.benchmarks;
+
+import com.github.fakemongo.Fongo;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.broadinstitute.consent.http.db.mongo.MongoConsentDB;
+import org.skife.jdbi.v2.DBI;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+/**
+ * Embedded stores for benchmarks that go through the DAOs: an in-memory HSQLDB with the application schema applied
+ * from the Liquibase changelog, and a Fongo stand-in for Mongo.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+
+    private static final String CHANGELOG = "changelog-master.xml";
+    private static final String USER = "sa";
+    private static final String PASSWORD = "";
+
+    private final Connection connection;
+    private final DBI dbi;
+    private final MongoConsentDB mongo;
+
+    /**
+     * @param name Database name, so suites running in the same JVM do not share state.
+     */
+    public BenchmarkDatabase(String name) throws Exception {
+        String url = "jdbc:hsqldb:mem:" + name;
+        // The in-memory database lives as long as this connection is open
+        connection = DriverManager.getConnection(url, USER, PASSWORD);
+        Liquibase liquibase = new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), new JdbcConnection(connection));
+        liquibase.update(new Contexts());
+        dbi = new DBI(url, USER, PASSWORD);
+        mongo = new MongoConsentDB(new Fongo(name).getMongo(), name);
+        mongo.configureMongo();
+    }
+
+    public DBI getDbi() {
+        return dbi;
+    }
+
+    public MongoConsentDB getMongo() {
+        return mongo;
+    }
+
+    @Override
+    public void close() throws Exception {
+        connection.createStatement().execute("SHUTDOWN");
+        connection.close();
+        mongo.getMongoClient().close();
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.broadinstitute.consent.http.benchmarks;
+
+import com.google.common.io.Resources;
+import com.google.gson.Gson;
+import org.broadinstitute.consent.http.WithMockServer;
+import org.broadinstitute.consent.http.models.grammar.And;
+import org.broadinstitute.consent.http.models.grammar.Named;
+import org.broadinstitute.consent.http.models.grammar.Not;
+import org.broadinstitute.consent.http.models.grammar.UseRestriction;
+import org.broadinstitute.consent.http.models.matching.RequestMatchingObject;
+import org.broadinstitute.consent.http.models.matching.ResponseMatchingObject;
+import org.broadinstitute.consent.http.service.UseRestrictionMatcher;
+import org.broadinstitute.consent.http.service.ontology.OntologyHierarchy;
+import org.mockserver.integration.ClientAndServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * Compares in-process matching against a round-trip to a (local, stubbed) ontology match service. The stub responds
+ * immediately, so the remote numbers are a lower bound on what the real service costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MatchingBenchmark implements WithMockServer {
+
+    private static final String DUOS = "http://www.broadinstitute.org/ontologies/DUOS/";
+    private static final int PORT = 9393;
+
+    private UseRestrictionMatcher matcher;
+    private RequestMatchingObject requestObject;
+    private ClientAndServer server;
+    private Client client;
+    private WebTarget matchTarget;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        OntologyHierarchy hierarchy;
+        try (InputStream stream = Resources.getResource("data-use.owl").openStream()) {
+            hierarchy = OntologyHierarchy.load(Collections.singletonList(stream));
+        }
+        matcher = new UseRestrictionMatcher(() -> hierarchy);
+        UseRestriction consent = new And(
+                new Named(DUOS + "pediatric"),
+                new Not(new Named(DUOS + "female")));
+        UseRestriction purpose = new And(
+                new Named(DUOS + "boys"),
+                new Named(DUOS + "aggregate_research"));
+        requestObject = new RequestMatchingObject(consent, purpose);
+
+        server = startMockServer(PORT);
+        server.when(request().withPath("/match")).respond(response().
+                withStatusCode(200).
+                withHeader("Content-Type", MediaType.APPLICATION_JSON).
+                withBody(new Gson().toJson(new ResponseMatchingObject(true, requestObject))));
+        client = ClientBuilder.newClient();
+        matchTarget = client.target("http://localhost:" + PORT + "/match");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        if (server != null && server.isRunning()) {
+            server.stop();
+        }
+    }
+
+    @Benchmark
+    public Optional<Boolean> localMatch() {
+        return matcher.match(requestObject.getConsent(), requestObject.getPurpose());
+    }
+
+    @Benchmark
+    public boolean remoteMatch() {
+        String json = new Gson().toJson(requestObject);
+        ResponseMatchingObject entity = matchTarget.
+                request(MediaType.APPLICATION_JSON).
+                post(Entity.json(json), ResponseMatchingObject.class);
+        return entity.isResult();
+    }
+
+}
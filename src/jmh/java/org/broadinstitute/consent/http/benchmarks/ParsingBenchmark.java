@@ -0,0 +1,128 @@
+package org.broadinstitute.consent.http.benchmarks;
+
+import com.google.common.io.Resources;
+import org.broadinstitute.consent.http.configurations.ServicesConfiguration;
+import org.broadinstitute.consent.http.db.DataSetDAO;
+import org.broadinstitute.consent.http.models.DataUseDTO;
+import org.broadinstitute.consent.http.models.Dictionary;
+import org.broadinstitute.consent.http.models.grammar.UseRestriction;
+import org.broadinstitute.consent.http.service.DataSetFileParser;
+import org.broadinstitute.consent.http.service.ParseResult;
+import org.broadinstitute.consent.http.service.UseRestrictionConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing done on every consent, data access request and dataset upload: use restriction JSON, the research purpose
+ * section of a DAR, and dataset TSV files validated against the dictionary in the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParsingBenchmark {
+
+    private static final String DOID = "http://purl.obolibrary.org/obo/DOID_";
+    private static final String DUOS = "http://www.broadinstitute.org/ontologies/DUOS/";
+
+    private static final String USE_RESTRICTION = "{\"type\":\"and\",\"operands\":[" +
+            "{\"type\":\"or\",\"operands\":[" +
+            "{\"type\":\"named\",\"name\":\"" + DOID + "162\"}," +
+            "{\"type\":\"named\",\"name\":\"" + DOID + "1612\"}," +
+            "{\"type\":\"named\",\"name\":\"" + DOID + "10283\"}]}," +
+            "{\"type\":\"not\",\"operand\":{\"type\":\"named\",\"name\":\"" + DUOS + "methods_research\"}}," +
+            "{\"type\":\"not\",\"operand\":{\"type\":\"named\",\"name\":\"" + DUOS + "population_structure\"}}," +
+            "{\"type\":\"not\",\"operand\":{\"type\":\"named\",\"name\":\"" + DUOS + "commercial\"}}," +
+            "{\"type\":\"named\",\"name\":\"" + DUOS + "female\"}," +
+            "{\"type\":\"named\",\"name\":\"" + DUOS + "pediatric\"}]}";
+
+    private static final String DATA_USE_PURPOSE = "{" +
+            "\"investigator\":\"Veronica Smith\"," +
+            "\"projectTitle\":\"Somatic mutations in pediatric breast cancer\"," +
+            "\"datasetId\":[1,2,3]," +
+            "\"rus\":\"We will call somatic variants across the requested cohorts and compare their frequency.\"," +
+            "\"non_tech_rus\":\"We want to learn which mutations are more common in young patients.\"," +
+            "\"methods\":true,\"population\":false,\"controls\":true,\"diseases\":true,\"other\":false," +
+            "\"ontologies\":[" +
+            "{\"id\":\"" + DOID + "162\",\"label\":\"cancer\"}," +
+            "{\"id\":\"" + DOID + "1612\",\"label\":\"breast cancer\"}," +
+            "{\"id\":\"" + DOID + "10283\",\"label\":\"prostate cancer\"}]," +
+            "\"forProfit\":false,\"onegender\":true,\"gender\":\"F\",\"pediatric\":true," +
+            "\"poa\":false,\"hmb\":true}";
+
+    @Param({"100", "1000"})
+    public int datasetRows;
+
+    private BenchmarkDatabase database;
+    private UseRestrictionConverter converter;
+    private DataSetFileParser dataSetFileParser;
+    private List<Dictionary> dictionary;
+    private File datasetFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase("parsing");
+        dictionary = database.getDbi().onDemand(DataSetDAO.class).getMappedFieldsOrderByReceiveOrder();
+        converter = new UseRestrictionConverter(null, new ServicesConfiguration());
+        dataSetFileParser = new DataSetFileParser();
+        datasetFile = createDatasetFile(datasetRows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(datasetFile.toPath());
+        database.close();
+    }
+
+    @Benchmark
+    public UseRestriction parseUseRestriction() throws IOException {
+        return UseRestriction.parse(USE_RESTRICTION);
+    }
+
+    @Benchmark
+    public DataUseDTO parseDataUsePurpose() {
+        return converter.parseDataUsePurpose(DATA_USE_PURPOSE);
+    }
+
+    @Benchmark
+    public ParseResult parseDatasetFile() {
+        return dataSetFileParser.parseTSVFile(datasetFile, dictionary, 0, false, Collections.emptyList());
+    }
+
+    /**
+     * Repeats the sample row of the spreadsheet model users download, with a distinct name and consent per row.
+     */
+    private File createDatasetFile(int rows) throws IOException {
+        List<String> sample = Resources.readLines(Resources.getResource("DataSetSample.tsv"), StandardCharsets.UTF_8);
+        String[] row = sample.get(1).split("\t", -1);
+        File file = File.createTempFile("datasets", ".tsv");
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(sample.get(0));
+            writer.write("\n");
+            for (int i = 0; i < rows; i++) {
+                row[0] = "Dataset " + i;
+                row[row.length - 1] = "consent-" + i;
+                writer.write(String.join("\t", row));
+                writer.write("\n");
+            }
+        }
+        return file;
+    }
+
+}
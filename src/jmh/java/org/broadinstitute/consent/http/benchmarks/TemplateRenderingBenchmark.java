@@ -0,0 +1,65 @@
+package org.broadinstitute.consent.http.benchmarks;
+
+import freemarker.template.TemplateException;
+import org.broadinstitute.consent.http.configurations.FreeMarkerConfiguration;
+import org.broadinstitute.consent.http.mail.freemarker.FreeMarkerTemplateHelper;
+import org.broadinstitute.consent.http.mail.freemarker.NewCaseTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of the new case email sent to every member of a DAC when an election opens, one recipient at a time and
+ * for the whole DAC at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TemplateRenderingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int recipients;
+
+    private FreeMarkerTemplateHelper helper;
+    private List<NewCaseTemplate> models;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        FreeMarkerConfiguration config = new FreeMarkerConfiguration();
+        config.setTemplateDirectory("/freemarker");
+        config.setDefaultEncoding("UTF-8");
+        helper = new FreeMarkerTemplateHelper(config);
+        models = new ArrayList<>();
+        for (int i = 0; i < recipients; i++) {
+            models.add(new NewCaseTemplate("Member " + i, "Data Access Request", "DAR-" + i,
+                    "http://localhost:8000/#/access_review/DAR-" + i + "/" + i + "/" + (i + 1)));
+        }
+    }
+
+    @Benchmark
+    public List<Writer> renderNewCaseOneByOne() throws IOException, TemplateException {
+        List<Writer> rendered = new ArrayList<>(models.size());
+        for (NewCaseTemplate model : models) {
+            rendered.add(helper.getNewCaseTemplate(model.getUserName(), model.getElectionType(), model.getEntityName(), model.getServerUrl()));
+        }
+        return rendered;
+    }
+
+    @Benchmark
+    public List<Writer> renderNewCaseForList() throws IOException, TemplateException {
+        return helper.getNewCaseTemplates(models);
+    }
+
+}
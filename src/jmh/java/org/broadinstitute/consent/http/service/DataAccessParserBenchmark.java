@@ -0,0 +1,162 @@
+package org.broadinstitute.consent.http.service;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+import org.broadinstitute.consent.http.models.DACUser;
+import org.broadinstitute.consent.http.util.DarConstants;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Fills the data access request PDF form. The application template is not part of the source tree, so the suite
+ * builds an equivalent form with one text field for every field the parser fills.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataAccessParserBenchmark {
+
+    private static final List<String> FORM_FIELDS = Arrays.asList(
+            DarConstants.INSTITUTION, DarConstants.DEPARTMENT, DarConstants.DIVISION, DarConstants.STREET_ADDRESS_1,
+            DarConstants.STREET_ADDRESS_2, DarConstants.CITY, DarConstants.ZIP_POSTAL_CODE, DarConstants.COUNTRY,
+            DarConstants.STATE, DarConstants.PROFILE_NAME, DarConstants.ACADEMIC_BUSINESS_EMAIL,
+            DarConstants.ERA_COMMONS_ID, DarConstants.PUBMED_ID, DarConstants.SCIENTIFIC_URL, DarConstants.PI_EMAIL,
+            DarConstants.INVESTIGATOR, DarConstants.PROJECT_TITLE, DarConstants.DATASET_ID, DarConstants.RUS,
+            DarConstants.NON_TECH_RUS, DarConstants.METHODS, DarConstants.CONTROLS, DarConstants.POPULATION,
+            DarConstants.DISEASES, DarConstants.OTHER, DarConstants.OTHER_TEXT, DarConstants.ONTOLOGIES,
+            DarConstants.FOR_PROFIT, DarConstants.ONE_GENDER, DarConstants.GENDER, DarConstants.PEDIATRIC,
+            DarConstants.HEALTH, DarConstants.ORIGINS, DarConstants.CHECK_COLLABORATOR, DarConstants.USER_STATUS,
+            DarConstants.ADMIN_COMMENT, DarConstants.MANUAL_REVIEW, DarConstants.NIH_USERNAME, DarConstants.LINKEDIN,
+            DarConstants.ORCID, DarConstants.RESEARCHER_GATE, DarConstants.DATA_ACCESS_AGREEMENT,
+            DarConstants.TRANSLATED_RESTRICTION);
+
+    private static final String TRANSLATED_USE_RESTRICTION = "Samples are restricted for use under the following conditions:<br>" +
+            "Data is limited for health/medical/biomedical research. [HMB]<br>" +
+            "Data use is limited for studying: cancer [DS]<br>" +
+            "Commercial use is not prohibited.<br>" +
+            "Data use for methods development research irrespective of the specified data use limitations is not prohibited.";
+
+    private final DataAccessParser parser = new DataAccessParser();
+    private PDDocument pdf;
+    private PDAcroForm acroForm;
+    private Document dar;
+    private Map<String, String> researcherProperties;
+    private DACUser user;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pdf = createForm();
+        acroForm = pdf.getDocumentCatalog().getAcroForm();
+        dar = createDar();
+        researcherProperties = createResearcherProperties();
+        user = new DACUser();
+        user.setStatus("approved");
+        user.setRationale("granted bonafide");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pdf.close();
+    }
+
+    @Benchmark
+    public PDAcroForm fillDARForm() throws IOException {
+        return parser.fillDARForm(dar, researcherProperties, user, false, acroForm, TRANSLATED_USE_RESTRICTION);
+    }
+
+    private PDDocument createForm() throws IOException {
+        PDDocument document = new PDDocument();
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        PDAcroForm form = new PDAcroForm(document);
+        document.getDocumentCatalog().setAcroForm(form);
+        PDResources resources = new PDResources();
+        resources.put(COSName.getPDFName("Helv"), PDType1Font.HELVETICA);
+        form.setDefaultResources(resources);
+        form.setDefaultAppearance("/Helv 0 Tf 0 g");
+        float fieldHeight = PDRectangle.LETTER.getHeight() / FORM_FIELDS.size();
+        for (int i = 0; i < FORM_FIELDS.size(); i++) {
+            PDTextField field = new PDTextField(form);
+            field.setPartialName(FORM_FIELDS.get(i));
+            field.setMultiline(true);
+            form.getFields().add(field);
+            PDAnnotationWidget widget = field.getWidgets().get(0);
+            widget.setRectangle(new PDRectangle(20, i * fieldHeight, PDRectangle.LETTER.getWidth() - 40, fieldHeight));
+            widget.setPage(page);
+            page.getAnnotations().add(widget);
+        }
+        return document;
+    }
+
+    private Document createDar() {
+        Document document = new Document();
+        document.put(DarConstants.INVESTIGATOR, "Veronica Smith");
+        document.put(DarConstants.PI_EMAIL, "vsmith@broadinstitute.org");
+        document.put(DarConstants.PROJECT_TITLE, "Somatic mutations in pediatric breast cancer");
+        document.put(DarConstants.DATASET_ID, IntStream.rangeClosed(1, 5).boxed().collect(Collectors.toList()));
+        document.put(DarConstants.DATASET_DETAIL, IntStream.rangeClosed(1, 5).
+                mapToObj(id -> new Document("datasetId", String.valueOf(id)).
+                        append("name", "Dataset " + id).
+                        append(DarConstants.OBJECT_ID, "SC-0" + id)).
+                collect(Collectors.toList()));
+        document.put(DarConstants.RUS, "We will call somatic variants across the requested cohorts and compare their frequency.");
+        document.put(DarConstants.NON_TECH_RUS, "We want to learn which mutations are more common in young patients.");
+        document.put(DarConstants.ONTOLOGIES, Arrays.asList(
+                new Document("id", "http://purl.obolibrary.org/obo/DOID_162").append("label", "cancer"),
+                new Document("id", "http://purl.obolibrary.org/obo/DOID_1612").append("label", "breast cancer")));
+        document.put(DarConstants.METHODS, true);
+        document.put(DarConstants.CONTROLS, true);
+        document.put(DarConstants.DISEASES, true);
+        document.put(DarConstants.HMB, true);
+        document.put(DarConstants.PEDIATRIC, true);
+        document.put(DarConstants.ONE_GENDER, true);
+        document.put(DarConstants.GENDER, "F");
+        document.put(DarConstants.CHECK_COLLABORATOR, true);
+        document.put(DarConstants.NIH_USERNAME, "vsmith");
+        document.put(DarConstants.ORCID, "0000-0002-1825-0097");
+        document.put(DarConstants.DATA_ACCESS_AGREEMENT_URL, "/bucket/agreement");
+        document.put(DarConstants.DATA_ACCESS_AGREEMENT_NAME, "agreement.pdf");
+        return document;
+    }
+
+    private Map<String, String> createResearcherProperties() {
+        Map<String, String> props = new HashMap<>();
+        props.put(DarConstants.INSTITUTION, "Broad Institute");
+        props.put(DarConstants.DEPARTMENT, "Cancer Program");
+        props.put(DarConstants.STREET_ADDRESS_1, "415 Main Street");
+        props.put(DarConstants.CITY, "Cambridge");
+        props.put(DarConstants.ZIP_POSTAL_CODE, "02142");
+        props.put(DarConstants.COUNTRY, "United States");
+        props.put(DarConstants.STATE, "MA");
+        props.put(DarConstants.PROFILE_NAME, "Veronica Smith");
+        props.put(DarConstants.ACADEMIC_BUSINESS_EMAIL, "vsmith@broadinstitute.org");
+        props.put(DarConstants.ERA_COMMONS_ID, "VSMITH");
+        props.put("isThePI", "true");
+        return props;
+    }
+
+}
@@ -0,0 +1,141 @@
+package org.broadinstitute.consent.http.service;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.broadinstitute.consent.http.benchmarks.BenchmarkDatabase;
+import org.broadinstitute.consent.http.db.ConsentDAO;
+import org.broadinstitute.consent.http.db.DACUserDAO;
+import org.broadinstitute.consent.http.db.DataSetDAO;
+import org.broadinstitute.consent.http.db.ElectionDAO;
+import org.broadinstitute.consent.http.db.MatchDAO;
+import org.broadinstitute.consent.http.db.VoteDAO;
+import org.broadinstitute.consent.http.db.mongo.MongoConsentDB;
+import org.broadinstitute.consent.http.enumeration.AssociationType;
+import org.broadinstitute.consent.http.enumeration.ElectionStatus;
+import org.broadinstitute.consent.http.enumeration.ElectionType;
+import org.broadinstitute.consent.http.enumeration.VoteType;
+import org.broadinstitute.consent.http.models.DataSet;
+import org.broadinstitute.consent.http.util.DarConstants;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.skife.jdbi.v2.DBI;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the consent and data access request summary reports for a seeded set of reviewed elections. Every consent
+ * has one dataset, one closed DUL election and one closed access election for a request on that dataset, each voted
+ * on by a chairperson and four DAC members.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SummaryReportBenchmark {
+
+    private static final int DAC_MEMBERS = 4;
+
+    @Param({"100", "1000"})
+    public int elections;
+
+    private BenchmarkDatabase database;
+    private DatabaseSummaryAPI summaryAPI;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase("summary");
+        DBI dbi = database.getDbi();
+        VoteDAO voteDAO = dbi.onDemand(VoteDAO.class);
+        ElectionDAO electionDAO = dbi.onDemand(ElectionDAO.class);
+        DACUserDAO dacUserDAO = dbi.onDemand(DACUserDAO.class);
+        ConsentDAO consentDAO = dbi.onDemand(ConsentDAO.class);
+        DataSetDAO dataSetDAO = dbi.onDemand(DataSetDAO.class);
+        MatchDAO matchDAO = dbi.onDemand(MatchDAO.class);
+        summaryAPI = new DatabaseSummaryAPI(voteDAO, electionDAO, dacUserDAO, consentDAO, dataSetDAO, matchDAO, database.getMongo(), dataSetDAO);
+        seed(voteDAO, electionDAO, dacUserDAO, consentDAO, dataSetDAO, database.getMongo());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public long consentSummaryDetail() throws IOException {
+        return write(summaryAPI.describeConsentSummaryDetail());
+    }
+
+    @Benchmark
+    public long dataAccessRequestSummaryDetail() throws IOException {
+        return write(summaryAPI.describeDataAccessRequestSummaryDetail());
+    }
+
+    private long write(StreamingOutput report) throws IOException {
+        CountingOutputStream output = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        report.write(output);
+        return output.getByteCount();
+    }
+
+    private void seed(VoteDAO voteDAO, ElectionDAO electionDAO, DACUserDAO dacUserDAO, ConsentDAO consentDAO,
+                      DataSetDAO dataSetDAO, MongoConsentDB mongo) {
+        Date now = new Date();
+        Integer chairId = dacUserDAO.insertDACUser("chair@broadinstitute.org", "Chair Person", now);
+        List<Integer> memberIds = new ArrayList<>();
+        for (int i = 0; i < DAC_MEMBERS; i++) {
+            memberIds.add(dacUserDAO.insertDACUser("member" + i + "@broadinstitute.org", "Member " + i, now));
+        }
+        for (int i = 0; i < elections; i++) {
+            Date createDate = new Date(now.getTime() + i);
+            String consentId = "consent-" + i;
+            String objectId = "SC-" + i;
+            consentDAO.insertConsent(consentId, false, "{\"type\":\"everything\"}", null, "dul.pdf", "Consent " + i,
+                    "dul.pdf", createDate, createDate, "Samples are restricted for health/medical/biomedical research.", true, null);
+            DataSet dataSet = new DataSet();
+            dataSet.setName("Dataset " + i);
+            dataSet.setObjectId(objectId);
+            dataSet.setCreateDate(createDate);
+            dataSet.setActive(true);
+            dataSet.setAlias(i + 1);
+            dataSetDAO.insertAll(Collections.singletonList(dataSet));
+            Integer dataSetId = dataSetDAO.findDataSetIdByObjectId(objectId);
+            consentDAO.insertConsentAssociation(consentId, AssociationType.SAMPLESET.getValue(), dataSetId);
+
+            Integer consentElectionId = electionDAO.insertElection(ElectionType.TRANSLATE_DUL.getValue(),
+                    ElectionStatus.CLOSED.getValue(), createDate, consentId, dataSetId);
+            vote(voteDAO, chairId, consentElectionId, VoteType.CHAIRPERSON, createDate);
+            memberIds.forEach(id -> vote(voteDAO, id, consentElectionId, VoteType.DAC, createDate));
+
+            Document dar = new Document(DarConstants.DAR_CODE, "DAR-" + i).
+                    append(DarConstants.DATASET_ID, Collections.singletonList(dataSetId)).
+                    append(DarConstants.INVESTIGATOR, "Investigator " + i).
+                    append(DarConstants.PROJECT_TITLE, "Project " + i).
+                    append(DarConstants.SORT_DATE, createDate);
+            mongo.getDataAccessRequestCollection().insertOne(dar);
+            Integer accessElectionId = electionDAO.insertElection(ElectionType.DATA_ACCESS.getValue(),
+                    ElectionStatus.CLOSED.getValue(), createDate, dar.getObjectId(DarConstants.ID).toHexString(), dataSetId);
+            vote(voteDAO, chairId, accessElectionId, VoteType.CHAIRPERSON, createDate);
+            vote(voteDAO, chairId, accessElectionId, VoteType.FINAL, createDate);
+            memberIds.forEach(id -> vote(voteDAO, id, accessElectionId, VoteType.DAC, createDate));
+        }
+    }
+
+    private void vote(VoteDAO voteDAO, Integer dacUserId, Integer electionId, VoteType type, Date date) {
+        Integer voteId = voteDAO.insertVote(dacUserId, electionId, type.getValue(), false);
+        voteDAO.updateVote(true, "Consistent with the data use limitations.", date, voteId, false, electionId, date, false);
+    }
+
+}
@@ -30,20 +30,25 @@ import org.broadinstitute.consent.http.db.ApprovalExpirationTimeDAO;
 import org.broadinstitute.consent.http.db.AssociationDAO;
 import org.broadinstitute.consent.http.db.ConsentDAO;
 import org.broadinstitute.consent.http.db.DACUserDAO;
+import org.broadinstitute.consent.http.db.DarOutboxDAO;
+import org.broadinstitute.consent.http.db.UseRestrictionTranslationDAO;
 import org.broadinstitute.consent.http.db.DataSetAssociationDAO;
 import org.broadinstitute.consent.http.db.DataSetAuditDAO;
 import org.broadinstitute.consent.http.db.DataSetDAO;
 import org.broadinstitute.consent.http.db.ElectionDAO;
 import org.broadinstitute.consent.http.db.HelpReportDAO;
 import org.broadinstitute.consent.http.db.MailMessageDAO;
+import org.broadinstitute.consent.http.db.MailOutboxDAO;
 import org.broadinstitute.consent.http.db.MailServiceDAO;
 import org.broadinstitute.consent.http.db.MatchDAO;
 import org.broadinstitute.consent.http.db.ResearcherPropertyDAO;
 import org.broadinstitute.consent.http.db.UserRoleDAO;
 import org.broadinstitute.consent.http.db.VoteDAO;
 import org.broadinstitute.consent.http.db.WorkspaceAuditDAO;
+import org.broadinstitute.consent.http.db.mongo.DarCodeBackfill;
 import org.broadinstitute.consent.http.db.mongo.MongoConsentDB;
 import org.broadinstitute.consent.http.mail.AbstractMailServiceAPI;
+import org.broadinstitute.consent.http.mail.MailDispatcher;
 import org.broadinstitute.consent.http.mail.MailService;
 import org.broadinstitute.consent.http.mail.freemarker.FreeMarkerTemplateHelper;
 import org.broadinstitute.consent.http.models.AuthUser;
@@ -97,7 +102,10 @@ import org.broadinstitute.consent.http.service.AbstractReviewResultsAPI;
 import org.broadinstitute.consent.http.service.AbstractSummaryAPI;
 import org.broadinstitute.consent.http.service.AbstractTranslateService;
 import org.broadinstitute.consent.http.service.AbstractVoteAPI;
+import org.broadinstitute.consent.http.service.ConsentCache;
 import org.broadinstitute.consent.http.service.DacService;
+import org.broadinstitute.consent.http.service.DataAccessRequestOutbox;
+import org.broadinstitute.consent.http.service.DataSetAutocompleteIndex;
 import org.broadinstitute.consent.http.service.DatabaseApprovalExpirationTimeAPI;
 import org.broadinstitute.consent.http.service.DatabaseAuditServiceAPI;
 import org.broadinstitute.consent.http.service.DatabaseConsentAPI;
@@ -118,11 +126,15 @@ import org.broadinstitute.consent.http.service.NihAuthApi;
 import org.broadinstitute.consent.http.service.NihServiceAPI;
 import org.broadinstitute.consent.http.service.TranslateServiceImpl;
 import org.broadinstitute.consent.http.service.UseRestrictionConverter;
+import org.broadinstitute.consent.http.service.UseRestrictionTranslationCache;
+import org.broadinstitute.consent.http.service.UnReviewedDARBackfill;
+import org.broadinstitute.consent.http.service.UseRestrictionMatcher;
 import org.broadinstitute.consent.http.service.VoteService;
 import org.broadinstitute.consent.http.service.ontology.ElasticSearchHealthCheck;
 import org.broadinstitute.consent.http.service.ontology.IndexOntologyService;
 import org.broadinstitute.consent.http.service.ontology.IndexerService;
 import org.broadinstitute.consent.http.service.ontology.IndexerServiceImpl;
+import org.broadinstitute.consent.http.service.ontology.OntologyHierarchyLoader;
 import org.broadinstitute.consent.http.service.ontology.StoreOntologyService;
 import org.broadinstitute.consent.http.service.users.AbstractDACUserAPI;
 import org.broadinstitute.consent.http.service.users.DatabaseDACUserAPI;
@@ -150,6 +162,9 @@ import javax.ws.rs.client.Client;
 import java.io.IOException;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * Top-level entry point to the entire application.
@@ -161,6 +176,16 @@ public class ConsentApplication extends Application<ConsentConfiguration> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger("ConsentApplication");
 
+    /**
+     * Threads rendering the application PDFs of bulk DAR downloads. Dropwizard shuts the pool down with the server.
+     */
+    private static final int PDF_RENDER_THREADS = 4;
+
+    /**
+     * Match requests waiting for a matching thread. Once the queue is full the caller runs the match itself.
+     */
+    private static final int MATCH_QUEUE_SIZE = 256;
+
     public static void main(String[] args) throws Exception {
         LOGGER.info("Starting Consent Application");
         try {
@@ -189,7 +214,6 @@ public class ConsentApplication extends Application<ConsentConfiguration> {
         final DBI jdbi = injector.getProvider(DBI.class).get();
         final MongoConsentDB mongoInstance = injector.getProvider(MongoConsentDB.class).get();
         final Client client = injector.getProvider(Client.class).get();
-        final UseRestrictionConverter useRestrictionConverter = injector.getProvider(UseRestrictionConverter.class).get();
         final GCSStore googleStore = injector.getProvider(GCSStore.class).get();
 
         // DAOs
@@ -210,25 +234,50 @@ public class ConsentApplication extends Application<ConsentConfiguration> {
         final ResearcherPropertyDAO  researcherPropertyDAO = injector.getProvider(ResearcherPropertyDAO.class).get();
         final WorkspaceAuditDAO workspaceAuditDAO = injector.getProvider(WorkspaceAuditDAO.class).get();
         final AssociationDAO associationDAO = injector.getProvider(AssociationDAO.class).get();
+        final DarOutboxDAO darOutboxDAO = injector.getProvider(DarOutboxDAO.class).get();
+        final MailOutboxDAO mailOutboxDAO = injector.getProvider(MailOutboxDAO.class).get();
+        final UseRestrictionTranslationDAO useRestrictionTranslationDAO = injector.getProvider(UseRestrictionTranslationDAO.class).get();
+
+        final StoreOntologyService storeOntologyService
+                = new StoreOntologyService(googleStore,
+                config.getStoreOntologyConfiguration().getBucketSubdirectory(),
+                config.getStoreOntologyConfiguration().getConfigurationFileName());
+        final OntologyHierarchyLoader ontologyHierarchyLoader = new OntologyHierarchyLoader(storeOntologyService);
+        final UseRestrictionTranslationCache translationCache = new UseRestrictionTranslationCache(useRestrictionTranslationDAO, ontologyHierarchyLoader::getVersion, env.metrics());
+        final UseRestrictionConverter useRestrictionConverter = new UseRestrictionConverter(client, config.getServicesConfiguration(), translationCache);
 
         // Services
         final DacService dacService = injector.getProvider(DacService.class).get();
         final VoteService voteService = injector.getProvider(VoteService.class).get();
         DatabaseAuditServiceAPI.initInstance(workspaceAuditDAO, dacUserDAO, associationDAO);
-        DatabaseDataAccessRequestAPI.initInstance(mongoInstance, useRestrictionConverter, electionDAO, consentDAO, voteDAO, dacUserDAO, dataSetDAO, researcherPropertyDAO);
-        DatabaseConsentAPI.initInstance(jdbi, consentDAO, electionDAO, associationDAO, mongoInstance, voteDAO, dataSetDAO);
+        final ConsentCache consentCache = new ConsentCache(consentDAO, env.metrics());
+        ExecutorService pdfRenderers = env.lifecycle().executorService("dar-pdf-renderer-%d").minThreads(PDF_RENDER_THREADS).maxThreads(PDF_RENDER_THREADS).build();
+        DatabaseDataAccessRequestAPI.initInstance(mongoInstance, useRestrictionConverter, electionDAO, consentDAO, voteDAO, dacUserDAO, dataSetDAO, researcherPropertyDAO, consentCache, pdfRenderers);
+        DatabaseConsentAPI.initInstance(jdbi, consentDAO, electionDAO, associationDAO, mongoInstance, voteDAO, dataSetDAO, consentCache);
         DatabaseMatchAPI.initInstance(matchDAO, consentDAO);
-        DatabaseDataSetAPI.initInstance(dataSetDAO, dataSetAssociationDAO, userRoleDAO, consentDAO, dataSetAuditDAO, electionDAO, config.getDatasets());
+        final DataSetAutocompleteIndex dataSetAutocompleteIndex = new DataSetAutocompleteIndex(dataSetDAO);
+        DatabaseDataSetAPI.initInstance(dataSetDAO, dataSetAssociationDAO, userRoleDAO, consentDAO, dataSetAuditDAO, electionDAO, config.getDatasets(), dataSetAutocompleteIndex, consentCache);
         DatabaseDataSetAssociationAPI.initInstance(dataSetDAO, dataSetAssociationDAO, dacUserDAO);
 
         try {
-            MailService.initInstance(config.getMailConfiguration());
+            final MailDispatcher mailDispatcher = new MailDispatcher(config.getMailConfiguration(), jdbi, mailOutboxDAO, env.metrics());
+            MailService.initInstance(config.getMailConfiguration(), mailDispatcher);
+            env.lifecycle().manage(mailDispatcher);
             EmailNotifierService.initInstance(voteDAO, mongoInstance, electionDAO, dacUserDAO, emailDAO, mailServiceDAO, new FreeMarkerTemplateHelper(config.getFreeMarkerConfiguration()), config.getServicesConfiguration().getLocalURL(), config.getMailConfiguration().isActivateEmailNotifications(), researcherPropertyDAO);
         } catch (IOException e) {
             LOGGER.error("Mail Notification Service initialization error.", e);
         }
 
-        DatabaseMatchingServiceAPI.initInstance(client, config.getServicesConfiguration());
+        env.lifecycle().manage(ontologyHierarchyLoader);
+
+        final DarCodeBackfill darCodeBackfill = new DarCodeBackfill(mongoInstance);
+        env.lifecycle().manage(darCodeBackfill);
+        env.lifecycle().addServerLifecycleListener(darCodeBackfill);
+
+        int matchConcurrency = Math.max(1, config.getServicesConfiguration().getMatchConcurrency());
+        ExecutorService matchExecutor = env.lifecycle().executorService("match-%d").minThreads(matchConcurrency).maxThreads(matchConcurrency)
+                .workQueue(new ArrayBlockingQueue<>(MATCH_QUEUE_SIZE)).rejectionHandler(new ThreadPoolExecutor.CallerRunsPolicy()).build();
+        DatabaseMatchingServiceAPI.initInstance(client, config.getServicesConfiguration(), new UseRestrictionMatcher(ontologyHierarchyLoader::getHierarchy), matchExecutor);
         DatabaseMatchProcessAPI.initInstance(consentDAO, mongoInstance);
         DatabaseSummaryAPI.initInstance(voteDAO, electionDAO, dacUserDAO, consentDAO, dataSetDAO ,matchDAO, mongoInstance, dataSetDAO);
         DatabaseElectionCaseAPI.initInstance(electionDAO, voteDAO, dacUserDAO, userRoleDAO, consentDAO, mongoInstance, dataSetDAO);
@@ -239,11 +288,19 @@ public class ConsentApplication extends Application<ConsentConfiguration> {
         TranslateServiceImpl.initInstance(useRestrictionConverter);
         DatabaseHelpReportAPI.initInstance(helpReportDAO, userRoleDAO);
         DatabaseApprovalExpirationTimeAPI.initInstance(approvalExpirationTimeDAO, dacUserDAO);
-        UseRestrictionValidator.initInstance(client, config.getServicesConfiguration(), consentDAO);
-        OAuthAuthenticator.initInstance();
+        UseRestrictionValidator.initInstance(client, config.getServicesConfiguration(), consentDAO, ontologyHierarchyLoader::getVersion);
+        OAuthAuthenticator.initInstance(env.metrics());
+        final DataAccessRequestOutbox dataAccessRequestOutbox = new DataAccessRequestOutbox(darOutboxDAO,
+                AbstractDataAccessRequestAPI.getInstance(), AbstractMatchProcessAPI.getInstance(),
+                AbstractEmailNotifierAPI.getInstance(), AbstractUseRestrictionValidatorAPI.getInstance(), env.metrics());
+        env.lifecycle().manage(dataAccessRequestOutbox);
+        final UnReviewedDARBackfill unReviewedDARBackfill = new UnReviewedDARBackfill(AbstractDataAccessRequestAPI.getInstance());
+        env.lifecycle().manage(unReviewedDARBackfill);
+        env.lifecycle().addServerLifecycleListener(unReviewedDARBackfill);
+        env.lifecycle().manage(dataSetAutocompleteIndex);
 
         // Mail Services
-        DatabaseElectionAPI.initInstance(electionDAO, consentDAO, dacUserDAO, mongoInstance, voteDAO, emailDAO, dataSetDAO);
+        DatabaseElectionAPI.initInstance(jdbi, electionDAO, consentDAO, dacUserDAO, mongoInstance, voteDAO, emailDAO, dataSetDAO, consentCache);
         System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
         configureCors(env);
 
@@ -252,21 +309,15 @@ public class ConsentApplication extends Application<ConsentConfiguration> {
         env.healthChecks().register("google-cloud-storage", new GCSHealthCheck(googleStore));
         env.healthChecks().register("elastic-search", new ElasticSearchHealthCheck(config.getElasticSearchConfiguration()));
 
-        final StoreOntologyService storeOntologyService
-                = new StoreOntologyService(googleStore,
-                config.getStoreOntologyConfiguration().getBucketSubdirectory(),
-                config.getStoreOntologyConfiguration().getConfigurationFileName());
-
-
         final IndexOntologyService indexOntologyService = new IndexOntologyService(config.getElasticSearchConfiguration());
-        final IndexerService indexerService = new IndexerServiceImpl(storeOntologyService, indexOntologyService);
+        final IndexerService indexerService = new IndexerServiceImpl(storeOntologyService, indexOntologyService, ontologyHierarchyLoader);
         final ResearcherAPI researcherAPI = new DatabaseResearcherAPI(researcherPropertyDAO, dacUserDAO, AbstractEmailNotifierAPI.getInstance());
         final UserAPI userAPI = new DatabaseUserAPI(dacUserDAO, userRoleDAO, electionDAO, voteDAO, dataSetAssociationDAO, AbstractUserRolesHandler.getInstance(), researcherPropertyDAO);
         final NihAuthApi nihAuthApi = new NihServiceAPI(researcherAPI);
 
         // Now register our resources.
         env.jersey().register(new IndexerResource(indexerService, googleStore));
-        env.jersey().register(new DataAccessRequestResource(DatabaseDACUserAPI.getInstance(), DatabaseElectionAPI.getInstance(), googleStore));
+        env.jersey().register(new DataAccessRequestResource(DatabaseDACUserAPI.getInstance(), DatabaseElectionAPI.getInstance(), googleStore, dataAccessRequestOutbox));
         env.jersey().register(DataSetResource.class);
         env.jersey().register(DataSetAssociationsResource.class);
         env.jersey().register(ConsentResource.class);
@@ -367,7 +418,7 @@ public class ConsentApplication extends Application<ConsentConfiguration> {
         filter.setInitParameter("allowedOrigins", "*");
         filter.setInitParameter("allowedMethods", "OPTIONS,GET,PUT,POST,DELETE,HEAD,PATCH");
         filter.setInitParameter("allowedHeaders", "X-Requested-With,Content-Type,Accept,Origin,Authorization,Content-Disposition,Access-Control-Expose-Headers,Pragma,Cache-Control,Expires,X-App-ID");
-        filter.setInitParameter("exposeHeaders", "Content-Type,Pragma,Cache-Control,Expires");
+        filter.setInitParameter("exposeHeaders", "Content-Type,Pragma,Cache-Control,Expires,X-Next-Page-Token");
         filter.setInitParameter("allowCredentials", "true");
     }
 }
\ No newline at end of file
@@ -20,13 +20,16 @@ import org.broadinstitute.consent.http.db.UserRoleDAO;
 import org.broadinstitute.consent.http.db.DacDAO;
 import org.broadinstitute.consent.http.db.DataSetAssociationDAO;
 import org.broadinstitute.consent.http.db.DataSetAuditDAO;
+import org.broadinstitute.consent.http.db.DarOutboxDAO;
 import org.broadinstitute.consent.http.db.DataSetDAO;
 import org.broadinstitute.consent.http.db.ElectionDAO;
 import org.broadinstitute.consent.http.db.HelpReportDAO;
 import org.broadinstitute.consent.http.db.MailMessageDAO;
+import org.broadinstitute.consent.http.db.MailOutboxDAO;
 import org.broadinstitute.consent.http.db.MailServiceDAO;
 import org.broadinstitute.consent.http.db.MatchDAO;
 import org.broadinstitute.consent.http.db.ResearcherPropertyDAO;
+import org.broadinstitute.consent.http.db.UseRestrictionTranslationDAO;
 import org.broadinstitute.consent.http.db.VoteDAO;
 import org.broadinstitute.consent.http.db.WorkspaceAuditDAO;
 import org.broadinstitute.consent.http.db.mongo.MongoConsentDB;
@@ -40,11 +43,21 @@ import org.slf4j.LoggerFactory;
 import javax.ws.rs.client.Client;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 
 public class ConsentModule extends AbstractModule {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsentModule.class.getName());
 
+    /**
+     * Threads and queued calls of the pool running async Google Cloud Storage calls. Once the queue is full the
+     * caller runs the call itself.
+     */
+    private static final int GCS_THREADS = 16;
+    private static final int GCS_QUEUE_SIZE = 256;
+
     @Inject
     private final ConsentConfiguration config;
     @Inject
@@ -53,6 +66,7 @@ public class ConsentModule extends AbstractModule {
     private final Client client;
     private final DBI jdbi;
     private final MongoConsentDB mongoInstance;
+    private final ExecutorService gcsExecutor;
     private final ConsentDAO consentDAO;
     private final ElectionDAO electionDAO;
     private final HelpReportDAO helpReportDAO;
@@ -69,6 +83,9 @@ public class ConsentModule extends AbstractModule {
     private final MailServiceDAO mailServiceDAO;
     private final ResearcherPropertyDAO researcherPropertyDAO;
     private final WorkspaceAuditDAO workspaceAuditDAO;
+    private final DarOutboxDAO darOutboxDAO;
+    private final MailOutboxDAO mailOutboxDAO;
+    private final UseRestrictionTranslationDAO useRestrictionTranslationDAO;
     private final AssociationDAO associationDAO;
 
     ConsentModule(ConsentConfiguration consentConfiguration, Environment environment) {
@@ -80,6 +97,8 @@ public class ConsentModule extends AbstractModule {
 
         this.jdbi = new DBIFactory().build(this.environment, config.getDataSourceFactory(), "mysql");
         this.mongoInstance = initMongoDBInstance();
+        this.gcsExecutor = environment.lifecycle().executorService("gcs-%d").minThreads(GCS_THREADS).maxThreads(GCS_THREADS)
+                .workQueue(new ArrayBlockingQueue<>(GCS_QUEUE_SIZE)).rejectionHandler(new ThreadPoolExecutor.CallerRunsPolicy()).build();
 
         this.consentDAO = this.jdbi.onDemand(ConsentDAO.class);
         this.electionDAO = this.jdbi.onDemand(ElectionDAO.class);
@@ -98,6 +117,9 @@ public class ConsentModule extends AbstractModule {
         this.researcherPropertyDAO = this.jdbi.onDemand(ResearcherPropertyDAO.class);
         this.workspaceAuditDAO = this.jdbi.onDemand(WorkspaceAuditDAO.class);
         this.associationDAO = this.jdbi.onDemand(AssociationDAO.class);
+        this.darOutboxDAO = this.jdbi.onDemand(DarOutboxDAO.class);
+        this.mailOutboxDAO = this.jdbi.onDemand(MailOutboxDAO.class);
+        this.useRestrictionTranslationDAO = this.jdbi.onDemand(UseRestrictionTranslationDAO.class);
     }
 
     @Override
@@ -129,7 +151,7 @@ public class ConsentModule extends AbstractModule {
     @Provides
     GCSStore providesGCSStore() {
         try {
-            return new GCSStore(config.getCloudStoreConfiguration());
+            return new GCSStore(config.getCloudStoreConfiguration(), gcsExecutor);
         } catch (GeneralSecurityException | IOException e) {
             LOGGER.error("Couldn't connect to to Google Cloud Storage.", e);
             throw new IllegalStateException(e);
@@ -231,6 +253,21 @@ public class ConsentModule extends AbstractModule {
         return associationDAO;
     }
 
+    @Provides
+    DarOutboxDAO providesDarOutboxDAO() {
+        return darOutboxDAO;
+    }
+
+    @Provides
+    MailOutboxDAO providesMailOutboxDAO() {
+        return mailOutboxDAO;
+    }
+
+    @Provides
+    UseRestrictionTranslationDAO providesUseRestrictionTranslationDAO() {
+        return useRestrictionTranslationDAO;
+    }
+
     // Private helpers
 
     private MongoConsentDB initMongoDBInstance() {
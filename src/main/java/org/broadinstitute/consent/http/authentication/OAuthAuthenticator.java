@@ -1,7 +1,14 @@
 package org.broadinstitute.consent.http.authentication;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
 import io.dropwizard.auth.AuthenticationException;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
@@ -16,26 +23,59 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 
 public class OAuthAuthenticator extends AbstractOAuthAuthenticator  {
 
     private static final String TOKEN_INFO_URL = "https://www.googleapis.com/oauth2/v3/tokeninfo?access_token=";
     private static final Logger logger = LoggerFactory.getLogger(OAuthAuthenticator.class);
+    /**
+     * Google access tokens live for at most an hour, so entries are never kept longer than that regardless of what
+     * tokeninfo reports.
+     */
+    private static final long MAX_TOKEN_TTL_SECONDS = TimeUnit.HOURS.toSeconds(1);
+    /**
+     * How long a token is kept when tokeninfo doesn't report its lifetime.
+     */
+    private static final long DEFAULT_TOKEN_TTL_SECONDS = 60;
+    private static final long MAX_CACHED_TOKENS = 10000;
     private HttpClient httpClient;
+    private final Ticker ticker;
+    private final Cache<String, ValidatedToken> tokenCache;
+    private final Counter expirations;
 
-    public static void initInstance() {
-        AuthenticatorAPIHolder.setInstance(new OAuthAuthenticator());
+    public static void initInstance(MetricRegistry metrics) {
+        AuthenticatorAPIHolder.setInstance(new OAuthAuthenticator(HttpClients.createDefault(), metrics, Ticker.systemTicker()));
     }
 
-    private OAuthAuthenticator() {
-        this.httpClient = HttpClients.createDefault();
+    OAuthAuthenticator(HttpClient httpClient, MetricRegistry metrics, Ticker ticker) {
+        this.httpClient = httpClient;
+        this.ticker = ticker;
+        this.tokenCache = CacheBuilder.newBuilder().
+                maximumSize(MAX_CACHED_TOKENS).
+                expireAfterWrite(MAX_TOKEN_TTL_SECONDS, TimeUnit.SECONDS).
+                ticker(ticker).
+                recordStats().
+                build();
+        this.expirations = metrics.counter(MetricRegistry.name(OAuthAuthenticator.class, "tokenCache", "expirations"));
+        metrics.register(MetricRegistry.name(OAuthAuthenticator.class, "tokenCache", "hits"), (Gauge<Long>) () -> tokenCache.stats().hitCount());
+        metrics.register(MetricRegistry.name(OAuthAuthenticator.class, "tokenCache", "misses"), (Gauge<Long>) () -> tokenCache.stats().missCount());
+        metrics.register(MetricRegistry.name(OAuthAuthenticator.class, "tokenCache", "evictions"), (Gauge<Long>) () -> tokenCache.stats().evictionCount());
+        metrics.register(MetricRegistry.name(OAuthAuthenticator.class, "tokenCache", "size"), (Gauge<Long>) tokenCache::size);
     }
 
+    /**
+     * Replaces the client used to call tokeninfo. Previously validated tokens are discarded so they are checked
+     * against the new client.
+     */
     public void setHttpClient(HttpClient httpClient) {
         this.httpClient = httpClient;
+        tokenCache.invalidateAll();
     }
 
     @Override
@@ -51,7 +91,34 @@ public class OAuthAuthenticator extends AbstractOAuthAuthenticator  {
 
     }
 
+    /**
+     * Looks the token up in the cache, validating it against tokeninfo on a miss. Concurrent requests carrying the
+     * same token share a single validation. Failed validations are not cached.
+     */
     private String validateAccessToken(String bearer) throws AuthenticationException {
+        String key = Hashing.sha256().hashString(bearer, StandardCharsets.UTF_8).toString();
+        try {
+            boolean[] loaded = {false};
+            ValidatedToken token = tokenCache.get(key, () -> {
+                loaded[0] = true;
+                return loadToken(bearer);
+            });
+            // A token this request just validated is used even if its reported lifetime has already run out
+            if (!loaded[0] && token.isExpired(ticker.read())) {
+                tokenCache.asMap().remove(key, token);
+                expirations.inc();
+                token = tokenCache.get(key, () -> loadToken(bearer));
+            }
+            return token.getEmail();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AuthenticationException) {
+                throw (AuthenticationException) e.getCause();
+            }
+            throw new AuthenticationException(e.getCause());
+        }
+    }
+
+    private ValidatedToken loadToken(String bearer) throws AuthenticationException {
         HashMap<String, Object> tokenInfo = validateToken(bearer);
         try {
             String clientId = tokenInfo.containsKey("aud") ? tokenInfo.get("aud").toString() : tokenInfo.get("audience").toString();
@@ -61,7 +128,24 @@ public class OAuthAuthenticator extends AbstractOAuthAuthenticator  {
         } catch (AuthenticationException e) {
             unauthorized(bearer);
         }
-        return tokenInfo.get("email").toString();
+        String email = tokenInfo.get("email").toString();
+        return new ValidatedToken(email, ticker.read() + TimeUnit.SECONDS.toNanos(expiresIn(tokenInfo)));
+    }
+
+    /**
+     * @return The remaining lifetime of the token in seconds, or DEFAULT_TOKEN_TTL_SECONDS if tokeninfo did not report
+     * one, capped at MAX_TOKEN_TTL_SECONDS.
+     */
+    private long expiresIn(HashMap<String, Object> tokenInfo) {
+        Object expiresIn = tokenInfo.get("expires_in");
+        if (expiresIn == null) {
+            return DEFAULT_TOKEN_TTL_SECONDS;
+        }
+        try {
+            return Math.min(Long.parseLong(expiresIn.toString()), MAX_TOKEN_TTL_SECONDS);
+        } catch (NumberFormatException e) {
+            return DEFAULT_TOKEN_TTL_SECONDS;
+        }
     }
 
     private HashMap<String, Object> validateToken(String accessToken) throws AuthenticationException {
@@ -79,6 +163,9 @@ public class OAuthAuthenticator extends AbstractOAuthAuthenticator  {
         } catch (IOException e) {
             unauthorized(accessToken);
         }
+        if (tokenInfo == null) {
+            unauthorized(accessToken);
+        }
         return tokenInfo;
     }
 
@@ -87,5 +174,24 @@ public class OAuthAuthenticator extends AbstractOAuthAuthenticator  {
         throw new AuthenticationException("Provided access token or user credential is either null or empty or does not have permissions to access this resource." + accessToken);
     }
 
+    private static class ValidatedToken {
+
+        private final String email;
+        private final long expiresAtNanos;
+
+        ValidatedToken(String email, long expiresAtNanos) {
+            this.email = email;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        String getEmail() {
+            return email;
+        }
+
+        boolean isExpired(long nowNanos) {
+            return nowNanos - expiresAtNanos >= 0;
+        }
+
+    }
 
-}
\ No newline at end of file
+}
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.CompletableFuture;
 
 public interface CloudStore {
 
@@ -14,6 +15,11 @@ public interface CloudStore {
 
     HttpResponse getStorageDocument(String documentUrl) throws IOException, GeneralSecurityException;
 
+    /**
+     * @param range An HTTP Range header value, e.g. "bytes=0-1023", or null for the whole document.
+     */
+    HttpResponse getStorageDocument(String documentUrl, String range) throws IOException, GeneralSecurityException;
+
     String putStorageDocument(InputStream stream, String type, String fileName) throws IOException, GeneralSecurityException;
 
     String postStorageDocument(InputStream stream, String type, String fileName) throws IOException, GeneralSecurityException;
@@ -22,4 +28,15 @@ public interface CloudStore {
 
     String postOntologyDocument(InputStream stream, String type, String fileName) throws IOException, GeneralSecurityException, URISyntaxException;
 
+    /*
+     * Non-blocking variants, run on the store's own thread pool so resources can release their request thread while
+     * waiting on storage.
+     */
+
+    CompletableFuture<Boolean> deleteStorageDocumentAsync(String documentUrl);
+
+    CompletableFuture<HttpResponse> getStorageDocumentAsync(String documentUrl, String range);
+
+    CompletableFuture<String> putStorageDocumentAsync(InputStream stream, String type, String fileName);
+
 }
@@ -1,13 +1,16 @@
 package org.broadinstitute.consent.http.cloudstore;
 
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.googleapis.media.MediaHttpUploader;
 import com.google.api.client.http.*;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.http.apache.ApacheHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.storage.Storage;
 import com.google.api.services.storage.StorageScopes;
 import com.google.api.services.storage.model.Bucket;
 import com.google.api.services.storage.model.ObjectAccessControl;
 import com.google.api.services.storage.model.StorageObject;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.broadinstitute.consent.http.configurations.StoreConfiguration;
 
@@ -16,32 +19,68 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.security.GeneralSecurityException;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 
 public class GCSStore implements CloudStore {
 
-    private final static HttpTransport HTTP_TRANSPORT = new NetHttpTransport();
+    private static final String STORAGE_APPLICATION_NAME = "DUOS Oversight";
+    /**
+     * Uploads are sent as resumable sessions in chunks of this size. GCS requires a multiple of 256 KiB.
+     */
+    private static final int UPLOAD_CHUNK_SIZE = 8 * MediaHttpUploader.MINIMUM_CHUNK_SIZE;
 
     private final StoreConfiguration sConfig;
-    HttpRequestFactory requestFactory;
-    GoogleCredential credential;
+    private final HttpTransport transport;
+    private final HttpRequestInitializer requestInitializer;
+    private final ExecutorService executor;
+    private volatile HttpRequestFactory requestFactory;
+    private volatile Storage storage;
 
     protected Logger logger() {
         return Logger.getLogger("GCSStore");
     }
 
-    private void initializeCloudStore(){
-        if(credential == null){
-            credential = authorize();
-            requestFactory = HTTP_TRANSPORT.createRequestFactory(credential);
-        }
+    /**
+     * @param executor Runs the async calls. Its owner shuts it down.
+     */
+    public GCSStore(StoreConfiguration config, ExecutorService executor) throws GeneralSecurityException, IOException {
+        // The Apache transport keeps a pool of connections to GCS that is shared by every request this store makes.
+        this(config, new ApacheHttpTransport(), null, executor);
     }
 
-    public GCSStore(StoreConfiguration config) throws GeneralSecurityException, IOException {
-        sConfig = config;
-        credential = null;
-        requestFactory = null;
+    /**
+     * @param requestInitializer Initializer for every request, or null to authorize with the service account
+     *                           credentials in the store configuration on first use.
+     */
+    GCSStore(StoreConfiguration config, HttpTransport transport, HttpRequestInitializer requestInitializer, ExecutorService executor) {
+        this.sConfig = config;
+        this.transport = transport;
+        this.requestInitializer = requestInitializer;
+        this.executor = executor;
+    }
+
+    /**
+     * Credentials and clients are created on first use so the application can start without a reachable key file.
+     */
+    private void initializeCloudStore() {
+        if (storage == null) {
+            synchronized (this) {
+                if (storage == null) {
+                    HttpRequestInitializer initializer = requestInitializer != null ? requestInitializer : authorize();
+                    requestFactory = transport.createRequestFactory(initializer);
+                    Storage.Builder builder = new Storage.Builder(transport, JacksonFactory.getDefaultInstance(), initializer)
+                            .setApplicationName(STORAGE_APPLICATION_NAME);
+                    if (StringUtils.isNotEmpty(sConfig.getApiRootUrl())) {
+                        builder.setRootUrl(sConfig.getApiRootUrl());
+                    }
+                    storage = builder.build();
+                }
+            }
+        }
     }
 
     @Override
@@ -65,17 +104,12 @@ public class GCSStore implements CloudStore {
         return credential;
     }
 
-    private HttpRequest buildHttpDeleteRequest(GenericUrl url) throws IOException, GeneralSecurityException {
-        HttpRequest request = requestFactory.buildDeleteRequest(url);
-        return request;
-    }
-
     @Override
     public boolean deleteStorageDocument(String documentUrl) {
         HttpResponse response = null;
         try {
             initializeCloudStore();
-            HttpRequest request = buildHttpDeleteRequest(new GenericUrl(documentUrl));
+            HttpRequest request = requestFactory.buildDeleteRequest(new GenericUrl(documentUrl));
             response = request.execute();
             return true;
         } catch (Exception e) {
@@ -92,94 +126,90 @@ public class GCSStore implements CloudStore {
         }
     }
 
-    private HttpRequest buildHttpGetRequest(GenericUrl url) throws IOException, GeneralSecurityException {
-        return requestFactory.buildGetRequest(url);
-    }
-
     @Override
     public HttpResponse getStorageDocument(String documentUrl) throws IOException, GeneralSecurityException {
-        HttpResponse response;
-        initializeCloudStore();
-        HttpRequest request = buildHttpGetRequest(new GenericUrl(documentUrl));
-        response = request.execute();
-        return response;
+        return getStorageDocument(documentUrl, null);
     }
 
-    private HttpRequest buildHttpPutRequest(GenericUrl url, HttpContent content) throws IOException, GeneralSecurityException {
-        HttpRequest request = requestFactory.buildPutRequest(url, content);
-        return request;
+    @Override
+    public HttpResponse getStorageDocument(String documentUrl, String range) throws IOException, GeneralSecurityException {
+        initializeCloudStore();
+        HttpRequest request = requestFactory.buildGetRequest(new GenericUrl(documentUrl));
+        if (StringUtils.isNotBlank(range)) {
+            request.getHeaders().setRange(range);
+        }
+        return request.execute();
     }
 
     @Override
     public String postStorageDocument(InputStream stream, String type, String fileName) throws IOException, GeneralSecurityException {
-        GenericUrl url = generateURLForDocument(fileName);
-        HttpResponse response = null;
-        try {
-            initializeCloudStore();
-            HttpContent content = new InputStreamContent(type, stream);
-            HttpRequest request = buildHttpPutRequest(url, content);
-            request.getHeaders().setCacheControl("private");
-            response = request.execute();
-            if (response.getStatusCode() != 200) {
-                logger().error("Error storing contents: " + response.getStatusMessage());
-            }
-        } finally {
-            if (null != response) {
-                try {
-                    response.disconnect();
-                } catch (IOException e) {
-                    logger().error("Error disconnecting response.", e);
-                }
-            }
-        }
-        return url.toString();
+        return uploadDocument(stream, type, fileName, null);
     }
 
     @Override
     public String putStorageDocument(InputStream stream, String type, String fileName) throws IOException, GeneralSecurityException {
-        GenericUrl url = generateURLForDocument(fileName);
-        HttpResponse response = null;
-        try {
-            initializeCloudStore();
-            HttpContent content = new InputStreamContent(type, stream);
-            HttpRequest request = buildHttpPutRequest(url, content);
-            request.getHeaders().setCacheControl("private");
-            response = request.execute();
-            if (response.getStatusCode() != 200) {
-                logger().error("Error storing contents: " + response.getStatusMessage());
-            }
-        } finally {
-            if (null != response) {
-                try {
-                    response.disconnect();
-                } catch (IOException e) {
-                    logger().error("Error disconnecting response.", e);
-                }
-            }
-        }
-        return url.toString();
+        return uploadDocument(stream, type, fileName, null);
     }
 
     public Bucket getBucketMetadata() throws IOException, GeneralSecurityException {
-        Storage client = StorageFactory.getService(sConfig.getPassword());
-
-        // com.google.api.services.storage.Storage.Buckets.get()
-        return client.buckets().get(sConfig.getBucket()).execute();
+        initializeCloudStore();
+        return storage.buckets().get(sConfig.getBucket()).execute();
     }
 
     @Override
     public String postOntologyDocument(InputStream stream, String type, String fileName) throws IOException, GeneralSecurityException, URISyntaxException {
-        InputStreamContent contentStream = new InputStreamContent(type, stream);
+        return uploadDocument(stream, type, fileName,
+                Collections.singletonList(new ObjectAccessControl().setEntity("allUsers").setRole("READER")));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteStorageDocumentAsync(String documentUrl) {
+        return CompletableFuture.supplyAsync(() -> deleteStorageDocument(documentUrl), executor);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> getStorageDocumentAsync(String documentUrl, String range) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return getStorageDocument(documentUrl, range);
+            } catch (IOException | GeneralSecurityException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<String> putStorageDocumentAsync(InputStream stream, String type, String fileName) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return putStorageDocument(stream, type, fileName);
+            } catch (IOException | GeneralSecurityException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Streams the document to the bucket as a resumable upload, so large files are sent in chunks and an interrupted
+     * chunk is retried instead of restarting the whole file.
+     *
+     * @return The URL the document can be retrieved from.
+     */
+    private String uploadDocument(InputStream stream, String type, String fileName, List<ObjectAccessControl> acl) throws IOException {
+        initializeCloudStore();
         StorageObject objectMetadata = new StorageObject()
-                .setCacheControl("private")
                 .setName(fileName)
-                .setAcl(Arrays.asList(new ObjectAccessControl().setEntity("allUsers").setRole("READER")));
-        Storage client = StorageFactory.getService(sConfig.getPassword());
-        Storage.Objects.Insert insertRequest = client.objects().insert(
-                sConfig.getBucket(), objectMetadata, contentStream);
+                .setContentType(type)
+                .setCacheControl("private")
+                .setAcl(acl);
+        Storage.Objects.Insert insertRequest = storage.objects().insert(
+                sConfig.getBucket(), objectMetadata, new InputStreamContent(type, stream));
         insertRequest.getRequestHeaders().setCacheControl("private");
+        insertRequest.getMediaHttpUploader()
+                .setDirectUploadEnabled(false)
+                .setChunkSize(UPLOAD_CHUNK_SIZE);
         insertRequest.execute();
         return generateURLForDocument(fileName).toString();
     }
 
-}
\ No newline at end of file
+}
@@ -12,6 +12,16 @@ public class ElasticSearchConfiguration {
     @NotEmpty
     private List<String> servers;
 
+    /**
+     * Number of terms sent in each _bulk indexing request.
+     */
+    private int bulkBatchSize = 500;
+
+    /**
+     * Maximum number of _bulk indexing requests in flight at once.
+     */
+    private int bulkConcurrency = 4;
+
     public List<String> getServers() {
         return servers;
     }
@@ -27,4 +37,20 @@ public class ElasticSearchConfiguration {
     public void setIndexName(String indexName) {
         this.indexName = indexName;
     }
+
+    public int getBulkBatchSize() {
+        return bulkBatchSize;
+    }
+
+    public void setBulkBatchSize(int bulkBatchSize) {
+        this.bulkBatchSize = bulkBatchSize;
+    }
+
+    public int getBulkConcurrency() {
+        return bulkConcurrency;
+    }
+
+    public void setBulkConcurrency(int bulkConcurrency) {
+        this.bulkConcurrency = bulkConcurrency;
+    }
 }
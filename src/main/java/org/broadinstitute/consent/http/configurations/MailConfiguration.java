@@ -14,6 +14,11 @@ public class MailConfiguration {
     @NotNull
     String sendGridApiKey;
 
+    /**
+     * Host of a plain HTTP stand-in for SendGrid, used in tests instead of the real API when set.
+     */
+    String sendGridTestHost;
+
     public boolean isActivateEmailNotifications() {
         return activateEmailNotifications;
     }
@@ -37,4 +42,12 @@ public class MailConfiguration {
     public void setSendGridApiKey(String sendGridApiKey) {
         this.sendGridApiKey = sendGridApiKey;
     }
+
+    public String getSendGridTestHost() {
+        return sendGridTestHost;
+    }
+
+    public void setSendGridTestHost(String sendGridTestHost) {
+        this.sendGridTestHost = sendGridTestHost;
+    }
 }
@@ -10,6 +10,16 @@ public class ServicesConfiguration {
     @NotNull
     private String localURL;
 
+    /**
+     * One of "remote", "local" or "crossCheck". See {@link org.broadinstitute.consent.http.enumeration.MatchMode}
+     */
+    private String matchMode = "local";
+
+    /**
+     * Number of data access requests evaluated concurrently when matching a consent
+     */
+    private int matchConcurrency = 8;
+
     private final String MATCH = "match";
 
     private final String VALIDATE_USE_RESTRICTION = "validate/userestriction";
@@ -30,6 +40,22 @@ public class ServicesConfiguration {
         this.localURL = localURL;
     }
 
+    public String getMatchMode() {
+        return matchMode;
+    }
+
+    public void setMatchMode(String matchMode) {
+        this.matchMode = matchMode;
+    }
+
+    public int getMatchConcurrency() {
+        return matchConcurrency;
+    }
+
+    public void setMatchConcurrency(int matchConcurrency) {
+        this.matchConcurrency = matchConcurrency;
+    }
+
     public String getMatchURL() {
         return getOntologyURL() + MATCH;
     }
@@ -13,6 +13,11 @@ public class StoreConfiguration {
     @NotNull
     public String bucket;
 
+    /**
+     * Root URL of the JSON API, e.g. to point at an emulator. The Storage client default is used when unset.
+     */
+    public String apiRootUrl;
+
     public String getPassword() {
         return password;
     }
@@ -37,4 +42,12 @@ public class StoreConfiguration {
         this.bucket = bucket;
     }
 
+    public String getApiRootUrl() {
+        return apiRootUrl;
+    }
+
+    public void setApiRootUrl(String apiRootUrl) {
+        this.apiRootUrl = apiRootUrl;
+    }
+
 }
@@ -0,0 +1,31 @@
+package org.broadinstitute.consent.http.db;
+
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the searchable fields of a dataset, each in its own key, for the in-memory autocomplete index.
+ */
+public class AutocompleteEntryMapper implements ResultSetMapper<Map<String, String>> {
+
+    public static final String ID = "id";
+    public static final String OBJECT_ID = "objectId";
+    public static final String NAME = "name";
+    public static final String PROPERTY_VALUE = "propertyValue";
+    public static final String CONSENT_NAME = "consentName";
+
+    public Map<String, String> map(int index, ResultSet r, StatementContext ctx) throws SQLException {
+        Map<String, String> entry = new HashMap<>();
+        entry.put(ID, r.getString("id"));
+        entry.put(OBJECT_ID, r.getString("objId"));
+        entry.put(NAME, r.getString("name"));
+        entry.put(PROPERTY_VALUE, r.getString("propertyValue"));
+        entry.put(CONSENT_NAME, r.getString("consentName"));
+        return entry;
+    }
+}
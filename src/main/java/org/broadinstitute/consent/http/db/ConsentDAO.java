@@ -5,8 +5,10 @@ import org.broadinstitute.consent.http.models.ConsentDataSet;
 import org.broadinstitute.consent.http.models.ConsentManage;
 import org.broadinstitute.consent.http.models.dto.UseRestrictionDTO;
 import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
 import org.skife.jdbi.v2.sqlobject.customizers.Mapper;
 import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
@@ -118,6 +120,12 @@ public interface ConsentDAO extends Transactional<ConsentDAO> {
                        @Bind("associationType") String associationType,
                        @Bind("dataSetId") Integer dataSetId);
 
+    @SqlBatch("insert into consentassociations (consentId, associationType, dataSetId) values (:consentId, :associationType, :dataSetId)")
+    @BatchChunkSize(1000)
+    void insertConsentAssociations(@Bind("consentId") List<String> consentIds,
+                                   @Bind("associationType") String associationType,
+                                   @Bind("dataSetId") List<Integer> dataSetIds);
+
 
     @SqlQuery("select ds.objectId from consentassociations ca inner join dataset ds on ds.dataSetId = ca.dataSetId where ca.consentId = :consentId and ca.associationType = :associationType")
     List<String> findAssociationsByType(@Bind("consentId") String consentId,
@@ -170,6 +178,36 @@ public interface ConsentDAO extends Transactional<ConsentDAO> {
     @Mapper(ConsentManageMapper.class)
     List<ConsentManage> findConsentManageByStatus(@Bind("status") String status);
 
+    /**
+     * Consents with their last election, newest first. The status is either 'all', 'un-reviewed' for consents that
+     * never had an election, or the status of the last election.
+     */
+    String CONSENT_MANAGE_PAGE = "select c.consentId, c.name, c.createDate, c.sortDate, c.groupName, c.updated, e.electionId, e.status, e.version, e.archived " +
+            "from consents c left join (select referenceId, MAX(createDate) maxDate from election group by referenceId) electionView " +
+            "on electionView.referenceId = c.consentId " +
+            "left join election e on e.referenceId = electionView.referenceId and e.createDate = electionView.maxDate " +
+            "where ((e.electionId is null and (:status = 'all' or :status = 'un-reviewed')) " +
+            "or (e.status in ('Open', 'Canceled', 'Closed') and (:status = 'all' or :status = e.status))) ";
+
+    /**
+     * Consents without a sort date are ordered as if sorted at :missingSortDate, a date before any real one, so they
+     * come last and can still be paged through.
+     */
+    String CONSENT_MANAGE_ORDER = " order by coalesce(c.sortDate, :missingSortDate) desc, c.consentId desc limit :limit";
+
+    @SqlQuery(CONSENT_MANAGE_PAGE + CONSENT_MANAGE_ORDER)
+    @Mapper(ConsentManageMapper.class)
+    List<ConsentManage> findConsentManagePage(@Bind("status") String status, @Bind("missingSortDate") Date missingSortDate,
+                                              @Bind("limit") Integer limit);
+
+    @SqlQuery(CONSENT_MANAGE_PAGE +
+            "and (coalesce(c.sortDate, :missingSortDate) \\< :sortDate or " +
+            "(coalesce(c.sortDate, :missingSortDate) = :sortDate and c.consentId \\< :consentId)) " + CONSENT_MANAGE_ORDER)
+    @Mapper(ConsentManageMapper.class)
+    List<ConsentManage> findConsentManagePageAfter(@Bind("status") String status, @Bind("sortDate") Date sortDate,
+                                                   @Bind("consentId") String consentId, @Bind("missingSortDate") Date missingSortDate,
+                                                   @Bind("limit") Integer limit);
+
     @SqlQuery("select ca.consentId from consentassociations ca  where ca.dataSetId IN (<dataSetIdList>) ")
     List<String> getAssociationsConsentIdfromDataSetIds(@BindIn("dataSetIdList") List<String> dataSetIdList);
 
@@ -177,13 +215,18 @@ public interface ConsentDAO extends Transactional<ConsentDAO> {
     @SqlQuery("select consentId, name, useRestriction from consents where valid_restriction = false ")
     List<UseRestrictionDTO> findInvalidRestrictions();
 
-    @Mapper(UseRestrictionMapper.class)
-    @SqlQuery("select consentId, useRestriction, name from consents ")
+    @Mapper(UseRestrictionChecksumMapper.class)
+    @SqlQuery("select consentId, useRestriction, name, restriction_checksum from consents ")
     List<UseRestrictionDTO> findConsentUseRestrictions();
 
-    @SqlUpdate("update consents set  valid_restriction = :valid_restriction where consentId in (<consentId>) ")
-    void updateConsentValidUseRestriction(@BindIn("consentId") List<String> consentId,
-                                   @Bind("valid_restriction") Boolean validRestriction);
+    /**
+     * Records the result of validating each consent's restriction, with the checksum of the restriction validated.
+     */
+    @SqlBatch("update consents set valid_restriction = :validRestriction, restriction_checksum = :checksum where consentId = :consentId")
+    @BatchChunkSize(1000)
+    void updateConsentRestrictionValidation(@Bind("consentId") List<String> consentIds,
+                                            @Bind("validRestriction") List<Boolean> validRestrictions,
+                                            @Bind("checksum") List<String> checksums);
 
     @SqlUpdate("update consents set updated = :consentStatus where consentId = :referenceId")
     void updateConsentUpdateStatus(@Bind("referenceId") String referenceId,
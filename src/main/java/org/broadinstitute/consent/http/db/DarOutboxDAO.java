@@ -0,0 +1,46 @@
+package org.broadinstitute.consent.http.db;
+
+import org.broadinstitute.consent.http.models.DarOutboxTask;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
+import org.skife.jdbi.v2.sqlobject.stringtemplate.UseStringTemplate3StatementLocator;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outbox of side effects that follow the creation of a data access request. A task is claimed by bumping its attempt
+ * count and pushing its next attempt date out by a lease, so only one worker runs it even with several application
+ * instances polling the table.
+ */
+@UseStringTemplate3StatementLocator
+@RegisterMapper({DarOutboxTaskMapper.class})
+public interface DarOutboxDAO {
+
+    @SqlUpdate("insert into dar_outbox (idempotency_key, task_type, reference_id, attempts, next_attempt_date, create_date, failed) " +
+            " values (:idempotencyKey, :taskType, :referenceId, 0, :nextAttemptDate, :createDate, false)")
+    void insertTask(@BindBean DarOutboxTask task);
+
+    @SqlQuery("select * from dar_outbox where failed = false and next_attempt_date \\<= :now order by next_attempt_date limit :limit")
+    List<DarOutboxTask> findDueTasks(@Bind("now") Date now, @Bind("limit") Integer limit);
+
+    @SqlUpdate("update dar_outbox set attempts = attempts + 1, next_attempt_date = :leaseUntil " +
+            " where id = :id and attempts = :attempts and failed = false")
+    int claimTask(@Bind("id") Long id, @Bind("attempts") Integer attempts, @Bind("leaseUntil") Date leaseUntil);
+
+    @SqlUpdate("delete from dar_outbox where id = :id")
+    void deleteTask(@Bind("id") Long id);
+
+    @SqlUpdate("update dar_outbox set next_attempt_date = :nextAttemptDate, last_error = :lastError, failed = :failed where id = :id")
+    void updateTaskFailure(@Bind("id") Long id, @Bind("nextAttemptDate") Date nextAttemptDate, @Bind("lastError") String lastError, @Bind("failed") Boolean failed);
+
+    @SqlQuery("select count(*) from dar_outbox where failed = false")
+    Integer countPendingTasks();
+
+    @SqlQuery("select count(*) from dar_outbox where failed = true")
+    Integer countFailedTasks();
+
+}
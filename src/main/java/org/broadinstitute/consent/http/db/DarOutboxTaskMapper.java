@@ -0,0 +1,24 @@
+package org.broadinstitute.consent.http.db;
+
+import org.broadinstitute.consent.http.models.DarOutboxTask;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class DarOutboxTaskMapper implements ResultSetMapper<DarOutboxTask> {
+
+    public DarOutboxTask map(int index, ResultSet r, StatementContext ctx) throws SQLException {
+        DarOutboxTask task = new DarOutboxTask();
+        task.setId(r.getLong("id"));
+        task.setIdempotencyKey(r.getString("idempotency_key"));
+        task.setTaskType(r.getString("task_type"));
+        task.setReferenceId(r.getString("reference_id"));
+        task.setAttempts(r.getInt("attempts"));
+        task.setNextAttemptDate(r.getTimestamp("next_attempt_date"));
+        task.setCreateDate(r.getTimestamp("create_date"));
+        task.setLastError(r.getString("last_error"));
+        return task;
+    }
+}
@@ -7,6 +7,7 @@ import org.skife.jdbi.v2.sqlobject.BindBean;
 import org.skife.jdbi.v2.sqlobject.GetGeneratedKeys;
 import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
 import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
 
 
@@ -14,6 +15,7 @@ public interface DataSetAuditDAO extends Transactional<DataSetAuditDAO> {
 
     @SqlBatch("insert into dataset_audit_property (dataset_audit_id, dataSetId, propertyKey, propertyValue, modificationDate)" +
             " values (:dataSetAuditId, :dataSetId, :propertyKey, :propertyValue, :date)")
+    @BatchChunkSize(1000)
     void insertDataSetAuditProperties(@BindBean List<DataSetAuditProperty> dataSetPropertiesList);
 
     @SqlUpdate("insert into dataset_audit (dataSetId, changeAction, modifiedByUser, modificationDate, objectId, name, active) " +
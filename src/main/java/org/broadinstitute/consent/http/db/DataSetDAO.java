@@ -6,11 +6,13 @@ import org.broadinstitute.consent.http.models.DataSetProperty;
 import org.broadinstitute.consent.http.models.Dictionary;
 import org.broadinstitute.consent.http.models.dto.DataSetDTO;
 import org.broadinstitute.consent.http.resources.Resource;
+import org.skife.jdbi.v2.ResultIterator;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
 import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
 import org.skife.jdbi.v2.sqlobject.customizers.Mapper;
 import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
@@ -44,16 +46,20 @@ public interface DataSetDAO extends Transactional<DataSetDAO> {
     List<DataSet> findNeedsApprovalDataSetByDataSetId(@BindIn("dataSetIdList") List<Integer> dataSetIdList);
 
     @SqlBatch("insert into dataset (name, createDate, objectId, active, alias) values (:name, :createDate, :objectId, :active, :alias)")
+    @BatchChunkSize(1000)
     void insertAll(@BindBean Collection<DataSet> dataSets);
 
     @SqlBatch("update dataset set name = :name, createDate = :createDate, active = :active, alias = :alias where dataSetId = :dataSetId")
+    @BatchChunkSize(1000)
     void updateAll(@BindBean Collection<DataSet> dataSets);
 
     @SqlBatch("update dataset set name = :name, active = :active, createDate = :createDate, alias = :alias where objectId = :objectId")
+    @BatchChunkSize(1000)
     void updateAllByObjectId(@BindBean Collection<DataSet> dataSets);
 
     @SqlBatch("insert into datasetproperty (dataSetId, propertyKey, propertyValue, createDate )" +
             " values (:dataSetId, :propertyKey, :propertyValue, :createDate)")
+    @BatchChunkSize(1000)
     void insertDataSetsProperties(@BindBean List<DataSetProperty> dataSetPropertiesList);
 
     @SqlBatch("delete from datasetproperty where dataSetId = :dataSetId")
@@ -71,12 +77,25 @@ public interface DataSetDAO extends Transactional<DataSetDAO> {
     @SqlUpdate("update dataset set needs_approval = :needs_approval where dataSetId = :dataSetId")
     void updateDataSetNeedsApproval(@Bind("dataSetId") Integer dataSetId, @Bind("needs_approval") Boolean needs_approval);
 
-    @Mapper(DataSetPropertiesMapper.class)
-    @SqlQuery("select d.*, k.key, dp.propertyValue, ca.consentId , c.translatedUseRestriction " +
-            "from dataset d inner join datasetproperty dp on dp.dataSetId = d.dataSetId and d.name is not null inner join dictionary k on k.keyId = dp.propertyKey " +
-            "inner join consentassociations ca on ca.dataSetId = d.dataSetId inner join consents c on c.consentId = ca.consentId " +
-            "order by d.dataSetId, k.displayOrder")
-    Set<DataSetDTO> findDataSets();
+    String HAS_PROPERTIES = " exists (select 1 from datasetproperty dp inner join dictionary k on k.keyId = dp.propertyKey where dp.dataSetId = d.dataSetId) ";
+
+    @Mapper(DataSetDTOMapper.class)
+    @SqlQuery("select d.*, ca.consentId, c.translatedUseRestriction " +
+            "from dataset d inner join consentassociations ca on ca.dataSetId = d.dataSetId inner join consents c on c.consentId = ca.consentId " +
+            "where d.name is not null and " + HAS_PROPERTIES + " order by d.dataSetId")
+    List<DataSetDTO> findDataSetRows();
+
+    @Mapper(DataSetDTOMapper.class)
+    @SqlQuery("select d.*, ca.consentId, c.translatedUseRestriction from dataset d " +
+            " inner join consentassociations ca on ca.dataSetId = d.dataSetId inner join consents c on c.consentId = ca.consentId inner join election e on e.referenceId = ca.consentId " +
+            " inner join vote v on v.electionId = e.electionId and v.type = '" + CHAIRPERSON  + "' inner join (SELECT referenceId,MAX(createDate) maxDate FROM election where status ='Closed' group by referenceId) ev on ev.maxDate = e.createDate " +
+            " and ev.referenceId = e.referenceId and v.vote = true and d.active = true where " + HAS_PROPERTIES + " order by d.dataSetId")
+    List<DataSetDTO> findDataSetRowsForResearcher();
+
+    @Mapper(DataSetPropertyMapper.class)
+    @SqlQuery("select dp.dataSetId, dp.propertyKey, dp.propertyValue from datasetproperty dp inner join dictionary k on k.keyId = dp.propertyKey " +
+            "where dp.dataSetId in (<dataSetIdList>) order by dp.dataSetId, k.displayOrder")
+    List<DataSetProperty> findDataSetPropertiesByDataSetIds(@BindIn("dataSetIdList") List<Integer> dataSetIdList);
 
     @Mapper(DataSetPropertiesMapper.class)
     @SqlQuery("select d.*, k.key, dp.propertyValue, ca.consentId , c.translatedUseRestriction " +
@@ -85,13 +104,6 @@ public interface DataSetDAO extends Transactional<DataSetDAO> {
             "where d.dataSetId = :dataSetId order by d.dataSetId, k.displayOrder")
     Set<DataSetDTO> findDataSetWithPropertiesByDataSetId(@Bind("dataSetId") Integer dataSetId);
 
-    @Mapper(DataSetPropertiesMapper.class)
-    @SqlQuery(" select d.*, k.key, dp.propertyValue, ca.consentId , c.translatedUseRestriction from dataset  d inner join datasetproperty dp on dp.dataSetId = d.dataSetId " +
-            " inner join dictionary k on k.keyId = dp.propertyKey inner join consentassociations ca on ca.dataSetId = d.dataSetId inner join consents c on c.consentId = ca.consentId inner join election e on e.referenceId = ca.consentId " +
-            " inner join vote v on v.electionId = e.electionId and v.type = '" + CHAIRPERSON  + "' inner join (SELECT referenceId,MAX(createDate) maxDate FROM election where status ='Closed' group by referenceId) ev on ev.maxDate = e.createDate " +
-            " and ev.referenceId = e.referenceId and v.vote = true and d.active = true order by d.dataSetId, k.displayOrder")
-    Set<DataSetDTO> findDataSetsForResearcher();
-
     @Mapper(DataSetPropertiesMapper.class)
     @SqlQuery("select d.*, k.key, dp.propertyValue, ca.consentId , c.translatedUseRestriction " +
             "from dataset d inner join datasetproperty dp on dp.dataSetId = d.dataSetId inner join dictionary k on k.keyId = dp.propertyKey " +
@@ -99,6 +111,14 @@ public interface DataSetDAO extends Transactional<DataSetDAO> {
             "where d.dataSetId in (<dataSetIdList>) order by d.dataSetId, k.receiveOrder")
     Set<DataSetDTO> findDataSetsByReceiveOrder(@BindIn("dataSetIdList") List<Integer> dataSetIdList);
 
+    @Mapper(DataSetPropertyRowMapper.class)
+    @StreamResults
+    @SqlQuery("select d.dataSetId, d.name, k.key, dp.propertyValue, ca.consentId " +
+            "from dataset d inner join datasetproperty dp on dp.dataSetId = d.dataSetId inner join dictionary k on k.keyId = dp.propertyKey " +
+            "inner join consentassociations ca on ca.dataSetId = d.dataSetId inner join consents c on c.consentId = ca.consentId " +
+            "where d.dataSetId in (<dataSetIdList>) order by d.dataSetId, k.receiveOrder")
+    ResultIterator<DataSetDTO> iterateDataSetPropertiesByReceiveOrder(@BindIn("dataSetIdList") List<Integer> dataSetIdList);
+
 
     @SqlQuery("select *  from dataset where objectId in (<objectIdList>) ")
     List<DataSet> searchDataSetsByObjectIdList(@BindIn("objectIdList") List<String> objectIdList);
@@ -131,8 +151,10 @@ public interface DataSetDAO extends Transactional<DataSetDAO> {
     @SqlQuery("SELECT * FROM consentassociations ca inner join dataset ds on ds.dataSetId = ca.dataSetId WHERE ds.dataSetId IN (<dataSetIdList>)")
     List<Association> getAssociationsForDataSetIdList(@BindIn("dataSetIdList") List<Integer> dataSetIdList);
 
-    @RegisterMapper({AutocompleteMapper.class})
-    @SqlQuery("SELECT DISTINCT d.dataSetId as id, d.objectId as objId, CONCAT_WS(' | ', d.objectId, d.name, dsp.propertyValue, c.name) as concatenation FROM dataset d " +
+    /**
+     * Searchable fields of the active datasets whose consent was approved in its last closed election.
+     */
+    String AUTOCOMPLETE_ENTRIES = "SELECT DISTINCT d.dataSetId as id, d.objectId as objId, d.name, dsp.propertyValue, c.name as consentName FROM dataset d " +
             " inner join consentassociations ca on ca.dataSetId = d.dataSetId and d.active = true" +
             " inner join consents c on c.consentId = ca.consentId " +
             " inner join election e on e.referenceId = ca.consentId " +
@@ -140,13 +162,15 @@ public interface DataSetDAO extends Transactional<DataSetDAO> {
             " inner join vote v on v.electionId = e.electionId and v.type = '" + CHAIRPERSON  +
             "'inner join (SELECT referenceId,MAX(createDate) maxDate FROM" +
             " election where status ='Closed' group by referenceId) ev on ev.maxDate = e.createDate and ev.referenceId = e.referenceId " +
-            " and v.vote = true " +
-            " and (d.objectId like concat('%',:partial,'%') " +
-            " or d.name like concat('%',:partial,'%') " +
-            " or dsp.propertyValue like concat('%',:partial,'%')" +
-            " or c.name like concat('%',:partial,'%') )" +
-            " order by d.dataSetId")
-    List< Map<String, String>> getObjectIdsbyPartial(@Bind("partial") String partial);
+            " and v.vote = true ";
+
+    @RegisterMapper({AutocompleteEntryMapper.class})
+    @SqlQuery(AUTOCOMPLETE_ENTRIES + " order by d.dataSetId")
+    List<Map<String, String>> getAutocompleteEntries();
+
+    @RegisterMapper({AutocompleteEntryMapper.class})
+    @SqlQuery(AUTOCOMPLETE_ENTRIES + " where d.dataSetId in (<dataSetIdList>) order by d.dataSetId")
+    List<Map<String, String>> getAutocompleteEntriesByDataSetIds(@BindIn("dataSetIdList") Collection<Integer> dataSetIdList);
 
     @RegisterMapper({AutocompleteMapper.class})
     @SqlQuery("SELECT DISTINCT d.dataSetId as id, d.objectId as objId, CONCAT_WS(' | ', d.objectId, d.name, dsp.propertyValue, c.name) as concatenation " +
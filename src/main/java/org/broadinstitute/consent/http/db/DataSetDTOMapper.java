@@ -0,0 +1,29 @@
+package org.broadinstitute.consent.http.db;
+
+import org.broadinstitute.consent.http.models.dto.DataSetDTO;
+import org.broadinstitute.consent.http.models.dto.DataSetPropertyDTO;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+/**
+ * Maps one dataset row, with its consent, to a DTO holding only the dataset name property. The remaining
+ * properties are loaded separately, see {@link DataSetDAO#findDataSetPropertiesByDataSetIds(java.util.List)}.
+ */
+public class DataSetDTOMapper implements ResultSetMapper<DataSetDTO> {
+
+    public DataSetDTO map(int index, ResultSet r, StatementContext ctx) throws SQLException {
+        DataSetDTO dataSetDTO = new DataSetDTO(new ArrayList<>());
+        dataSetDTO.setConsentId(r.getString("consentId"));
+        dataSetDTO.setAlias(r.getInt("alias"));
+        dataSetDTO.setDataSetId(r.getInt("dataSetId"));
+        dataSetDTO.setActive(r.getBoolean("active"));
+        dataSetDTO.setTranslatedUseRestriction(r.getString("translatedUseRestriction"));
+        dataSetDTO.getProperties().add(new DataSetPropertyDTO("Dataset Name", r.getString("name")));
+        dataSetDTO.setNeedsApproval(r.getBoolean("needs_approval"));
+        return dataSetDTO;
+    }
+}
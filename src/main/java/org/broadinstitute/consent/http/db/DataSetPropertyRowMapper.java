@@ -0,0 +1,27 @@
+package org.broadinstitute.consent.http.db;
+
+import org.broadinstitute.consent.http.models.dto.DataSetDTO;
+import org.broadinstitute.consent.http.models.dto.DataSetPropertyDTO;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+/**
+ * Maps a single dataset property row, without folding the rows of a dataset together like
+ * {@link DataSetPropertiesMapper} does, so results can be streamed. The dataset name comes first, followed by the
+ * property of the row.
+ */
+public class DataSetPropertyRowMapper implements ResultSetMapper<DataSetDTO> {
+
+    public DataSetDTO map(int index, ResultSet r, StatementContext ctx) throws SQLException {
+        DataSetDTO dataSetDTO = new DataSetDTO(new ArrayList<>());
+        dataSetDTO.setDataSetId(r.getInt("dataSetId"));
+        dataSetDTO.setConsentId(r.getString("consentId"));
+        dataSetDTO.getProperties().add(new DataSetPropertyDTO("Dataset Name", r.getString("name")));
+        dataSetDTO.getProperties().add(new DataSetPropertyDTO(r.getString(DataSetPropertiesMapper.PROPERTY_KEY), r.getString(DataSetPropertiesMapper.PROPERTY_PROPERTYVALUE)));
+        return dataSetDTO;
+    }
+}
@@ -215,6 +215,11 @@ public interface ElectionDAO extends Transactional<ElectionDAO> {
             + "' where e.electionType = :type  and e.status in  (<status>) order by createDate asc")
     List<Election> findElectionsWithFinalVoteByTypeAndStatus(@Bind("type") String type, @BindIn("status") List<String> status);
 
+    @SqlQuery("select e.electionId, e.datasetId,  v.vote finalVote, e.status, e.createDate, e.referenceId, e.useRestriction, e.translatedUseRestriction, v.rationale finalRationale, v.createDate finalVoteDate, "
+            + " e.lastUpdate, e.finalAccessVote, e.electionType,  e.dataUseLetter, e.dulName, e.archived, e.version from election e inner join vote v on v.electionId = e.electionId and v.type = '"  + CHAIRPERSON
+            + "' where e.electionType = :type  and e.status in  (<status>) and e.electionId > :afterElectionId order by e.electionId asc limit :limit")
+    List<Election> findElectionsWithFinalVoteByTypeAndStatusPage(@Bind("type") String type, @BindIn("status") List<String> status, @Bind("afterElectionId") Integer afterElectionId, @Bind("limit") Integer limit);
+
     @Mapper(DatabaseElectionMapper.class)
     @SqlQuery("select *  from election e where  e.electionId in  (<electionIds>)")
     List<Election> findElectionsByIds(@BindIn("electionIds") List<Integer> electionIds);
@@ -0,0 +1,23 @@
+package org.broadinstitute.consent.http.db;
+
+import org.apache.commons.lang3.StringUtils;
+import org.broadinstitute.consent.http.models.mail.EmailRecord;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class EmailRecordMapper implements ResultSetMapper<EmailRecord> {
+
+    public EmailRecord map(int index, ResultSet r, StatementContext ctx) throws SQLException {
+        String dacUserIds = r.getString("dac_user_ids");
+        List<Integer> userIds = StringUtils.isEmpty(dacUserIds) ? Collections.emptyList() :
+                Arrays.stream(dacUserIds.split(",")).map(Integer::valueOf).collect(Collectors.toList());
+        return new EmailRecord(r.getInt("email_type"), r.getString("entity_reference_id"), (Integer) r.getObject("vote_id"), userIds);
+    }
+}
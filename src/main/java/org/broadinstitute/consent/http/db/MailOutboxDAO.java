@@ -0,0 +1,71 @@
+package org.broadinstitute.consent.http.db;
+
+import org.broadinstitute.consent.http.models.mail.EmailRecord;
+import org.broadinstitute.consent.http.models.mail.QueuedMail;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.GetGeneratedKeys;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.Mapper;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
+import org.skife.jdbi.v2.sqlobject.stringtemplate.UseStringTemplate3StatementLocator;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outbound email waiting to be sent. Messages are claimed the same way as dar_outbox tasks, by bumping their attempt
+ * count and pushing their next attempt date out by a lease. A mail_submission holds the record of the messages
+ * submitted together and counts how many of them are still to be sent.
+ */
+@UseStringTemplate3StatementLocator
+@RegisterMapper({QueuedMailMapper.class})
+public interface MailOutboxDAO {
+
+    @SqlBatch("insert into mail_outbox (from_address, to_addresses, subject, content, submission_id, " +
+            " attempts, next_attempt_date, create_date, failed) " +
+            " values (:fromAddress, :toAddresses, :subject, :content, :submissionId, 0, :nextAttemptDate, :createDate, false)")
+    void insertMessages(@BindBean List<QueuedMail> messages);
+
+    @SqlUpdate("insert into mail_submission (email_type, entity_reference_id, vote_id, dac_user_ids, pending_messages, create_date) " +
+            " values (:emailType, :entityReferenceId, :voteId, :dacUserIds, :pendingMessages, :createDate)")
+    @GetGeneratedKeys
+    Long insertSubmission(@Bind("emailType") Integer emailType, @Bind("entityReferenceId") String entityReferenceId,
+                          @Bind("voteId") Integer voteId, @Bind("dacUserIds") String dacUserIds,
+                          @Bind("pendingMessages") Integer pendingMessages, @Bind("createDate") Date createDate);
+
+    @SqlUpdate("update mail_submission set pending_messages = pending_messages - 1 where id = :id")
+    void decrementPendingMessages(@Bind("id") Long id);
+
+    @SqlQuery("select pending_messages from mail_submission where id = :id")
+    Integer findPendingMessages(@Bind("id") Long id);
+
+    @SqlQuery("select * from mail_submission where id = :id")
+    @Mapper(EmailRecordMapper.class)
+    EmailRecord findSubmissionRecord(@Bind("id") Long id);
+
+    @SqlUpdate("delete from mail_submission where id = :id")
+    void deleteSubmission(@Bind("id") Long id);
+
+    @SqlQuery("select * from mail_outbox where failed = false and next_attempt_date \\<= :now order by next_attempt_date limit :limit")
+    List<QueuedMail> findDueMessages(@Bind("now") Date now, @Bind("limit") Integer limit);
+
+    @SqlUpdate("update mail_outbox set attempts = attempts + 1, next_attempt_date = :leaseUntil " +
+            " where id = :id and attempts = :attempts and failed = false")
+    int claimMessage(@Bind("id") Long id, @Bind("attempts") Integer attempts, @Bind("leaseUntil") Date leaseUntil);
+
+    @SqlUpdate("delete from mail_outbox where id = :id")
+    int deleteMessage(@Bind("id") Long id);
+
+    @SqlUpdate("update mail_outbox set next_attempt_date = :nextAttemptDate, last_error = :lastError, failed = :failed where id = :id")
+    void updateMessageFailure(@Bind("id") Long id, @Bind("nextAttemptDate") Date nextAttemptDate, @Bind("lastError") String lastError, @Bind("failed") Boolean failed);
+
+    @SqlQuery("select count(*) from mail_outbox where failed = false")
+    Integer countPendingMessages();
+
+    @SqlQuery("select count(*) from mail_outbox where failed = true")
+    Integer countFailedMessages();
+
+}
@@ -2,6 +2,7 @@ package org.broadinstitute.consent.http.db;
 
 import org.broadinstitute.consent.http.models.Match;
 import org.skife.jdbi.v2.sqlobject.*;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
 import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
 import org.skife.jdbi.v2.sqlobject.stringtemplate.UseStringTemplate3StatementLocator;
@@ -41,6 +42,7 @@ public interface MatchDAO extends Transactional<MatchDAO> {
                         @Bind("createDate") Date date);
 
     @SqlBatch("insert into match_entity (consent, purpose, matchEntity, failed, createDate) values (:consent, :purpose, :match, :failed, :createDate)")
+    @BatchChunkSize(500)
     void insertAll(@BindBean List<Match> matches);
 
     @SqlUpdate("update match_entity set matchEntity = :match, consent = :consentId, purpose = :purposeId, failed = :failed where matchId = :id ")
@@ -56,6 +58,12 @@ public interface MatchDAO extends Transactional<MatchDAO> {
     @SqlUpdate("delete from match_entity where matchId = :id")
     void deleteMatch(@Bind("id") Integer matchId);
 
+    @SqlUpdate("delete from match_entity where consent = :consentId")
+    void deleteMatchesByConsentId(@Bind("consentId") String consentId);
+
+    @SqlUpdate("delete from match_entity where purpose = :purposeId")
+    void deleteMatchesByPurposeId(@Bind("purposeId") String purposeId);
+
     @SqlQuery("SELECT COUNT(*) FROM match_entity where matchEntity = :matchEntity and failed ='FALSE' ")
     Integer countMatchesByResult(@Bind("matchEntity") Boolean matchEntity);
 }
@@ -0,0 +1,26 @@
+package org.broadinstitute.consent.http.db;
+
+import org.broadinstitute.consent.http.models.mail.QueuedMail;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class QueuedMailMapper implements ResultSetMapper<QueuedMail> {
+
+    public QueuedMail map(int index, ResultSet r, StatementContext ctx) throws SQLException {
+        QueuedMail mail = new QueuedMail();
+        mail.setId(r.getLong("id"));
+        mail.setFromAddress(r.getString("from_address"));
+        mail.setToAddresses(r.getString("to_addresses"));
+        mail.setSubject(r.getString("subject"));
+        mail.setContent(r.getString("content"));
+        mail.setSubmissionId((Long) r.getObject("submission_id"));
+        mail.setAttempts(r.getInt("attempts"));
+        mail.setNextAttemptDate(r.getTimestamp("next_attempt_date"));
+        mail.setCreateDate(r.getTimestamp("create_date"));
+        mail.setLastError(r.getString("last_error"));
+        return mail;
+    }
+}
@@ -0,0 +1,57 @@
+package org.broadinstitute.consent.http.db;
+
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizer;
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizerFactory;
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizingAnnotation;
+import org.skife.jdbi.v2.tweak.BaseStatementCustomizer;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Makes a query read its rows from the database as they are iterated instead of all at once. The MySQL driver only
+ * streams with a fetch size of Integer.MIN_VALUE, which other drivers such as HSQLDB reject, so those get FETCH_SIZE.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@SqlStatementCustomizingAnnotation(StreamResults.Factory.class)
+public @interface StreamResults {
+
+    int FETCH_SIZE = 1000;
+
+    class Factory implements SqlStatementCustomizerFactory {
+
+        @Override
+        public SqlStatementCustomizer createForMethod(Annotation annotation, Class sqlObjectType, Method method) {
+            return q -> q.addStatementCustomizer(new BaseStatementCustomizer() {
+                @Override
+                public void beforeExecution(PreparedStatement stmt, StatementContext ctx) throws SQLException {
+                    String product = stmt.getConnection().getMetaData().getDatabaseProductName();
+                    stmt.setFetchSize("MySQL".equalsIgnoreCase(product) ? Integer.MIN_VALUE : FETCH_SIZE);
+                }
+            });
+        }
+
+        /**
+         * Only methods can be annotated, so the type and parameter customizers leave the statement alone.
+         */
+        @Override
+        public SqlStatementCustomizer createForType(Annotation annotation, Class sqlObjectType) {
+            return q -> { };
+        }
+
+        @Override
+        public SqlStatementCustomizer createForParameter(Annotation annotation, Class sqlObjectType, Method method, Object arg) {
+            return q -> { };
+        }
+
+    }
+
+}
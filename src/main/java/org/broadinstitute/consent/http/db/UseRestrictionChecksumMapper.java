@@ -0,0 +1,25 @@
+package org.broadinstitute.consent.http.db;
+
+import org.broadinstitute.consent.http.models.dto.UseRestrictionDTO;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps a consent's use restriction along with the checksum of the restriction as it was last validated.
+ */
+public class UseRestrictionChecksumMapper implements ResultSetMapper<UseRestrictionDTO> {
+
+    public UseRestrictionDTO map(int index, ResultSet r, StatementContext ctx) throws SQLException {
+        UseRestrictionDTO dto = new UseRestrictionDTO(
+                r.getString("name"),
+                r.getString("useRestriction"),
+                r.getString("consentId")
+        );
+        dto.setChecksum(r.getString("restriction_checksum"));
+        return dto;
+    }
+
+}
@@ -0,0 +1,31 @@
+package org.broadinstitute.consent.http.db;
+
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.stringtemplate.UseStringTemplate3StatementLocator;
+
+import java.util.Date;
+
+/**
+ * Use restrictions the ontology service translated from a research purpose, keyed by a hash of the purpose and the
+ * version of the indexed ontologies it was translated under.
+ */
+@UseStringTemplate3StatementLocator
+public interface UseRestrictionTranslationDAO {
+
+    @SqlQuery("select restriction from use_restriction_translation " +
+            " where purpose_hash = :purposeHash and ontology_version = :ontologyVersion and create_date > :since")
+    String findRestriction(@Bind("purposeHash") String purposeHash, @Bind("ontologyVersion") String ontologyVersion, @Bind("since") Date since);
+
+    @SqlUpdate("insert into use_restriction_translation (purpose_hash, ontology_version, restriction, create_date) " +
+            " values (:purposeHash, :ontologyVersion, :restriction, :createDate)")
+    void insertRestriction(@Bind("purposeHash") String purposeHash, @Bind("ontologyVersion") String ontologyVersion, @Bind("restriction") String restriction, @Bind("createDate") Date createDate);
+
+    @SqlUpdate("delete from use_restriction_translation where purpose_hash = :purposeHash and ontology_version = :ontologyVersion")
+    void deleteRestriction(@Bind("purposeHash") String purposeHash, @Bind("ontologyVersion") String ontologyVersion);
+
+    @SqlUpdate("delete from use_restriction_translation where create_date \\< :before")
+    int deleteExpiredRestrictions(@Bind("before") Date before);
+
+}
@@ -126,9 +126,17 @@ public interface VoteDAO extends Transactional<VoteDAO> {
     @SqlQuery("SELECT MAX(c) FROM  ((SELECT  COUNT(vote) as c FROM vote  WHERE type = '" + DAC + "' and electionId  IN (<electionIds>) GROUP BY electionId  ) as members)")
     Integer findMaxNumberOfDACMembers(@BindIn("electionIds") List<Integer> electionIds);
 
+    @SqlQuery("SELECT MAX(c) FROM  ((SELECT  COUNT(v.vote) as c FROM vote v inner join election e on e.electionId = v.electionId "
+            + " WHERE v.type = '" + DAC + "' and e.electionType = :type and e.status IN (<status>) "
+            + " and exists (select 1 from vote cv where cv.electionId = e.electionId and cv.type = '" + CHAIRPERSON + "') GROUP BY v.electionId  ) as members)")
+    Integer findMaxNumberOfDACMembersByElectionTypeAndStatus(@Bind("type") String type, @BindIn("status") List<String> status);
+
     @SqlBatch("insert into vote (dacUserId, electionId, type) values (:dacUserId,:electionId, :type)")
     void insertVotes(@Bind("dacUserId") List<Integer> dacUserIds, @Bind("electionId") Integer electionId, @Bind("type") String type);
 
+    @SqlBatch("insert into vote (dacUserId, electionId, type, reminderSent) values (:dacUserId, :electionId, :type, false)")
+    void insertElectionVotes(@BindBean List<Vote> votes);
+
     @SqlBatch("insert into vote (vote, dacUserId, createDate, updateDate, electionId, rationale, type, reminderSent, has_concerns) values (:vote, :dacUserId, :createDate, :updateDate, :electionId, :rationale, :type, :isReminderSent, :hasConcerns)")
     void batchVotesInsert(@BindBean List<Vote> votes);
 
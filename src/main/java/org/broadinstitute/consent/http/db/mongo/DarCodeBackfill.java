@@ -0,0 +1,63 @@
+package org.broadinstitute.consent.http.db.mongo;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.lifecycle.ServerLifecycleListener;
+import org.eclipse.jetty.server.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Assigns codes to legacy data access requests once the server is accepting traffic, so startup does not wait on a
+ * scan of the request collections. See {@link MongoConsentDB#backfillCodes()}.
+ */
+public class DarCodeBackfill implements Managed, ServerLifecycleListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(DarCodeBackfill.class);
+
+    private final MongoConsentDB mongo;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "dar-code-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DarCodeBackfill(MongoConsentDB mongo) {
+        this.mongo = mongo;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void serverStarted(Server server) {
+        runAsync();
+    }
+
+    public Future<?> runAsync() {
+        return executor.submit(this::run);
+    }
+
+    public void run() {
+        try {
+            if (mongo.isCodeBackfillComplete()) {
+                return;
+            }
+            logger.info("Assigning codes to data access requests without one.");
+            mongo.backfillCodes();
+            logger.info("Data access request code backfill complete.");
+        } catch (Throwable e) {
+            logger.error("Data access request code backfill failed, it will resume on the next start: " + e.getMessage(), e);
+        }
+    }
+
+}
@@ -2,12 +2,26 @@ package org.broadinstitute.consent.http.db.mongo;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.Block;
+import com.mongodb.ErrorCategory;
 import com.mongodb.MongoClient;
-import com.mongodb.client.FindIterable;
+import com.mongodb.MongoWriteException;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import org.broadinstitute.consent.http.util.DarConstants;
 import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 
 public class MongoConsentDB {
 
@@ -17,6 +31,10 @@ public class MongoConsentDB {
     public static final String DAR_CODE = "dar_code";
     public static final String PARTIAL_DAR_CODE = "partial_dar_code";
     public String DATABASE_NAME;
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+    private static final String CODE_BACKFILL = "dar_code_backfill";
+    private static final String UN_REVIEWED_BACKFILL = "un_reviewed_dar_backfill";
+    private static final String BACKFILL_COMPLETED = "completed";
 
     /**
      *
@@ -67,17 +85,103 @@ public class MongoConsentDB {
         return mongo.getDatabase(DATABASE_NAME).getCollection("counters");
     }
 
+    /**
+     *
+     * @return unReviewedDataAccessRequest collection, which holds one document per un-reviewed data access request,
+     * keyed by the request id
+     */
+    public MongoCollection<Document> getUnReviewedDataAccessRequestCollection() {
+        return mongo.getDatabase(DATABASE_NAME).getCollection("unReviewedDataAccessRequest");
+    }
+
+    /**
+     *
+     * @return migrations collection, which records the progress of one-off data migrations
+     */
+    public MongoCollection<Document> getMigrationsCollection() {
+        return mongo.getDatabase(DATABASE_NAME).getCollection("migrations");
+    }
+
     /**
      *
      * @return retrieves the current seq of a counter
      */
     public String getNextSequence(String name) {
+        return String.valueOf(reserveSequenceRange(name, 1));
+    }
+
+    /**
+     * Atomically advances a counter by count in a single round-trip, so callers that need several codes can hand
+     * them out locally.
+     *
+     * @return the first reserved value. The reserved range is [first, first + count).
+     */
+    public long reserveSequenceRange(String name, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one sequence value must be reserved");
+        }
         BasicDBObject query = new BasicDBObject();
         query.put("_id", name);
         BasicDBObject update = new BasicDBObject();
-        update.append("$inc", new BasicDBObject().append("seq", 1));
+        update.append("$inc", new BasicDBObject().append("seq", count));
         Document rec = getCountersCollection().findOneAndUpdate(query, update);
-        return rec.get("seq").toString();
+        return ((Number) rec.get("seq")).longValue();
+    }
+
+    /**
+     * Marks a data access request as un-reviewed. Marking is an upsert keyed by the request id, so repeating it
+     * has no effect.
+     *
+     * @return true when the request was not marked yet
+     */
+    public boolean markUnReviewed(String darId) {
+        try {
+            return getUnReviewedDataAccessRequestCollection().updateOne(Filters.eq(DarConstants.ID, darId),
+                    Updates.setOnInsert("createDate", new Date()), new UpdateOptions().upsert(true)).getUpsertedId() != null;
+        } catch (MongoWriteException e) {
+            // A concurrent upsert of the same id won
+            if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return true when the request was marked as un-reviewed and is not anymore
+     */
+    public boolean unmarkUnReviewed(String darId) {
+        return getUnReviewedDataAccessRequestCollection().deleteOne(Filters.eq(DarConstants.ID, darId)).getDeletedCount() > 0;
+    }
+
+    public long countUnReviewed() {
+        return getUnReviewedDataAccessRequestCollection().count();
+    }
+
+    /**
+     * @return true once the requests that existed before un-reviewed requests were marked have been marked.
+     */
+    public boolean isUnReviewedBackfillComplete() {
+        Document marker = getMigrationsCollection().find(Filters.eq(DarConstants.ID, UN_REVIEWED_BACKFILL)).first();
+        return marker != null && Boolean.TRUE.equals(marker.getBoolean(BACKFILL_COMPLETED));
+    }
+
+    public void completeUnReviewedBackfill() {
+        getMigrationsCollection().updateOne(Filters.eq(DarConstants.ID, UN_REVIEWED_BACKFILL),
+                Updates.set(BACKFILL_COMPLETED, true), new UpdateOptions().upsert(true));
+    }
+
+    /**
+     * Indexes backing the dataset, user and sort date lookups. The restriction itself is not indexed: it is an
+     * arbitrarily large embedded document, and the dataset index already narrows restriction lookups to a few
+     * documents. Sort date indexes include the id, which breaks ties in the paginated manage listings.
+     */
+    private void createQueryIndexes() {
+        getDataAccessRequestCollection().createIndex(new BasicDBObject(DarConstants.DATASET_ID, 1));
+        getDataAccessRequestCollection().createIndex(new BasicDBObject(DarConstants.USER_ID, 1).append(DarConstants.SORT_DATE, -1).append(DarConstants.ID, -1));
+        getDataAccessRequestCollection().createIndex(new BasicDBObject(DarConstants.SORT_DATE, -1).append(DarConstants.ID, -1));
+        getPartialDataAccessRequestCollection().createIndex(new BasicDBObject(DarConstants.USER_ID, 1).append(DarConstants.SORT_DATE, -1).append(DarConstants.ID, -1));
+        getPartialDataAccessRequestCollection().createIndex(new BasicDBObject(DarConstants.SORT_DATE, -1).append(DarConstants.ID, -1));
     }
 
     public void configureMongo() {
@@ -108,24 +212,64 @@ public class MongoConsentDB {
         BasicDBObject secondIndexFields = new BasicDBObject(PARTIAL_DAR_CODE, 1);
         getPartialDataAccessRequestCollection().createIndex(secondIndexFields, indexOptions);
 
-        FindIterable<Document> documents = getDataAccessRequestCollection().find();
-        documents.forEach((Block<Document>) dar -> {
-            if (dar.get(DAR_CODE) == null) {
-                BasicDBObject object = new BasicDBObject(DAR_CODE, "DAR-" + getNextSequence(DAR_CODE_COUNTER));
-                BasicDBObject set = new BasicDBObject("$set", object);
-                BasicDBObject searchQuery = new BasicDBObject().append(DarConstants.ID, dar.get(DarConstants.ID));
-                getDataAccessRequestCollection().updateOne(searchQuery, set);
+        createQueryIndexes();
+    }
+
+    /**
+     * @return true once every legacy data access request and partial has been assigned a code, after which the
+     * backfill never needs to run again.
+     */
+    public boolean isCodeBackfillComplete() {
+        Document marker = getMigrationsCollection().find(Filters.eq(DarConstants.ID, CODE_BACKFILL)).first();
+        return marker != null && Boolean.TRUE.equals(marker.getBoolean(BACKFILL_COMPLETED));
+    }
+
+    /**
+     * Assigns codes to legacy documents that do not have one. Documents are walked in _id order and the last
+     * processed _id is recorded after every batch, so an interrupted run picks up where it stopped. Completion is
+     * recorded so later runs return immediately.
+     */
+    public void backfillCodes() {
+        if (isCodeBackfillComplete()) {
+            return;
+        }
+        backfillCodes(getDataAccessRequestCollection(), DAR_CODE, DAR_CODE_COUNTER, "DAR-");
+        backfillCodes(getPartialDataAccessRequestCollection(), PARTIAL_DAR_CODE, PARTIAL_DAR_CODE_COUNTER, "PARTIAL DAR-");
+        getMigrationsCollection().updateOne(Filters.eq(DarConstants.ID, CODE_BACKFILL),
+                Updates.set(BACKFILL_COMPLETED, true), new UpdateOptions().upsert(true));
+    }
+
+    private void backfillCodes(MongoCollection<Document> collection, String codeField, String counterName, String prefix) {
+        String progressField = collection.getNamespace().getCollectionName();
+        Document marker = getMigrationsCollection().find(Filters.eq(DarConstants.ID, CODE_BACKFILL)).first();
+        Object lastId = marker != null ? marker.get(progressField) : null;
+        while (true) {
+            Bson filter = lastId == null ?
+                    Filters.eq(codeField, null) :
+                    Filters.and(Filters.gt(DarConstants.ID, lastId), Filters.eq(codeField, null));
+            List<Object> ids = new ArrayList<>();
+            collection.find(filter).
+                    projection(Projections.include(DarConstants.ID)).
+                    sort(Sorts.ascending(DarConstants.ID)).
+                    limit(BACKFILL_BATCH_SIZE).
+                    forEach((Block<Document>) dar -> ids.add(dar.get(DarConstants.ID)));
+            if (ids.isEmpty()) {
+                return;
+            }
+            long next = reserveSequenceRange(counterName, ids.size());
+            List<WriteModel<Document>> updates = new ArrayList<>();
+            for (Object id : ids) {
+                updates.add(new UpdateOneModel<>(
+                        Filters.and(Filters.eq(DarConstants.ID, id), Filters.eq(codeField, null)),
+                        Updates.set(codeField, prefix + next++)));
             }
-        });
-
-        FindIterable<Document> partialDocuments = getPartialDataAccessRequestCollection().find();
-        partialDocuments.forEach((Block<Document>) dar -> {
-            if (dar.get(PARTIAL_DAR_CODE) == null) {
-                BasicDBObject object = new BasicDBObject(PARTIAL_DAR_CODE, "PARTIAL DAR-" + getNextSequence(PARTIAL_DAR_CODE_COUNTER));
-                BasicDBObject set = new BasicDBObject("$set", object);
-                BasicDBObject searchQuery = new BasicDBObject().append(DarConstants.ID, dar.get("_id"));
-                getPartialDataAccessRequestCollection().updateOne(searchQuery, set);
+            collection.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+            lastId = ids.get(ids.size() - 1);
+            getMigrationsCollection().updateOne(Filters.eq(DarConstants.ID, CODE_BACKFILL),
+                    Updates.set(progressField, lastId), new UpdateOptions().upsert(true));
+            if (ids.size() < BACKFILL_BATCH_SIZE) {
+                return;
             }
-        });
+        }
     }
 }
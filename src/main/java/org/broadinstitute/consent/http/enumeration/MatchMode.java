@@ -0,0 +1,32 @@
+package org.broadinstitute.consent.http.enumeration;
+
+/**
+ * How consent/purpose matches are computed.
+ * REMOTE: every match is posted to the ontology service.
+ * LOCAL: matches the local engine can prove are computed in-process, everything else is posted to the ontology service.
+ * CROSS_CHECK: the ontology service result is used, and any disagreement with the local engine is logged.
+ */
+public enum MatchMode {
+
+    REMOTE("remote"), LOCAL("local"), CROSS_CHECK("crossCheck");
+
+    private String value;
+
+    MatchMode(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static MatchMode getMatchMode(String value) {
+        for (MatchMode e : MatchMode.values()) {
+            if (e.getValue().equalsIgnoreCase(value) || e.name().equalsIgnoreCase(value)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,353 @@
+package org.broadinstitute.consent.http.mail;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.RateLimiter;
+import com.sendgrid.Content;
+import com.sendgrid.Email;
+import com.sendgrid.Mail;
+import com.sendgrid.Method;
+import com.sendgrid.Personalization;
+import com.sendgrid.Request;
+import com.sendgrid.Response;
+import com.sendgrid.SendGrid;
+import io.dropwizard.lifecycle.Managed;
+import org.apache.commons.lang3.StringUtils;
+import org.broadinstitute.consent.http.configurations.MailConfiguration;
+import org.broadinstitute.consent.http.db.MailMessageDAO;
+import org.broadinstitute.consent.http.db.MailOutboxDAO;
+import org.broadinstitute.consent.http.db.VoteDAO;
+import org.broadinstitute.consent.http.models.mail.EmailRecord;
+import org.broadinstitute.consent.http.models.mail.QueuedMail;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.mail.MessagingException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Sends email through SendGrid from the mail_outbox table. Submitted messages are stored there and a worker polls the
+ * table, merges the messages that only differ in their recipients into one call with a personalization per recipient,
+ * and sends at most SEND_RATE_PER_SECOND calls a second. Failed calls are retried with exponential backoff; messages
+ * that run out of attempts are kept, marked as failed.
+ *
+ * The email_entity record of a submission, and the reminder flag of its vote, are only written once SendGrid has
+ * accepted every message of the submission, in the same transaction that removes the last of them from the queue. A
+ * submission with a message that ran out of attempts is never recorded. Delivery is at least once: a message whose
+ * worker dies after sending it but before removing it is sent again once its lease expires.
+ */
+public class MailDispatcher implements Managed {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailDispatcher.class);
+    private static final String CONTENT_TYPE = "text/html";
+    private static final int BATCH_SIZE = 100;
+    private static final long POLL_INTERVAL_SECONDS = 5;
+    private static final long STOP_TIMEOUT_SECONDS = 30;
+    private static final double SEND_RATE_PER_SECOND = 10;
+    private static final int MAX_ERROR_LENGTH = 4000;
+    static final int MAX_PERSONALIZATIONS = 1000;
+    static final int MAX_ATTEMPTS = 10;
+    static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final long MAX_BACKOFF_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final SendGrid sendGrid;
+    private final DBI jdbi;
+    private final MailOutboxDAO outboxDAO;
+    private final long baseBackoffMillis;
+    private final RateLimiter rateLimiter = RateLimiter.create(SEND_RATE_PER_SECOND);
+    private final Meter sent;
+    private final Meter retried;
+    private final Meter failed;
+    private volatile boolean running = false;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mail-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MailDispatcher(MailConfiguration config, DBI jdbi, MailOutboxDAO outboxDAO, MetricRegistry metrics) {
+        this(sendGrid(config), jdbi, outboxDAO, metrics, TimeUnit.SECONDS.toMillis(30));
+    }
+
+    @VisibleForTesting
+    MailDispatcher(SendGrid sendGrid, DBI jdbi, MailOutboxDAO outboxDAO, MetricRegistry metrics, long baseBackoffMillis) {
+        this.sendGrid = sendGrid;
+        this.jdbi = jdbi;
+        this.outboxDAO = outboxDAO;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.sent = metrics.meter(MetricRegistry.name(MailDispatcher.class, "sent"));
+        this.retried = metrics.meter(MetricRegistry.name(MailDispatcher.class, "retried"));
+        this.failed = metrics.meter(MetricRegistry.name(MailDispatcher.class, "failed"));
+        metrics.register(MetricRegistry.name(MailDispatcher.class, "queued"), new CachedGauge<Integer>(POLL_INTERVAL_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Integer loadValue() {
+                return outboxDAO.countPendingMessages();
+            }
+        });
+        metrics.register(MetricRegistry.name(MailDispatcher.class, "failedMessages"), new CachedGauge<Integer>(POLL_INTERVAL_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Integer loadValue() {
+                return outboxDAO.countFailedMessages();
+            }
+        });
+    }
+
+    /**
+     * A configured test host points the client at a plain HTTP stand-in for SendGrid instead of the real API.
+     */
+    private static SendGrid sendGrid(MailConfiguration config) {
+        if (StringUtils.isEmpty(config.getSendGridTestHost())) {
+            return new SendGrid(config.getSendGridApiKey());
+        }
+        SendGrid sendGrid = new SendGrid(config.getSendGridApiKey(), true);
+        sendGrid.setHost(config.getSendGridTestHost());
+        return sendGrid;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        executor.scheduleWithFixedDelay(this::drain, POLL_INTERVAL_SECONDS, POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Lets the batch being sent finish. Whatever is still queued stays in the table for the next start.
+     */
+    @Override
+    public void stop() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stores the messages to be sent by the worker and wakes it up. The record, if any, is stored with them as a
+     * submission and written once every message has been sent.
+     *
+     * @throws MessagingException If the messages couldn't be stored.
+     */
+    public void submit(Collection<Mail> messages, EmailRecord record) throws MessagingException {
+        Date now = new Date();
+        List<QueuedMail> queued = queue(messages, now);
+        try {
+            jdbi.inTransaction((handle, status) -> {
+                MailOutboxDAO transactionOutboxDAO = handle.attach(MailOutboxDAO.class);
+                if (record != null && !queued.isEmpty()) {
+                    String dacUserIds = record.getDacUserIds().stream().map(String::valueOf).collect(Collectors.joining(","));
+                    Long submissionId = transactionOutboxDAO.insertSubmission(record.getEmailType(), record.getEntityReferenceId(),
+                            record.getVoteId(), dacUserIds, queued.size(), now);
+                    queued.forEach(message -> message.setSubmissionId(submissionId));
+                }
+                transactionOutboxDAO.insertMessages(queued);
+                return null;
+            });
+        } catch (Exception e) {
+            throw new MessagingException("Unable to queue email: " + e.getMessage());
+        }
+        if (running) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Mail dispatcher is stopping, queued email is sent on the next start");
+            }
+        }
+    }
+
+    /**
+     * One queued message per sender, subject and content, with up to MAX_PERSONALIZATIONS recipients.
+     */
+    static List<QueuedMail> queue(Collection<Mail> messages, Date now) {
+        Map<String, List<Mail>> groups = messages.stream().collect(Collectors.groupingBy(MailDispatcher::groupKey, LinkedHashMap::new, Collectors.toList()));
+        List<QueuedMail> queued = new ArrayList<>();
+        for (List<Mail> group : groups.values()) {
+            Mail first = group.get(0);
+            List<String> recipients = group.stream().
+                    flatMap(m -> m.getPersonalization().stream()).
+                    flatMap(p -> p.getTos().stream()).
+                    map(Email::getEmail).
+                    distinct().
+                    collect(Collectors.toList());
+            for (int i = 0; i < recipients.size(); i += MAX_PERSONALIZATIONS) {
+                queued.add(new QueuedMail(first.getFrom().getEmail(),
+                        recipients.subList(i, Math.min(i + MAX_PERSONALIZATIONS, recipients.size())),
+                        first.getSubject(), first.getContent().get(0).getValue(), now));
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Claims and sends every message that is due, a batch at a time.
+     */
+    void drain() {
+        try {
+            List<QueuedMail> due;
+            do {
+                due = outboxDAO.findDueMessages(new Date(), BATCH_SIZE);
+                List<QueuedMail> claimed = new ArrayList<>();
+                for (QueuedMail message : due) {
+                    if (outboxDAO.claimMessage(message.getId(), message.getAttempts(), new Date(System.currentTimeMillis() + LEASE_MILLIS)) == 1) {
+                        message.setAttempts(message.getAttempts() + 1);
+                        claimed.add(message);
+                    }
+                }
+                merge(claimed).forEach(this::dispatch);
+            } while (due.size() == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+        } catch (Exception e) {
+            logger.error("Error polling the mail outbox: " + e.getMessage(), e);
+        }
+    }
+
+    private void dispatch(List<QueuedMail> call) {
+        try {
+            send(toMail(call));
+        } catch (IOException e) {
+            call.forEach(message -> fail(message, e));
+            return;
+        }
+        call.forEach(this::complete);
+    }
+
+    /**
+     * Removes a sent message from the queue and, once it was the last of its submission to be sent, writes the
+     * submission's record, all in one transaction. If that fails the message is sent again once its lease expires. A
+     * message another worker already removed is not counted again.
+     */
+    private void complete(QueuedMail message) {
+        try {
+            jdbi.inTransaction((handle, status) -> {
+                MailOutboxDAO transactionOutboxDAO = handle.attach(MailOutboxDAO.class);
+                Long submissionId = message.getSubmissionId();
+                if (transactionOutboxDAO.deleteMessage(message.getId()) == 1 && submissionId != null) {
+                    transactionOutboxDAO.decrementPendingMessages(submissionId);
+                    Integer pending = transactionOutboxDAO.findPendingMessages(submissionId);
+                    if (pending != null && pending <= 0) {
+                        record(handle, transactionOutboxDAO.findSubmissionRecord(submissionId), message.getContent());
+                        transactionOutboxDAO.deleteSubmission(submissionId);
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.error("Error recording sent email '" + message.getSubject() + "': " + e.getMessage(), e);
+        }
+    }
+
+    private void record(Handle handle, EmailRecord record, String content) {
+        Date now = new Date();
+        MailMessageDAO mailMessageDAO = handle.attach(MailMessageDAO.class);
+        if (record.getVoteId() == null) {
+            mailMessageDAO.insertBulkEmailNoVotes(record.getDacUserIds(), record.getEntityReferenceId(), record.getEmailType(), now, content);
+        } else {
+            for (Integer userId : record.getDacUserIds()) {
+                mailMessageDAO.insertEmail(record.getVoteId(), record.getEntityReferenceId(), userId, record.getEmailType(), now, content);
+            }
+            if (record.getEmailType() == EmailRecord.REMINDER) {
+                handle.attach(VoteDAO.class).updateVoteReminderFlag(record.getVoteId(), true);
+            }
+        }
+    }
+
+    private void fail(QueuedMail message, Exception e) {
+        String error = StringUtils.left(StringUtils.defaultString(e.getMessage(), e.getClass().getName()), MAX_ERROR_LENGTH);
+        if (message.getAttempts() >= MAX_ATTEMPTS) {
+            logger.error("Giving up sending email '" + message.getSubject() + "' after " + message.getAttempts() + " attempts: " + error);
+            outboxDAO.updateMessageFailure(message.getId(), new Date(), error, true);
+            failed.mark();
+        } else {
+            logger.warn("Error sending email '" + message.getSubject() + "', retrying: " + error);
+            outboxDAO.updateMessageFailure(message.getId(), new Date(System.currentTimeMillis() + backoffMillis(message.getAttempts())), error, false);
+            retried.mark();
+        }
+    }
+
+    private void send(Mail message) throws IOException {
+        rateLimiter.acquire();
+        // See https://github.com/sendgrid/sendgrid-java/issues/163
+        // for what actually works as compared to the documentation - which doesn't.
+        Request request = new Request();
+        request.setMethod(Method.POST);
+        request.setBody(message.build());
+        request.setBaseUri(sendGrid.getHost());
+        request.setEndpoint("/" + sendGrid.getVersion() + "/mail/send");
+        for (String key : sendGrid.getRequestHeaders().keySet())
+            request.addHeader(key, sendGrid.getRequestHeaders().get(key));
+        Response response = sendGrid.makeCall(request);
+        if (response.getStatusCode() >= 300) {
+            throw new IOException("SendGrid responded " + response.getStatusCode() + ": " + response.getBody());
+        }
+        sent.mark(message.getPersonalization().size());
+    }
+
+    long backoffMillis(int attempt) {
+        return Math.min(MAX_BACKOFF_MILLIS, baseBackoffMillis << Math.min(attempt - 1, 20));
+    }
+
+    /**
+     * Groups the messages with the same sender, subject and content into calls of up to MAX_PERSONALIZATIONS
+     * recipients.
+     */
+    static List<List<QueuedMail>> merge(List<QueuedMail> messages) {
+        Map<String, List<QueuedMail>> groups = messages.stream().collect(Collectors.groupingBy(
+                m -> m.getFromAddress() + "\n" + m.getSubject() + "\n" + m.getContent(), LinkedHashMap::new, Collectors.toList()));
+        List<List<QueuedMail>> calls = new ArrayList<>();
+        for (List<QueuedMail> group : groups.values()) {
+            List<QueuedMail> current = new ArrayList<>();
+            int recipients = 0;
+            for (QueuedMail message : group) {
+                int size = message.recipients().size();
+                if (!current.isEmpty() && recipients + size > MAX_PERSONALIZATIONS) {
+                    calls.add(current);
+                    current = new ArrayList<>();
+                    recipients = 0;
+                }
+                current.add(message);
+                recipients += size;
+            }
+            calls.add(current);
+        }
+        return calls;
+    }
+
+    /**
+     * One message with a personalization per recipient, so they don't see each other's addresses.
+     */
+    static Mail toMail(List<QueuedMail> call) {
+        QueuedMail first = call.get(0);
+        Mail mail = new Mail();
+        mail.setFrom(new Email(first.getFromAddress()));
+        mail.setSubject(first.getSubject());
+        mail.addContent(new Content(CONTENT_TYPE, first.getContent()));
+        for (QueuedMail message : call) {
+            for (String recipient : message.recipients()) {
+                Personalization personalization = new Personalization();
+                personalization.addTo(new Email(recipient));
+                mail.addPersonalization(personalization);
+            }
+        }
+        return mail;
+    }
+
+    private static String groupKey(Mail message) {
+        String content = message.getContent().stream().map(c -> c.getType() + ":" + c.getValue()).collect(Collectors.joining("\n"));
+        return message.getFrom().getEmail() + "\n" + message.getSubject() + "\n" + content;
+    }
+
+}
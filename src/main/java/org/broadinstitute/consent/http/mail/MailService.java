@@ -4,6 +4,7 @@ import com.sendgrid.*;
 import org.apache.log4j.Logger;
 import org.broadinstitute.consent.http.configurations.MailConfiguration;
 import org.broadinstitute.consent.http.mail.message.*;
+import org.broadinstitute.consent.http.models.mail.EmailRecord;
 
 import javax.mail.MessagingException;
 import java.io.IOException;
@@ -15,7 +16,7 @@ import java.util.Set;
 public class MailService extends AbstractMailServiceAPI {
 
     private String fromAccount;
-    private SendGrid sendGrid;
+    private MailDispatcher dispatcher;
     private Boolean activateEmailNotifications;
     private CollectMessage collectMessageCreator = new CollectMessage();
     private NewCaseMessage newCaseMessageCreator = new NewCaseMessage();
@@ -34,49 +35,31 @@ public class MailService extends AbstractMailServiceAPI {
         return Logger.getLogger("MailService");
     }
 
-    public static void initInstance(MailConfiguration config) throws IOException {
-        MailServiceAPIHolder.setInstance(new MailService(config));
+    public static void initInstance(MailConfiguration config, MailDispatcher dispatcher) throws IOException {
+        MailServiceAPIHolder.setInstance(new MailService(config, dispatcher));
     }
 
-    private MailService(MailConfiguration config) throws IOException {
+    private MailService(MailConfiguration config, MailDispatcher dispatcher) throws IOException {
         this.fromAccount = config.getGoogleAccount();
-        this.sendGrid = new SendGrid(config.getSendGridApiKey());
+        this.dispatcher = dispatcher;
         this.activateEmailNotifications = config.isActivateEmailNotifications();
     }
 
     private void sendMessages(Collection<Mail> messages) throws MessagingException {
-        for (Mail message: messages) {
-            sendMessage(message);
-        }
+        sendMessages(messages, null);
     }
 
-    private void sendMessage(Mail message) throws MessagingException {
+    private void sendMessages(Collection<Mail> messages, EmailRecord record) throws MessagingException {
         if (activateEmailNotifications) {
-            try {
-                // See https://github.com/sendgrid/sendgrid-java/issues/163
-                // for what actually works as compared to the documentation - which doesn't.
-                Request request = new Request();
-                request.setMethod(Method.POST);
-                request.setBody(message.build());
-                // make request
-                request.setBaseUri(sendGrid.getHost());
-                request.setEndpoint("/" + sendGrid.getVersion() + "/mail/send");
-                for (String key : sendGrid.getRequestHeaders().keySet())
-                    request.addHeader(key, sendGrid.getRequestHeaders().get(key));
-                // send
-                sendGrid.makeCall(request);
-            } catch (IOException ex) {
-                logger().error("Exception sending email: " + ex.getMessage());
-                throw new MessagingException(ex.getMessage());
-            }
+            dispatcher.submit(messages, record);
         } else {
             logger().debug("Not configured to send email");
         }
     }
 
-    public void sendCollectMessage(Set<String> toAddresses, String referenceId, String type, Writer template) throws MessagingException {
+    public void sendCollectMessage(Set<String> toAddresses, String referenceId, String type, Writer template, EmailRecord record) throws MessagingException {
         List<Mail> messages = collectMessageCreator.collectMessage(toAddresses, fromAccount, template, referenceId, type);
-        sendMessages(messages);
+        sendMessages(messages, record);
     }
 
     public void sendNewCaseMessage(Set<String> toAddress, String referenceId, String type, Writer template) throws MessagingException {
@@ -84,9 +67,9 @@ public class MailService extends AbstractMailServiceAPI {
         sendMessages(messages);
     }
 
-    public void sendReminderMessage(Set<String> addresses, String referenceId, String type, Writer template) throws MessagingException {
+    public void sendReminderMessage(Set<String> addresses, String referenceId, String type, Writer template, EmailRecord record) throws MessagingException {
         List<Mail> messages = reminderMessageCreator.reminderMessage(addresses, fromAccount, template, referenceId, type);
-        sendMessages(messages);
+        sendMessages(messages, record);
     }
 
     @Override
@@ -96,9 +79,9 @@ public class MailService extends AbstractMailServiceAPI {
     }
 
     @Override
-    public void sendNewDARRequests(Set<String> toAddresses, String referenceId, String type, Writer template) throws MessagingException {
+    public void sendNewDARRequests(Set<String> toAddresses, String referenceId, String type, Writer template, EmailRecord record) throws MessagingException {
         Collection<Mail> messages = newDARMessageCreator.newDARRequestMessage(toAddresses, fromAccount, template, referenceId, type);
-        sendMessages(messages);
+        sendMessages(messages, record);
     }
 
     @Override
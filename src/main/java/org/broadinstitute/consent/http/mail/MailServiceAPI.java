@@ -1,6 +1,8 @@
 package org.broadinstitute.consent.http.mail;
 
 import freemarker.template.TemplateException;
+import org.broadinstitute.consent.http.models.mail.EmailRecord;
+
 import javax.mail.MessagingException;
 import java.io.IOException;
 import java.io.Writer;
@@ -8,15 +10,15 @@ import java.util.Set;
 
 public interface MailServiceAPI {
 
-    void sendCollectMessage(Set<String> addresses, String referenceId, String type, Writer template) throws MessagingException;
+    void sendCollectMessage(Set<String> addresses, String referenceId, String type, Writer template, EmailRecord record) throws MessagingException;
 
     void sendNewCaseMessage(Set<String> userAddress, String referenceId, String type, Writer template) throws MessagingException;
 
-    void sendReminderMessage(Set<String> addresses, String referenceId, String type, Writer template) throws MessagingException;
+    void sendReminderMessage(Set<String> addresses, String referenceId, String type, Writer template, EmailRecord record) throws MessagingException;
 
     void sendDisabledDatasetMessage(Set<String> addresses, String referenceId, String type, Writer template) throws MessagingException;
 
-    void sendNewDARRequests(Set<String> usersAddress, String referenceId, String type, Writer template) throws MessagingException;
+    void sendNewDARRequests(Set<String> usersAddress, String referenceId, String type, Writer template, EmailRecord record) throws MessagingException;
 
     void sendCancelDARRequestMessage(Set<String> usersAddress, String dataAccessRequestId, String type, Writer template) throws MessagingException;
 
@@ -8,8 +8,11 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.broadinstitute.consent.http.configurations.FreeMarkerConfiguration;
 import org.broadinstitute.consent.http.models.DACUser;
 import org.broadinstitute.consent.http.models.DataSet;
@@ -18,10 +21,32 @@ import org.broadinstitute.consent.http.models.HelpReport;
 import org.broadinstitute.consent.http.models.darsummary.SummaryItem;
 import org.broadinstitute.consent.http.models.dto.DatasetMailDTO;
 
+/**
+ * Renders the notification emails. Every template is loaded and compiled once, when the helper is created, and kept
+ * for the life of the application; rendering never goes back to the class path. Output buffers are sized from the
+ * last rendering of the same template, so large emails don't grow their buffer a few characters at a time.
+ */
 public class FreeMarkerTemplateHelper {
 
+    private static final List<String> TEMPLATE_NAMES = Arrays.asList(
+            "admin-dar-approved.html",
+            "cancelled-dar-request.html",
+            "closed-dataset-elections.html",
+            "collect.html",
+            "disabled-datasets.html",
+            "new-case.html",
+            "new-help-report.html",
+            "new-request.html",
+            "new-researcher.html",
+            "owner-dar-approved.html",
+            "reminder.html",
+            "researcher-dar-approved.html",
+            "user-delegate-responsibilities.html");
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
 
     Configuration freeMarkerConfig;
+    private final Map<String, Template> templates = new HashMap<>();
+    private final Map<String, Integer> renderedSizes = new ConcurrentHashMap<>();
     private final String CREATE_DAR_URL = "admin_manage_access";
     private final String HELP_REPORT_URL = "help_me";
 
@@ -30,40 +55,57 @@ public class FreeMarkerTemplateHelper {
         freeMarkerConfig.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
         freeMarkerConfig.setClassForTemplateLoading(this.getClass(), config.getTemplateDirectory());
         freeMarkerConfig.setDefaultEncoding(config.getDefaultEncoding());
+        for (String name : TEMPLATE_NAMES) {
+            templates.put(name, freeMarkerConfig.getTemplate(name));
+        }
     }
 
     public Writer getDisabledDatasetsTemplate(String user, List<String> datasets, String entityId, String serverUrl) throws IOException, TemplateException {
-        Template temp = freeMarkerConfig.getTemplate("disabled-datasets.html");
+        Template temp = getTemplate("disabled-datasets.html");
         return generateDisabledDatasetsTemplate(user, datasets, entityId, serverUrl, temp);
     }
 
     public Writer getCollectTemplate(String user, String election, String entityId, String serverUrl) throws IOException, TemplateException {
-        Template temp = freeMarkerConfig.getTemplate("collect.html");
+        Template temp = getTemplate("collect.html");
         return generateTemplate(user, election, entityId, temp, serverUrl);
     }
 
     public Writer getNewCaseTemplate(String userName, String election, String entityId, String serverUrl) throws IOException, TemplateException {
-        Template temp = freeMarkerConfig.getTemplate("new-case.html");
+        Template temp = getTemplate("new-case.html");
         return generateNewCaseTemplate(userName, election, entityId, temp, serverUrl);
     }
 
+    /**
+     * Renders the new case email once per model, looking the template up a single time for the whole list.
+     *
+     * @return The rendered emails, in the order of the models.
+     */
+    public List<Writer> getNewCaseTemplates(List<NewCaseTemplate> models) throws IOException, TemplateException {
+        Template temp = getTemplate("new-case.html");
+        List<Writer> rendered = new ArrayList<>(models.size());
+        for (NewCaseTemplate model : models) {
+            rendered.add(render(temp, model));
+        }
+        return rendered;
+    }
+
     public Writer getReminderTemplate(String user, String election, String entityId, String serverUrl) throws IOException, TemplateException {
-        Template temp = freeMarkerConfig.getTemplate("reminder.html");
+        Template temp = getTemplate("reminder.html");
         return generateTemplate(user, election, entityId, temp, serverUrl);
     }
 
     public Writer getNewDARRequestTemplate(String serverUrl) throws IOException, TemplateException {
-        Template temp = freeMarkerConfig.getTemplate("new-request.html");
+        Template temp = getTemplate("new-request.html");
         return generateNewDARRequestTemplate(serverUrl+CREATE_DAR_URL, temp);
     }
 
     public Writer getCancelledDarTemplate(String userType, String entityId, String serverUrl) throws IOException, TemplateException {
-        Template temp = freeMarkerConfig.getTemplate("cancelled-dar-request.html");
+        Template temp = getTemplate("cancelled-dar-request.html");
         return generateCancelledDarTemplate(userType, entityId, serverUrl, temp);
     }
 
     public Writer getAdminApprovedDarTemplate(String userName, String entityId, Map<DACUser, List<DataSet>> dataOwnersDataSets, String serverUrl) throws IOException, TemplateException {
-        Template temp = freeMarkerConfig.getTemplate("admin-dar-approved.html");
+        Template temp = getTemplate("admin-dar-approved.html");
         return generateAdminApprovedDarTemplate(userName, entityId, dataOwnersDataSets, serverUrl, temp);
     }
 
@@ -71,23 +113,23 @@ public class FreeMarkerTemplateHelper {
                                          String researchPurpose, List<SummaryItem> typeOfResearch, String diseaseArea,
                                          List<String> checkedSentences, String translatedUseRestriction, List<DataSetPIMailModel> datasets,
                                          String daysToApprove, String serverUrl) throws IOException, TemplateException {
-        Template temp = freeMarkerConfig.getTemplate("owner-dar-approved.html");
+        Template temp = getTemplate("owner-dar-approved.html");
         return generateApprovedDarTemplate(userName, date, entityId, investigator, institution, researchPurpose, typeOfResearch, diseaseArea,
                 checkedSentences, translatedUseRestriction, datasets, daysToApprove, serverUrl, temp);
     }
 
     public Writer getClosedDatasetElectionsTemplate(Map<String, List<Election>> elections, String darCode, String type, String serverUrl) throws IOException, TemplateException {
-        Template temp = freeMarkerConfig.getTemplate("closed-dataset-elections.html");
+        Template temp = getTemplate("closed-dataset-elections.html");
         return generateClosedDatasetElectionsTemplate(elections, darCode, serverUrl, temp);
     }
 
     public Writer getHelpReportTemplate(HelpReport helpReport, String serverUrl) throws IOException, TemplateException {
-        Template temp = freeMarkerConfig.getTemplate("new-help-report.html");
+        Template temp = getTemplate("new-help-report.html");
         return generateHelpReportTemplate(helpReport, serverUrl + HELP_REPORT_URL, temp);
     }
 
     public Writer getResearcherDarApprovedTemplate(String darCode, String researcherName, List<DatasetMailDTO> datasets, String dataUseRestriction, String email) throws IOException, TemplateException {
-        Template temp = freeMarkerConfig.getTemplate("researcher-dar-approved.html");
+        Template temp = getTemplate("researcher-dar-approved.html");
         return generateResearcherApprovedTemplate(datasets, dataUseRestriction, darCode, researcherName, email, temp);
     }
 
@@ -98,17 +140,13 @@ public class FreeMarkerTemplateHelper {
                 .setDatasets(datasets)
                 .setDataUseRestriction(dataUseRestriction)
                 .setResearcherEmail(email);
-        Writer out = new StringWriter();
-        temp.process(model, out);
-        return out;
+        return render(temp, model);
     }
 
 
     private Writer generateHelpReportTemplate(HelpReport helpReport, String serverUrl, Template temp) throws IOException, TemplateException {
         NewHelpReportTemplate model = new NewHelpReportTemplate(helpReport.getUserName(), helpReport.getSubject(), helpReport.getDescription(), helpReport.getCreateDate(), serverUrl);
-        Writer out = new StringWriter();
-        temp.process(model, out);
-        return out;
+        return render(temp, model);
     }
 
     private Writer generateClosedDatasetElectionsTemplate(Map<String, List<Election>> elections, String darCode, String serverUrl, Template temp) throws IOException, TemplateException {
@@ -119,9 +157,7 @@ public class FreeMarkerTemplateHelper {
             closedElections.add(new ClosedDatasetElectionModel(key, numberOfDatasets, consolidateDatasetElectionResult(elections.get(key))));
         }
         ClosedDatasetElectionsModel model = new ClosedDatasetElectionsModel(serverUrl, closedElections);
-        Writer out = new StringWriter();
-        temp.process(model, out);
-        return out;
+        return render(temp, model);
     }
 
     private String consolidateDatasetElectionResult(List<Election> elections){
@@ -135,44 +171,32 @@ public class FreeMarkerTemplateHelper {
 
     private Writer generateTemplate(String user, String election, String entityId, Template temp, String serverUrl) throws IOException, TemplateException {
         TemplateModel model = new TemplateModel(user, election, entityId, serverUrl);
-        Writer out = new StringWriter();
-        temp.process(model, out);
-        return out;
+        return render(temp, model);
     }
 
     private Writer generateNewCaseTemplate(String userName, String election, String entityId, Template temp, String serverUrl) throws IOException, TemplateException {
         NewCaseTemplate model = new NewCaseTemplate(userName, election, entityId, serverUrl);
-        Writer out = new StringWriter();
-        temp.process(model, out);
-        return out;
+        return render(temp, model);
     }
 
     private Writer generateNewDARRequestTemplate(String serverUrl, Template temp) throws IOException, TemplateException {
         NewDarRequestModel model = new NewDarRequestModel(serverUrl);
-        Writer out = new StringWriter();
-        temp.process(model, out);
-        return out;
+        return render(temp, model);
     }
 
     private Writer generateDisabledDatasetsTemplate(String user, List<String> datasets, String entityId, String serverUrl, Template temp) throws IOException, TemplateException {
         DisabledDatasetModel model = new DisabledDatasetModel(user, datasets, entityId, serverUrl);
-        Writer out = new StringWriter();
-        temp.process(model, out);
-        return out;
+        return render(temp, model);
     }
 
     private Writer generateCancelledDarTemplate(String userType, String entityId, String serverUrl, Template temp) throws IOException, TemplateException {
         CancelledDarModel model = new CancelledDarModel(userType, entityId, serverUrl);
-        Writer out = new StringWriter();
-        temp.process(model, out);
-        return out;
+        return render(temp, model);
     }
 
     private Writer generateAdminApprovedDarTemplate(String userType, String entityId, Map<DACUser, List<DataSet>> dataOwnersDataSets, String serverUrl, Template temp) throws IOException, TemplateException {
         AdminDarApprovedModel model = new AdminDarApprovedModel(userType, entityId, dataOwnersDataSets, serverUrl);
-        Writer out = new StringWriter();
-        temp.process(model, out);
-        return out;
+        return render(temp, model);
     }
 
     private Writer generateApprovedDarTemplate(String userName, String date, String entityId, String investigator, String institution,
@@ -181,28 +205,34 @@ public class FreeMarkerTemplateHelper {
                                                String daysToApprove, String serverUrl, Template temp) throws IOException, TemplateException {
         ApprovedDarModel model = new ApprovedDarModel(userName, date, entityId, investigator, institution, researchPurpose, typeOfResearch, diseaseArea, checkedSentences,
                 translatedUseRestriction, datasets, serverUrl, daysToApprove);
-        Writer out = new StringWriter();
-        temp.process(model, out);
-        return out;
+        return render(temp, model);
     }
 
     public Writer getUserDelegateResponsibilitiesTemplate(String user, List<VoteAndElectionModel> delegatedVotes, String newRoleName, String serverUrl) throws IOException, TemplateException {
-                Template temp = freeMarkerConfig.getTemplate("user-delegate-responsibilities.html");
+                Template temp = getTemplate("user-delegate-responsibilities.html");
                 return generateUserDelegateResponsibilitiesTemplate(user, delegatedVotes, newRoleName, serverUrl, temp);
     }
 
     private Writer generateUserDelegateResponsibilitiesTemplate(String user, List<VoteAndElectionModel> delegatedVotes, String newRoleName, String serverUrl, Template temp) throws IOException, TemplateException {
                 DelegateResponsibilitiesModel model = new DelegateResponsibilitiesModel(user, newRoleName, serverUrl, delegatedVotes);
-                Writer out = new StringWriter();
-                temp.process(model, out);
-                return out;
+                return render(temp, model);
     }
 
     public Writer getNewResearcherCreatedTemplate(String admin, String researcherName, String url, String action) throws IOException, TemplateException {
-        Template temp = freeMarkerConfig.getTemplate("new-researcher.html");
+        Template temp = getTemplate("new-researcher.html");
         NewResearcherModel model = new NewResearcherModel(admin, researcherName, url, action);
-        Writer out = new StringWriter();
+        return render(temp, model);
+    }
+
+    private Template getTemplate(String name) throws IOException {
+        Template temp = templates.get(name);
+        return temp != null ? temp : freeMarkerConfig.getTemplate(name);
+    }
+
+    private Writer render(Template temp, Object model) throws IOException, TemplateException {
+        StringWriter out = new StringWriter(renderedSizes.getOrDefault(temp.getName(), DEFAULT_BUFFER_SIZE));
         temp.process(model, out);
+        renderedSizes.put(temp.getName(), out.getBuffer().length());
         return out;
     }
 
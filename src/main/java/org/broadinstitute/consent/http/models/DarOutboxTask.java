@@ -0,0 +1,102 @@
+package org.broadinstitute.consent.http.models;
+
+import java.util.Date;
+
+/**
+ * A side effect of creating a data access request that is run after the request has been stored.
+ */
+public class DarOutboxTask {
+
+    private Long id;
+
+    private String idempotencyKey;
+
+    private String taskType;
+
+    private String referenceId;
+
+    private Integer attempts;
+
+    private Date nextAttemptDate;
+
+    private Date createDate;
+
+    private String lastError;
+
+    public DarOutboxTask() {
+    }
+
+    public DarOutboxTask(String taskType, String referenceId, Date createDate) {
+        this.idempotencyKey = taskType + ":" + referenceId;
+        this.taskType = taskType;
+        this.referenceId = referenceId;
+        this.attempts = 0;
+        this.nextAttemptDate = createDate;
+        this.createDate = createDate;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getTaskType() {
+        return taskType;
+    }
+
+    public void setTaskType(String taskType) {
+        this.taskType = taskType;
+    }
+
+    public String getReferenceId() {
+        return referenceId;
+    }
+
+    public void setReferenceId(String referenceId) {
+        this.referenceId = referenceId;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public void setNextAttemptDate(Date nextAttemptDate) {
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    public Date getCreateDate() {
+        return createDate;
+    }
+
+    public void setCreateDate(Date createDate) {
+        this.createDate = createDate;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+}
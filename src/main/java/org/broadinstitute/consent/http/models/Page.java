@@ -0,0 +1,27 @@
+package org.broadinstitute.consent.http.models;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paginated listing. The next page token is null on the last page.
+ */
+public class Page<T> {
+
+    private final List<T> items;
+
+    private final String nextPageToken;
+
+    public Page(List<T> items, String nextPageToken) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+}
@@ -1,5 +1,6 @@
 package org.broadinstitute.consent.http.models.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class UseRestrictionDTO {
@@ -13,6 +14,9 @@ public class UseRestrictionDTO {
     @JsonProperty
     private String useRestriction;
 
+    @JsonIgnore
+    private String checksum;
+
     public UseRestrictionDTO(){
     }
 
@@ -50,4 +54,12 @@ public class UseRestrictionDTO {
     public void setId(String id) {
         this.id = id;
     }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
 }
@@ -39,6 +39,6 @@ public class Not extends UseRestriction {
     }
 
     public boolean visitAndContinue(UseRestrictionVisitor visitor) {
-        return visitor.visit(operand);
+        return operand.visit(visitor);
     }
 }
\ No newline at end of file
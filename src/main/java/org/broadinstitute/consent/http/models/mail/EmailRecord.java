@@ -0,0 +1,43 @@
+package org.broadinstitute.consent.http.models.mail;
+
+import java.util.List;
+
+/**
+ * The email_entity rows written for a submission once all of its messages have been sent, one per user. Reminder
+ * records also mark the vote's reminder as sent.
+ */
+public class EmailRecord {
+
+    public static final int COLLECT = 1;
+    public static final int REMINDER = 3;
+    public static final int NEW_DAR = 4;
+
+    private Integer emailType;
+    private String entityReferenceId;
+    private Integer voteId;
+    private List<Integer> dacUserIds;
+
+    public EmailRecord(Integer emailType, String entityReferenceId, Integer voteId, List<Integer> dacUserIds) {
+        this.emailType = emailType;
+        this.entityReferenceId = entityReferenceId;
+        this.voteId = voteId;
+        this.dacUserIds = dacUserIds;
+    }
+
+    public Integer getEmailType() {
+        return emailType;
+    }
+
+    public String getEntityReferenceId() {
+        return entityReferenceId;
+    }
+
+    public Integer getVoteId() {
+        return voteId;
+    }
+
+    public List<Integer> getDacUserIds() {
+        return dacUserIds;
+    }
+
+}
@@ -0,0 +1,134 @@
+package org.broadinstitute.consent.http.models.mail;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A message waiting in the mail_outbox table to be sent. Recipients are stored comma separated. Messages submitted
+ * with a record belong to a mail_submission, whose record is written once all of its messages have been sent.
+ */
+public class QueuedMail {
+
+    private Long id;
+
+    private String fromAddress;
+
+    private String toAddresses;
+
+    private String subject;
+
+    private String content;
+
+    private Long submissionId;
+
+    private Integer attempts;
+
+    private Date nextAttemptDate;
+
+    private Date createDate;
+
+    private String lastError;
+
+    public QueuedMail() {
+    }
+
+    public QueuedMail(String fromAddress, Collection<String> toAddresses, String subject, String content, Date createDate) {
+        this.fromAddress = fromAddress;
+        this.toAddresses = String.join(",", toAddresses);
+        this.subject = subject;
+        this.content = content;
+        this.attempts = 0;
+        this.nextAttemptDate = createDate;
+        this.createDate = createDate;
+    }
+
+    public List<String> recipients() {
+        return StringUtils.isEmpty(toAddresses) ? Collections.emptyList() : Arrays.asList(toAddresses.split(","));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFromAddress() {
+        return fromAddress;
+    }
+
+    public void setFromAddress(String fromAddress) {
+        this.fromAddress = fromAddress;
+    }
+
+    public String getToAddresses() {
+        return toAddresses;
+    }
+
+    public void setToAddresses(String toAddresses) {
+        this.toAddresses = toAddresses;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Long getSubmissionId() {
+        return submissionId;
+    }
+
+    public void setSubmissionId(Long submissionId) {
+        this.submissionId = submissionId;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public void setNextAttemptDate(Date nextAttemptDate) {
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    public Date getCreateDate() {
+        return createDate;
+    }
+
+    public void setCreateDate(Date createDate) {
+        this.createDate = createDate;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+}
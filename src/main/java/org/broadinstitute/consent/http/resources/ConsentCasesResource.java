@@ -9,7 +9,7 @@ import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
-import java.io.File;
+import javax.ws.rs.core.StreamingOutput;
 import java.util.List;
 
 @Path("{api : (api/)?}consent/cases")
@@ -47,7 +47,7 @@ public class ConsentCasesResource extends Resource {
     @PermitAll
     public Response getConsentSummaryDetailFile(@QueryParam("fileType") String fileType) {
         ResponseBuilder response;
-        File fileToSend = null;
+        StreamingOutput fileToSend = null;
         if (fileType.equals(ElectionType.TRANSLATE_DUL.getValue())) {
             fileToSend = summaryApi.describeConsentSummaryDetail();
         }else if (fileType.equals(ElectionType.DATA_ACCESS.getValue())){
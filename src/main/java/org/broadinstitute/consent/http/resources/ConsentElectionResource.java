@@ -1,6 +1,7 @@
 package org.broadinstitute.consent.http.resources;
 
 import org.broadinstitute.consent.http.enumeration.ElectionType;
+import org.broadinstitute.consent.http.enumeration.VoteType;
 import org.broadinstitute.consent.http.models.Election;
 import org.broadinstitute.consent.http.models.Vote;
 import org.broadinstitute.consent.http.models.dto.Error;
@@ -16,7 +17,6 @@ import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 import java.net.URI;
 import java.util.List;
-import java.util.stream.Collectors;
 
 
 @Path("{api : (api/)?}consent/{consentId}/election")
@@ -39,13 +39,9 @@ public class ConsentElectionResource extends Resource {
                                           @PathParam("consentId") String consentId) {
         URI uri;
         try {
-            Election election = api.createElection(rec, consentId, ElectionType.TRANSLATE_DUL);
+            Election election = api.createElectionWithVotes(rec, consentId, ElectionType.TRANSLATE_DUL, false);
             logger().info("Election ID: " + election.getElectionId());
-            List<Vote> votes  = voteAPI.createVotes(election.getElectionId(), ElectionType.TRANSLATE_DUL, false);
-            votes.forEach(vote -> {
-                logger().info("Translate Vote ID: " + vote.getVoteId());
-            });
-            List<Vote> dulVotes = votes.stream().filter(vote -> vote.getType().equals("DAC")).collect(Collectors.toList());
+            List<Vote> dulVotes = voteAPI.describeVoteByTypeAndElectionId(VoteType.DAC.getValue(), election.getElectionId());
             dulVotes.forEach(vote -> {
                 logger().info("DAC Vote ID: " + vote.getVoteId());
             });
@@ -6,6 +6,7 @@ import org.broadinstitute.consent.http.service.ConsentAPI;
 import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 @Path("{auth: (basic/|api/)?}consent")
@@ -20,9 +21,14 @@ public class ConsentManageResource extends Resource {
     @GET
     @Path("/manage")
     @RolesAllowed(ADMIN)
-    public Response getConsentManage() {
-        return Response.ok(api.describeConsentManage())
-                .build();
+    public Response getConsentManage(@QueryParam("status") String status,
+                                     @QueryParam("pageToken") String pageToken,
+                                     @QueryParam("limit") Integer limit) {
+        try {
+            return createPageResponse(api.describeConsentManage(status, pageToken, limit));
+        } catch (Exception e) {
+            return createExceptionResponse(e);
+        }
     }
 
     @GET
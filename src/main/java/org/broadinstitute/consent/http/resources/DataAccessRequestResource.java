@@ -19,14 +19,13 @@ import org.broadinstitute.consent.http.service.AbstractMatchProcessAPI;
 import org.broadinstitute.consent.http.service.AbstractTranslateService;
 import org.broadinstitute.consent.http.service.ConsentAPI;
 import org.broadinstitute.consent.http.service.DataAccessRequestAPI;
+import org.broadinstitute.consent.http.service.DataAccessRequestOutbox;
 import org.broadinstitute.consent.http.service.DataSetAPI;
 import org.broadinstitute.consent.http.service.ElectionAPI;
 import org.broadinstitute.consent.http.service.EmailNotifierAPI;
 import org.broadinstitute.consent.http.service.MatchProcessAPI;
 import org.broadinstitute.consent.http.service.TranslateService;
 import org.broadinstitute.consent.http.service.users.DACUserAPI;
-import org.broadinstitute.consent.http.service.validate.AbstractUseRestrictionValidatorAPI;
-import org.broadinstitute.consent.http.service.validate.UseRestrictionValidatorAPI;
 import org.broadinstitute.consent.http.util.DarConstants;
 import org.broadinstitute.consent.http.util.DarUtil;
 import org.bson.Document;
@@ -73,20 +72,20 @@ public class DataAccessRequestResource extends Resource {
     private final TranslateService translateService = AbstractTranslateService.getInstance();
     private final DataSetAPI dataSetAPI = AbstractDataSetAPI.getInstance();
     private static final Logger logger = Logger.getLogger(DataAccessRequestResource.class.getName());
-    private final UseRestrictionValidatorAPI useRestrictionValidatorAPI;
     private final DACUserAPI dacUserAPI;
     private final ElectionAPI electionAPI;
     private final GCSStore store;
+    private final DataAccessRequestOutbox outbox;
 
-    public DataAccessRequestResource(DACUserAPI dacUserAPI, ElectionAPI electionAPI, GCSStore store) {
+    public DataAccessRequestResource(DACUserAPI dacUserAPI, ElectionAPI electionAPI, GCSStore store, DataAccessRequestOutbox outbox) {
         this.dataAccessRequestAPI = AbstractDataAccessRequestAPI.getInstance();
         this.consentAPI = AbstractConsentAPI.getInstance();
         this.matchProcessAPI = AbstractMatchProcessAPI.getInstance();
         this.emailApi = AbstractEmailNotifierAPI.getInstance();
-        this.useRestrictionValidatorAPI = AbstractUseRestrictionValidatorAPI.getInstance();
         this.dacUserAPI = dacUserAPI;
         this.electionAPI = electionAPI;
         this.store = store;
+        this.outbox = outbox;
     }
 
     @POST
@@ -101,8 +100,6 @@ public class DataAccessRequestResource extends Resource {
                 if (!needsManualReview) {
                     useRestriction = dataAccessRequestAPI.createStructuredResearchPurpose(dar);
                     dar.append(DarConstants.RESTRICTION, Document.parse(useRestriction.toString()));
-                    useRestrictionValidatorAPI.validateUseRestriction(useRestriction.toString());
-                    dar.append(DarConstants.VALID_RESTRICTION, true);
                 }
             } catch (Exception e) {
                 logger.log(Level.SEVERE, "Error creating use restriction for data access request " + dar.toJson(), e);
@@ -111,10 +108,7 @@ public class DataAccessRequestResource extends Resource {
             dar.append(DarConstants.SORT_DATE, new Date());
             List<Document> results = dataAccessRequestAPI.createDataAccessRequest(dar);
             URI uri = info.getRequestUriBuilder().build();
-            for (Document r : results) {
-                matchProcessAPI.processMatchesForPurpose(r.get(DarConstants.ID).toString());
-                emailApi.sendNewDARRequestMessage(r.getString(DarConstants.DAR_CODE));
-            }
+            enqueue(results);
             return Response.created(uri).build();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error creating data access request ", e);
@@ -123,6 +117,20 @@ public class DataAccessRequestResource extends Resource {
         }
     }
 
+    /**
+     * Validation, matching and the notification email run from the outbox once the request is stored. The request
+     * exists at this point, so a failure to queue them doesn't fail its creation. The nightly validation still picks
+     * up its restriction.
+     */
+    private void enqueue(List<Document> dataAccessRequests) {
+        try {
+            outbox.enqueue(dataAccessRequests);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error queueing post-create tasks for data access requests " +
+                    dataAccessRequests.stream().map(d -> String.valueOf(d.get(DarConstants.ID))).collect(Collectors.joining(", ")), e);
+        }
+    }
+
     @PUT
     @Consumes("application/json")
     @Produces("application/json")
@@ -269,8 +277,16 @@ public class DataAccessRequestResource extends Resource {
     @Produces("application/json")
     @Path("/manage")
     @RolesAllowed({RESEARCHER, ADMIN})
-    public Response describeManageDataAccessRequests(@QueryParam("userId") Integer userId) {
-        return Response.ok().entity(dataAccessRequestAPI.describeDataAccessRequestManage(userId)).build();
+    public Response describeManageDataAccessRequests(@QueryParam("userId") Integer userId,
+                                                     @QueryParam("status") String status,
+                                                     @QueryParam("dataSetId") Integer dataSetId,
+                                                     @QueryParam("pageToken") String pageToken,
+                                                     @QueryParam("limit") Integer limit) {
+        try {
+            return createPageResponse(dataAccessRequestAPI.describeDataAccessRequestManage(userId, status, dataSetId, pageToken, limit));
+        } catch (Exception e) {
+            return createExceptionResponse(e);
+        }
     }
 
     @GET
@@ -381,8 +397,15 @@ public class DataAccessRequestResource extends Resource {
     @Produces("application/json")
     @Path("/partials/manage")
     @RolesAllowed(RESEARCHER)
-    public Response describePartialManageDataAccessRequests(@QueryParam("userId") Integer userId) {
-        return Response.ok().entity(dataAccessRequestAPI.describePartialDataAccessRequestManage(userId)).build();
+    public Response describePartialManageDataAccessRequests(@QueryParam("userId") Integer userId,
+                                                            @QueryParam("dataSetId") Integer dataSetId,
+                                                            @QueryParam("pageToken") String pageToken,
+                                                            @QueryParam("limit") Integer limit) {
+        try {
+            return createPageResponse(dataAccessRequestAPI.describePartialDataAccessRequestManage(userId, dataSetId, pageToken, limit));
+        } catch (Exception e) {
+            return createExceptionResponse(e);
+        }
     }
 
 
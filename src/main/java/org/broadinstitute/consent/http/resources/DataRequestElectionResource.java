@@ -1,6 +1,7 @@
 package org.broadinstitute.consent.http.resources;
 
 import org.broadinstitute.consent.http.enumeration.ElectionType;
+import org.broadinstitute.consent.http.enumeration.VoteType;
 import org.broadinstitute.consent.http.models.Election;
 import org.broadinstitute.consent.http.models.Vote;
 import org.broadinstitute.consent.http.models.dto.Error;
@@ -19,7 +20,6 @@ import java.io.File;
 import java.net.URI;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 @Path("{api : (api/)?}dataRequest/{requestId}/election")
 public class DataRequestElectionResource extends Resource {
@@ -46,17 +46,14 @@ public class DataRequestElectionResource extends Resource {
         URI uri;
         Election accessElection;
         try {
-            accessElection = api.createElection(rec, requestId.toString(), ElectionType.DATA_ACCESS);
-            List<Vote> votes;
             //create RP election
             if(!Objects.isNull(darApi.getField(requestId, DarConstants.RESTRICTION))){
-                votes = voteAPI.createVotes(accessElection.getElectionId(), ElectionType.DATA_ACCESS, false);
-                Election rpElection = api.createElection(rec, requestId.toString(), ElectionType.RP);
-                voteAPI.createVotes(rpElection.getElectionId(), ElectionType.RP, false);
+                accessElection = api.createElectionWithVotes(rec, requestId.toString(), ElectionType.DATA_ACCESS, false);
+                api.createElectionWithVotes(rec, requestId.toString(), ElectionType.RP, false);
             }else{
-                votes = voteAPI.createVotes(accessElection.getElectionId(), ElectionType.DATA_ACCESS, true);
+                accessElection = api.createElectionWithVotes(rec, requestId.toString(), ElectionType.DATA_ACCESS, true);
             }
-            List<Vote> darVotes = votes.stream().filter(vote -> vote.getType().equals("DAC")).collect(Collectors.toList());
+            List<Vote> darVotes = voteAPI.describeVoteByTypeAndElectionId(VoteType.DAC.getValue(), accessElection.getElectionId());
             emailApi.sendNewCaseMessageToList(darVotes, accessElection);
             uri = info.getRequestUriBuilder().build();
         } catch (Exception e){
@@ -1,5 +1,6 @@
 package org.broadinstitute.consent.http.resources;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.broadinstitute.consent.http.models.DACUser;
 import org.broadinstitute.consent.http.service.AbstractDataAccessRequestAPI;
 import org.broadinstitute.consent.http.service.DataAccessRequestAPI;
@@ -10,13 +11,17 @@ import org.broadinstitute.consent.http.util.DarUtil;
 import org.bson.Document;
 
 import javax.annotation.security.PermitAll;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.List;
 import java.util.Map;
 
 @Path("{api : (api/)?}dataRequest")
@@ -49,7 +54,7 @@ public class DataRequestReportsResource extends Resource {
             String sDUR = darApi.getStructuredDURForPdf(dar);
             Boolean manualReview = DarUtil.requiresManualReview(dar);
             return Response
-                    .ok(darApi.createDARDocument(dar, researcherProperties, user, manualReview, sDUR), MediaType.APPLICATION_OCTET_STREAM)
+                    .ok(darApi.streamDARDocument(dar, researcherProperties, user, manualReview, sDUR), MediaType.APPLICATION_OCTET_STREAM)
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename =" + fileName + ".pdf")
                     .header(HttpHeaders.ACCEPT, "application/pdf")
                     .header("Access-Control-Expose-Headers", HttpHeaders.CONTENT_DISPOSITION)
@@ -59,6 +64,26 @@ public class DataRequestReportsResource extends Resource {
         }
     }
 
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces("application/zip")
+    @PermitAll
+    @Path("/pdf")
+    public Response downloadDataRequestPdfFiles(List<String> requestIds) {
+        if (CollectionUtils.isEmpty(requestIds)) {
+            return createExceptionResponse(new BadRequestException("At least one data access request id is required"));
+        }
+        try {
+            return Response
+                    .ok(darApi.streamDARDocuments(requestIds, researcherAPI), "application/zip")
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename =FullDARApplications.zip")
+                    .header("Access-Control-Expose-Headers", HttpHeaders.CONTENT_DISPOSITION)
+                    .build();
+        } catch (Exception e) {
+            return createExceptionResponse(e);
+        }
+    }
+
     // TODO: Undocumented
     @GET
     @Produces(MediaType.APPLICATION_OCTET_STREAM)
@@ -4,11 +4,14 @@ import com.google.common.io.Resources;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import javax.annotation.security.PermitAll;
 import javax.annotation.security.RolesAllowed;
 import javax.servlet.http.HttpServletRequest;
@@ -25,7 +28,6 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.*;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.broadinstitute.consent.http.models.DataSet;
@@ -43,6 +45,8 @@ public class DataSetResource extends Resource {
 
     private final String END_OF_LINE = System.lineSeparator();
     private final String TSV_DELIMITER = "\t";
+    private static final String TSV_MEDIA_TYPE = "text/tab-separated-values";
+    private static final Path UPLOAD_DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"), "consent-dataset-uploads");
     private final DataSetAPI api;
     private final DataAccessRequestAPI dataAccessRequestAPI;
 
@@ -70,8 +74,7 @@ public class DataSetResource extends Resource {
                         || part.getMediaType().getSubtype().equals("plain") )) {
             File inputFile = null;
             try {
-                inputFile = new File(UUID.randomUUID().toString());
-                FileUtils.copyInputStreamToFile(uploadedDataSet, inputFile);
+                inputFile = spoolUpload(uploadedDataSet);
                 ParseResult result;
                 if (overwrite) {
                     result = api.overwrite(inputFile, userId);
@@ -102,6 +105,17 @@ public class DataSetResource extends Resource {
         return Response.status(Response.Status.BAD_REQUEST).entity(errors).build();
     }
 
+    /**
+     * Copies the upload to its own file in the system temp directory, so it doesn't end up in the working directory
+     * and concurrent uploads can't collide. Callers delete the file once it has been processed.
+     */
+    private File spoolUpload(InputStream uploadedDataSet) throws IOException {
+        Files.createDirectories(UPLOAD_DIRECTORY);
+        Path file = Files.createTempFile(UPLOAD_DIRECTORY, "dataset-", ".tsv");
+        Files.copy(uploadedDataSet, file, StandardCopyOption.REPLACE_EXISTING);
+        return file.toFile();
+    }
+
     @GET
     @Produces("application/json")
     @PermitAll
@@ -192,6 +206,21 @@ public class DataSetResource extends Resource {
 
     }
 
+    @POST
+    @Path("/download/tsv")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(TSV_MEDIA_TYPE)
+    @PermitAll
+    public Response downloadDataSetsTSV(List<Integer> idList) {
+        try {
+            return Response.ok(api.streamDataSetsByReceiveOrder(idList), TSV_MEDIA_TYPE)
+                    .header("Content-Disposition", "attachment; filename=datasets.tsv")
+                    .build();
+        } catch (Exception e) {
+            return createExceptionResponse(e);
+        }
+    }
+
 
     @DELETE
     @Produces(MediaType.APPLICATION_JSON)
@@ -227,8 +256,8 @@ public class DataSetResource extends Resource {
     @Path("/autocomplete/{partial}")
     @Produces("application/json")
     @PermitAll
-    public Response datasetAutocomplete(@PathParam("partial") String partial){
-        List<Map<String, String>> j = api.autoCompleteDataSets(partial);
+    public Response datasetAutocomplete(@PathParam("partial") String partial, @QueryParam("limit") Integer limit){
+        List<Map<String, String>> j = api.autoCompleteDataSets(partial, limit);
         return Response.ok(j, MediaType.APPLICATION_JSON).build();
     }
 
@@ -1,7 +1,6 @@
 package org.broadinstitute.consent.http.resources;
 
 import com.google.api.client.http.GenericUrl;
-import com.google.api.client.http.HttpResponse;
 import io.dropwizard.auth.Auth;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -22,9 +21,11 @@ import org.glassfish.jersey.media.multipart.FormDataParam;
 
 import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import javax.ws.rs.core.StreamingOutput;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -127,7 +128,8 @@ public class DataUseLetterResource extends Resource {
     @GET
     @Produces(MediaType.APPLICATION_OCTET_STREAM)
     @RolesAllowed({ADMIN, CHAIRPERSON, MEMBER, DATAOWNER})
-    public Response getDUL(@PathParam("id") String consentId, @QueryParam("electionId") Integer electionId) {
+    public void getDUL(@PathParam("id") String consentId, @QueryParam("electionId") Integer electionId,
+                       @HeaderParam(HttpHeaders.RANGE) String range, @Suspended AsyncResponse asyncResponse) {
         String msg = String.format("GETing Data Use Letter for consent with id '%s' and Election Id '%s", consentId, electionId);
         logger().debug(msg);
         Election election = null;
@@ -138,20 +140,35 @@ public class DataUseLetterResource extends Resource {
             }
             String fileUrl = election != null ? election.getDataUseLetter() : consent.getDataUseLetter();
             String fileName = election != null ? election.getDulName() : consent.getDulName();
-            HttpResponse r = store.getStorageDocument(fileUrl);
-            StreamingOutput stream = createStreamingOutput(r.getContent());
-            return Response.ok(stream)
-                    .type(r.getContentType())
-                    .header("Content-Disposition", "attachment; filename=" + fileName)
-                    .build();
+            store.getStorageDocumentAsync(fileUrl, range).whenComplete((r, e) -> {
+                if (e != null) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    logger().error("Error when trying to read the file " + cause.getMessage());
+                    if (cause instanceof Exception) {
+                        asyncResponse.resume(createExceptionResponse((Exception) cause));
+                    } else {
+                        asyncResponse.resume(cause);
+                    }
+                    return;
+                }
+                try {
+                    Response.ResponseBuilder builder = Response.status(r.getStatusCode())
+                            .entity(createStreamingOutput(r.getContent()))
+                            .type(r.getContentType())
+                            .header("Accept-Ranges", "bytes")
+                            .header("Content-Disposition", "attachment; filename=" + fileName);
+                    if (r.getHeaders().getContentRange() != null) {
+                        builder.header("Content-Range", r.getHeaders().getContentRange());
+                    }
+                    asyncResponse.resume(builder.build());
+                } catch (IOException ioe) {
+                    logger().error("Error when trying to read the file " + ioe.getMessage());
+                    asyncResponse.resume(createExceptionResponse(ioe));
+                }
+            });
         } catch (UnknownIdentifierException e) {
-            throw new NotFoundException(e);
-        } catch (IOException e) {
-            logger().error("Error when trying to read/write the file " + e.getMessage());
-        } catch (GeneralSecurityException e) {
-            logger().error("Security error: " + e.getMessage());
+            asyncResponse.resume(new NotFoundException(e));
         }
-        return null;
     }
 
     @DELETE
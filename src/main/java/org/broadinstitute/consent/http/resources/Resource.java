@@ -4,6 +4,7 @@ import com.mysql.jdbc.exceptions.jdbc4.MySQLSyntaxErrorException;
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.broadinstitute.consent.http.exceptions.UpdateConsentException;
+import org.broadinstitute.consent.http.models.Page;
 import org.broadinstitute.consent.http.models.dto.Error;
 import org.broadinstitute.consent.http.service.users.handler.UserRoleHandlerException;
 import javax.ws.rs.BadRequestException;
@@ -34,6 +35,8 @@ abstract public class Resource {
     public final static String MEMBER = "Member";
     public final static String RESEARCHER = "Researcher";
 
+    public final static String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
     protected Logger logger() {
         return Logger.getLogger(this.getClass().getName());
     }
@@ -53,10 +56,21 @@ abstract public class Resource {
         }
     }
 
+    /**
+     * Paginated listings still return a plain JSON array. The token for the next page, if any, is sent as a header.
+     */
+    protected Response createPageResponse(Page<?> page) {
+        Response.ResponseBuilder response = Response.ok().entity(page.getItems());
+        if (page.getNextPageToken() != null) {
+            response.header(NEXT_PAGE_TOKEN_HEADER, page.getNextPageToken());
+        }
+        return response.build();
+    }
+
     StreamingOutput createStreamingOutput(InputStream inputStream) {
         return output -> {
-            try {
-                output.write(IOUtils.toByteArray(inputStream));
+            try (InputStream input = inputStream) {
+                IOUtils.copyLarge(input, output);
             } catch (Exception e) {
                 logger().error(e);
                 throw e;
@@ -4,6 +4,7 @@ import org.broadinstitute.consent.http.models.Consent;
 import org.broadinstitute.consent.http.models.ConsentAssociation;
 import org.broadinstitute.consent.http.models.ConsentManage;
 import org.broadinstitute.consent.http.models.Election;
+import org.broadinstitute.consent.http.models.Page;
 import org.broadinstitute.consent.http.models.dto.ConsentGroupNameDTO;
 import org.broadinstitute.consent.http.models.dto.UseRestrictionDTO;
 
@@ -64,7 +65,14 @@ public interface ConsentAPI {
 
     Consent deleteConsentDul(String consentId) throws UnknownIdentifierException;
 
-    List<ConsentManage> describeConsentManage();
+    /**
+     * Lists consents for the manage screen newest first, a page at a time.
+     *
+     * @param status    un-reviewed, or the status of the last election. Null for every consent.
+     * @param pageToken Token returned with the previous page, or null for the first page.
+     * @param limit     Page size, or null to return every matching consent.
+     */
+    Page<ConsentManage> describeConsentManage(String status, String pageToken, Integer limit);
 
     Integer getUnReviewedConsents();
 
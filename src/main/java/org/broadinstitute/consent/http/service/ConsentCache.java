@@ -0,0 +1,161 @@
+package org.broadinstitute.consent.http.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.broadinstitute.consent.http.db.ConsentDAO;
+import org.broadinstitute.consent.http.models.Consent;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through cache of consents by id and of the consent associated with each dataset. Services invalidate the
+ * entries they change; entries also expire after a short time, which bounds how stale a consent changed elsewhere can
+ * get. Consents are copied on the way out since callers modify the ones they get.
+ */
+public class ConsentCache {
+
+    private static final long TTL_SECONDS = 60;
+    private static final long MAX_CONSENTS = 5000;
+    private static final long MAX_DATASETS = 20000;
+
+    private final ConsentDAO consentDAO;
+    private final Cache<String, Consent> consents;
+    private final Cache<Integer, Consent> dataSetConsents;
+
+    public ConsentCache(ConsentDAO consentDAO, MetricRegistry metrics) {
+        this(consentDAO, metrics, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    ConsentCache(ConsentDAO consentDAO, MetricRegistry metrics, Ticker ticker) {
+        this.consentDAO = consentDAO;
+        this.consents = CacheBuilder.newBuilder().
+                maximumSize(MAX_CONSENTS).
+                expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS).
+                ticker(ticker).
+                recordStats().
+                build();
+        this.dataSetConsents = CacheBuilder.newBuilder().
+                maximumSize(MAX_DATASETS).
+                expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS).
+                ticker(ticker).
+                recordStats().
+                build();
+        registerMetrics(metrics, "consents", consents);
+        registerMetrics(metrics, "dataSetConsents", dataSetConsents);
+    }
+
+    /**
+     * @return The active consent with the given id, or null if there isn't one.
+     */
+    public Consent findConsentById(String consentId) {
+        if (consentId == null) {
+            return null;
+        }
+        Consent consent = consents.getIfPresent(consentId);
+        if (consent == null) {
+            consent = consentDAO.findConsentById(consentId);
+            if (consent == null) {
+                return null;
+            }
+            consents.put(consentId, consent);
+        }
+        return copyOf(consent);
+    }
+
+    /**
+     * @return The consent associated with the dataset, or null if it has none.
+     */
+    public Consent findConsentByDataSetId(Integer dataSetId) {
+        if (dataSetId == null) {
+            return null;
+        }
+        Consent consent = dataSetConsents.getIfPresent(dataSetId);
+        if (consent == null) {
+            consent = consentDAO.findConsentFromDatasetID(dataSetId);
+            if (consent == null) {
+                return null;
+            }
+            dataSetConsents.put(dataSetId, consent);
+        }
+        return copyOf(consent);
+    }
+
+    /**
+     * @return Name of the consent associated with the dataset, or null if it has none. Takes the id as it is stored in
+     * data access requests.
+     */
+    public String findConsentNameByDataSetId(String dataSetId) {
+        if (!NumberUtils.isDigits(dataSetId)) {
+            return consentDAO.findConsentNameFromDatasetID(dataSetId);
+        }
+        Consent consent = findConsentByDataSetId(Integer.valueOf(dataSetId));
+        return consent == null ? null : consent.getName();
+    }
+
+    /**
+     * Drops the consent and every dataset entry pointing to it. Call it after the consent is updated or deleted.
+     */
+    public void invalidateConsent(String consentId) {
+        if (consentId != null) {
+            consents.invalidate(consentId);
+            dataSetConsents.asMap().values().removeIf(consent -> consentId.equals(consent.getConsentId()));
+        }
+    }
+
+    public void invalidateConsents(Collection<String> consentIds) {
+        if (CollectionUtils.isNotEmpty(consentIds)) {
+            consentIds.forEach(this::invalidateConsent);
+        }
+    }
+
+    /**
+     * Drops the consents cached for the given datasets. Call it after their associations change.
+     */
+    public void invalidateDataSets(Collection<Integer> dataSetIds) {
+        if (CollectionUtils.isNotEmpty(dataSetIds)) {
+            dataSetConsents.invalidateAll(dataSetIds);
+        }
+    }
+
+    /**
+     * Drops every dataset entry, for association changes made by object id rather than by dataset id.
+     */
+    public void invalidateDataSets() {
+        dataSetConsents.invalidateAll();
+    }
+
+    private static Consent copyOf(Consent consent) {
+        Consent copy = new Consent();
+        copy.setConsentId(consent.getConsentId());
+        copy.setRequiresManualReview(consent.getRequiresManualReview());
+        copy.setDataUseLetter(consent.getDataUseLetter());
+        copy.setDulName(consent.getDulName());
+        copy.setUseRestriction(consent.getUseRestriction());
+        copy.setDataUse(consent.getDataUse());
+        copy.setName(consent.getName());
+        copy.setCreateDate(consent.getCreateDate());
+        copy.setSortDate(consent.getSortDate());
+        copy.setLastUpdate(consent.getLastUpdate());
+        copy.setTranslatedUseRestriction(consent.getTranslatedUseRestriction());
+        copy.setGroupName(consent.getGroupName());
+        copy.setUpdated(consent.getUpdated());
+        return copy;
+    }
+
+    private static void registerMetrics(MetricRegistry metrics, String cacheName, Cache<?, ?> cache) {
+        metrics.register(MetricRegistry.name(ConsentCache.class, cacheName, "hits"), (Gauge<Long>) () -> cache.stats().hitCount());
+        metrics.register(MetricRegistry.name(ConsentCache.class, cacheName, "misses"), (Gauge<Long>) () -> cache.stats().missCount());
+        metrics.register(MetricRegistry.name(ConsentCache.class, cacheName, "hitRate"), (Gauge<Double>) () -> cache.stats().hitRate());
+        metrics.register(MetricRegistry.name(ConsentCache.class, cacheName, "evictions"), (Gauge<Long>) () -> cache.stats().evictionCount());
+        metrics.register(MetricRegistry.name(ConsentCache.class, cacheName, "size"), (Gauge<Long>) cache::size);
+    }
+
+}
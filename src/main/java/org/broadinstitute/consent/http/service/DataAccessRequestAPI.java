@@ -6,12 +6,15 @@ import org.broadinstitute.consent.http.db.mongo.MongoConsentDB;
 import org.broadinstitute.consent.http.models.DACUser;
 import org.broadinstitute.consent.http.models.UserRole;
 import org.broadinstitute.consent.http.models.DataAccessRequestManage;
+import org.broadinstitute.consent.http.models.Page;
 import org.broadinstitute.consent.http.models.darsummary.DARModalDetailsDTO;
 import org.broadinstitute.consent.http.models.dto.UseRestrictionDTO;
 import org.broadinstitute.consent.http.models.grammar.UseRestriction;
+import org.broadinstitute.consent.http.service.users.handler.ResearcherAPI;
 import org.bson.Document;
 
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
@@ -29,7 +32,14 @@ public interface DataAccessRequestAPI {
 
     Document describeDataAccessRequestFieldsById(String id, List<String> fields) throws NotFoundException;
 
-    List<DataAccessRequestManage> describeDataAccessRequestManage(Integer userId);
+    /**
+     * Lists requests for the manage screen newest first, a page at a time. Every filter is optional.
+     *
+     * @param status    Only return requests shown with this election status, e.g. un-reviewed, Open or Closed.
+     * @param pageToken Token returned with the previous page, or null for the first page.
+     * @param limit     Page size, or null to return every matching request.
+     */
+    Page<DataAccessRequestManage> describeDataAccessRequestManage(Integer userId, String status, Integer dataSetId, String pageToken, Integer limit);
 
     List<Document> describeDataAccessRequests();
 
@@ -45,6 +55,11 @@ public interface DataAccessRequestAPI {
 
     Integer getTotalUnReviewedDAR();
 
+    /**
+     * Marks the requests created before un-reviewed requests were tracked. Returns immediately once it has completed.
+     */
+    void backfillUnReviewedDARs();
+
     List<String> describeDataAccessIdsForOwner(Integer userId);
 
     // Partial Data Access Requests
@@ -58,7 +73,7 @@ public interface DataAccessRequestAPI {
 
     Document updatePartialDataAccessRequest(Document partialDar);
 
-    List<Document> describePartialDataAccessRequestManage(Integer userId);
+    Page<Document> describePartialDataAccessRequestManage(Integer userId, Integer dataSetId, String pageToken, Integer limit);
 
     Object getField(String requestId, String field);
 
@@ -72,7 +87,7 @@ public interface DataAccessRequestAPI {
 
     List<UseRestrictionDTO> getInvalidDataAccessRequest();
 
-    void updateDARUseRestrictionValidation(List<String> darCodes, Boolean validUseRestriction);
+    void updateDARUseRestrictionValidation(List<Document> dars, List<Boolean> validUseRestrictions, List<String> checksums);
 
     FindIterable<Document> findDARUseRestrictions();
 
@@ -80,6 +95,10 @@ public interface DataAccessRequestAPI {
 
     byte[] createDARDocument(Document dar, Map<String, String> researcherProperties, DACUser user, Boolean manualReview, String sDUR) throws IOException;
 
+    StreamingOutput streamDARDocument(Document dar, Map<String, String> researcherProperties, DACUser user, Boolean manualReview, String sDUR);
+
+    StreamingOutput streamDARDocuments(List<String> referenceIds, ResearcherAPI researcherAPI);
+
     String getStructuredDURForPdf(Document dar);
 
     File createApprovedDARDocument() throws NotFoundException, IOException;
@@ -0,0 +1,237 @@
+package org.broadinstitute.consent.http.service;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.gson.Gson;
+import io.dropwizard.lifecycle.Managed;
+import org.apache.commons.lang3.StringUtils;
+import org.broadinstitute.consent.http.db.DarOutboxDAO;
+import org.broadinstitute.consent.http.models.DarOutboxTask;
+import org.broadinstitute.consent.http.service.validate.UseRestrictionValidatorAPI;
+import org.broadinstitute.consent.http.util.DarConstants;
+import org.bson.Document;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.NotFoundException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the side effects of creating a data access request (restriction validation, matching and the new request
+ * email) off the request thread. Tasks are written to the dar_outbox table when the request is created and are
+ * polled from there, so they survive restarts. Failed tasks are retried with exponential backoff and kept, marked as
+ * failed, once they run out of attempts.
+ *
+ * Tasks run at least once: a task whose worker dies after running it but before removing it is run again once its
+ * lease expires. Each request gets at most one task of each type, keyed by type and request id.
+ */
+public class DataAccessRequestOutbox implements Managed {
+
+    public enum TaskType {
+        VALIDATE_RESTRICTION, MATCH, EMAIL
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(DataAccessRequestOutbox.class);
+    private static final int BATCH_SIZE = 50;
+    private static final long POLL_INTERVAL_SECONDS = 5;
+    static final int MAX_ATTEMPTS = 10;
+    static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final long BASE_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final long MAX_BACKOFF_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_ERROR_LENGTH = 4000;
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    private final DarOutboxDAO outboxDAO;
+    private final DataAccessRequestAPI dataAccessRequestAPI;
+    private final MatchProcessAPI matchProcessAPI;
+    private final EmailNotifierAPI emailApi;
+    private final UseRestrictionValidatorAPI useRestrictionValidatorAPI;
+    private final Meter completed;
+    private final Meter retried;
+    private final Meter failed;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "dar-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DataAccessRequestOutbox(DarOutboxDAO outboxDAO, DataAccessRequestAPI dataAccessRequestAPI,
+                                   MatchProcessAPI matchProcessAPI, EmailNotifierAPI emailApi,
+                                   UseRestrictionValidatorAPI useRestrictionValidatorAPI, MetricRegistry metrics) {
+        this.outboxDAO = outboxDAO;
+        this.dataAccessRequestAPI = dataAccessRequestAPI;
+        this.matchProcessAPI = matchProcessAPI;
+        this.emailApi = emailApi;
+        this.useRestrictionValidatorAPI = useRestrictionValidatorAPI;
+        this.completed = metrics.meter(MetricRegistry.name(DataAccessRequestOutbox.class, "completed"));
+        this.retried = metrics.meter(MetricRegistry.name(DataAccessRequestOutbox.class, "retried"));
+        this.failed = metrics.meter(MetricRegistry.name(DataAccessRequestOutbox.class, "failed"));
+        metrics.register(MetricRegistry.name(DataAccessRequestOutbox.class, "depth"), new CachedGauge<Integer>(POLL_INTERVAL_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Integer loadValue() {
+                return outboxDAO.countPendingTasks();
+            }
+        });
+        metrics.register(MetricRegistry.name(DataAccessRequestOutbox.class, "failedTasks"), new CachedGauge<Integer>(POLL_INTERVAL_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Integer loadValue() {
+                return outboxDAO.countFailedTasks();
+            }
+        });
+        metrics.register(MetricRegistry.name(DataAccessRequestOutbox.class, "lagSeconds"), new CachedGauge<Long>(POLL_INTERVAL_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return lagSeconds();
+            }
+        });
+    }
+
+    @Override
+    public void start() {
+        executor.scheduleWithFixedDelay(this::drain, POLL_INTERVAL_SECONDS, POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Records the post-create tasks for newly stored requests and wakes the worker up so they run right away.
+     * Restriction validation is only queued for requests that have a generated restriction.
+     */
+    public void enqueue(List<Document> dataAccessRequests) {
+        Date now = new Date();
+        List<DarOutboxTask> tasks = new ArrayList<>();
+        for (Document dar : dataAccessRequests) {
+            String darId = dar.get(DarConstants.ID).toString();
+            if (dar.get(DarConstants.RESTRICTION) != null) {
+                tasks.add(new DarOutboxTask(TaskType.VALIDATE_RESTRICTION.name(), darId, now));
+            }
+            tasks.add(new DarOutboxTask(TaskType.MATCH.name(), darId, now));
+            tasks.add(new DarOutboxTask(TaskType.EMAIL.name(), darId, now));
+        }
+        tasks.forEach(this::insertIfAbsent);
+        executor.execute(this::drain);
+    }
+
+    /**
+     * Relies on the unique idempotency key, so two instances enqueueing the same task store it once.
+     */
+    private void insertIfAbsent(DarOutboxTask task) {
+        try {
+            outboxDAO.insertTask(task);
+        } catch (UnableToExecuteStatementException e) {
+            if (!isDuplicateKey(e)) {
+                throw e;
+            }
+            logger.debug("Task " + task.getIdempotencyKey() + " is already queued");
+        }
+    }
+
+    private static boolean isDuplicateKey(UnableToExecuteStatementException e) {
+        String state = e.getCause() instanceof SQLException ? ((SQLException) e.getCause()).getSQLState() : null;
+        return state != null && state.startsWith(INTEGRITY_CONSTRAINT_VIOLATION);
+    }
+
+    /**
+     * Claims and runs every task that is due, a batch at a time.
+     */
+    void drain() {
+        try {
+            List<DarOutboxTask> tasks;
+            do {
+                tasks = outboxDAO.findDueTasks(new Date(), BATCH_SIZE);
+                for (DarOutboxTask task : tasks) {
+                    if (outboxDAO.claimTask(task.getId(), task.getAttempts(), new Date(System.currentTimeMillis() + LEASE_MILLIS)) == 1) {
+                        run(task, task.getAttempts() + 1);
+                    }
+                }
+            } while (tasks.size() == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+        } catch (Exception e) {
+            logger.error("Error polling the data access request outbox: " + e.getMessage(), e);
+        }
+    }
+
+    private void run(DarOutboxTask task, int attempt) {
+        try {
+            execute(TaskType.valueOf(task.getTaskType()), task.getReferenceId());
+            outboxDAO.deleteTask(task.getId());
+            completed.mark();
+        } catch (Exception e) {
+            String error = StringUtils.left(StringUtils.defaultString(e.getMessage(), e.getClass().getName()), MAX_ERROR_LENGTH);
+            if (attempt >= MAX_ATTEMPTS) {
+                logger.error(String.format("Giving up on %s after %d attempts: %s", task.getIdempotencyKey(), attempt, error), e);
+                outboxDAO.updateTaskFailure(task.getId(), new Date(), error, true);
+                failed.mark();
+            } else {
+                logger.warn(String.format("Attempt %d of %s failed, retrying: %s", attempt, task.getIdempotencyKey(), error));
+                outboxDAO.updateTaskFailure(task.getId(), new Date(System.currentTimeMillis() + backoffMillis(attempt)), error, false);
+                retried.mark();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void execute(TaskType type, String darId) throws Exception {
+        Document dar;
+        try {
+            dar = dataAccessRequestAPI.describeDataAccessRequestById(darId);
+        } catch (NotFoundException e) {
+            dar = null;
+        }
+        if (dar == null) {
+            logger.warn("Data access request " + darId + " no longer exists, skipping " + type);
+            return;
+        }
+        switch (type) {
+            case VALIDATE_RESTRICTION:
+                if (dar.get(DarConstants.RESTRICTION) != null) {
+                    // Throws, and so retries the task, when the ontology service couldn't answer
+                    String restriction = new Gson().toJson(dar.get(DarConstants.RESTRICTION, Map.class));
+                    boolean valid = useRestrictionValidatorAPI.isValidUseRestriction(restriction);
+                    if (!valid) {
+                        logger.warn("Invalid use restriction for data access request " + darId);
+                    }
+                    dataAccessRequestAPI.updateDARUseRestrictionValidation(Collections.singletonList(dar),
+                            Collections.singletonList(valid),
+                            Collections.singletonList(useRestrictionValidatorAPI.useRestrictionChecksum(restriction)));
+                }
+                break;
+            case MATCH:
+                matchProcessAPI.processMatchesForPurpose(darId);
+                break;
+            case EMAIL:
+                emailApi.sendNewDARRequestMessage(dar.getString(DarConstants.DAR_CODE));
+                break;
+        }
+    }
+
+    static long backoffMillis(int attempt) {
+        long backoff = BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 20);
+        return Math.min(backoff, MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * @return How long the oldest due task has been waiting, or zero when nothing is due.
+     */
+    private long lagSeconds() {
+        Date now = new Date();
+        List<DarOutboxTask> oldest = outboxDAO.findDueTasks(now, 1);
+        if (oldest.isEmpty()) {
+            return 0L;
+        }
+        return TimeUnit.MILLISECONDS.toSeconds(Math.max(0, now.getTime() - oldest.get(0).getNextAttemptDate().getTime()));
+    }
+
+}
@@ -4,6 +4,7 @@ import org.broadinstitute.consent.http.models.DataSet;
 import org.broadinstitute.consent.http.models.Dictionary;
 import org.broadinstitute.consent.http.models.dto.DataSetDTO;
 
+import javax.ws.rs.core.StreamingOutput;
 import java.io.File;
 import java.util.Collection;
 import java.util.List;
@@ -23,11 +24,13 @@ public interface DataSetAPI {
 
     Collection<DataSetDTO> describeDataSetsByReceiveOrder(List<Integer> dataSetIds) ;
 
+    StreamingOutput streamDataSetsByReceiveOrder(List<Integer> dataSetIds);
+
     Collection<Dictionary> describeDictionaryByDisplayOrder();
 
     Collection<Dictionary> describeDictionaryByReceiveOrder();
 
-    List<Map<String, String>> autoCompleteDataSets(String partial);
+    List<Map<String, String>> autoCompleteDataSets(String partial, Integer limit);
 
     List<Map<String, String>> getCompleteDataSet(String dataSetName);
 
@@ -0,0 +1,310 @@
+package org.broadinstitute.consent.http.service;
+
+import io.dropwizard.lifecycle.Managed;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.broadinstitute.consent.http.db.AutocompleteEntryMapper;
+import org.broadinstitute.consent.http.db.DataSetDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory trigram index of the datasets researchers can request, searched by object id, name, the indexed property
+ * and consent name. Datasets are re-indexed as they are created, updated or deleted; the whole index is rebuilt
+ * periodically as well, since a dataset also becomes searchable when the election of its consent is approved.
+ *
+ * Every read of the database takes a version before it starts, and the index remembers the version each dataset was
+ * last read at. A rebuild or refresh that finishes after a later read of the same datasets leaves them alone, so a
+ * slow rebuild can't bring back data a refresh already replaced.
+ */
+public class DataSetAutocompleteIndex implements Managed {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSetAutocompleteIndex.class);
+    private static final int GRAM_LENGTH = 3;
+    private static final long REBUILD_INTERVAL_MINUTES = 10;
+    private static final long LOAD_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final String SEPARATOR = " | ";
+
+    private final DataSetDAO dataSetDAO;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, List<Entry>> entries = new TreeMap<>();
+    private final Map<String, Set<Integer>> grams = new HashMap<>();
+    private final AtomicLong readVersion = new AtomicLong();
+    /** Versions of the datasets refreshed since the last rebuild; the others are at rebuildVersion. */
+    private final Map<Integer, Long> refreshVersions = new HashMap<>();
+    private long rebuildVersion = -1;
+    private boolean loaded = false;
+    private final AtomicLong nextLoadAttempt = new AtomicLong();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "dataset-autocomplete-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DataSetAutocompleteIndex(DataSetDAO dataSetDAO) {
+        this.dataSetDAO = dataSetDAO;
+    }
+
+    @Override
+    public void start() {
+        executor.scheduleWithFixedDelay(this::rebuild, 0, REBUILD_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Finds the datasets with a field containing the partial text, ignoring case. Datasets with a field starting with
+     * it come first, then the rest, each in dataset id order.
+     *
+     * @param partial The text to search for.
+     * @param limit   Maximum number of results, or null for all of them.
+     * @return Maps with the dataset id, its object id and its searchable fields joined together.
+     */
+    public List<Map<String, String>> search(String partial, Integer limit) {
+        if (StringUtils.isBlank(partial)) {
+            return Collections.emptyList();
+        }
+        ensureLoaded();
+        String term = partial.toLowerCase(Locale.ROOT);
+        List<Entry> prefixMatches = new ArrayList<>();
+        List<Entry> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Integer dataSetId : candidates(term)) {
+                for (Entry entry : entries.get(dataSetId)) {
+                    if (entry.startsWith(term)) {
+                        prefixMatches.add(entry);
+                    } else if (entry.contains(term)) {
+                        matches.add(entry);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        prefixMatches.addAll(matches);
+        return prefixMatches.stream().
+                limit(limit == null ? Long.MAX_VALUE : limit).
+                map(Entry::toResult).
+                collect(Collectors.toList());
+    }
+
+    /**
+     * Re-reads the given datasets, dropping the ones that no longer exist or are no longer searchable.
+     */
+    public void refresh(Collection<Integer> dataSetIds) {
+        if (CollectionUtils.isEmpty(dataSetIds)) {
+            return;
+        }
+        try {
+            long version = readVersion.incrementAndGet();
+            Map<Integer, List<Entry>> updated = toEntries(dataSetDAO.getAutocompleteEntriesByDataSetIds(dataSetIds));
+            lock.writeLock().lock();
+            try {
+                for (Integer dataSetId : dataSetIds) {
+                    if (refreshVersions.getOrDefault(dataSetId, rebuildVersion) > version) {
+                        continue;
+                    }
+                    remove(dataSetId);
+                    if (updated.containsKey(dataSetId)) {
+                        add(dataSetId, updated.get(dataSetId));
+                    }
+                    refreshVersions.put(dataSetId, version);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            logger.error("Error refreshing the dataset autocomplete index: " + e.getMessage(), e);
+        }
+    }
+
+    void rebuild() {
+        try {
+            long version = readVersion.incrementAndGet();
+            Map<Integer, List<Entry>> all = toEntries(dataSetDAO.getAutocompleteEntries());
+            lock.writeLock().lock();
+            try {
+                if (version < rebuildVersion) {
+                    logger.debug("Dropping a dataset autocomplete snapshot older than the current one");
+                    return;
+                }
+                // Datasets refreshed after this snapshot was read keep their refreshed entries
+                Map<Integer, List<Entry>> newer = new HashMap<>();
+                refreshVersions.forEach((dataSetId, refreshVersion) -> {
+                    if (refreshVersion > version) {
+                        newer.put(dataSetId, entries.get(dataSetId));
+                    }
+                });
+                entries.clear();
+                grams.clear();
+                all.forEach((dataSetId, dataSetEntries) -> {
+                    if (!newer.containsKey(dataSetId)) {
+                        add(dataSetId, dataSetEntries);
+                    }
+                });
+                newer.forEach((dataSetId, dataSetEntries) -> {
+                    if (dataSetEntries != null) {
+                        add(dataSetId, dataSetEntries);
+                    }
+                });
+                refreshVersions.values().removeIf(refreshVersion -> refreshVersion <= version);
+                rebuildVersion = version;
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.debug("Dataset autocomplete index rebuilt with " + all.size() + " datasets");
+        } catch (Exception e) {
+            logger.error("Error rebuilding the dataset autocomplete index: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads the index on first use if the scheduled rebuild hasn't yet. After a failed load, searches don't try again
+     * for LOAD_RETRY_MILLIS, and only one of the searches racing for a load runs it.
+     */
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        long now = System.currentTimeMillis();
+        long next = nextLoadAttempt.get();
+        if (now < next || !nextLoadAttempt.compareAndSet(next, now + LOAD_RETRY_MILLIS)) {
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * @return Ids of the datasets that may contain the term. Terms shorter than a trigram can't use the index.
+     */
+    private Collection<Integer> candidates(String term) {
+        if (term.length() < GRAM_LENGTH) {
+            return entries.keySet();
+        }
+        List<Set<Integer>> postings = new ArrayList<>();
+        for (String gram : grams(term)) {
+            Set<Integer> posting = grams.get(gram);
+            if (posting == null) {
+                return Collections.emptyList();
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        return postings.get(0).stream().
+                filter(id -> postings.stream().allMatch(posting -> posting.contains(id))).
+                sorted().
+                collect(Collectors.toList());
+    }
+
+    private void add(Integer dataSetId, List<Entry> dataSetEntries) {
+        entries.put(dataSetId, dataSetEntries);
+        dataSetEntries.forEach(entry -> entry.grams().forEach(gram -> grams.computeIfAbsent(gram, g -> new HashSet<>()).add(dataSetId)));
+    }
+
+    private void remove(Integer dataSetId) {
+        List<Entry> removed = entries.remove(dataSetId);
+        if (removed != null) {
+            removed.forEach(entry -> entry.grams().forEach(gram -> {
+                Set<Integer> posting = grams.get(gram);
+                if (posting != null) {
+                    posting.remove(dataSetId);
+                    if (posting.isEmpty()) {
+                        grams.remove(gram);
+                    }
+                }
+            }));
+        }
+    }
+
+    private static Map<Integer, List<Entry>> toEntries(List<Map<String, String>> rows) {
+        Map<Integer, List<Entry>> dataSetEntries = new LinkedHashMap<>();
+        for (Map<String, String> row : rows) {
+            Entry entry = new Entry(row);
+            dataSetEntries.computeIfAbsent(entry.dataSetId, id -> new ArrayList<>()).add(entry);
+        }
+        return dataSetEntries;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> textGrams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            textGrams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return textGrams;
+    }
+
+    private static class Entry {
+
+        private final Integer dataSetId;
+        private final String objectId;
+        private final String concatenation;
+        private final List<String> fields;
+
+        Entry(Map<String, String> row) {
+            this.dataSetId = Integer.valueOf(row.get(AutocompleteEntryMapper.ID));
+            this.objectId = row.get(AutocompleteEntryMapper.OBJECT_ID);
+            List<String> values = new ArrayList<>();
+            values.add(objectId);
+            values.add(row.get(AutocompleteEntryMapper.NAME));
+            values.add(row.get(AutocompleteEntryMapper.PROPERTY_VALUE));
+            values.add(row.get(AutocompleteEntryMapper.CONSENT_NAME));
+            values.removeIf(Objects::isNull);
+            this.concatenation = String.join(SEPARATOR, values);
+            this.fields = values.stream().map(v -> v.toLowerCase(Locale.ROOT)).collect(Collectors.toList());
+        }
+
+        boolean startsWith(String term) {
+            return fields.stream().anyMatch(f -> f.startsWith(term));
+        }
+
+        boolean contains(String term) {
+            return fields.stream().anyMatch(f -> f.contains(term));
+        }
+
+        Set<String> grams() {
+            Set<String> entryGrams = new HashSet<>();
+            fields.forEach(f -> entryGrams.addAll(DataSetAutocompleteIndex.grams(f)));
+            return entryGrams;
+        }
+
+        Map<String, String> toResult() {
+            Map<String, String> result = new HashMap<>();
+            result.put("id", dataSetId.toString());
+            result.put("objectId", objectId);
+            result.put("concatenation", concatenation);
+            return result;
+        }
+    }
+
+}
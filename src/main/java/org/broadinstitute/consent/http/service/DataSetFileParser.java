@@ -8,15 +8,17 @@ import org.broadinstitute.consent.http.models.DataSetProperty;
 import org.broadinstitute.consent.http.models.Dictionary;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class DataSetFileParser {
 
     private final String BLANK_REQUIRED_FIELD = "Dataset %s - The required field: %s is empty in row %d.";
-    private final String BLANK_REQUIRED_FIELDS = "Dataset %s - Consent ID or Sample Collection ID is required";
+    private final String BLANK_REQUIRED_FIELDS = "Dataset %s - Consent ID or Sample Collection ID is required in row %d.";
+    private final String ROW_MISSING_COLUMNS = "Row %d has %d columns. Expected quantity: %d";
     private final String MISSING_COLUMNS = "Your file has more/less columns than expected. Expected quantity: %s";
     private final String MISSING_MISPLACED_HEADER = "The uploaded file does not comply with the accepted fields. Field: (%s)%s is not recognized/ordered correctly. It should be '%s'";
     private final String PLEASE_DOWNLOAD = "Please download the Dataset Spreadsheet Model from the 'Add Datasets' window.";
@@ -30,8 +32,7 @@ public class DataSetFileParser {
         List<DataSet> datasets = new ArrayList<>();
         List<String> allKeys = allFields.stream().map(Dictionary::getKey).collect(Collectors.toList());
         List<Dictionary> requiredKeys = allFields.stream().filter(d -> d.getRequired()).collect(Collectors.toList());
-        try {
-            CSVReader reader = new CSVReader(new FileReader(file), '\t');
+        try (CSVReader reader = new CSVReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8), '\t')) {
             // reading headers from TSV
             errors.addAll(validateHeaderFields(reader.readNext(), allKeys));
             if (!errors.isEmpty()) {
@@ -42,8 +43,12 @@ public class DataSetFileParser {
             int row = 0;
             String[] record;
             while ((record = reader.readNext()) != null) {
+                if (record.length != allKeys.size()) {
+                    errors.add(String.format(ROW_MISSING_COLUMNS, ++row, record.length, allKeys.size()));
+                    continue;
+                }
                 errors.addAll(validateRequiredFields(++row, record, requiredKeys, record[DATASET_NAME_INDEX]));
-                errors.addAll(validateConsentAndCollectionId(record, record[DATASET_NAME_INDEX]));
+                errors.addAll(validateConsentAndCollectionId(row, record, record[DATASET_NAME_INDEX]));
                 DataSet ds = createDataSet(record);
                 Set<DataSetProperty> properties = new HashSet<>();
                 for (int i = 1; i < allKeys.size(); i++) {
@@ -85,9 +90,9 @@ public class DataSetFileParser {
         return requiredFields.stream().filter(field -> record[field.getReceiveOrder()].isEmpty()).map(field -> String.format(BLANK_REQUIRED_FIELD, id, field.getKey(), row)).collect(Collectors.toList());
     }
 
-    private List<String> validateConsentAndCollectionId(String[] record, String datasetName) {
+    private List<String> validateConsentAndCollectionId(int row, String[] record, String datasetName) {
         if (StringUtils.isEmpty(record[SAMPLE_COLLECTION_INDEX]) && StringUtils.isEmpty(record[CONSENT_ID_INDEX])) {
-            return Arrays.asList(String.format(BLANK_REQUIRED_FIELDS, datasetName));
+            return Arrays.asList(String.format(BLANK_REQUIRED_FIELDS, datasetName, row));
         }
         return Arrays.asList();
     }
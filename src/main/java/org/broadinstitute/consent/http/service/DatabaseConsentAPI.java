@@ -14,10 +14,12 @@ import org.broadinstitute.consent.http.enumeration.AssociationType;
 import org.broadinstitute.consent.http.enumeration.AuditTable;
 import org.broadinstitute.consent.http.enumeration.ElectionStatus;
 import org.broadinstitute.consent.http.enumeration.ElectionType;
+import org.broadinstitute.consent.http.enumeration.VoteType;
 import org.broadinstitute.consent.http.models.*;
 import org.broadinstitute.consent.http.models.dto.ConsentGroupNameDTO;
 import org.broadinstitute.consent.http.models.dto.UseRestrictionDTO;
 import org.broadinstitute.consent.http.util.DarConstants;
+import org.broadinstitute.consent.http.util.PageToken;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.skife.jdbi.v2.DBI;
@@ -48,15 +50,23 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
     private final DBI jdbi;
     private final Logger logger;
     private final String UN_REVIEWED = "un-reviewed";
+    private static final String ALL_STATUSES = "all";
+
+    /**
+     * Stands in for a missing consent sort date when paging, so consents without one are listed last.
+     */
+    private static final Date MISSING_SORT_DATE = new Date(0);
+
     private final MongoConsentDB mongo;
     private final DataSetDAO dataSetDAO;
+    private final ConsentCache consentCache;
 
     /**
      * The constructor is private to force use of the factory methods and enforce the singleton pattern.
      *
      * @param dao The Data Access Object used to read/write data.
      */
-    private DatabaseConsentAPI(ConsentDAO dao, ElectionDAO electionDAO, AssociationDAO associationDAO, MongoConsentDB mongo, DBI jdbi, VoteDAO voteDAO, DataSetDAO dataSetDAO) {
+    private DatabaseConsentAPI(ConsentDAO dao, ElectionDAO electionDAO, AssociationDAO associationDAO, MongoConsentDB mongo, DBI jdbi, VoteDAO voteDAO, DataSetDAO dataSetDAO, ConsentCache consentCache) {
         this.auditServiceAPI = AbstractAuditServiceAPI.getInstance();
         this.consentDAO = dao;
         this.electionDAO = electionDAO;
@@ -66,6 +76,7 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
         this.jdbi = jdbi;
         this.logger = Logger.getLogger("DatabaseConsentAPI");
         this.dataSetDAO = dataSetDAO;
+        this.consentCache = consentCache;
     }
 
     /**
@@ -77,8 +88,8 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
      * @param dao The Data Access Object instance that the API should use to read/write data.
      */
 
-    public static void initInstance(DBI jdbi, ConsentDAO dao, ElectionDAO electionDAO, AssociationDAO associationDAO, MongoConsentDB mongo, VoteDAO voteDAO, DataSetDAO dataSetDAO) {
-        ConsentAPIHolder.setInstance(new DatabaseConsentAPI(dao, electionDAO, associationDAO, mongo, jdbi, voteDAO, dataSetDAO));
+    public static void initInstance(DBI jdbi, ConsentDAO dao, ElectionDAO electionDAO, AssociationDAO associationDAO, MongoConsentDB mongo, VoteDAO voteDAO, DataSetDAO dataSetDAO, ConsentCache consentCache) {
+        ConsentAPIHolder.setInstance(new DatabaseConsentAPI(dao, electionDAO, associationDAO, mongo, jdbi, voteDAO, dataSetDAO, consentCache));
     }
 
     // Consent Methods
@@ -101,13 +112,14 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
         consentDAO.insertConsent(id, rec.getRequiresManualReview(), rec.getUseRestriction().toString(),
                 rec.getDataUse().toString(), rec.getDataUseLetter(), rec.getName(), rec.getDulName(),
                 createDate, createDate, rec.getTranslatedUseRestriction(), true, rec.getGroupName());
+        consentCache.invalidateConsent(id);
         return consentDAO.findConsentById(id);
     }
 
 
     @Override
     public Consent retrieve(String id) throws UnknownIdentifierException {
-        Consent consent = consentDAO.findConsentById(id);
+        Consent consent = consentCache.findConsentById(id);
         if (consent == null) {
             throw new UnknownIdentifierException(String.format("Could not find consent with id %s", id));
         }
@@ -149,6 +161,7 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
             throw new NotFoundException();
         }
         consentDAO.updateConsent(id, rec.getRequiresManualReview(), rec.getUseRestriction().toString(), rec.getDataUse().toString(), rec.getDataUseLetter(), rec.getName(), rec.getDulName(), rec.getLastUpdate(), rec.getSortDate(), rec.getTranslatedUseRestriction(), rec.getGroupName(), true);
+        consentCache.invalidateConsent(id);
         return consentDAO.findConsentById(id);
     }
 
@@ -159,6 +172,7 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
         if (elections.isEmpty()) {
             consentDAO.deleteConsent(id);
             consentDAO.deleteAllAssociationsForConsent(id);
+            consentCache.invalidateConsent(id);
         } else
             throw new IllegalArgumentException("Consent cannot be deleted because already exist elections associated with it");
     }
@@ -166,6 +180,7 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
     @Override
     public void logicalDelete(String id) throws UnknownIdentifierException {
         consentDAO.logicalDeleteConsent(id);
+        consentCache.invalidateConsent(id);
     }
 
     // ConsentAssociation methods
@@ -187,6 +202,7 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
             try {
                 consentDAO.deleteAllAssociationsForType(consentId, association.getAssociationType());
                 List<String> generatedIds = updateAssociations(consentId, association.getAssociationType(), association.getElements());
+                consentCache.invalidateDataSets();
                 auditServiceAPI.saveAssociationAuditList(generatedIds, AuditTable.CONSENT_ASSOCIATIONS.getValue(), Actions.CREATE.getValue(), createdByUserEmail);
             } catch (Exception e) {
                 throw new IllegalArgumentException("Please verify element ids, some or all of them already exist");
@@ -220,6 +236,7 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
                 if (new_ids.size() > 0) {
                     processAssociation(new_ids);
                     List<String> ids = updateAssociations(consentId, association.getAssociationType(), new_ids);
+                    consentCache.invalidateDataSets();
                     auditServiceAPI.saveAssociationAuditList(ids, AuditTable.CONSENT_ASSOCIATIONS.getValue(), Actions.REPLACE.getValue(), modifiedByUserEmail);
                 }
             } catch (Exception e) {
@@ -320,6 +337,7 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
             }
 
         }
+        consentCache.invalidateConsent(consentId);
         return getAllAssociationsForConsent(consentId);
     }
 
@@ -340,7 +358,7 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
 
     @Override
     public Consent getConsentFromDatasetID(Integer datasetId) {
-        return consentDAO.findConsentFromDatasetID(datasetId);
+        return consentCache.findConsentByDataSetId(datasetId);
     }
 
     @Override
@@ -405,46 +423,72 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
     }
 
     @Override
-    public List<ConsentManage> describeConsentManage() {
-        List<ConsentManage> consentManageList = new ArrayList<>();
-        consentManageList.addAll(collectUnreviewedConsents(consentDAO.findUnreviewedConsents(), UN_REVIEWED));
-        consentManageList.addAll(consentDAO.findConsentManageByStatus(ElectionStatus.OPEN.getValue()));
-        consentManageList.addAll(consentDAO.findConsentManageByStatus(ElectionStatus.CANCELED.getValue()));
-        List<ConsentManage> closedElections = consentDAO.findConsentManageByStatus(ElectionStatus.CLOSED.getValue());
-        closedElections.forEach(consentManage -> {
-            Boolean vote = voteDAO.findChairPersonVoteByElectionId(consentManage.getElectionId());
-            consentManage.setVote(vote != null && vote ? "Approved" : "Denied");
-        });
-        consentManageList.addAll(closedElections);
-        consentManageList.sort((c1, c2) -> c2.getSortDate().compareTo(c1.getSortDate()));
-        List<Election> openElections = electionDAO.findElectionsWithFinalVoteByTypeAndStatus(ElectionType.DATA_ACCESS.getValue(), ElectionStatus.OPEN.getValue());
-        if (!openElections.isEmpty()) {
-            List<String> referenceIds = openElections.stream().map(sc -> sc.getReferenceId()).collect(Collectors.toList());
-            ObjectId[] objarray = new ObjectId[referenceIds.size()];
-            for (int i = 0; i < referenceIds.size(); i++)
-                objarray[i] = new ObjectId(referenceIds.get(i));
-            BasicDBObject in = new BasicDBObject("$in", objarray);
-            BasicDBObject q = new BasicDBObject(DarConstants.ID, in);
-            FindIterable<Document> dataAccessRequests = mongo.getDataAccessRequestCollection().find(q);
-            List<String> datasetNames = new ArrayList<>();
-            dataAccessRequests.forEach((Block<Document>) dar -> {
-                List<String> dataSets = dar.get(DarConstants.DATASET_ID, List.class);
-                datasetNames.addAll(dataSets);
-            });
-            List<String> objectIds = new ArrayList<>();
-            if (CollectionUtils.isNotEmpty(datasetNames)) {
-                objectIds = consentDAO.getAssociationsConsentIdfromDataSetIds(datasetNames);
+    public Page<ConsentManage> describeConsentManage(String status, String pageToken, Integer limit) {
+        PageToken after = PageToken.decode(pageToken);
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("The page size must be positive");
+        }
+        int pageSize = limit == null ? Integer.MAX_VALUE : limit;
+        String statusFilter = status == null ? ALL_STATUSES : status;
+        List<ConsentManage> consentManageList = after == null ?
+                consentDAO.findConsentManagePage(statusFilter, MISSING_SORT_DATE, pageSize) :
+                consentDAO.findConsentManagePageAfter(statusFilter, after.getSortDate() == null ? MISSING_SORT_DATE : after.getSortDate(),
+                        after.getId(), MISSING_SORT_DATE, pageSize);
+        List<Integer> closedElectionIds = new ArrayList<>();
+        consentManageList.forEach(consentManage -> {
+            if (consentManage.getElectionStatus() == null) {
+                consentManage.setElectionStatus(UN_REVIEWED);
+                consentManage.setElectionId(null);
+                consentManage.setVersion(null);
+                consentManage.setArchived(null);
+            } else if (consentManage.getElectionStatus().equals(ElectionStatus.CLOSED.getValue())) {
+                closedElectionIds.add(consentManage.getElectionId());
             }
+        });
+        if (!closedElectionIds.isEmpty()) {
+            Map<Integer, Boolean> chairpersonVotes = new HashMap<>();
+            voteDAO.findVotesByTypeAndElectionIds(closedElectionIds, VoteType.CHAIRPERSON.getValue()).
+                    forEach(vote -> chairpersonVotes.put(vote.getElectionId(), vote.getVote()));
+            consentManageList.stream().filter(consentManage -> closedElectionIds.contains(consentManage.getElectionId())).
+                    forEach(consentManage -> {
+                        Boolean vote = chairpersonVotes.get(consentManage.getElectionId());
+                        consentManage.setVote(vote != null && vote ? "Approved" : "Denied");
+                    });
+        }
+        Set<String> lockedConsentIds = findConsentIdsInOpenAccessElections();
+        consentManageList.forEach(consentManage -> consentManage.setEditable(!lockedConsentIds.contains(consentManage.getConsentId())));
+        String nextPageToken = null;
+        if (consentManageList.size() == pageSize) {
+            ConsentManage last = consentManageList.get(consentManageList.size() - 1);
+            nextPageToken = new PageToken(last.getSortDate(), last.getConsentId()).encode();
+        }
+        return new Page<>(consentManageList, nextPageToken);
+    }
 
-            for (ConsentManage consentManage : consentManageList) {
-                if (objectIds.stream().anyMatch(cm -> cm.equals(consentManage.getConsentId()))) {
-                    consentManage.setEditable(false);
-                } else {
-                    consentManage.setEditable(true);
-                }
+    /**
+     * @return Ids of the consents associated with the datasets of requests that have an open access election. They
+     * can't be edited until those elections are closed.
+     */
+    private Set<String> findConsentIdsInOpenAccessElections() {
+        List<Election> openElections = electionDAO.findElectionsWithFinalVoteByTypeAndStatus(ElectionType.DATA_ACCESS.getValue(), ElectionStatus.OPEN.getValue());
+        if (openElections.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<ObjectId> referenceIds = openElections.stream().map(election -> new ObjectId(election.getReferenceId())).collect(Collectors.toList());
+        FindIterable<Document> dataAccessRequests = mongo.getDataAccessRequestCollection().
+                find(new BasicDBObject(DarConstants.ID, new BasicDBObject("$in", referenceIds))).
+                projection(new BasicDBObject(DarConstants.DATASET_ID, true));
+        List<String> datasetNames = new ArrayList<>();
+        dataAccessRequests.forEach((Block<Document>) dar -> {
+            List<?> dataSets = dar.get(DarConstants.DATASET_ID, List.class);
+            if (dataSets != null) {
+                dataSets.forEach(dataSet -> datasetNames.add(dataSet.toString()));
             }
+        });
+        if (CollectionUtils.isEmpty(datasetNames)) {
+            return Collections.emptySet();
         }
-        return consentManageList;
+        return new HashSet<>(consentDAO.getAssociationsConsentIdfromDataSetIds(datasetNames));
     }
 
     @Override
@@ -476,13 +520,6 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
         return consent;
     }
 
-    private List<ConsentManage> collectUnreviewedConsents(List<Consent> consents, String status) {
-        List<ConsentManage> consentManageList = consents.stream().map(ConsentManage::new).collect(Collectors.toList());
-        consentManageList.forEach(c -> c.setElectionStatus(status));
-        consentManageList.forEach(c -> c.setEditable(true));
-        return consentManageList;
-    }
-
     private Consent updateConsentDates(Consent c) {
         Timestamp updateDate = new Timestamp(new Date().getTime());
         c.setLastUpdate(updateDate);
@@ -515,6 +552,7 @@ public class DatabaseConsentAPI extends AbstractConsentAPI {
         logger.info("Update Consent Group Name");
         for (ConsentGroupNameDTO consentGroupName : consentGroupNames) {
             consentDAO.updateConsentGroupName(consentGroupName.getConsentId(), consentGroupName.getGroupName());
+            consentCache.invalidateConsent(consentGroupName.getConsentId());
         }
     }
 
@@ -2,11 +2,19 @@ package org.broadinstitute.consent.http.service;
 
 import com.google.gson.Gson;
 import com.mongodb.BasicDBObject;
-import com.mongodb.Block;
 import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.broadinstitute.consent.http.db.ConsentDAO;
@@ -26,6 +34,7 @@ import org.broadinstitute.consent.http.models.DACUser;
 import org.broadinstitute.consent.http.models.DataAccessRequestManage;
 import org.broadinstitute.consent.http.models.DataSet;
 import org.broadinstitute.consent.http.models.DataUseDTO;
+import org.broadinstitute.consent.http.models.Page;
 import org.broadinstitute.consent.http.models.Election;
 import org.broadinstitute.consent.http.models.ResearcherProperty;
 import org.broadinstitute.consent.http.models.UserRole;
@@ -33,36 +42,53 @@ import org.broadinstitute.consent.http.models.Vote;
 import org.broadinstitute.consent.http.models.darsummary.DARModalDetailsDTO;
 import org.broadinstitute.consent.http.models.dto.UseRestrictionDTO;
 import org.broadinstitute.consent.http.models.grammar.UseRestriction;
+import org.broadinstitute.consent.http.service.users.handler.ResearcherAPI;
 import org.broadinstitute.consent.http.util.DarConstants;
 import org.broadinstitute.consent.http.util.DarUtil;
+import org.broadinstitute.consent.http.util.PageToken;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Timestamp;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
 import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lt;
 import static com.mongodb.client.model.Filters.ne;
+import static com.mongodb.client.model.Filters.or;
 
 /**
  * Implementation class for DatabaseDataAccessRequestAPI.
@@ -95,6 +121,8 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
 
     private final DataSetDAO dataSetDAO;
 
+    private final ConsentCache consentCache;
+
     private static final String NEEDS_APPROVAL = "Needs Approval";
 
     private static final String APPROVED = "Approved";
@@ -103,7 +131,22 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
 
     private static final String PATH = "template/RequestApplication.pdf";
 
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private static final int PDF_RENDER_WINDOW = 8;
+
+    /**
+     * The only request fields the manage screen needs.
+     */
+    private static final Bson MANAGE_PROJECTION = Projections.include(DarConstants.ID, DarConstants.RUS, DarConstants.PROJECT_TITLE,
+            DarConstants.DAR_CODE, DarConstants.SORT_DATE, DarConstants.STATUS, DarConstants.USER_ID, DarConstants.DATASET_ID);
+
     private final DataAccessReportsParser dataAccessReportsParser;
+
+    private final ExecutorService pdfRenderers;
+
+    private volatile byte[] darTemplate;
+
     /**
      * Initialize the singleton API instance using the provided DAO. This method
      * should only be called once during application initialization (from the
@@ -114,9 +157,10 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
      * @param mongo     The Data Access Object instance that the API should use to
      *                  read/write data.
      * @param converter
+     * @param pdfRenderers Renders the application PDFs of a bulk download. Its lifecycle is managed by the caller.
      */
-    public static void initInstance(MongoConsentDB mongo, UseRestrictionConverter converter, ElectionDAO electionDAO, ConsentDAO consentDAO, VoteDAO voteDAO, DACUserDAO dacUserDAO, DataSetDAO dataSetDAO, ResearcherPropertyDAO researcherPropertyDAO) {
-        DataAccessRequestAPIHolder.setInstance(new DatabaseDataAccessRequestAPI(mongo, converter, electionDAO, consentDAO, voteDAO, dacUserDAO, dataSetDAO, researcherPropertyDAO));
+    public static void initInstance(MongoConsentDB mongo, UseRestrictionConverter converter, ElectionDAO electionDAO, ConsentDAO consentDAO, VoteDAO voteDAO, DACUserDAO dacUserDAO, DataSetDAO dataSetDAO, ResearcherPropertyDAO researcherPropertyDAO, ConsentCache consentCache, ExecutorService pdfRenderers) {
+        DataAccessRequestAPIHolder.setInstance(new DatabaseDataAccessRequestAPI(mongo, converter, electionDAO, consentDAO, voteDAO, dacUserDAO, dataSetDAO, researcherPropertyDAO, consentCache, pdfRenderers));
     }
 
     /**
@@ -125,7 +169,7 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
      *
      * @param mongo The Data Access Object used to read/write data.
      */
-    protected DatabaseDataAccessRequestAPI(MongoConsentDB mongo, UseRestrictionConverter converter, ElectionDAO electionDAO, ConsentDAO consentDAO, VoteDAO voteDAO, DACUserDAO dacUserDAO, DataSetDAO dataSetDAO, ResearcherPropertyDAO researcherPropertyDAO) {
+    protected DatabaseDataAccessRequestAPI(MongoConsentDB mongo, UseRestrictionConverter converter, ElectionDAO electionDAO, ConsentDAO consentDAO, VoteDAO voteDAO, DACUserDAO dacUserDAO, DataSetDAO dataSetDAO, ResearcherPropertyDAO researcherPropertyDAO, ConsentCache consentCache, ExecutorService pdfRenderers) {
         this.mongo = mongo;
         this.converter = converter;
         this.electionDAO = electionDAO;
@@ -135,6 +179,8 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
         this.dataSetDAO = dataSetDAO;
         this.dataAccessReportsParser = new DataAccessReportsParser();
         this.researcherPropertyDAO = researcherPropertyDAO;
+        this.consentCache = consentCache;
+        this.pdfRenderers = pdfRenderers;
     }
 
 
@@ -176,6 +222,7 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
     public void deleteDataAccessRequestById(String id) {
         BasicDBObject query = new BasicDBObject(DarConstants.ID, new ObjectId(id));
         mongo.getDataAccessRequestCollection().findOneAndDelete(query);
+        mongo.unmarkUnReviewed(id);
     }
 
 
@@ -204,35 +251,105 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
      */
     @Override
     public List<Document> describeDataAccessWithDataSetIdAndRestriction(List<Integer> dataSetIds) {
-        List<Document> response = new ArrayList<>();
-        for (Integer datasetId : dataSetIds) {
-            response.addAll(mongo.getDataAccessRequestCollection().find(and(eq(DarConstants.DATASET_ID, datasetId), eq(DarConstants.RESTRICTION, new BasicDBObject("$exists", true)))).into(new ArrayList<>()));
+        if (CollectionUtils.isEmpty(dataSetIds)) {
+            return new ArrayList<>();
         }
-        return response;
+        // A single query returns each request once, even when it references several of the datasets.
+        return mongo.getDataAccessRequestCollection().find(and(in(DarConstants.DATASET_ID, dataSetIds), exists(DarConstants.RESTRICTION))).into(new ArrayList<>());
     }
 
     @Override
     public List<Document> describeDataAccessWithDataSetId(List<String> dataSetIds) {
-        List<Document> response = new ArrayList<>();
-        for (String datasetId : dataSetIds) {
-            response.addAll(mongo.getDataAccessRequestCollection().find(eq(DarConstants.DATASET_ID, datasetId)).into(new ArrayList<>()));
+        if (CollectionUtils.isEmpty(dataSetIds)) {
+            return new ArrayList<>();
         }
-        return response;
+        return mongo.getDataAccessRequestCollection().find(in(DarConstants.DATASET_ID, dataSetIds)).into(new ArrayList<>());
     }
 
     @Override
-    public List<DataAccessRequestManage> describeDataAccessRequestManage(Integer userId) {
-        FindIterable<Document> accessList = userId == null ? mongo.getDataAccessRequestCollection().find().sort(new BasicDBObject("sortDate", -1))
-                : mongo.getDataAccessRequestCollection().find(new BasicDBObject(DarConstants.USER_ID, userId)).sort(new BasicDBObject("sortDate", -1));
+    public Page<DataAccessRequestManage> describeDataAccessRequestManage(Integer userId, String status, Integer dataSetId, String pageToken, Integer limit) {
+        Bson filter = manageFilter(userId, dataSetId);
+        PageToken after = PageToken.decode(pageToken);
+        int pageSize = pageSize(limit);
         List<DataAccessRequestManage> darManage = new ArrayList<>();
-        List<String> accessRequestIds = getRequestIds(accessList);
-        if (CollectionUtils.isNotEmpty(accessRequestIds)) {
-            List<Election> electionList = new ArrayList<>();
-            electionList.addAll(electionDAO.findLastElectionsWithFinalVoteByReferenceIdsAndType(accessRequestIds, ElectionType.DATA_ACCESS.getValue()));
-            HashMap electionAccessMap = createAccessRequestElectionMap(electionList);
-            darManage.addAll(createAccessRequestManage(accessList, electionAccessMap));
+        boolean exhausted = false;
+        boolean more = false;
+        // Election statuses live in MySQL, so a status filter is applied per batch until the page is full
+        while (darManage.size() < pageSize && !exhausted) {
+            List<Document> batch = findManageBatch(mongo.getDataAccessRequestCollection(), filter, after, pageSize, MANAGE_PROJECTION);
+            exhausted = batch.size() < pageSize;
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<String> accessRequestIds = batch.stream().map(dar -> dar.get(DarConstants.ID).toString()).collect(Collectors.toList());
+            Map<String, Election> electionAccessMap = createAccessRequestElectionMap(
+                    electionDAO.findLastElectionsWithFinalVoteByReferenceIdsAndType(accessRequestIds, ElectionType.DATA_ACCESS.getValue()));
+            List<DataAccessRequestManage> rows = createAccessRequestManage(batch, electionAccessMap);
+            for (int i = 0; i < batch.size(); i++) {
+                after = pageToken(batch.get(i));
+                if (status == null || status.equalsIgnoreCase(rows.get(i).getElectionStatus())) {
+                    darManage.add(rows.get(i));
+                }
+                if (darManage.size() == pageSize) {
+                    more = !exhausted || i < batch.size() - 1;
+                    break;
+                }
+            }
+        }
+        return new Page<>(darManage, more ? after.encode() : null);
+    }
+
+    /**
+     * @return The filter shared by the request and partial request manage listings.
+     */
+    private Bson manageFilter(Integer userId, Integer dataSetId) {
+        List<Bson> filters = new ArrayList<>();
+        if (userId != null) {
+            filters.add(eq(DarConstants.USER_ID, userId));
         }
-        return darManage;
+        if (dataSetId != null) {
+            // Dataset ids have been stored both as numbers and as strings
+            filters.add(in(DarConstants.DATASET_ID, Arrays.<Object>asList(dataSetId, dataSetId.toString())));
+        }
+        return filters.isEmpty() ? new Document() : and(filters);
+    }
+
+    /**
+     * Fetches the next batch of a manage listing, newest first. Requests are ordered by sort date and then id so the
+     * position after the last returned request can be expressed as a range and served from the sort date indexes.
+     * Requests without a sort date sort below every date, so they come last.
+     */
+    private List<Document> findManageBatch(MongoCollection<Document> collection, Bson filter, PageToken after, int size, Bson projection) {
+        Bson query = filter;
+        if (after != null && after.getSortDate() == null) {
+            query = and(filter, eq(DarConstants.SORT_DATE, null), lt(DarConstants.ID, new ObjectId(after.getId())));
+        } else if (after != null) {
+            query = and(filter, or(
+                    lt(DarConstants.SORT_DATE, after.getSortDate()),
+                    and(eq(DarConstants.SORT_DATE, after.getSortDate()), lt(DarConstants.ID, new ObjectId(after.getId()))),
+                    eq(DarConstants.SORT_DATE, null)));
+        }
+        FindIterable<Document> batch = collection.find(query).
+                sort(Sorts.descending(DarConstants.SORT_DATE, DarConstants.ID)).
+                limit(size == Integer.MAX_VALUE ? 0 : size);
+        if (projection != null) {
+            batch.projection(projection);
+        }
+        return batch.into(new ArrayList<>());
+    }
+
+    private PageToken pageToken(Document dar) {
+        return new PageToken(dar.getDate(DarConstants.SORT_DATE), dar.get(DarConstants.ID).toString());
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return Integer.MAX_VALUE;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("The page size must be positive");
+        }
+        return limit;
     }
 
     @Override
@@ -273,6 +390,7 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
     public void deleteDataAccessRequest(Document document) {
         BasicDBObject query = new BasicDBObject(DarConstants.ID, document.get(DarConstants.ID));
         mongo.getDataAccessRequestCollection().findOneAndDelete(query);
+        mongo.unmarkUnReviewed(document.get(DarConstants.ID).toString());
     }
 
     @Override
@@ -286,22 +404,45 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
         return mongo.getDataAccessRequestCollection().find(query).first();
     }
 
+    /**
+     * Counts the requests marked as un-reviewed. A request is marked when it is created and unmarked when it is
+     * cancelled or deleted or gets its first access election, so a read doesn't scan requests or elections.
+     */
     @Override
     public Integer getTotalUnReviewedDAR() {
-        FindIterable<Document> accessList = mongo.getDataAccessRequestCollection().find(ne(DarConstants.STATUS,ElectionStatus.CANCELED.getValue()));
-        Integer unReviewedDAR = 0;
-        List<String> accessRequestIds = getRequestIds(accessList);
-        if (CollectionUtils.isNotEmpty(accessRequestIds)) {
-            List<Election> electionList = new ArrayList<>();
-            electionList.addAll(electionDAO.findLastElectionsWithFinalVoteByReferenceIdsAndType(accessRequestIds, ElectionType.DATA_ACCESS.getValue()));
-            HashMap<String, Election> electionAccessMap = createAccessRequestElectionMap(electionList);
-            for (Document dar : accessList) {
-                ObjectId id = dar.get(DarConstants.ID, ObjectId.class);
-                Election election = electionAccessMap.get(id.toString());
-                if (election == null) ++unReviewedDAR;
-            }
+        backfillUnReviewedDARs();
+        return (int) mongo.countUnReviewed();
+    }
+
+    /**
+     * Marks the requests created before un-reviewed requests were marked. Each batch is marked before its elections
+     * and status are read, and the reviewed, cancelled or deleted ones are unmarked again. An election, cancellation
+     * or deletion racing with the backfill unmarks after its own write, so either way no stale mark is left behind.
+     */
+    @Override
+    public void backfillUnReviewedDARs() {
+        if (mongo.isUnReviewedBackfillComplete()) {
+            return;
+        }
+        List<Object> accessRequestIds = mongo.getDataAccessRequestCollection()
+                .find(ne(DarConstants.STATUS, ElectionStatus.CANCELED.getValue()))
+                .projection(Projections.include(DarConstants.ID))
+                .map(dar -> dar.get(DarConstants.ID))
+                .into(new ArrayList<>());
+        for (int from = 0; from < accessRequestIds.size(); from += BACKFILL_BATCH_SIZE) {
+            List<Object> batch = accessRequestIds.subList(from, Math.min(from + BACKFILL_BATCH_SIZE, accessRequestIds.size()));
+            List<String> batchIds = batch.stream().map(Object::toString).collect(Collectors.toList());
+            batchIds.forEach(mongo::markUnReviewed);
+            Set<String> unReviewedIds = mongo.getDataAccessRequestCollection()
+                    .find(and(in(DarConstants.ID, batch), ne(DarConstants.STATUS, ElectionStatus.CANCELED.getValue())))
+                    .projection(Projections.include(DarConstants.ID))
+                    .map(dar -> dar.get(DarConstants.ID).toString())
+                    .into(new HashSet<>());
+            electionDAO.findLastElectionsWithFinalVoteByReferenceIdsAndType(batchIds, ElectionType.DATA_ACCESS.getValue()).
+                    forEach(election -> unReviewedIds.remove(election.getReferenceId()));
+            batchIds.stream().filter(id -> !unReviewedIds.contains(id)).forEach(mongo::unmarkUnReviewed);
         }
-        return unReviewedDAR;
+        mongo.completeUnReviewedBackfill();
     }
 
     // Partial Data Access Request Methods below
@@ -343,18 +484,13 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
     }
 
     @Override
-    public List<Document> describePartialDataAccessRequestManage(Integer userId) {
-        FindIterable<Document> accessList = userId == null ? mongo.getPartialDataAccessRequestCollection().find().sort(new BasicDBObject("sortDate", -1))
-                : mongo.getPartialDataAccessRequestCollection().find(new BasicDBObject(DarConstants.USER_ID, userId)).sort(new BasicDBObject("sortDate", -1));
-        List<Document> darManage = new ArrayList<>();
-        List<String> accessRequestIds = getRequestIds(accessList);
-        if (CollectionUtils.isNotEmpty(accessRequestIds)){
-            for(Document doc: accessList){
-                doc.append("dataRequestId", doc.get(DarConstants.ID).toString());
-                darManage.add(doc);
-            }
-        }
-        return darManage;
+    public Page<Document> describePartialDataAccessRequestManage(Integer userId, Integer dataSetId, String pageToken, Integer limit) {
+        int pageSize = pageSize(limit);
+        List<Document> darManage = findManageBatch(mongo.getPartialDataAccessRequestCollection(), manageFilter(userId, dataSetId),
+                PageToken.decode(pageToken), pageSize, null);
+        darManage.forEach(doc -> doc.append("dataRequestId", doc.get(DarConstants.ID).toString()));
+        String nextPageToken = darManage.size() == pageSize ? pageToken(darManage.get(darManage.size() - 1)).encode() : null;
+        return new Page<>(darManage, nextPageToken);
     }
 
     @Override
@@ -363,6 +499,7 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
         dar.append(DarConstants.STATUS, ElectionStatus.CANCELED.getValue());
         BasicDBObject query = new BasicDBObject(DarConstants.DAR_CODE, dar.get(DarConstants.DAR_CODE));
         dar = mongo.getDataAccessRequestCollection().findOneAndReplace(query, dar);
+        mongo.unmarkUnReviewed(referenceId);
         return dar;
     }
 
@@ -407,19 +544,26 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
         return invalidRestrictions;
     }
 
+    /**
+     * Records the result of validating each request's restriction, with the checksum of the restriction validated,
+     * in a single bulk write.
+     */
     @Override
-    public void updateDARUseRestrictionValidation(List<String> darCodes, Boolean validUseRestriction){
-        BasicDBObject updateFields = new BasicDBObject();
-        updateFields.append(DarConstants.VALID_RESTRICTION, validUseRestriction);
-        BasicDBObject setQuery = new BasicDBObject();
-        setQuery.append("$set", updateFields);
-
-        mongo.getDataAccessRequestCollection().updateMany(in(DarConstants.DAR_CODE, darCodes), setQuery);
+    public void updateDARUseRestrictionValidation(List<Document> dars, List<Boolean> validUseRestrictions, List<String> checksums) {
+        List<WriteModel<Document>> updates = new ArrayList<>();
+        for (int i = 0; i < dars.size(); i++) {
+            updates.add(new UpdateOneModel<>(eq(DarConstants.ID, dars.get(i).get(DarConstants.ID)),
+                    Updates.combine(Updates.set(DarConstants.VALID_RESTRICTION, validUseRestrictions.get(i)),
+                            Updates.set(DarConstants.RESTRICTION_CHECKSUM, checksums.get(i)))));
+        }
+        if (!updates.isEmpty()) {
+            mongo.getDataAccessRequestCollection().bulkWrite(updates, new BulkWriteOptions().ordered(false));
+        }
     }
 
     @Override
     public FindIterable<Document> findDARUseRestrictions(){
-        return mongo.getDataAccessRequestCollection().find(ne(DarConstants.RESTRICTION, null)).projection(Projections.include(DarConstants.DAR_CODE, DarConstants.RESTRICTION));
+        return mongo.getDataAccessRequestCollection().find(ne(DarConstants.RESTRICTION, null)).projection(Projections.include(DarConstants.DAR_CODE, DarConstants.RESTRICTION, DarConstants.RESTRICTION_CHECKSUM));
     }
 
     private void updateElection(Election access, Election rp) {
@@ -436,19 +580,105 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
     @Override
     public byte[] createDARDocument(Document dar, Map<String, String> researcherProperties, DACUser user, Boolean manualReview, String sDUR) throws IOException {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
-        PDDocument darDOC = new PDDocument();
-        try {
-            ClassLoader classLoader = getClass().getClassLoader();
-            InputStream is = classLoader.getResourceAsStream(PATH);
-            darDOC = PDDocument.load(is);
+        writeDARDocument(dar, researcherProperties, user, manualReview, sDUR, output);
+        return output.toByteArray();
+    }
+
+    @Override
+    public StreamingOutput streamDARDocument(Document dar, Map<String, String> researcherProperties, DACUser user, Boolean manualReview, String sDUR) {
+        return output -> writeDARDocument(dar, researcherProperties, user, manualReview, sDUR, output);
+    }
+
+    /**
+     * Writes a zip with the application PDF of every request found, in the order of the ids. Repeated ids are written
+     * once. The PDFs are rendered on the pdfRenderers pool, and no more than PDF_RENDER_WINDOW of them are held in
+     * memory waiting for the ones before them to be written. Ids with no request are skipped.
+     */
+    @Override
+    public StreamingOutput streamDARDocuments(List<String> referenceIds, ResearcherAPI researcherAPI) {
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(referenceIds));
+        return output -> {
+            ZipOutputStream zip = new ZipOutputStream(output);
+            Deque<Future<Pair<Document, byte[]>>> pending = new ArrayDeque<>();
+            Iterator<String> ids = distinctIds.iterator();
+            Set<String> entryNames = new HashSet<>();
+            try {
+                while (ids.hasNext() || !pending.isEmpty()) {
+                    while (ids.hasNext() && pending.size() < PDF_RENDER_WINDOW) {
+                        String referenceId = ids.next();
+                        pending.add(pdfRenderers.submit(() -> renderDARDocument(referenceId, researcherAPI)));
+                    }
+                    Pair<Document, byte[]> pdf = pending.remove().get();
+                    if (pdf != null) {
+                        zip.putNextEntry(new ZipEntry(entryName(pdf.getKey(), entryNames)));
+                        zip.write(pdf.getValue());
+                        zip.closeEntry();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while rendering data access request documents", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Unable to render data access request document: " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                pending.forEach(future -> future.cancel(true));
+            }
+            zip.finish();
+        };
+    }
+
+    /**
+     * Names the entry after the request's code, or its id when it has no code or another request already used the
+     * code, since a zip can't hold two entries with the same name.
+     */
+    static String entryName(Document dar, Set<String> usedNames) {
+        String darCode = dar.getString(DarConstants.DAR_CODE);
+        String name = "FullDARApplication-" + darCode + ".pdf";
+        if (darCode == null || !usedNames.add(name)) {
+            name = "FullDARApplication-" + dar.get(DarConstants.ID) + ".pdf";
+            usedNames.add(name);
+        }
+        return name;
+    }
+
+    private Pair<Document, byte[]> renderDARDocument(String referenceId, ResearcherAPI researcherAPI) throws IOException {
+        Document dar = describeDataAccessRequestById(referenceId);
+        if (dar == null) {
+            logger().warn("Skipping document for missing data access request: " + referenceId);
+            return null;
+        }
+        Integer userId = dar.getInteger(DarConstants.USER_ID);
+        byte[] pdf = createDARDocument(dar, researcherAPI.describeResearcherPropertiesForDAR(userId), dacUserDAO.findDACUserById(userId),
+                DarUtil.requiresManualReview(dar), getStructuredDURForPdf(dar));
+        return Pair.of(dar, pdf);
+    }
+
+    /**
+     * Fills a copy of the application template for the request. The output stream is left open.
+     */
+    private void writeDARDocument(Document dar, Map<String, String> researcherProperties, DACUser user, Boolean manualReview, String sDUR, OutputStream output) throws IOException {
+        try (PDDocument darDOC = PDDocument.load(getDARTemplate())) {
             new DataAccessParser().fillDARForm(dar, researcherProperties, user, manualReview, darDOC.getDocumentCatalog().getAcroForm(), sDUR);
-            darDOC.save(output);
-            return output.toByteArray();
-        } finally {
-            output.close();
-            darDOC.close();
+            darDOC.save(new CloseShieldOutputStream(output));
         }
+    }
 
+    /**
+     * The application template is read from the class path once and kept in memory. Every document is parsed from
+     * those bytes, since a filled form can't be reset to reuse for the next request.
+     */
+    private byte[] getDARTemplate() throws IOException {
+        byte[] template = darTemplate;
+        if (template == null) {
+            try (InputStream is = getClass().getClassLoader().getResourceAsStream(PATH)) {
+                if (is == null) {
+                    throw new IOException("Data access request template not found: " + PATH);
+                }
+                template = IOUtils.toByteArray(is);
+            }
+            darTemplate = template;
+        }
+        return template;
     }
 
     /**
@@ -481,7 +711,7 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
             } else {
                 String consentId = dataSetDAO.getAssociatedConsentIdByDataSetId(dataSetId.get(0));
                 dulElection = electionDAO.findDULApprovedElectionByReferenceId(consentId);
-                sDUR = dulElection != null ? dulElection.getTranslatedUseRestriction() : consentDAO.findConsentById(consentId).getTranslatedUseRestriction();
+                sDUR = dulElection != null ? dulElection.getTranslatedUseRestriction() : consentCache.findConsentById(consentId).getTranslatedUseRestriction();
             }
         } else {
             String consentId = dataSetDAO.getAssociatedConsentIdByDataSetId(dataSetId.get(0));
@@ -502,7 +732,7 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
                 if (dar != null) {
                     String profileName = researcherPropertyDAO.findPropertyValueByPK(dar.getInteger(DarConstants.USER_ID), DarConstants.PROFILE_NAME);
                     String institution = researcherPropertyDAO.findPropertyValueByPK(dar.getInteger(DarConstants.USER_ID), DarConstants.INSTITUTION);
-                    String consentName = consentDAO.findConsentNameFromDatasetID(dar.get(DarConstants.DATASET_ID, ArrayList.class).get(0).toString());
+                    String consentName = consentCache.findConsentNameByDataSetId(dar.get(DarConstants.DATASET_ID, ArrayList.class).get(0).toString());
                     Election consentElection = getConsentElection(election.getElectionId(), dar);
                     dataAccessReportsParser.addApprovedDARLine(darWriter, election, dar, profileName, institution, consentName, consentElection.getTranslatedUseRestriction());
                 }
@@ -526,7 +756,7 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
             for (Election election : elections) {
                 Document dar = describeDataAccessRequestById(election.getReferenceId());
                 if (dar != null) {
-                    String consentName = consentDAO.findConsentNameFromDatasetID(dar.get(DarConstants.DATASET_ID, ArrayList.class).get(0).toString());
+                    String consentName = consentCache.findConsentNameByDataSetId(dar.get(DarConstants.DATASET_ID, ArrayList.class).get(0).toString());
                     Election consentElection = getConsentElection(election.getElectionId(), dar);
                     dataAccessReportsParser.addReviewedDARLine(darWriter, election, dar, consentName, consentElection.getTranslatedUseRestriction());
                 }
@@ -648,15 +878,11 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
         if (CollectionUtils.isNotEmpty(dataAccessRequestList)){
             String seq = mongo.getNextSequence(DarConstants.PARTIAL_DAR_CODE_COUNTER);
             if (dataAccessRequestList.size() > 1) {
+                // createDataAccessRequest has already deleted the partial DAR these were submitted from.
                 IntStream.range(0, dataAccessRequestList.size())
                         .forEach(idx -> {
                                     dataAccessRequestList.get(idx).append(DarConstants.DAR_CODE, "DAR-" + seq + SUFFIX + idx);
                                     dataAccessRequestList.get(idx).remove(DarConstants.ID);
-                                    if (dataAccessRequestList.get(idx).get(DarConstants.PARTIAL_DAR_CODE) != null){
-                                        BasicDBObject query = new BasicDBObject(DarConstants.PARTIAL_DAR_CODE, dataAccessRequestList.get(idx).get(DarConstants.PARTIAL_DAR_CODE));
-                                        mongo.getPartialDataAccessRequestCollection().findOneAndDelete(query);
-                                        dataAccessRequestList.get(idx).remove(DarConstants.PARTIAL_DAR_CODE);
-                                    }
                                 }
 
                         );
@@ -665,6 +891,7 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
                 dataAccessRequestList.get(0).append(DarConstants.DAR_CODE, "DAR-" + seq);
                 mongo.getDataAccessRequestCollection().insertMany(dataAccessRequestList);
             }
+            dataAccessRequestList.forEach(dar -> mongo.markUnReviewed(dar.get(DarConstants.ID).toString()));
         }
     }
 
@@ -679,9 +906,9 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
         return Optional.empty();
     }
 
-    private List<DataAccessRequestManage> createAccessRequestManage(FindIterable<Document> documents, Map<String, Election> electionList) {
+    private List<DataAccessRequestManage> createAccessRequestManage(List<Document> documents, Map<String, Election> electionList) {
         List<DataAccessRequestManage> requestsManage = new ArrayList<>();
-        documents.forEach((Block<Document>) dar -> {
+        documents.forEach(dar -> {
             DataAccessRequestManage darManage = new DataAccessRequestManage();
             ObjectId id = dar.get(DarConstants.ID, ObjectId.class);
             List<Integer> dataSets =  DarUtil.getIntegerList(dar, DarConstants.DATASET_ID);
@@ -728,18 +955,8 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
         return NEEDS_APPROVAL;
     }
 
-    private List getRequestIds(FindIterable<Document> access) {
-        List<String> accessIds = new ArrayList<>();
-        if (access != null) {
-            access.forEach((Block<Document>) document ->
-                accessIds.add(document.get(DarConstants.ID).toString())
-            );
-        }
-        return accessIds;
-    }
-
-    private HashMap createAccessRequestElectionMap(List<Election> elections) {
-        HashMap electionMap = new HashMap<>();
+    private HashMap<String, Election> createAccessRequestElectionMap(List<Election> elections) {
+        HashMap<String, Election> electionMap = new HashMap<>();
         elections.forEach(election -> {
             electionMap.put(election.getReferenceId(), election);
         });
@@ -803,7 +1020,7 @@ public class DatabaseDataAccessRequestAPI extends AbstractDataAccessRequestAPI {
         if (election == null) {
             List<Integer> datasetIds = DarUtil.getIntegerList(dar, DarConstants.DATASET_ID);
             if (CollectionUtils.isNotEmpty(datasetIds)) {
-                Consent consent = consentDAO.findConsentFromDatasetID(datasetIds.get(0));
+                Consent consent = consentCache.findConsentByDataSetId(datasetIds.get(0));
                 election = electionDAO.findDULApprovedElectionByReferenceId(consent.getConsentId());
             }
         }
@@ -1,5 +1,6 @@
 package org.broadinstitute.consent.http.service;
 
+import com.google.common.collect.Lists;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -19,14 +20,23 @@ import org.broadinstitute.consent.http.models.Consent;
 import org.broadinstitute.consent.http.models.DataSet;
 import org.broadinstitute.consent.http.models.DataSetAuditProperty;
 import org.broadinstitute.consent.http.models.DataSetProperty;
+import org.broadinstitute.consent.http.models.DatasetAssociation;
 import org.broadinstitute.consent.http.models.Dictionary;
 import org.broadinstitute.consent.http.models.Election;
 import org.broadinstitute.consent.http.models.dto.DataSetDTO;
+import org.broadinstitute.consent.http.models.dto.DataSetPropertyDTO;
 import org.broadinstitute.consent.http.util.DarConstants;
 import org.bson.Document;
+import org.skife.jdbi.v2.ResultIterator;
 
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -34,9 +44,14 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -64,16 +79,21 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
     private final String DELETE = "DELETE";
     private final  List<String> predefinedDatasets;
     private final Object aliasDBValueLock = new Object();
+    private final DataSetAutocompleteIndex autocompleteIndex;
+    private final ConsentCache consentCache;
+    private static final String TSV_DELIMITER = "\t";
+    private static final String END_OF_LINE = System.lineSeparator();
+    private static final int CHUNK_SIZE = 1000;
 
     protected org.apache.log4j.Logger logger() {
         return org.apache.log4j.Logger.getLogger("DataSetResource");
     }
 
-    public static void initInstance(DataSetDAO dsDAO, DataSetAssociationDAO dataSetAssociationDAO, UserRoleDAO userRoleDAO, ConsentDAO consentDAO, DataSetAuditDAO dataSetAuditDAO, ElectionDAO electionDAO, List<String> predefinedDatasets) {
-        DataSetAPIHolder.setInstance(new DatabaseDataSetAPI(dsDAO, dataSetAssociationDAO, userRoleDAO, consentDAO, dataSetAuditDAO, electionDAO, predefinedDatasets));
+    public static void initInstance(DataSetDAO dsDAO, DataSetAssociationDAO dataSetAssociationDAO, UserRoleDAO userRoleDAO, ConsentDAO consentDAO, DataSetAuditDAO dataSetAuditDAO, ElectionDAO electionDAO, List<String> predefinedDatasets, DataSetAutocompleteIndex autocompleteIndex, ConsentCache consentCache) {
+        DataSetAPIHolder.setInstance(new DatabaseDataSetAPI(dsDAO, dataSetAssociationDAO, userRoleDAO, consentDAO, dataSetAuditDAO, electionDAO, predefinedDatasets, autocompleteIndex, consentCache));
     }
 
-    private DatabaseDataSetAPI(DataSetDAO dsDAO, DataSetAssociationDAO dataSetAssociationDAO, UserRoleDAO userRoleDAO, ConsentDAO consentDAO, DataSetAuditDAO dataSetAuditDAO, ElectionDAO electionDAO, List<String> predefinedDatasets) {
+    private DatabaseDataSetAPI(DataSetDAO dsDAO, DataSetAssociationDAO dataSetAssociationDAO, UserRoleDAO userRoleDAO, ConsentDAO consentDAO, DataSetAuditDAO dataSetAuditDAO, ElectionDAO electionDAO, List<String> predefinedDatasets, DataSetAutocompleteIndex autocompleteIndex, ConsentCache consentCache) {
         this.dsDAO = dsDAO;
         this.dataSetAssociationDAO = dataSetAssociationDAO;
         this.userRoleDAO = userRoleDAO;
@@ -82,6 +102,8 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
         this.dataSetAuditDAO = dataSetAuditDAO;
         this.electionDAO = electionDAO;
         this.predefinedDatasets = predefinedDatasets;
+        this.autocompleteIndex = autocompleteIndex;
+        this.consentCache = consentCache;
     }
 
 
@@ -120,6 +142,7 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
                         insertDataSetAudit(dataSetsToUpdate, UPDATE, userId, insertProperties(dataSetsToUpdate));
                     }
                     processAssociation(dataSets);
+                    refreshAutocomplete(dataSets);
                 } else {
                     result.getErrors().addAll(addIdsErrors(dataSets));
                     result.getErrors().addAll(addMissingAssociationsErrors(dataSets));
@@ -163,6 +186,8 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
                 dsDAO.deleteDataSetsProperties(existentIdList);
                 processDataSets(dataSets, dataSetMap, userId);
                 processAssociation(dataSets);
+                autocompleteIndex.refresh(existentIdList);
+                refreshAutocomplete(dataSets);
 
             }
         }
@@ -176,7 +201,7 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
     public Collection<DataSetDTO> describeDataSets(Integer dacUserId) {
         Collection<DataSetDTO> dataSetDTOList;
         if (userIs(UserRoles.RESEARCHER.getRoleName(), dacUserId)) {
-            dataSetDTOList = dsDAO.findDataSetsForResearcher();
+            dataSetDTOList = findDataSetsWithProperties(dsDAO.findDataSetRowsForResearcher());
         } else {
 
             /*
@@ -194,7 +219,7 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
                 dataAccessElectionsReferenceId = dataOwnerOpenElections.stream().map(e -> e.getReferenceId()).collect(Collectors.toSet());
                 datasetsAssociatedToOpenElections = accessAPI.getDatasetsInDARs(dataAccessElectionsReferenceId);
             }
-            dataSetDTOList = dsDAO.findDataSets();
+            dataSetDTOList = findDataSetsWithProperties(dsDAO.findDataSetRows());
             if (userIs(UserRoles.ADMIN.getRoleName(), dacUserId) && dataSetDTOList.size() != 0) {
                 List<Document> accessRequests = accessAPI.describeDataAccessRequests();
                 List<Integer> dataSetIdList = new ArrayList<>();
@@ -202,6 +227,8 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
                 dataSetDTOList.stream().forEach(dataSet -> dataSetIdList.add(dataSet.getDataSetId()));
 
                 Set<Integer> accessRequestsDatasetIdSet = accessRequests.stream().map(ar -> (ArrayList<Integer>) ar.get(DarConstants.DATASET_ID)).flatMap(l -> l.stream()).collect(Collectors.toSet());
+                Set<Integer> associatedDataSetIds = dataSetAssociationDAO.getDatasetAssociations(dataSetIdList).stream().
+                        map(DatasetAssociation::getDatasetId).collect(Collectors.toSet());
                 for (DataSetDTO dataSetDTO : dataSetDTOList) {
                     Integer datasetId = dataSetDTO.getDataSetId();
 
@@ -212,11 +239,7 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
                         dataSetDTO.setUpdateAssociationToDataOwnerAllowed(true);
                     }
 
-                    if (CollectionUtils.isEmpty(dataSetAssociationDAO.getDatasetAssociation(dataSetDTO.getDataSetId()))) {
-                        dataSetDTO.setIsAssociatedToDataOwners(false);
-                    } else {
-                        dataSetDTO.setIsAssociatedToDataOwners(true);
-                    }
+                    dataSetDTO.setIsAssociatedToDataOwners(associatedDataSetIds.contains(datasetId));
 
                     if (CollectionUtils.isNotEmpty(accessRequests)) {
                         if (accessRequestsDatasetIdSet.contains(datasetId)) {
@@ -235,6 +258,26 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
     }
 
 
+    /**
+     * Adds the properties of the given datasets, in display order, loading them with one query. Dataset rows come
+     * once per dataset and property rows only carry the key id and value, instead of repeating every dataset column
+     * for each of its properties.
+     */
+    private Collection<DataSetDTO> findDataSetsWithProperties(List<DataSetDTO> dataSetRows) {
+        Map<Integer, DataSetDTO> dataSets = new LinkedHashMap<>();
+        dataSetRows.forEach(row -> dataSets.putIfAbsent(row.getDataSetId(), row));
+        if (dataSets.isEmpty()) {
+            return dataSets.values();
+        }
+        Map<Integer, String> keys = new HashMap<>();
+        describeDictionaryByReceiveOrder().forEach(key -> keys.put(key.getKeyId(), key.getKey()));
+        for (DataSetProperty property : dsDAO.findDataSetPropertiesByDataSetIds(new ArrayList<>(dataSets.keySet()))) {
+            dataSets.get(property.getDataSetId()).getProperties().
+                    add(new DataSetPropertyDTO(keys.get(property.getPropertyKey()), property.getPropertyValue()));
+        }
+        return dataSets.values();
+    }
+
     @Override
     public List<DataSet> getDataSetsForConsent(String consentId) {
         return dsDAO.getDataSetsForConsent(consentId);
@@ -245,6 +288,44 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
         return dsDAO.findDataSetsByReceiveOrder(dataSetId);
     }
 
+    /**
+     * Writes the header and the properties of the given datasets as tab separated values, one dataset per line,
+     * reading the rows from the database as they are written instead of loading them all first.
+     */
+    @Override
+    public StreamingOutput streamDataSetsByReceiveOrder(List<Integer> dataSetIds) {
+        List<String> headers = describeDictionaryByReceiveOrder().stream().map(Dictionary::getKey).collect(Collectors.toList());
+        return output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            writer.write(String.join(TSV_DELIMITER, headers));
+            writer.write(END_OF_LINE);
+            if (CollectionUtils.isNotEmpty(dataSetIds)) {
+                try (ResultIterator<DataSetDTO> rows = dsDAO.iterateDataSetPropertiesByReceiveOrder(dataSetIds)) {
+                    writeDataSetRows(writer, rows);
+                }
+            }
+            writer.flush();
+        };
+    }
+
+    private void writeDataSetRows(Writer writer, ResultIterator<DataSetDTO> rows) throws IOException {
+        DataSetDTO current = null;
+        while (rows.hasNext()) {
+            DataSetDTO row = rows.next();
+            if (current == null || !current.getDataSetId().equals(row.getDataSetId())) {
+                if (current != null) {
+                    writer.write(TSV_DELIMITER + current.getConsentId() + END_OF_LINE);
+                }
+                current = row;
+                writer.write(String.valueOf(row.getProperties().get(0).getPropertyValue()));
+            }
+            writer.write(TSV_DELIMITER + row.getProperties().get(1).getPropertyValue());
+        }
+        if (current != null) {
+            writer.write(TSV_DELIMITER + current.getConsentId() + END_OF_LINE);
+        }
+    }
+
     @Override
     public Collection<Dictionary> describeDictionaryByDisplayOrder() {
         return dsDAO.getMappedFieldsOrderByDisplayOrder();
@@ -256,8 +337,8 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
     }
 
     @Override
-    public List<Map<String, String>> autoCompleteDataSets(String partial) {
-        return dsDAO.getObjectIdsbyPartial(partial);
+    public List<Map<String, String>> autoCompleteDataSets(String partial, Integer limit) {
+        return autocompleteIndex.search(partial, limit);
     }
 
     @Override
@@ -287,6 +368,8 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
 
             dsDAO.commit();
             dataSetAuditDAO.commit();
+            autocompleteIndex.refresh(dataSetsId);
+            consentCache.invalidateDataSets(dataSetsId);
         } catch (Exception e) {
             dsDAO.rollback();
             dataSetAuditDAO.rollback();
@@ -294,6 +377,13 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
         }
     }
 
+    private void refreshAutocomplete(List<DataSet> dataSets) {
+        List<String> names = dataSets.stream().map(DataSet::getName).filter(Objects::nonNull).collect(Collectors.toList());
+        if (CollectionUtils.isNotEmpty(names)) {
+            autocompleteIndex.refresh(dsDAO.searchDataSetsByNameList(names).stream().map(DataSet::getDataSetId).collect(Collectors.toList()));
+        }
+    }
+
     private boolean checkDatasetExistence(Integer dataSetId) {
         return dsDAO.findDataSetById(dataSetId) != null ? true : false;
     }
@@ -303,6 +393,7 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
         DataSet dataset = dsDAO.findDataSetById(datasetId);
         if (dataset != null) {
             dsDAO.updateDataSetActive(dataset.getDataSetId(), active);
+            autocompleteIndex.refresh(Collections.singletonList(dataset.getDataSetId()));
         }
     }
 
@@ -337,8 +428,8 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
         List<String> errors = new ArrayList<>();
         List<String> objectIdList = dataSets.stream().filter(dataset -> dataset.getObjectId() != null).map(DataSet::getObjectId).collect(Collectors.toList());
         if (CollectionUtils.isNotEmpty(objectIdList)) {
-            List<Association> presentAssociations = dsDAO.getAssociationsForObjectIdList(objectIdList);
-            List<String> associationIdList = presentAssociations.stream().map(Association::getObjectId).collect(Collectors.toList());
+            Set<String> associationIdList = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            findInChunks(objectIdList, dsDAO::getAssociationsForObjectIdList).forEach(association -> associationIdList.add(association.getObjectId()));
             errors.addAll(objectIdList.stream().filter(dsId -> (!(associationIdList.contains(dsId)))).map(dsId -> String.format(MISSING_ASSOCIATION, dsId)).collect(Collectors.toList()));
 
         }
@@ -360,8 +451,8 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
         List<String> errors = new ArrayList<>();
         List<String> consentNames = dataSets.stream().filter(ds -> StringUtils.isNotEmpty(ds.getConsentName())).map(DataSet::getConsentName).collect(Collectors.toList());
         if (CollectionUtils.isNotEmpty(consentNames)) {
-            List<Consent> existentConsents = consentDAO.findConsentsFromConsentNames(consentNames);
-            List<String> existentConsentNames = existentConsents.stream().map(n -> n.getName()).collect(Collectors.toList());
+            Set<String> existentConsentNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            findInChunks(consentNames, consentDAO::findConsentsFromConsentNames).forEach(consent -> existentConsentNames.add(consent.getName()));
             errors.addAll(consentNames.stream().filter(consent -> (!(existentConsentNames.contains(consent)))).map(name -> String.format(MISSING_CONSENT, name)).collect(Collectors.toList()));
         }
         return errors;
@@ -370,7 +461,7 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
     private List<String> addDuplicatedRowsErrors(List<DataSet> dataSets) {
         List<String> errors = new ArrayList<>();
         List<String> objectIds = dataSets.stream().map(d -> d.getObjectId()).collect(Collectors.toList());
-        List<DataSet> failingRows = CollectionUtils.isNotEmpty(objectIds) ? dsDAO.getDataSetsWithValidNameForObjectIdList(objectIds) : new ArrayList<>();
+        List<DataSet> failingRows = findInChunks(objectIds, dsDAO::getDataSetsWithValidNameForObjectIdList);
         errors.addAll(failingRows.stream().filter(ds -> !ds.getObjectId().isEmpty()).map(ds -> String.format(DUPLICATED_ROW, ds.getObjectId())).collect(Collectors.toList()));
         if (CollectionUtils.isNotEmpty(errors)) errors.add(OVERWRITE_ON);
         return errors;
@@ -379,48 +470,93 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
     private List<String> addDuplicateDataSetNames(List<DataSet> dataSets) {
         List<String> errors = new ArrayList<>();
         if (CollectionUtils.isNotEmpty(dataSets)) {
-            List<DataSet> failingRows = dsDAO.getDataSetsForNameList(dataSets.stream().map(d -> d.getName()).collect(Collectors.toList()));
+            List<DataSet> failingRows = findInChunks(dataSets.stream().map(d -> d.getName()).collect(Collectors.toList()), dsDAO::getDataSetsForNameList);
             errors.addAll(failingRows.stream().map(ds -> String.format(DUPLICATED_NAME_ROW, ds.getName())).collect(Collectors.toList()));
             if (CollectionUtils.isNotEmpty(errors)) errors.add(OVERWRITE_ON);
         }
         return errors;
     }
 
+    /**
+     * Applies the same checks as the error messages above, looking up the existing datasets, associations and
+     * consents of the whole file a chunk at a time instead of with several queries per row.
+     */
     private boolean isValid(List<DataSet> dataSets, boolean overwrite) {
-        boolean isValid = true;
-        for (DataSet dataSet : dataSets) {
+        if (dataSets.stream().anyMatch(ds -> StringUtils.isNotEmpty(ds.getConsentName()) && StringUtils.isNotEmpty(ds.getObjectId()))) {
+            return false;
+        }
+        List<String> objectIds = nonEmptyValues(dataSets, DataSet::getObjectId);
+        if (!objectIds.isEmpty()) {
+            // missing association if object id is present
+            Set<String> associatedObjectIds = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            findInChunks(objectIds, dsDAO::getAssociationsForObjectIdList).forEach(association -> associatedObjectIds.add(association.getObjectId()));
+            if (!associatedObjectIds.containsAll(objectIds)) {
+                return false;
+            }
             // duplicated dataset
-            DataSet existentDataset = StringUtils.isNotEmpty(dataSet.getObjectId()) ? dsDAO.findDataSetByObjectId(dataSet.getObjectId()) : null;
-            if ( StringUtils.isNotEmpty(dataSet.getConsentName()) && StringUtils.isNotEmpty(dataSet.getObjectId())
-                    || !overwrite && existentDataset != null && StringUtils.isNotEmpty(existentDataset.getName()) && dsDAO.getConsentAssociationByObjectId(dataSet.getObjectId()) != null
-                    // missing association if object id is present
-                    || StringUtils.isNotEmpty(dataSet.getObjectId()) && CollectionUtils.isEmpty(dsDAO.getAssociationsForObjectIdList(Arrays.asList(dataSet.getObjectId())))
-                    // missing consent if consent id is present
-                    || StringUtils.isNotEmpty(dataSet.getConsentName()) && consentDAO.getIdByName(dataSet.getConsentName()) == null
-                    // dataset name should be unique
-                    || !overwrite && dsDAO.getDataSetByName(dataSet.getName()) != null) {
-                isValid = false;
-                break;
+            if (!overwrite && findInChunks(objectIds, dsDAO::getDataSetsWithValidNameForObjectIdList).stream().anyMatch(ds -> StringUtils.isNotEmpty(ds.getName()))) {
+                return false;
+            }
+        }
+        // missing consent if consent id is present
+        List<String> consentNames = nonEmptyValues(dataSets, DataSet::getConsentName);
+        if (!consentNames.isEmpty()) {
+            Set<String> existentConsentNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            findInChunks(consentNames, consentDAO::findConsentsFromConsentNames).forEach(consent -> existentConsentNames.add(consent.getName()));
+            if (!existentConsentNames.containsAll(consentNames)) {
+                return false;
             }
         }
-        return isValid;
+        // dataset name should be unique
+        return overwrite || findInChunks(nonEmptyValues(dataSets, DataSet::getName), dsDAO::getDataSetsForNameList).isEmpty();
     }
 
 
     private void processAssociation(List<DataSet> dataSetList) {
-        dataSetList.forEach(dataSet -> {
-            if (StringUtils.isNotEmpty(dataSet.getConsentName())) {
-                Integer datasetId = dsDAO.getDataSetByName(dataSet.getName());
-                if (consentDAO.findAssociationsByDataSetId(datasetId) == null) {
-                    consentDAO.insertConsentAssociation(consentDAO.getIdByName(dataSet.getConsentName()), AssociationType.SAMPLESET.getValue(), datasetId);
-                }
+        List<DataSet> consentDataSets = dataSetList.stream().filter(ds -> StringUtils.isNotEmpty(ds.getConsentName())).collect(Collectors.toList());
+        if (consentDataSets.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> dataSetIds = getOneMap(findInChunks(nonEmptyValues(consentDataSets, DataSet::getName), dsDAO::searchByNameIdList));
+        Map<String, String> consentIds = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        findInChunks(nonEmptyValues(consentDataSets, DataSet::getConsentName), consentDAO::findConsentsFromConsentNames).
+                forEach(consent -> consentIds.put(consent.getName(), consent.getConsentId()));
+        Set<Integer> associatedDataSetIds = findInChunks(new ArrayList<>(dataSetIds.values()), dsDAO::getAssociationsForDataSetIdList).stream().
+                map(Association::getDataSetId).collect(Collectors.toSet());
+        List<String> newConsentIds = new ArrayList<>();
+        List<Integer> newDataSetIds = new ArrayList<>();
+        consentDataSets.forEach(dataSet -> {
+            Integer datasetId = dataSetIds.get(dataSet.getName());
+            if (datasetId != null && associatedDataSetIds.add(datasetId)) {
+                newConsentIds.add(consentIds.get(dataSet.getConsentName()));
+                newDataSetIds.add(datasetId);
             }
         });
+        if (!newDataSetIds.isEmpty()) {
+            consentDAO.insertConsentAssociations(newConsentIds, AssociationType.SAMPLESET.getValue(), newDataSetIds);
+            consentCache.invalidateDataSets(newDataSetIds);
+        }
+    }
+
+    private List<String> nonEmptyValues(List<DataSet> dataSets, Function<DataSet, String> field) {
+        return dataSets.stream().map(field).filter(StringUtils::isNotEmpty).distinct().collect(Collectors.toList());
+    }
+
+    /**
+     * Runs an IN query a chunk of values at a time, so large uploads don't build statements with unbounded parameter
+     * lists.
+     */
+    private <T, R> List<R> findInChunks(List<T> values, Function<List<T>, List<R>> query) {
+        List<R> results = new ArrayList<>();
+        for (List<T> chunk : Lists.partition(values, CHUNK_SIZE)) {
+            results.addAll(query.apply(chunk));
+        }
+        return results;
     }
 
     private List<DataSetProperty> insertProperties(List<DataSet> dataSets) {
         List<String> nameList = dataSets.stream().map(DataSet::getName).collect(Collectors.toList());
-        List<Map<String, Integer>> retrievedValues = dsDAO.searchByNameIdList(nameList);
+        List<Map<String, Integer>> retrievedValues = findInChunks(nameList, dsDAO::searchByNameIdList);
         Map<String, Integer> retrievedValuesMap = getOneMap(retrievedValues);
         List<DataSetProperty> dataSetPropertiesList = new ArrayList<>();
         dataSets.stream().map((dataSet) -> {
@@ -470,13 +606,12 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
         if (CollectionUtils.isNotEmpty(dataSetDTOList)) {
             List<String> consentIds = dataSetDTOList.stream().map(sc -> sc.getConsentId()).collect(Collectors.toList());
             Collection<Consent> consents = consentDAO.findConsentsFromConsentsIDs(consentIds);
-            consents.forEach(consent -> {
-                List<DataSetDTO> dsList = dataSetDTOList.stream().filter(d -> d.getConsentId().equals(consent.getConsentId())).
-                        collect(Collectors.toList());
-                dsList.stream().forEach(ds -> {
-                    ds.setConsentId(consent.getName());
-                });
-
+            Map<String, String> consentNames = new HashMap<>();
+            consents.forEach(consent -> consentNames.putIfAbsent(consent.getConsentId(), consent.getName()));
+            dataSetDTOList.forEach(ds -> {
+                if (consentNames.containsKey(ds.getConsentId())) {
+                    ds.setConsentId(consentNames.get(ds.getConsentId()));
+                }
             });
         }
 
@@ -526,7 +661,7 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
             dataSets.stream().forEach(dataSet -> {
                 dataSetObjectIdMap.put(dataSet.getName(), dataSet);
             });
-            List<DataSet> existentDataSets = dsDAO.getDataSetsForNameList(new ArrayList(dataSetObjectIdMap.keySet()));
+            List<DataSet> existentDataSets = findInChunks(new ArrayList<>(dataSetObjectIdMap.keySet()), dsDAO::getDataSetsForNameList);
             createDataSetAudit(existentDataSets, userId, action, properties);
         }
     }
@@ -543,11 +678,13 @@ public class DatabaseDataSetAPI extends AbstractDataSetAPI {
                 }
 
             });
+            List<DataSetAuditProperty> auditProperties = new ArrayList<>();
             dataSetList.stream().forEach(dataSet -> {
                 DataSetAudit dataSetAudit = new DataSetAudit(dataSet.getDataSetId(), dataSet.getObjectId(), dataSet.getName(), dataSet.getCreateDate(), dataSet.getActive(), userId, action);
                 Integer dataSetAuditId = dataSetAuditDAO.insertDataSetAudit(dataSetAudit);
-                dataSetAuditDAO.insertDataSetAuditProperties(createDataSetAuditProperties(dataSet, dataSetAuditId, dataSetPropertyMap));
+                auditProperties.addAll(createDataSetAuditProperties(dataSet, dataSetAuditId, dataSetPropertyMap));
             });
+            dataSetAuditDAO.insertDataSetAuditProperties(auditProperties);
         }
 
     }
@@ -34,6 +34,7 @@ import org.broadinstitute.consent.http.util.DarUtil;
 import org.broadinstitute.consent.http.util.DatasetUtil;
 import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.skife.jdbi.v2.DBI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,6 +56,7 @@ import java.util.stream.Collectors;
  */
 public class DatabaseElectionAPI extends AbstractElectionAPI {
 
+    private final DBI jdbi;
     private MailMessageDAO mailMessageDAO;
     private ElectionDAO electionDAO;
     private ConsentDAO consentDAO;
@@ -62,6 +64,7 @@ public class DatabaseElectionAPI extends AbstractElectionAPI {
     private DACUserDAO dacUserDAO;
     private MongoConsentDB mongo;
     private DataSetDAO dataSetDAO;
+    private final ConsentCache consentCache;
     private final String DUL_NOT_APROVED = "The Data Use Limitation Election related to this Dataset has not been approved yet.";
     private final String INACTIVE_DS = "Election was not created. The following DataSets are disabled : ";
     private EmailNotifierAPI emailNotifierAPI;
@@ -80,8 +83,8 @@ public class DatabaseElectionAPI extends AbstractElectionAPI {
      * @param dao The Data Access Object instance that the API should use to
      *            read/write data.
      */
-    public static void initInstance(ElectionDAO dao, ConsentDAO consentDAO, DACUserDAO dacUserDAO, MongoConsentDB mongo, VoteDAO voteDAO, MailMessageDAO mailMessageDAO, DataSetDAO dataSetDAO) {
-        ElectionAPIHolder.setInstance(new DatabaseElectionAPI(dao, consentDAO, dacUserDAO, mongo, voteDAO, mailMessageDAO, dataSetDAO));
+    public static void initInstance(DBI jdbi, ElectionDAO dao, ConsentDAO consentDAO, DACUserDAO dacUserDAO, MongoConsentDB mongo, VoteDAO voteDAO, MailMessageDAO mailMessageDAO, DataSetDAO dataSetDAO, ConsentCache consentCache) {
+        ElectionAPIHolder.setInstance(new DatabaseElectionAPI(jdbi, dao, consentDAO, dacUserDAO, mongo, voteDAO, mailMessageDAO, dataSetDAO, consentCache));
     }
 
     /**
@@ -91,7 +94,8 @@ public class DatabaseElectionAPI extends AbstractElectionAPI {
      * @param dao The Data Access Object used to read/write data.
      */
     @VisibleForTesting
-    DatabaseElectionAPI(ElectionDAO dao, ConsentDAO consentDAO, DACUserDAO dacUserDAO, MongoConsentDB mongo, VoteDAO voteDAO, MailMessageDAO mailMessageDAO, DataSetDAO dataSetDAO) {
+    DatabaseElectionAPI(DBI jdbi, ElectionDAO dao, ConsentDAO consentDAO, DACUserDAO dacUserDAO, MongoConsentDB mongo, VoteDAO voteDAO, MailMessageDAO mailMessageDAO, DataSetDAO dataSetDAO, ConsentCache consentCache) {
+        this.jdbi = jdbi;
         this.electionDAO = dao;
         this.consentDAO = consentDAO;
         this.dacUserDAO = dacUserDAO;
@@ -99,6 +103,7 @@ public class DatabaseElectionAPI extends AbstractElectionAPI {
         this.voteDAO = voteDAO;
         this.mailMessageDAO = mailMessageDAO;
         this.dataSetDAO = dataSetDAO;
+        this.consentCache = consentCache;
         this.emailNotifierAPI = AbstractEmailNotifierAPI.getInstance();
         this.approvalExpirationTimeAPI = AbstractApprovalExpirationTimeAPI.getInstance();
     }
@@ -109,31 +114,53 @@ public class DatabaseElectionAPI extends AbstractElectionAPI {
 
     @Override
     public Election createElection(Election election, String referenceId, ElectionType electionType) throws Exception {
+        return createElection(election, referenceId, electionType, false, false);
+    }
+
+    @Override
+    public Election createElectionWithVotes(Election election, String referenceId, ElectionType electionType, Boolean isManualReview) throws Exception {
+        return createElection(election, referenceId, electionType, true, isManualReview);
+    }
+
+    /**
+     * Inserts the election, its type specific links and, when requested, the initial votes in a single transaction,
+     * so a failure part way through doesn't leave an open election without votes behind.
+     */
+    private Election createElection(Election election, String referenceId, ElectionType electionType, boolean withVotes, Boolean isManualReview) throws Exception {
         Election consentElection = validateAndGetDULElection(referenceId, electionType);
-        validateAvailableUsers(electionType);
+        Set<DACUser> voters = validateAvailableUsers(electionType);
         validateReferenceId(referenceId, electionType);
         validateExistentElection(referenceId, electionType);
         validateStatus(election.getStatus());
         setGeneralFields(election, referenceId, electionType);
+        Election access = electionType.equals(ElectionType.RP) ? describeDataRequestElection(referenceId) : null;
         Date createDate = new Date();
-        Integer id = electionDAO.insertElection(election.getElectionType(), election.getStatus(),
-                createDate, election.getReferenceId(), election.getFinalAccessVote() , Objects.toString(election.getUseRestriction(), "") , election.getTranslatedUseRestriction(),
-                election.getDataUseLetter(), election.getDulName());
+        Integer id = jdbi.inTransaction((handle, status) -> {
+            ElectionDAO transactionElectionDAO = handle.attach(ElectionDAO.class);
+            Integer electionId = transactionElectionDAO.insertElection(election.getElectionType(), election.getStatus(),
+                    createDate, election.getReferenceId(), election.getFinalAccessVote() , Objects.toString(election.getUseRestriction(), "") , election.getTranslatedUseRestriction(),
+                    election.getDataUseLetter(), election.getDulName());
+            switch (electionType) {
+                case DATA_ACCESS:
+                    transactionElectionDAO.insertAccessAndConsentElection(electionId, consentElection.getElectionId());
+                    break;
+                case TRANSLATE_DUL:
+                    handle.attach(ConsentDAO.class).updateConsentUpdateStatus(referenceId, false);
+                    break;
+                case RP:
+                    transactionElectionDAO.insertAccessRP(access.getElectionId(), electionId);
+                    break;
+                case DATA_SET:
+                    break;
+            }
+            if (withVotes && voters != null && !voters.isEmpty()) {
+                handle.attach(VoteDAO.class).insertElectionVotes(DatabaseVoteAPI.electionVotes(voters, electionId, electionType, isManualReview));
+            }
+            return electionId;
+        });
         updateSortDate(referenceId, createDate);
-
-        switch (electionType) {
-            case DATA_ACCESS:
-                electionDAO.insertAccessAndConsentElection(id, consentElection.getElectionId());
-                break;
-            case TRANSLATE_DUL:
-                consentDAO.updateConsentUpdateStatus(referenceId, false);
-                break;
-            case RP:
-                Election access = describeDataRequestElection(referenceId);
-                electionDAO.insertAccessRP(access.getElectionId(), id);
-                break;
-            case DATA_SET:
-                break;
+        if (electionType.equals(ElectionType.DATA_ACCESS)) {
+            mongo.unmarkUnReviewed(referenceId);
         }
         return electionDAO.findElectionWithFinalVoteById(id);
     }
@@ -250,6 +277,29 @@ public class DatabaseElectionAPI extends AbstractElectionAPI {
             electionDAO.deleteElectionById(rpElectionId);
         }
         electionDAO.deleteElectionById(id);
+        if (election.getElectionType().equals(ElectionType.DATA_ACCESS.getValue())) {
+            restoreUnReviewed(referenceId);
+        }
+    }
+
+    /**
+     * Marks the request as un-reviewed again once its last access election is gone. The mark is written before the
+     * request and its elections are read, and undone if it is still reviewed or was cancelled or deleted. A
+     * concurrent election, cancellation or deletion unmarks after its own write, so it can't leave the mark behind.
+     */
+    private void restoreUnReviewed(String referenceId) {
+        mongo.markUnReviewed(referenceId);
+        if (electionDAO.findLastElectionByReferenceIdAndType(referenceId, ElectionType.DATA_ACCESS.getValue()) != null
+                || isDataAccessRequestCanceled(referenceId)) {
+            mongo.unmarkUnReviewed(referenceId);
+        }
+    }
+
+    private boolean isDataAccessRequestCanceled(String referenceId) {
+        Document dar = mongo.getDataAccessRequestCollection().
+                find(new BasicDBObject(DarConstants.ID, new ObjectId(referenceId))).
+                projection(new BasicDBObject(DarConstants.STATUS, true)).first();
+        return dar == null || ElectionStatus.CANCELED.getValue().equals(dar.getString(DarConstants.STATUS));
     }
 
     @Override
@@ -286,6 +336,7 @@ public class DatabaseElectionAPI extends AbstractElectionAPI {
         Date sortDate = new Date();
         if(CollectionUtils.isNotEmpty(electionIds)){
             consentDAO.bulkUpdateConsentSortDate(consentIds, sortDate, sortDate);
+            consentCache.invalidateConsents(consentIds);
             electionDAO.bulkUpdateElectionLastUpdate(electionIds, sortDate);
         }
         return openElections(openElections);
@@ -493,7 +544,7 @@ public class DatabaseElectionAPI extends AbstractElectionAPI {
                 throw new NotFoundException();
             }
             List<DataSet> dataSets = verifyDisableDataSets(dar, referenceId);
-            Consent consent = consentDAO.findConsentFromDatasetID(dataSets.get(0).getDataSetId());
+            Consent consent = consentCache.findConsentByDataSetId(dataSets.get(0).getDataSetId());
             consentElection = electionDAO.findLastElectionByReferenceIdAndStatus(consent.getConsentId(), "Closed");
             if((consentElection == null)){
                 throw new IllegalArgumentException(DUL_NOT_APROVED);
@@ -573,7 +624,7 @@ public class DatabaseElectionAPI extends AbstractElectionAPI {
         switch (electionType) {
             case TRANSLATE_DUL:
                 election.setElectionType(ElectionType.TRANSLATE_DUL.getValue());
-                Consent consent = consentDAO.findConsentById(referenceId);
+                Consent consent = consentCache.findConsentById(referenceId);
                 election.setTranslatedUseRestriction(consent.getTranslatedUseRestriction());
                 election.setUseRestriction(consent.getUseRestriction());
                 election.setDataUseLetter(consent.getDataUseLetter());
@@ -652,7 +703,10 @@ public class DatabaseElectionAPI extends AbstractElectionAPI {
         }
     }
 
-    private void validateAvailableUsers(ElectionType electionType) {
+    /**
+     * @return The members enabled to vote, or null for elections that are not voted on by the DAC.
+     */
+    private Set<DACUser> validateAvailableUsers(ElectionType electionType) {
         if (!electionType.equals(ElectionType.DATA_SET)) {
             Set<DACUser> dacUsers = dacUserDAO.findDACUsersEnabledToVote();
             if (dacUsers == null || dacUsers.isEmpty()) {
@@ -664,12 +718,15 @@ public class DatabaseElectionAPI extends AbstractElectionAPI {
             if (!chairpersonExists) {
                 throw new IllegalArgumentException("There has to be a Chairperson.");
             }
+            return dacUsers;
         }
+        return null;
     }
 
     private void updateSortDate(String referenceId, Date createDate){
         if(consentDAO.checkConsentbyId(referenceId) != null){
             consentDAO.updateConsentSortDate(referenceId, createDate);
+            consentCache.invalidateConsent(referenceId);
         } else {
             BasicDBObject query = new BasicDBObject(DarConstants.ID, new ObjectId(referenceId));
             Document dar = mongo.getDataAccessRequestCollection().find(query).first();
@@ -711,7 +768,7 @@ public class DatabaseElectionAPI extends AbstractElectionAPI {
             dataSets.forEach(ds ->
                 datasetsDetail.add(new DatasetMailDTO(ds.getName(), DatasetUtil.parseAlias(ds.getAlias())))
             );
-            Consent consent = consentDAO.findConsentFromDatasetID(dataSets.get(0).getDataSetId());
+            Consent consent = consentCache.findConsentByDataSetId(dataSets.get(0).getDataSetId());
             emailNotifierAPI.sendResearcherDarApproved(dar.get(DarConstants.DAR_CODE, String.class),  dar.get(DarConstants.USER_ID, Integer.class), datasetsDetail, consent.getTranslatedUseRestriction());
         }
     }
@@ -1,7 +1,8 @@
 package org.broadinstitute.consent.http.service;
 
-import com.mongodb.BasicDBObject;
-import com.mongodb.client.FindIterable;
+import com.mongodb.Block;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 import org.apache.commons.collections.CollectionUtils;
 import org.broadinstitute.consent.http.db.*;
 import org.broadinstitute.consent.http.db.mongo.MongoConsentDB;
@@ -48,15 +49,18 @@ public class DatabaseElectionCaseAPI extends AbstractPendingCaseAPI {
     public List<PendingCase> describeConsentPendingCases(Integer dacUserId) throws NotFoundException {
         List<Election> elections = electionDAO.findElectionsWithFinalVoteByTypeAndStatus(ElectionType.TRANSLATE_DUL.getValue(), ElectionStatus.OPEN.getValue());
         List<PendingCase> pendingCases = new ArrayList<>();
-        if (elections != null) {
+        if (CollectionUtils.isNotEmpty(elections)) {
+            Map<Integer, List<Vote>> votesByElection = findVotesByElection(getElectionIds(elections));
+            Map<String, Consent> consents = findConsents(elections);
             for (Election election : elections) {
-                Vote vote = voteDAO.findVoteByElectionIdAndDACUserId(election.getElectionId(),
-                        dacUserId);
+                List<Vote> electionVotes = votesByElection.getOrDefault(election.getElectionId(), Collections.emptyList());
+                Vote vote = findVote(electionVotes, dacUserId, VoteType.DAC);
                 if (vote == null) {
                     continue;
                 }
                 PendingCase pendingCase = new PendingCase();
-                setGeneralFields(pendingCase, election, vote, vote.getIsReminderSent());
+                setGeneralFields(pendingCase, election, vote, vote.getIsReminderSent(), electionVotes);
+                setConsentFields(pendingCase, consents.get(election.getReferenceId()));
                 pendingCases.add(pendingCase);
             }
         }
@@ -77,19 +81,29 @@ public class DatabaseElectionCaseAPI extends AbstractPendingCaseAPI {
     public List<PendingCase> describeDataRequestPendingCases(Integer dacUserId) throws NotFoundException {
         List<Election> elections = isChairPerson(dacUserId)  ?  electionDAO.findElectionsByTypeAndFinalAccessVoteChairPerson(ElectionType.DATA_ACCESS.getValue(),false) : electionDAO.findElectionsWithFinalVoteByTypeAndStatus(ElectionType.DATA_ACCESS.getValue(), ElectionStatus.OPEN.getValue());
         List<PendingCase> pendingCases = new ArrayList<>();
-        if (elections != null) {
+        if (CollectionUtils.isNotEmpty(elections)) {
+            List<Integer> accessElectionIds = getElectionIds(elections);
+            Map<Integer, Integer> rpElectionIds = electionDAO.findAccessRPbyElectionAccessId(accessElectionIds).stream().
+                    collect(Collectors.toMap(AccessRP::getElectionAccessId, AccessRP::getElectionRPId, (first, second) -> first));
+            Map<Integer, Election> rpElections = rpElectionIds.isEmpty() ? Collections.emptyMap() :
+                    electionDAO.findElectionsByIds(new ArrayList<>(rpElectionIds.values())).stream().
+                            collect(Collectors.toMap(Election::getElectionId, e -> e));
+            List<Integer> electionIds = new ArrayList<>(accessElectionIds);
+            electionIds.addAll(rpElectionIds.values());
+            Map<Integer, List<Vote>> votesByElection = findVotesByElection(electionIds);
+            Map<String, Document> dataAccessRequests = findDataAccessRequests(elections);
             for (Election election : elections) {
-                Vote accessVote = voteDAO.findVoteByElectionIdAndDACUserId(election.getElectionId(),
-                        dacUserId);
+                List<Vote> electionVotes = votesByElection.getOrDefault(election.getElectionId(), Collections.emptyList());
+                Vote accessVote = findVote(electionVotes, dacUserId, VoteType.DAC);
                 if (accessVote == null) {
                     continue;
                 }
-                Integer rpElectionId = electionDAO.findRPElectionByElectionAccessId(election.getElectionId());
+                Integer rpElectionId = rpElectionIds.get(election.getElectionId());
                 PendingCase pendingCase = new PendingCase();
                 Boolean isReminderSent;
                 if(Objects.nonNull(rpElectionId)) {
-                    Election rpElection = electionDAO.findElectionWithFinalVoteById(rpElectionId);
-                    Vote rpVote = voteDAO.findVoteByElectionIdAndDACUserId(rpElectionId, dacUserId);
+                    Election rpElection = rpElections.get(rpElectionId);
+                    Vote rpVote = findVote(votesByElection.getOrDefault(rpElectionId, Collections.emptyList()), dacUserId, VoteType.DAC);
                     isReminderSent = (accessVote.getIsReminderSent() || rpVote.getIsReminderSent()) ? true : false;
                     pendingCase.setRpElectionId(rpElectionId);
                     pendingCase.setAlreadyVoted(accessVote.getVote() != null && rpVote.getVote() != null);
@@ -103,8 +117,9 @@ public class DatabaseElectionCaseAPI extends AbstractPendingCaseAPI {
                     pendingCase.setElectionStatus(election.getStatus().equals(ElectionStatus.FINAL.getValue()) ? ElectionStatus.FINAL.getValue() : ElectionStatus.OPEN.getValue());                 // if it's already voted, we should collect vote or do the final election vote
                     pendingCase.setStatus(accessVote.getVote() == null ? VoteStatus.PENDING.getValue() : VoteStatus.EDITABLE.getValue());
                 }
-                setGeneralFields(pendingCase, election, accessVote, isReminderSent);
-                setFinalVote(dacUserId, election, pendingCase);
+                setGeneralFields(pendingCase, election, accessVote, isReminderSent, electionVotes);
+                setDataAccessRequestFields(pendingCase, dataAccessRequests.get(election.getReferenceId()));
+                setFinalVote(dacUserId, electionVotes, pendingCase);
                 pendingCases.add(pendingCase);
             }
         }
@@ -115,36 +130,85 @@ public class DatabaseElectionCaseAPI extends AbstractPendingCaseAPI {
     public List<DataOwnerCase> describeDataOwnerPendingCases(Integer dataOwnerId) {
         List<Election> elections = electionDAO.getElectionByTypeAndStatus(ElectionType.DATA_SET.getValue(), ElectionStatus.OPEN.getValue());
         List<DataOwnerCase> pendingCases = new ArrayList<>();
-        if (elections != null) {
-            for (Election election : elections) {
-                DataOwnerCase dataOwnerCase = new DataOwnerCase();
-                List<Vote> dataOwnerVotes = voteDAO.findVotesByElectionIdAndType(election.getElectionId(), dataOwnerId, VoteType.DATA_OWNER.getValue());
-                if(CollectionUtils.isNotEmpty(dataOwnerVotes)){
-                    dataOwnerVotes.stream().forEach(v -> {
-                        BasicDBObject query = new BasicDBObject().append(DarConstants.ID, new ObjectId(election.getReferenceId()));
-                        FindIterable<Document> dataAccessRequest = mongo.getDataAccessRequestCollection().find(query);
-                        DataSet dataSet = dataSetDAO.findDataSetById(election.getDataSetId());
-                        dataOwnerCase.setAlias(dataSet.getAlias());
-                        dataOwnerCase.setDarCode(dataAccessRequest != null ?  dataAccessRequest.first().get(DarConstants.DAR_CODE).toString() : null);
-                        dataOwnerCase.setDataSetId(dataSet.getDataSetId());
-                        dataOwnerCase.setDataSetName(dataSet.getName());
-                        dataOwnerCase.setVoteId(v.getVoteId());
-                        dataOwnerCase.setAlreadyVoted(v.getVote() != null);
-                        dataOwnerCase.setReferenceId(election.getReferenceId());
-                        dataOwnerCase.setHasConcerns(v.getHasConcerns());
-                        pendingCases.add(dataOwnerCase);
-                    });
-                }
+        if (CollectionUtils.isNotEmpty(elections)) {
+            List<Vote> dataOwnerVotes = voteDAO.findVotesByElectionIdAndTypeAndUser(getElectionIds(elections), VoteType.DATA_OWNER.getValue(), dataOwnerId);
+            if (CollectionUtils.isEmpty(dataOwnerVotes)) {
+                return pendingCases;
+            }
+            Map<Integer, List<Vote>> votesByElection = dataOwnerVotes.stream().collect(Collectors.groupingBy(Vote::getElectionId));
+            List<Election> votedElections = elections.stream().
+                    filter(e -> votesByElection.containsKey(e.getElectionId())).
+                    collect(Collectors.toList());
+            Map<String, Document> dataAccessRequests = findDataAccessRequests(votedElections);
+            Map<Integer, DataSet> dataSets = dataSetDAO.searchDataSetsByIds(votedElections.stream().
+                    map(Election::getDataSetId).distinct().collect(Collectors.toList())).stream().
+                    collect(Collectors.toMap(DataSet::getDataSetId, d -> d));
+            for (Election election : votedElections) {
+                Document dataAccessRequest = dataAccessRequests.get(election.getReferenceId());
+                DataSet dataSet = dataSets.get(election.getDataSetId());
+                votesByElection.get(election.getElectionId()).forEach(v -> {
+                    DataOwnerCase dataOwnerCase = new DataOwnerCase();
+                    dataOwnerCase.setAlias(dataSet.getAlias());
+                    dataOwnerCase.setDarCode(dataAccessRequest != null ? dataAccessRequest.get(DarConstants.DAR_CODE).toString() : null);
+                    dataOwnerCase.setDataSetId(dataSet.getDataSetId());
+                    dataOwnerCase.setDataSetName(dataSet.getName());
+                    dataOwnerCase.setVoteId(v.getVoteId());
+                    dataOwnerCase.setAlreadyVoted(v.getVote() != null);
+                    dataOwnerCase.setReferenceId(election.getReferenceId());
+                    dataOwnerCase.setHasConcerns(v.getHasConcerns());
+                    pendingCases.add(dataOwnerCase);
+                });
             }
         }
         return pendingCases;
     }
 
+    private List<Integer> getElectionIds(List<Election> elections) {
+        return elections.stream().map(Election::getElectionId).collect(Collectors.toList());
+    }
+
+    /**
+     * Loads the votes of all the given elections in one query.
+     */
+    private Map<Integer, List<Vote>> findVotesByElection(List<Integer> electionIds) {
+        return voteDAO.findVotesByElectionIds(electionIds).stream().collect(Collectors.groupingBy(Vote::getElectionId));
+    }
+
+    private Vote findVote(List<Vote> electionVotes, Integer dacUserId, VoteType type) {
+        return electionVotes.stream().
+                filter(v -> dacUserId.equals(v.getDacUserId()) && type.getValue().equals(v.getType())).
+                findFirst().orElse(null);
+    }
+
+    /**
+     * Loads the code and title of the requests the elections refer to with a single Mongo query, keyed by request id.
+     */
+    private Map<String, Document> findDataAccessRequests(List<Election> elections) {
+        List<ObjectId> ids = elections.stream().
+                map(Election::getReferenceId).
+                filter(ObjectId::isValid).
+                distinct().
+                map(ObjectId::new).
+                collect(Collectors.toList());
+        Map<String, Document> dataAccessRequests = new HashMap<>();
+        if (!ids.isEmpty()) {
+            mongo.getDataAccessRequestCollection().
+                    find(Filters.in(DarConstants.ID, ids)).
+                    projection(Projections.include(DarConstants.DAR_CODE, DarConstants.PROJECT_TITLE)).
+                    forEach((Block<Document>) dar -> dataAccessRequests.put(dar.get(DarConstants.ID).toString(), dar));
+        }
+        return dataAccessRequests;
+    }
+
+    private Map<String, Consent> findConsents(List<Election> elections) {
+        List<String> consentIds = elections.stream().map(Election::getReferenceId).distinct().collect(Collectors.toList());
+        return consentDAO.findConsentsFromConsentsIDs(consentIds).stream().
+                collect(Collectors.toMap(Consent::getConsentId, c -> c));
+    }
 
-    private void setFinalVote(Integer dacUserId, Election election, PendingCase pendingCase) {
+    private void setFinalVote(Integer dacUserId, List<Vote> electionVotes, PendingCase pendingCase) {
         if (pendingCase.getAlreadyVoted()) {
-            Vote chairPersonVote = voteDAO.findChairPersonVoteByElectionIdAndDACUserId(
-                    election.getElectionId(), dacUserId);
+            Vote chairPersonVote = findVote(electionVotes, dacUserId, VoteType.FINAL);
             if (chairPersonVote != null) {
                 pendingCase.setIsFinalVote(chairPersonVote.getVote() != null);
             }
@@ -153,23 +217,24 @@ public class DatabaseElectionCaseAPI extends AbstractPendingCaseAPI {
         }
     }
 
-    private PendingCase setGeneralFields(PendingCase pendingCase , Election election, Vote vote, boolean isReminderSent) {
-        List<Vote> votes = voteDAO.findDACVotesByElectionId(election.getElectionId());
-        List<Vote> pendingVotes = voteDAO.findPendingVotesByElectionId(election.getElectionId());
+    private void setDataAccessRequestFields(PendingCase pendingCase, Document dataAccessRequest) {
+        if (dataAccessRequest != null) {
+            pendingCase.setFrontEndId(dataAccessRequest.get(DarConstants.DAR_CODE).toString());
+            pendingCase.setProjectTitle(dataAccessRequest.get(DarConstants.PROJECT_TITLE).toString());
+        }
+    }
+
+    private void setConsentFields(PendingCase pendingCase, Consent consent) {
+        pendingCase.setFrontEndId(consent.getName());
+        pendingCase.setConsentGroupName(consent.getGroupName());
+    }
+
+    private PendingCase setGeneralFields(PendingCase pendingCase , Election election, Vote vote, boolean isReminderSent, List<Vote> electionVotes) {
+        List<Vote> votes = electionVotes.stream().filter(v -> VoteType.DAC.getValue().equals(v.getType())).collect(Collectors.toList());
+        long pendingVotes = votes.stream().filter(v -> v.getVote() == null).count();
         pendingCase.setTotalVotes(votes.size());
-        pendingCase.setVotesLogged(votes.size() - pendingVotes.size());
+        pendingCase.setVotesLogged(votes.size() - (int) pendingVotes);
         pendingCase.setReferenceId(election.getReferenceId());
-        if (election.getElectionType().equals(ElectionType.DATA_ACCESS.getValue())) {
-            BasicDBObject query = new BasicDBObject().append(DarConstants.ID, new ObjectId(election.getReferenceId()));
-            FindIterable<Document> dataAccessRequest = mongo.getDataAccessRequestCollection().find(query);
-            if(dataAccessRequest.first() != null) {
-                pendingCase.setFrontEndId(dataAccessRequest.first().get(DarConstants.DAR_CODE).toString());
-                pendingCase.setProjectTitle(dataAccessRequest.first().get(DarConstants.PROJECT_TITLE).toString());
-            }
-        }else{
-             pendingCase.setFrontEndId(consentDAO.findConsentById(election.getReferenceId()).getName());
-             pendingCase.setConsentGroupName(consentDAO.findConsentById(election.getReferenceId()).getGroupName());
-        }
         pendingCase.setLogged(setLogged(pendingCase.getTotalVotes(), pendingCase.getVotesLogged()));
         pendingCase.setAlreadyVoted(pendingCase.getAlreadyVoted() == null ? vote.getVote() != null : pendingCase.getAlreadyVoted());
         pendingCase.setStatus(vote.getVote() == null ? VoteStatus.PENDING.getValue() : VoteStatus.EDITABLE.getValue());
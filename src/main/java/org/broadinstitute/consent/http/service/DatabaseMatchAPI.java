@@ -56,6 +56,31 @@ public class DatabaseMatchAPI extends AbstractMatchAPI {
         }
     }
 
+    @Override
+    public void deleteMatchesForConsent(String consentId) {
+        matchDAO.deleteMatchesByConsentId(consentId);
+    }
+
+    @Override
+    public void deleteMatchesForPurpose(String purposeId) {
+        matchDAO.deleteMatchesByPurposeId(purposeId);
+    }
+
+    @Override
+    public void replaceMatchesForConsent(String consentId, List<Match> matches) {
+        matchDAO.begin();
+        try {
+            matchDAO.deleteMatchesByConsentId(consentId);
+            if (CollectionUtils.isNotEmpty(matches)) {
+                matchDAO.insertAll(matches);
+            }
+            matchDAO.commit();
+        } catch (Exception e) {
+            matchDAO.rollback();
+            throw e;
+        }
+    }
+
     @Override
     public Match update(Match match, Integer id) {
         validateConsent(match.getConsent());
@@ -2,7 +2,7 @@ package org.broadinstitute.consent.http.service;
 
 
 import com.mongodb.BasicDBObject;
-import org.apache.commons.collections.CollectionUtils;
+import org.apache.log4j.Logger;
 import org.broadinstitute.consent.http.db.ConsentDAO;
 import org.broadinstitute.consent.http.db.mongo.MongoConsentDB;
 import org.broadinstitute.consent.http.models.Match;
@@ -10,7 +10,6 @@ import org.broadinstitute.consent.http.util.DarConstants;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -20,6 +19,7 @@ public class DatabaseMatchProcessAPI extends AbstractMatchProcessAPI {
     private MatchingServiceAPI matchingServiceAPI;
     private ConsentDAO consentDAO;
     private MongoConsentDB mongo;
+    private Logger logger = Logger.getLogger("DatabaseMatchProcessAPI");
 
     public static void initInstance(ConsentDAO consentDAO, MongoConsentDB mongo) {
         MatchProcessAPIHolder.setInstance(new DatabaseMatchProcessAPI(consentDAO, mongo));
@@ -32,13 +32,22 @@ public class DatabaseMatchProcessAPI extends AbstractMatchProcessAPI {
         this.mongo = mongo;
     }
 
+    /**
+     * Existing matches stay in place while the new ones are computed, and are then swapped out in one transaction.
+     */
     @Override
     public void processMatchesForConsent(String consentId) {
-        removeMatchesForConsent(consentId);
-        if (!consentDAO.checkManualReview(consentId)) {
-            List<Match> matches = matchingServiceAPI.findMatchesForConsent(consentId);
-            saveMatch(matches);
+        long start = System.currentTimeMillis();
+        if (consentDAO.checkManualReview(consentId)) {
+            matchAPI.deleteMatchesForConsent(consentId);
+            return;
         }
+        List<Match> matches = matchingServiceAPI.findMatchesForConsent(consentId);
+        long evaluated = System.currentTimeMillis();
+        matchAPI.replaceMatchesForConsent(consentId, matches);
+        long saved = System.currentTimeMillis();
+        logger.info(String.format("Processed %d matches for consent %s: evaluate %d ms, save %d ms, total %d ms",
+                matches.size(), consentId, evaluated - start, saved - evaluated, saved - start));
     }
 
     @Override
@@ -55,19 +64,12 @@ public class DatabaseMatchProcessAPI extends AbstractMatchProcessAPI {
 
     @Override
     public void removeMatchesForPurpose(String purposeId) {
-        List<Match> matches = matchAPI.findMatchByPurposeId(purposeId);
-        if (CollectionUtils.isNotEmpty(matches)) {
-            matchAPI.deleteMatches(getIds(matches));
-        }
+        matchAPI.deleteMatchesForPurpose(purposeId);
     }
 
     @Override
     public void removeMatchesForConsent(String consentId) {
-        List<Match> matches = matchAPI.findMatchByConsentId(consentId);
-        if (CollectionUtils.isNotEmpty(matches)) {
-            matchAPI.deleteMatches(getIds(matches));
-        }
-
+        matchAPI.deleteMatchesForConsent(consentId);
     }
 
 
@@ -75,10 +77,4 @@ public class DatabaseMatchProcessAPI extends AbstractMatchProcessAPI {
         matchAPI.createMatches(matches);
     }
 
-    private List<Integer> getIds(List<Match> matches) {
-        List<Integer> ids = new ArrayList<>();
-        matches.stream().forEach((match) -> ids.add(match.getId()));
-        return ids;
-    }
-
 }
@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.log4j.Logger;
 import org.broadinstitute.consent.http.configurations.ServicesConfiguration;
+import org.broadinstitute.consent.http.enumeration.MatchMode;
 import org.broadinstitute.consent.http.models.Consent;
 import org.broadinstitute.consent.http.models.DataSet;
 import org.broadinstitute.consent.http.models.Match;
@@ -23,8 +24,13 @@ import javax.ws.rs.core.Response;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 public class DatabaseMatchingServiceAPI extends AbstractMatchingServiceAPI {
@@ -33,17 +39,27 @@ public class DatabaseMatchingServiceAPI extends AbstractMatchingServiceAPI {
     private DataAccessRequestAPI dataAccessAPI;
     private DataSetAPI dsAPI;
     private WebTarget matchServiceTarget;
+    private UseRestrictionMatcher localMatcher;
+    private MatchMode matchMode;
+    private ExecutorService matchExecutor;
     private GenericType<ResponseMatchingObject> rmo = new GenericType<ResponseMatchingObject>(){};
     private Logger logger = Logger.getLogger("DatabaseMatchingServiceAPI");
 
-    public static void initInstance(Client client, ServicesConfiguration config) {
-        MatchAPIHolder.setInstance(new DatabaseMatchingServiceAPI(client, config, AbstractConsentAPI.getInstance(), AbstractDataAccessRequestAPI.getInstance(), AbstractDataSetAPI.getInstance()));
+    public static void initInstance(Client client, ServicesConfiguration config, UseRestrictionMatcher localMatcher, ExecutorService matchExecutor) {
+        MatchAPIHolder.setInstance(new DatabaseMatchingServiceAPI(client, config, AbstractConsentAPI.getInstance(), AbstractDataAccessRequestAPI.getInstance(), AbstractDataSetAPI.getInstance(), localMatcher, MatchMode.getMatchMode(config.getMatchMode()), matchExecutor));
     }
 
-    DatabaseMatchingServiceAPI(Client client, ServicesConfiguration config, ConsentAPI consentAPI, DataAccessRequestAPI darAPI, DataSetAPI dsAPI){
+    DatabaseMatchingServiceAPI(Client client, ServicesConfiguration config, ConsentAPI consentAPI, DataAccessRequestAPI darAPI, DataSetAPI dsAPI, ExecutorService matchExecutor){
+        this(client, config, consentAPI, darAPI, dsAPI, null, MatchMode.REMOTE, matchExecutor);
+    }
+
+    DatabaseMatchingServiceAPI(Client client, ServicesConfiguration config, ConsentAPI consentAPI, DataAccessRequestAPI darAPI, DataSetAPI dsAPI, UseRestrictionMatcher localMatcher, MatchMode matchMode, ExecutorService matchExecutor){
         this.dataAccessAPI = darAPI;
         this.consentAPI = consentAPI;
         this.dsAPI = dsAPI;
+        this.localMatcher = localMatcher;
+        this.matchMode = (localMatcher == null || matchMode == null) ? MatchMode.REMOTE : matchMode;
+        this.matchExecutor = matchExecutor;
         Integer timeout = 1000 * 60 * 3; // 3 minute timeout so ontology can properly do matching.
         client.property(ClientProperties.CONNECT_TIMEOUT, timeout);
         client.property(ClientProperties.READ_TIMEOUT, timeout);
@@ -82,29 +98,57 @@ public class DatabaseMatchingServiceAPI extends AbstractMatchingServiceAPI {
         return match;
     }
 
+    /**
+     * Data access requests are evaluated concurrently on a bounded pool. Results keep the order of the requests.
+     */
     @Override
     public List<Match> findMatchesForConsent(String consentId) {
         List<Match> matches = new ArrayList<>();
+        long start = System.currentTimeMillis();
         Consent consent = findConsent(consentId);
         List<DataSet> dataSets = dsAPI.getDataSetsForConsent(consentId);
         List<Document> dars = findRelatedDars(dataSets.stream().map(DataSet::getDataSetId).collect(Collectors.toList()));
+        long loaded = System.currentTimeMillis();
         if (consent != null && !dars.isEmpty()) {
-            Match match;
+            List<Future<Match>> futures = new ArrayList<>();
             for (Document dar : dars) {
-                try {
-                    match = singleEntitiesMatch(consent, dar);
-                    if(match != null){
-                        matches.add(match);
+                futures.add(matchExecutor.submit(() -> {
+                    try {
+                        return singleEntitiesMatch(consent, dar);
+                    } catch (Exception e) {
+                        logger.error("Error finding  matches for consent.", e);
+                        return createMatch(consentId, dar.get(DarConstants.ID).toString(), true, false);
                     }
-                } catch (Exception e) {
-                    logger.error("Error finding  matches for consent.", e);
-                    matches.add(createMatch(consentId, dar.get(DarConstants.ID).toString(), true, false));
+                }));
+            }
+            int progressStep = Math.max(1, futures.size() / 10);
+            for (int i = 0; i < futures.size(); i++) {
+                Match match = awaitMatch(futures.get(i), consentId, dars.get(i));
+                if (match != null) {
+                    matches.add(match);
+                }
+                if ((i + 1) % progressStep == 0) {
+                    logger.debug(String.format("Consent %s: evaluated %d of %d data access requests", consentId, i + 1, futures.size()));
                 }
             }
         }
+        logger.info(String.format("Consent %s: loaded %d data access requests in %d ms, evaluated in %d ms",
+                consentId, dars.size(), loaded - start, System.currentTimeMillis() - loaded));
         return matches;
     }
 
+    private Match awaitMatch(Future<Match> future, String consentId, Document dar) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+        } catch (ExecutionException e) {
+            logger.error("Error finding  matches for consent.", e);
+        }
+        return createMatch(consentId, dar.get(DarConstants.ID).toString(), true, false);
+    }
+
     private Match singleEntitiesMatch(Consent consent, Document dar) throws Exception {
         if (consent == null) {
             logger.error("Consent is null");
@@ -120,15 +164,34 @@ public class DatabaseMatchingServiceAPI extends AbstractMatchingServiceAPI {
         }
         Match match = createMatch(consent.getConsentId(), dar.get(DarConstants.ID).toString(), false, false);
         RequestMatchingObject requestObject = createRequestObject(consent, dar);
+        match.setMatch(evaluate(requestObject, dar.getString(DarConstants.DAR_CODE)));
+        return match;
+    }
+
+    private boolean evaluate(RequestMatchingObject requestObject, String darCode) {
+        switch (matchMode) {
+            case LOCAL:
+                Optional<Boolean> localResult = localMatcher.match(requestObject.getConsent(), requestObject.getPurpose());
+                return localResult.orElseGet(() -> remoteMatch(requestObject));
+            case CROSS_CHECK:
+                boolean remoteResult = remoteMatch(requestObject);
+                localMatcher.match(requestObject.getConsent(), requestObject.getPurpose()).
+                        filter(result -> !Objects.equals(result, remoteResult)).
+                        ifPresent(result -> logger.warn("Local match result (" + result + ") differs from ontology service result (" + remoteResult + ") for Data Access Request: " + darCode));
+                return remoteResult;
+            default:
+                return remoteMatch(requestObject);
+        }
+    }
+
+    private boolean remoteMatch(RequestMatchingObject requestObject) {
         String json = new Gson().toJson(requestObject);
         Response res = matchServiceTarget.request(MediaType.APPLICATION_JSON).post(Entity.json(json));
         if (res.getStatus() == Response.Status.OK.getStatusCode()) {
             ResponseMatchingObject entity = res.readEntity(rmo);
-            if (entity.isResult()) {
-                match.setMatch(true);
-            }
+            return entity.isResult();
         }
-        return match;
+        return false;
     }
 
     private Match createMatch(String consentId, String purposeId, boolean failed, boolean isMatch) {
@@ -3,7 +3,6 @@ package org.broadinstitute.consent.http.service;
 import com.mongodb.BasicDBObject;
 import com.mongodb.Block;
 import com.mongodb.client.FindIterable;
-import com.mongodb.client.MongoCursor;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
@@ -33,20 +32,28 @@ import org.broadinstitute.consent.http.util.DatasetUtil;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.broadinstitute.consent.http.resources.Resource.CHAIRPERSON;
 
@@ -66,6 +73,7 @@ public class DatabaseSummaryAPI extends AbstractSummaryAPI {
     private static final String TEXT_DELIMITER = "\"";
     private static final String END_OF_LINE = System.lineSeparator();
     private static final String MANUAL_REVIEW = "Manual Review";
+    static final int SUMMARY_PAGE_SIZE = 500;
     private static final Logger logger = Logger.getLogger(DatabaseSummaryAPI.class.getName());
 
 
@@ -182,189 +190,239 @@ public class DatabaseSummaryAPI extends AbstractSummaryAPI {
     }
 
     @Override
-    public File describeConsentSummaryDetail() {
-        File file = null;
-        try {
-            file = File.createTempFile("summary", ".txt");
-            try (FileWriter summaryWriter = new FileWriter(file)) {
-                List<String> electionStatus = new ArrayList<>(Arrays.asList(ElectionStatus.CLOSED.getValue(), ElectionStatus.CANCELED.getValue()));
-                List<Election> reviewedElections = electionDAO.findElectionsWithFinalVoteByTypeAndStatus(ElectionType.TRANSLATE_DUL.getValue(), electionStatus);
-                if (!CollectionUtils.isEmpty(reviewedElections)) {
-                    List<String> consentIds = reviewedElections.stream().map(e -> e.getReferenceId()).collect(Collectors.toList());
-                    List<Integer> electionIds = reviewedElections.stream().map(e -> e.getElectionId()).collect(Collectors.toList());
-                    Integer maxNumberOfDACMembers = voteDAO.findMaxNumberOfDACMembers(electionIds);
-                    setSummaryHeader(summaryWriter, maxNumberOfDACMembers);
-                    Collection<Consent> consents = consentDAO.findConsentsFromConsentsIDs(consentIds);
-                    List<Vote> votes = voteDAO.findVotesByElectionIds(electionIds);
-                    Collection<Integer> dacUserIds = votes.stream().map(v -> v.getDacUserId()).collect(Collectors.toSet());
-                    Collection<DACUser> dacUsers = dacUserDAO.findUsers(dacUserIds);
-                    for (Election election : reviewedElections) {
-                        Consent electionConsent = consents.stream().filter(c -> c.getConsentId().equals(election.getReferenceId())).collect(singletonCollector());
-                        List<Vote> electionVotes = votes.stream().filter(ev -> ev.getElectionId().equals(election.getElectionId())).collect(Collectors.toList());
-                        List<Integer> electionVotesUserIds = electionVotes.stream().map(e -> e.getDacUserId()).collect(Collectors.toList());
-                        Collection<DACUser> electionDacUsers = dacUsers.stream().filter(du -> electionVotesUserIds.contains(du.getDacUserId())).collect(Collectors.toSet());
-                        List<Vote> electionDACVotes = electionVotes.stream().filter(ev -> ev.getType().equals("DAC")).collect(Collectors.toList());
-                        Vote chairPersonVote =  electionVotes.stream().filter(ev -> ev.getType().equals(CHAIRPERSON)).collect(singletonCollector());
-                        DACUser chairPerson =  dacUsers.stream().filter(du -> du.getDacUserId().equals(chairPersonVote.getDacUserId())).collect(singletonCollector());
-                        summaryWriter.write(delimiterCheck(electionConsent.getName()) + SEPARATOR);
-                        summaryWriter.write(election.getVersion() + SEPARATOR);
-                        summaryWriter.write(election.getStatus() + SEPARATOR);
-                        summaryWriter.write(booleanToString(election.getArchived()) + SEPARATOR);
-                        summaryWriter.write(delimiterCheck(electionConsent.getTranslatedUseRestriction())+ SEPARATOR);
-                        summaryWriter.write(formatTimeToDate(electionConsent.getCreateDate().getTime()) + SEPARATOR);
-                        summaryWriter.write( chairPerson.getDisplayName() + SEPARATOR);
-                        summaryWriter.write( booleanToString(chairPersonVote.getVote()) + SEPARATOR);
-                        summaryWriter.write( nullToString(chairPersonVote.getRationale()) + SEPARATOR);
-                        if (electionDACVotes != null && electionDACVotes.size() > 0) {
-                            for (Vote vote : electionDACVotes) {
-                                List<DACUser> dacUser = electionDacUsers.stream().filter(du -> du.getDacUserId().equals(vote.getDacUserId())).collect(Collectors.toList());
-                                summaryWriter.write( dacUser.get(0).getDisplayName() + SEPARATOR);
-                                summaryWriter.write( booleanToString(vote.getVote()) + SEPARATOR);
-                                summaryWriter.write( nullToString(vote.getRationale())+ SEPARATOR);
-                            }
-                            for (int i = 0; i < (maxNumberOfDACMembers - electionVotes.size()); i++) {
-                                summaryWriter.write(
-                                        SEPARATOR);
-                            }
-                        }
-                        summaryWriter.write(END_OF_LINE);
-                    }
-                }else file = null;
-                summaryWriter.flush();
+    public StreamingOutput describeConsentSummaryDetail() {
+        String type = ElectionType.TRANSLATE_DUL.getValue();
+        List<String> electionStatus = Arrays.asList(ElectionStatus.CLOSED.getValue(), ElectionStatus.CANCELED.getValue());
+        List<Election> firstPage = findReviewedElectionsPage(type, electionStatus, 0);
+        if (CollectionUtils.isEmpty(firstPage)) {
+            return null;
+        }
+        Integer maxNumberOfDACMembers = zeroIfNull(voteDAO.findMaxNumberOfDACMembersByElectionTypeAndStatus(type, electionStatus));
+        return output -> {
+            Writer summaryWriter = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            try {
+                setSummaryHeader(summaryWriter, maxNumberOfDACMembers);
+                writeElectionPages(summaryWriter, type, electionStatus, firstPage,
+                        (writer, page) -> writeConsentSummaryPage(writer, page, maxNumberOfDACMembers));
+            } catch (IOException | RuntimeException e) {
+                logger.error("There is an error trying to stream statistics file, error: " + e.getMessage());
+                throw e;
             }
-            return file;
-        } catch (Exception ignored) {
-            logger.error("There is an error trying to create statistics file, error: "+ ignored.getMessage());
+        };
+    }
+
+    private void writeConsentSummaryPage(Writer summaryWriter, List<Election> reviewedElections, Integer maxNumberOfDACMembers) throws IOException {
+        List<String> consentIds = reviewedElections.stream().map(Election::getReferenceId).collect(Collectors.toList());
+        List<Integer> electionIds = reviewedElections.stream().map(Election::getElectionId).collect(Collectors.toList());
+        Map<String, Consent> consents = consentDAO.findConsentsFromConsentsIDs(consentIds).stream().
+                collect(Collectors.toMap(Consent::getConsentId, Function.identity(), (a, b) -> a));
+        Map<Integer, List<Vote>> votesByElection = voteDAO.findVotesByElectionIds(electionIds).stream().
+                collect(Collectors.groupingBy(Vote::getElectionId));
+        Map<Integer, DACUser> dacUsers = findUsersById(votesByElection.values().stream().flatMap(List::stream));
+        for (Election election : reviewedElections) {
+            Consent electionConsent = consents.get(election.getReferenceId());
+            List<Vote> electionVotes = votesByElection.getOrDefault(election.getElectionId(), Collections.emptyList());
+            List<Vote> electionDACVotes = electionVotes.stream().filter(ev -> ev.getType().equals("DAC")).collect(Collectors.toList());
+            Vote chairPersonVote =  electionVotes.stream().filter(ev -> ev.getType().equals(CHAIRPERSON)).collect(singletonCollector());
+            DACUser chairPerson = dacUsers.get(chairPersonVote.getDacUserId());
+            summaryWriter.write(delimiterCheck(electionConsent.getName()) + SEPARATOR);
+            summaryWriter.write(election.getVersion() + SEPARATOR);
+            summaryWriter.write(election.getStatus() + SEPARATOR);
+            summaryWriter.write(booleanToString(election.getArchived()) + SEPARATOR);
+            summaryWriter.write(delimiterCheck(electionConsent.getTranslatedUseRestriction())+ SEPARATOR);
+            summaryWriter.write(formatTimeToDate(electionConsent.getCreateDate().getTime()) + SEPARATOR);
+            summaryWriter.write( chairPerson.getDisplayName() + SEPARATOR);
+            summaryWriter.write( booleanToString(chairPersonVote.getVote()) + SEPARATOR);
+            summaryWriter.write( nullToString(chairPersonVote.getRationale()) + SEPARATOR);
+            if (electionDACVotes.size() > 0) {
+                for (Vote vote : electionDACVotes) {
+                    summaryWriter.write( dacUsers.get(vote.getDacUserId()).getDisplayName() + SEPARATOR);
+                    summaryWriter.write( booleanToString(vote.getVote()) + SEPARATOR);
+                    summaryWriter.write( nullToString(vote.getRationale())+ SEPARATOR);
+                }
+                for (int i = 0; i < (maxNumberOfDACMembers - electionVotes.size()); i++) {
+                    summaryWriter.write(
+                            SEPARATOR);
+                }
+            }
+            summaryWriter.write(END_OF_LINE);
         }
-        return file;
     }
 
     @Override
-    public File describeDataAccessRequestSummaryDetail() {
-        File file = null;
-        try {
-            file = File.createTempFile("DAR_summary", ".txt");
-            try (FileWriter summaryWriter = new FileWriter(file)) {
-                List<Election> reviewedElections = electionDAO.findElectionsWithFinalVoteByTypeAndStatus(ElectionType.DATA_ACCESS.getValue(), ElectionStatus.CLOSED.getValue());
-                List<Election> reviewedRPElections = electionDAO.findElectionsWithFinalVoteByTypeAndStatus(ElectionType.RP.getValue(), ElectionStatus.CLOSED.getValue());
-                if (!CollectionUtils.isEmpty(reviewedElections)) {
-                    List<String> darIds = reviewedElections.stream().map(e -> e.getReferenceId()).collect(Collectors.toList());
-                    FindIterable<Document> dataAccessRequests = findDataAccessRequests(darIds);
-                    HashSet<Integer> datasetIds = new HashSet<>();
-                    dataAccessRequests.forEach((Block<Document>) dar -> {
-                        List<Integer> ids = DarUtil.getIntegerList(dar, DarConstants.DATASET_ID);
-                        datasetIds.addAll(ids);
-                    });
-                    List<Association> associations = datasetDAO.getAssociationsForDataSetIdList(new ArrayList<>(datasetIds));
-                    List<String> associatedConsentIds =   associations.stream().map(a -> a.getConsentId()).collect(Collectors.toList());
-                    List<Election> reviewedConsentElections = electionDAO.findLastElectionsWithFinalVoteByReferenceIdsTypeAndStatus(associatedConsentIds, ElectionStatus.CLOSED.getValue());
-                    List<Integer> darElectionIds = reviewedElections.stream().map(e -> e.getElectionId()).collect(Collectors.toList());
-                    List<Integer> consentElectionIds = reviewedConsentElections.stream().map(e -> e.getElectionId()).collect(Collectors.toList());
-                    List<AccessRP> accessRPList = electionDAO.findAccessRPbyElectionAccessId(darElectionIds);
-                    List<Vote> votes = voteDAO.findVotesByElectionIds(darElectionIds);
-                    List<Integer> rpElectionIds = reviewedRPElections.stream().map(e -> e.getElectionId()).collect(Collectors.toList());
-                    List<Vote> rpVotes;
-                    if (CollectionUtils.isNotEmpty(rpElectionIds)){
-                        rpVotes =  voteDAO.findVotesByElectionIds(rpElectionIds);
-                    } else rpVotes = null;
-                    List<Vote> consentVotes = voteDAO.findVotesByElectionIds(consentElectionIds);
-                    List<Match> matchList = matchDAO.findMatchesPurposeId(darIds);
-                    Collection<Integer> dacUserIds = votes.stream().map(v -> v.getDacUserId()).collect(Collectors.toSet());
-                    Collection<DACUser> dacUsers = dacUserDAO.findUsers(dacUserIds);
-                    Integer maxNumberOfDACMembers = voteDAO.findMaxNumberOfDACMembers(darElectionIds);
-                    setSummaryHeaderDataAccessRequest(summaryWriter, maxNumberOfDACMembers);
-                    for (Election election : reviewedElections) {
-
-                        List<Vote> electionVotes = votes.stream().filter(ev -> ev.getElectionId().equals(election.getElectionId())).collect(Collectors.toList());
-                        List<Integer> electionVotesUserIds = electionVotes.stream().filter(v -> v.getType().equals("DAC")).map(e -> e.getDacUserId()).collect(Collectors.toList());
-                        Collection<DACUser> electionDacUsers = dacUsers.stream().filter(du -> electionVotesUserIds.contains(du.getDacUserId())).collect(Collectors.toSet());
-
-                        Vote finalVote =  electionVotes.stream().filter(v -> v.getType().equals(VoteType.FINAL.getValue())).collect(singletonCollector());
-                        Vote chairPersonVote =  electionVotes.stream().filter(v -> v.getType().equals(VoteType.CHAIRPERSON.getValue())).collect(singletonCollector());
-                        Vote  chairPersonRPVote = null;
-                        Vote agreementVote = null;
-                        if(CollectionUtils.isNotEmpty(reviewedRPElections) && CollectionUtils.isNotEmpty(accessRPList)) {
-                            agreementVote =  electionVotes.stream().filter(v -> v.getType().equals(VoteType.AGREEMENT.getValue())).collect(singletonCollector());
-                            AccessRP accessRP =  accessRPList.stream().filter(arp -> arp.getElectionAccessId().equals(election.getElectionId())).collect(singletonCollector());
-                            if (Objects.nonNull(accessRP)) {
-                                List<Vote> electionRPVotes = rpVotes.stream().filter(ev -> ev.getElectionId().equals(accessRP.getElectionRPId())).collect(Collectors.toList());
-                                chairPersonRPVote = electionRPVotes.stream().filter(v -> v.getType().equals(VoteType.CHAIRPERSON.getValue())).collect(singletonCollector());
-                            }
-                        }
-                        DACUser chairPerson =  dacUsers.stream().filter(du -> du.getDacUserId().equals(finalVote.getDacUserId())).collect(singletonCollector());
-                        Match match;
-                        try {
-                            match = matchList.stream().filter(m -> m.getPurpose().equals(election.getReferenceId())).collect(singletonCollector());
-                        } catch (IllegalStateException e){
-                            match = null;
-                        }
-                        Document dar = findAssociatedDAR(dataAccessRequests, election.getReferenceId());
-                        if ( dar != null && !dar.isEmpty() ){
-                            List<Integer> datasetId =   DarUtil.getIntegerList(dar, DarConstants.DATASET_ID);
-                            if(CollectionUtils.isNotEmpty(datasetId)) {
-                                Association association = associations.stream().filter((as) -> as.getDataSetId().equals(datasetId.get(0))).collect(singletonCollector());
-                                Election consentElection = reviewedConsentElections.stream().filter(re -> re.getReferenceId().equals(association.getConsentId())).collect(singletonCollector());
-                                List<Vote> electionConsentVotes = consentVotes.stream().filter(cv -> cv.getElectionId().equals(consentElection.getElectionId())).collect(Collectors.toList());
-                                Vote chairPersonConsentVote =  electionConsentVotes.stream().filter(v -> v.getType().equals(VoteType.CHAIRPERSON.getValue())).collect(singletonCollector());
-                                summaryWriter.write(dar.get(DarConstants.DAR_CODE) + SEPARATOR);
-                                summaryWriter.write(formatTimeToDate(election.getCreateDate().getTime()) + SEPARATOR);
-                                summaryWriter.write(chairPerson.getDisplayName() + SEPARATOR);
-                                summaryWriter.write( booleanToString(finalVote.getVote()) + SEPARATOR);
-                                summaryWriter.write( nullToString(finalVote.getRationale()) + SEPARATOR);
-                                if (match != null){
-                                    summaryWriter.write( booleanToString(match.getMatch()) + SEPARATOR);
-                                }else{
-                                    summaryWriter.write(MANUAL_REVIEW + SEPARATOR);
-                                }
-                                if(agreementVote != null){
-                                    summaryWriter.write( booleanToString(agreementVote.getVote()) + SEPARATOR);
-                                    summaryWriter.write( nullToString(agreementVote.getRationale())  + SEPARATOR);
-                                }else{
-                                    summaryWriter.write("-" + SEPARATOR);
-                                    summaryWriter.write("-"  + SEPARATOR);
-                                }
-                                summaryWriter.write( dar.get(DarConstants.INVESTIGATOR)  + SEPARATOR);
-                                summaryWriter.write( dar.get(DarConstants.PROJECT_TITLE)  + SEPARATOR);
-                                List<Integer> dataSetIds = dar.get(DarConstants.DATASET_ID, ArrayList.class);
-                                List<String> dataSetUUIds = new ArrayList<>();
-                                for(Integer id : dataSetIds) {
-                                    dataSetUUIds.add(DatasetUtil.parseAlias(id));
-                                }
-                                summaryWriter.write( StringUtils.join(dataSetUUIds, ",")  + SEPARATOR);
-                                summaryWriter.write( formatTimeToDate(dar.getDate("sortDate").getTime())  + SEPARATOR);
-                                for (DACUser dacUser : electionDacUsers){
-                                    summaryWriter.write( dacUser.getDisplayName() + SEPARATOR);
-                                }
-                                for (int i = 0; i < (maxNumberOfDACMembers - electionDacUsers.size()); i++) {
-                                    summaryWriter.write(
-                                            SEPARATOR);
-                                }
-                                summaryWriter.write( booleanToString(!dar.containsKey(DarConstants.RESTRICTION))+ SEPARATOR);
-                                summaryWriter.write( booleanToString(chairPersonVote.getVote()) + SEPARATOR);
-                                summaryWriter.write( nullToString(chairPersonVote.getRationale())+ SEPARATOR);
-
-                                if(Objects.nonNull(chairPersonRPVote)){
-                                    summaryWriter.write(booleanToString(chairPersonRPVote.getVote()) + SEPARATOR);
-                                    summaryWriter.write(nullToString(chairPersonRPVote.getRationale()) + SEPARATOR);
-                                }else{
-                                    summaryWriter.write(nullToString(null) + SEPARATOR);
-                                    summaryWriter.write(nullToString(null) + SEPARATOR);
-                                }
-
-                                summaryWriter.write(booleanToString(chairPersonConsentVote.getVote()) + SEPARATOR);
-                                summaryWriter.write( nullToString(chairPersonConsentVote.getRationale())+ SEPARATOR);
-                            }
-                        }
-                        summaryWriter.write(END_OF_LINE);
+    public StreamingOutput describeDataAccessRequestSummaryDetail() {
+        String type = ElectionType.DATA_ACCESS.getValue();
+        List<String> electionStatus = Collections.singletonList(ElectionStatus.CLOSED.getValue());
+        List<Election> firstPage = findReviewedElectionsPage(type, electionStatus, 0);
+        if (CollectionUtils.isEmpty(firstPage)) {
+            return null;
+        }
+        boolean hasReviewedRPElections = CollectionUtils.isNotEmpty(
+                electionDAO.findElectionsWithFinalVoteByTypeAndStatusPage(ElectionType.RP.getValue(), electionStatus, 0, 1));
+        Integer maxNumberOfDACMembers = zeroIfNull(voteDAO.findMaxNumberOfDACMembersByElectionTypeAndStatus(type, electionStatus));
+        return output -> {
+            Writer summaryWriter = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            try {
+                setSummaryHeaderDataAccessRequest(summaryWriter, maxNumberOfDACMembers);
+                writeElectionPages(summaryWriter, type, electionStatus, firstPage,
+                        (writer, page) -> writeDataAccessRequestSummaryPage(writer, page, maxNumberOfDACMembers, hasReviewedRPElections));
+            } catch (IOException | RuntimeException e) {
+                logger.error("There is an error trying to stream data access request statistics file, error: " + e.getMessage());
+                throw e;
+            }
+        };
+    }
+
+    private void writeDataAccessRequestSummaryPage(Writer summaryWriter, List<Election> reviewedElections, Integer maxNumberOfDACMembers, boolean hasReviewedRPElections) throws IOException {
+        List<String> darIds = reviewedElections.stream().map(Election::getReferenceId).collect(Collectors.toList());
+        List<Integer> darElectionIds = reviewedElections.stream().map(Election::getElectionId).collect(Collectors.toList());
+        Map<String, Document> dataAccessRequests = new HashMap<>();
+        HashSet<Integer> datasetIds = new HashSet<>();
+        findDataAccessRequests(darIds).forEach((Block<Document>) dar -> {
+            dataAccessRequests.put(dar.get(DarConstants.ID).toString(), dar);
+            datasetIds.addAll(DarUtil.getIntegerList(dar, DarConstants.DATASET_ID));
+        });
+        List<Association> associations = datasetIds.isEmpty() ? Collections.emptyList() :
+                datasetDAO.getAssociationsForDataSetIdList(new ArrayList<>(datasetIds));
+        List<String> associatedConsentIds = associations.stream().map(Association::getConsentId).distinct().collect(Collectors.toList());
+        List<Election> reviewedConsentElections = associatedConsentIds.isEmpty() ? Collections.emptyList() :
+                electionDAO.findLastElectionsWithFinalVoteByReferenceIdsTypeAndStatus(associatedConsentIds, ElectionStatus.CLOSED.getValue());
+        List<AccessRP> accessRPList = hasReviewedRPElections ? electionDAO.findAccessRPbyElectionAccessId(darElectionIds) : Collections.emptyList();
+        List<Integer> rpElectionIds = accessRPList.stream().map(AccessRP::getElectionRPId).collect(Collectors.toList());
+        List<Integer> reviewedRPElectionIds = rpElectionIds.isEmpty() ? Collections.emptyList() :
+                electionDAO.findElectionsByIds(rpElectionIds).stream().
+                        filter(e -> ElectionStatus.CLOSED.getValue().equals(e.getStatus())).
+                        map(Election::getElectionId).collect(Collectors.toList());
+        List<Integer> voteElectionIds = new ArrayList<>(darElectionIds);
+        voteElectionIds.addAll(reviewedRPElectionIds);
+        reviewedConsentElections.forEach(e -> voteElectionIds.add(e.getElectionId()));
+        Map<Integer, List<Vote>> votesByElection = voteDAO.findVotesByElectionIds(voteElectionIds).stream().
+                collect(Collectors.groupingBy(Vote::getElectionId));
+        Map<Integer, DACUser> dacUsers = findUsersById(darElectionIds.stream().
+                flatMap(id -> votesByElection.getOrDefault(id, Collections.emptyList()).stream()));
+        Map<String, List<Match>> matches = matchDAO.findMatchesPurposeId(darIds).stream().
+                collect(Collectors.groupingBy(Match::getPurpose));
+        Map<Integer, AccessRP> accessRPByElection = accessRPList.stream().
+                collect(Collectors.toMap(AccessRP::getElectionAccessId, Function.identity(), (a, b) -> a));
+        for (Election election : reviewedElections) {
+            List<Vote> electionVotes = votesByElection.getOrDefault(election.getElectionId(), Collections.emptyList());
+            List<DACUser> electionDacUsers = electionVotes.stream().filter(v -> v.getType().equals("DAC")).
+                    map(v -> dacUsers.get(v.getDacUserId())).filter(Objects::nonNull).distinct().collect(Collectors.toList());
+
+            Vote finalVote =  electionVotes.stream().filter(v -> v.getType().equals(VoteType.FINAL.getValue())).collect(singletonCollector());
+            Vote chairPersonVote =  electionVotes.stream().filter(v -> v.getType().equals(VoteType.CHAIRPERSON.getValue())).collect(singletonCollector());
+            Vote  chairPersonRPVote = null;
+            Vote agreementVote = null;
+            if (hasReviewedRPElections && !accessRPList.isEmpty()) {
+                agreementVote =  electionVotes.stream().filter(v -> v.getType().equals(VoteType.AGREEMENT.getValue())).collect(singletonCollector());
+                AccessRP accessRP = accessRPByElection.get(election.getElectionId());
+                if (Objects.nonNull(accessRP) && reviewedRPElectionIds.contains(accessRP.getElectionRPId())) {
+                    chairPersonRPVote = votesByElection.getOrDefault(accessRP.getElectionRPId(), Collections.emptyList()).stream().
+                            filter(v -> v.getType().equals(VoteType.CHAIRPERSON.getValue())).collect(singletonCollector());
+                }
+            }
+            DACUser chairPerson = dacUsers.get(finalVote.getDacUserId());
+            List<Match> darMatches = matches.getOrDefault(election.getReferenceId(), Collections.emptyList());
+            Match match = darMatches.size() == 1 ? darMatches.get(0) : null;
+            Document dar = dataAccessRequests.get(election.getReferenceId());
+            if ( dar != null && !dar.isEmpty() ){
+                List<Integer> datasetId =   DarUtil.getIntegerList(dar, DarConstants.DATASET_ID);
+                if(CollectionUtils.isNotEmpty(datasetId)) {
+                    Association association = associations.stream().filter((as) -> as.getDataSetId().equals(datasetId.get(0))).collect(singletonCollector());
+                    Election consentElection = reviewedConsentElections.stream().filter(re -> re.getReferenceId().equals(association.getConsentId())).collect(singletonCollector());
+                    List<Vote> electionConsentVotes = votesByElection.getOrDefault(consentElection.getElectionId(), Collections.emptyList());
+                    Vote chairPersonConsentVote =  electionConsentVotes.stream().filter(v -> v.getType().equals(VoteType.CHAIRPERSON.getValue())).collect(singletonCollector());
+                    summaryWriter.write(dar.get(DarConstants.DAR_CODE) + SEPARATOR);
+                    summaryWriter.write(formatTimeToDate(election.getCreateDate().getTime()) + SEPARATOR);
+                    summaryWriter.write(chairPerson.getDisplayName() + SEPARATOR);
+                    summaryWriter.write( booleanToString(finalVote.getVote()) + SEPARATOR);
+                    summaryWriter.write( nullToString(finalVote.getRationale()) + SEPARATOR);
+                    if (match != null){
+                        summaryWriter.write( booleanToString(match.getMatch()) + SEPARATOR);
+                    }else{
+                        summaryWriter.write(MANUAL_REVIEW + SEPARATOR);
+                    }
+                    if(agreementVote != null){
+                        summaryWriter.write( booleanToString(agreementVote.getVote()) + SEPARATOR);
+                        summaryWriter.write( nullToString(agreementVote.getRationale())  + SEPARATOR);
+                    }else{
+                        summaryWriter.write("-" + SEPARATOR);
+                        summaryWriter.write("-"  + SEPARATOR);
+                    }
+                    summaryWriter.write( dar.get(DarConstants.INVESTIGATOR)  + SEPARATOR);
+                    summaryWriter.write( dar.get(DarConstants.PROJECT_TITLE)  + SEPARATOR);
+                    List<Integer> dataSetIds = dar.get(DarConstants.DATASET_ID, ArrayList.class);
+                    List<String> dataSetUUIds = new ArrayList<>();
+                    for(Integer id : dataSetIds) {
+                        dataSetUUIds.add(DatasetUtil.parseAlias(id));
+                    }
+                    summaryWriter.write( StringUtils.join(dataSetUUIds, ",")  + SEPARATOR);
+                    summaryWriter.write( formatTimeToDate(dar.getDate("sortDate").getTime())  + SEPARATOR);
+                    for (DACUser dacUser : electionDacUsers){
+                        summaryWriter.write( dacUser.getDisplayName() + SEPARATOR);
+                    }
+                    for (int i = 0; i < (maxNumberOfDACMembers - electionDacUsers.size()); i++) {
+                        summaryWriter.write(
+                                SEPARATOR);
+                    }
+                    summaryWriter.write( booleanToString(!dar.containsKey(DarConstants.RESTRICTION))+ SEPARATOR);
+                    summaryWriter.write( booleanToString(chairPersonVote.getVote()) + SEPARATOR);
+                    summaryWriter.write( nullToString(chairPersonVote.getRationale())+ SEPARATOR);
+
+                    if(Objects.nonNull(chairPersonRPVote)){
+                        summaryWriter.write(booleanToString(chairPersonRPVote.getVote()) + SEPARATOR);
+                        summaryWriter.write(nullToString(chairPersonRPVote.getRationale()) + SEPARATOR);
+                    }else{
+                        summaryWriter.write(nullToString(null) + SEPARATOR);
+                        summaryWriter.write(nullToString(null) + SEPARATOR);
                     }
-                }else file = null;
-                summaryWriter.flush();
+
+                    summaryWriter.write(booleanToString(chairPersonConsentVote.getVote()) + SEPARATOR);
+                    summaryWriter.write( nullToString(chairPersonConsentVote.getRationale())+ SEPARATOR);
+                }
             }
-            return file;
-        } catch (Exception e) {
-            logger.error(e.getMessage());
+            summaryWriter.write(END_OF_LINE);
         }
-        return file;
+    }
+
+    /**
+     * Writes every page of reviewed elections, starting with the already loaded first page. Pages are fetched in
+     * election id order and flushed to the client as soon as they are written, so only one page is held in memory.
+     */
+    private void writeElectionPages(Writer summaryWriter, String type, List<String> status, List<Election> firstPage,
+                                    ElectionPageWriter pageWriter) throws IOException {
+        List<Election> page = firstPage;
+        while (CollectionUtils.isNotEmpty(page)) {
+            pageWriter.write(summaryWriter, page);
+            summaryWriter.flush();
+            if (page.size() < SUMMARY_PAGE_SIZE) {
+                break;
+            }
+            page = findReviewedElectionsPage(type, status, page.get(page.size() - 1).getElectionId());
+        }
+        summaryWriter.flush();
+    }
+
+    private List<Election> findReviewedElectionsPage(String type, List<String> status, Integer afterElectionId) {
+        return electionDAO.findElectionsWithFinalVoteByTypeAndStatusPage(type, status, afterElectionId, SUMMARY_PAGE_SIZE);
+    }
+
+    private Map<Integer, DACUser> findUsersById(Stream<Vote> votes) {
+        Set<Integer> dacUserIds = votes.map(Vote::getDacUserId).filter(Objects::nonNull).collect(Collectors.toSet());
+        if (dacUserIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return dacUserDAO.findUsers(dacUserIds).stream().
+                collect(Collectors.toMap(DACUser::getDacUserId, Function.identity(), (a, b) -> a));
+    }
+
+    private Integer zeroIfNull(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    @FunctionalInterface
+    private interface ElectionPageWriter {
+        void write(Writer writer, List<Election> page) throws IOException;
     }
 
     @Override
@@ -446,7 +504,7 @@ public class DatabaseSummaryAPI extends AbstractSummaryAPI {
         }
     }
 
-    private void setSummaryHeader(FileWriter summaryWriter , Integer maxNumberOfDACMembers) throws IOException {
+    private void setSummaryHeader(Writer summaryWriter , Integer maxNumberOfDACMembers) throws IOException {
         summaryWriter.write(
                 HeaderSummary.CONSENT.getValue() + SEPARATOR +
                         HeaderSummary.VERSION.getValue() + SEPARATOR +
@@ -469,7 +527,7 @@ public class DatabaseSummaryAPI extends AbstractSummaryAPI {
                 HeaderSummary.RATIONALE.getValue()+ END_OF_LINE);
     }
 
-    private void setDatasetElectionsHeader(FileWriter summaryWriter , Integer maxNumberOfVotes) throws IOException {
+    private void setDatasetElectionsHeader(Writer summaryWriter , Integer maxNumberOfVotes) throws IOException {
         summaryWriter.write(
                 HeaderSummary.DATA_REQUEST_ID.getValue() + SEPARATOR +
                         HeaderSummary.FINAL_DECISION_DAR.getValue() + SEPARATOR +
@@ -486,7 +544,7 @@ public class DatabaseSummaryAPI extends AbstractSummaryAPI {
         summaryWriter.write(END_OF_LINE);
     }
 
-    private void setSummaryHeaderDataAccessRequest(FileWriter summaryWriter , Integer maxNumberOfDACMembers) throws IOException {
+    private void setSummaryHeaderDataAccessRequest(Writer summaryWriter , Integer maxNumberOfDACMembers) throws IOException {
         summaryWriter.write(
                 HeaderSummary.DATA_REQUEST_ID.getValue() + SEPARATOR +
                         HeaderSummary.DATE.getValue() + SEPARATOR +
@@ -529,23 +587,6 @@ public class DatabaseSummaryAPI extends AbstractSummaryAPI {
         );
     }
 
-    private Document findAssociatedDAR(FindIterable<Document> dataAccessRequests, String referenceId) {
-        Document dar = null;
-        MongoCursor<Document> itr = dataAccessRequests.iterator();
-        try {
-            while(itr.hasNext()){
-                Document next = itr.next();
-                if(next.get(DarConstants.ID).toString().equals(referenceId)){
-                    dar = next;
-                }
-            }
-        }finally {
-            itr.close();
-        }
-        return dar;
-    }
-
-
     private FindIterable<Document> findDataAccessRequests(List<String> objectIds) {
         ObjectId[] objarray = new ObjectId[objectIds.size()];
         for(int i=0;i<objectIds.size();i++)
@@ -6,6 +6,7 @@ import org.broadinstitute.consent.http.db.DataSetAssociationDAO;
 import org.broadinstitute.consent.http.db.ElectionDAO;
 import org.broadinstitute.consent.http.db.VoteDAO;
 import org.broadinstitute.consent.http.enumeration.ElectionType;
+import org.broadinstitute.consent.http.enumeration.UserRoles;
 import org.broadinstitute.consent.http.enumeration.VoteType;
 import org.broadinstitute.consent.http.models.DACUser;
 import org.broadinstitute.consent.http.models.Election;
@@ -13,6 +14,8 @@ import org.broadinstitute.consent.http.models.Vote;
 
 import javax.ws.rs.NotFoundException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
@@ -131,28 +134,42 @@ public class DatabaseVoteAPI extends AbstractVoteAPI {
     @Override
     public List<Vote> createVotes(Integer electionId, ElectionType electionType, Boolean isManualReview) {
         Set<DACUser> dacUserList = dacUserDAO.findDACUsersEnabledToVote();
+        if (dacUserList == null || dacUserList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        voteDAO.insertElectionVotes(electionVotes(dacUserList, electionId, electionType, isManualReview));
+        return voteDAO.findVotesByElectionIds(Collections.singletonList(electionId));
+    }
+
+    /**
+     * Builds the votes an election starts with: a DAC vote for every member, plus a chairperson vote for each
+     * chairperson. Access elections also get the chairperson's final vote and, unless the request needs manual
+     * review, the agreement vote.
+     */
+    static List<Vote> electionVotes(Collection<DACUser> dacUsers, Integer electionId, ElectionType electionType, Boolean isManualReview) {
         List<Vote> votes = new ArrayList<>();
-        if (dacUserList != null) {
-            for (DACUser user : dacUserList) {
-                Integer id = voteDAO.insertVote(user.getDacUserId(), electionId, VoteType.DAC.getValue(), false);
-                votes.add(voteDAO.findVoteById(id));
-                if(isChairPerson(user.getDacUserId())){
-                    Integer chairPersonVoteId = voteDAO.insertVote(user.getDacUserId(), electionId, VoteType.CHAIRPERSON.getValue(), false);
-                    votes.add(voteDAO.findVoteById(chairPersonVoteId));
-                }
-                if (electionType.equals(ElectionType.DATA_ACCESS) && isChairPerson(user.getDacUserId())) {
-                    id = voteDAO.insertVote(user.getDacUserId(), electionId, VoteType.FINAL.getValue(), false);
-                    votes.add(voteDAO.findVoteById(id));
-                    if(!isManualReview){
-                        id = voteDAO.insertVote(user.getDacUserId(), electionId, VoteType.AGREEMENT.getValue(), false);
-                        votes.add(voteDAO.findVoteById(id));
+        for (DACUser user : dacUsers) {
+            votes.add(electionVote(user.getDacUserId(), electionId, VoteType.DAC));
+            if (isChairPerson(user)) {
+                votes.add(electionVote(user.getDacUserId(), electionId, VoteType.CHAIRPERSON));
+                if (electionType.equals(ElectionType.DATA_ACCESS)) {
+                    votes.add(electionVote(user.getDacUserId(), electionId, VoteType.FINAL));
+                    if (!isManualReview) {
+                        votes.add(electionVote(user.getDacUserId(), electionId, VoteType.AGREEMENT));
                     }
                 }
-             }
+            }
         }
         return votes;
     }
 
+    private static Vote electionVote(Integer dacUserId, Integer electionId, VoteType type) {
+        Vote vote = new Vote();
+        vote.setDacUserId(dacUserId);
+        vote.setElectionId(electionId);
+        vote.setType(type.getValue());
+        return vote;
+    }
 
     @Override
     public List<Vote> describeVoteByTypeAndElectionId(String type, Integer electionId) {
@@ -185,12 +202,9 @@ public class DatabaseVoteAPI extends AbstractVoteAPI {
         }
     }
 
-    private boolean isChairPerson(Integer dacUserId) {
-        boolean isCherperson = false;
-        if (dacUserDAO.checkChairpersonUser(dacUserId) != null) {
-            isCherperson = true;
-        }
-        return isCherperson;
+    private static boolean isChairPerson(DACUser user) {
+        return user.getRoles() != null && user.getRoles().stream().
+                anyMatch(role -> UserRoles.CHAIRPERSON.getRoleName().equalsIgnoreCase(role.getName()));
     }
 
 
@@ -17,6 +17,8 @@ public interface ElectionAPI {
 
     Election createElection(Election rec, String referenceId, ElectionType electionType) throws Exception;
 
+    Election createElectionWithVotes(Election rec, String referenceId, ElectionType electionType, Boolean isManualReview) throws Exception;
+
     Election updateElectionById(Election rec, Integer electionId) throws IllegalArgumentException, NotFoundException;
 
     Election updateFinalAccessVoteDataRequestElection(Integer electionId) throws Exception;
@@ -18,6 +18,7 @@ import org.broadinstitute.consent.http.mail.MailService;
 import org.broadinstitute.consent.http.mail.MailServiceAPI;
 import org.broadinstitute.consent.http.mail.freemarker.DataSetPIMailModel;
 import org.broadinstitute.consent.http.mail.freemarker.FreeMarkerTemplateHelper;
+import org.broadinstitute.consent.http.mail.freemarker.NewCaseTemplate;
 import org.broadinstitute.consent.http.mail.freemarker.VoteAndElectionModel;
 import org.broadinstitute.consent.http.models.DataSet;
 import org.broadinstitute.consent.http.models.HelpReport;
@@ -26,6 +27,7 @@ import org.broadinstitute.consent.http.models.DACUser;
 import org.broadinstitute.consent.http.models.Vote;
 import org.broadinstitute.consent.http.models.ResearcherProperty;
 import org.broadinstitute.consent.http.models.darsummary.DARModalDetailsDTO;
+import org.broadinstitute.consent.http.models.mail.EmailRecord;
 import org.broadinstitute.consent.http.models.darsummary.SummaryItem;
 import org.broadinstitute.consent.http.resources.Resource;
 import org.broadinstitute.consent.http.util.DarConstants;
@@ -42,7 +44,6 @@ import java.io.Writer;
 import java.util.Collections;
 import java.util.Arrays;
 import java.util.Optional;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -135,8 +136,8 @@ public class EmailNotifierService extends AbstractEmailNotifierAPI {
             List<Integer> usersId = users.stream().map(DACUser::getDacUserId).collect(Collectors.toList());
             Map<String, String> data = retrieveForNewDAR(dataAccessRequestId);
             Writer template = templateHelper.getNewDARRequestTemplate(SERVER_URL);
-            mailService.sendNewDARRequests(getEmails(users), data.get("entityId"), data.get("electionType"), template);
-            emailDAO.insertBulkEmailNoVotes(usersId, dataAccessRequestId, 4, new Date(), template.toString());
+            mailService.sendNewDARRequests(getEmails(users), data.get("entityId"), data.get("electionType"), template,
+                    new EmailRecord(EmailRecord.NEW_DAR, dataAccessRequestId, null, usersId));
         }
     }
 
@@ -147,8 +148,8 @@ public class EmailNotifierService extends AbstractEmailNotifierAPI {
             String collectUrl = generateCollectVoteUrl(SERVER_URL, data.get("electionType"), data.get("entityId"), data.get("electionId"));
             Writer template = templateHelper.getCollectTemplate(data.get("userName"), data.get("electionType"), data.get("entityName"), collectUrl);
             Set<String> emails = StringUtils.isNotEmpty(data.get("additionalEmail")) ? new HashSet<>(Arrays.asList(data.get("additionalEmail"), data.get("email"))) : new HashSet<>(Collections.singletonList(data.get("email")));
-            mailService.sendCollectMessage(emails, data.get("entityName"), data.get("electionType"), template);
-            emailDAO.insertEmail(null, data.get("electionId"), Integer.valueOf(data.get("dacUserId")), 1, new Date(), template.toString());
+            mailService.sendCollectMessage(emails, data.get("entityName"), data.get("electionType"), template,
+                    new EmailRecord(EmailRecord.COLLECT, data.get("electionId"), null, Collections.singletonList(Integer.valueOf(data.get("dacUserId")))));
         }
     }
 
@@ -159,9 +160,9 @@ public class EmailNotifierService extends AbstractEmailNotifierAPI {
             String voteUrl = generateUserVoteUrl(SERVER_URL, data.get("electionType"), data.get("voteId"), data.get("entityId"), data.get("rpVoteId"));
             Writer template = templateHelper.getReminderTemplate(data.get("userName"), data.get("electionType"), data.get("entityName"), voteUrl);
             Set<String> emails = StringUtils.isNotEmpty(data.get("additionalEmail")) ?  new HashSet<>(Arrays.asList(data.get("additionalEmail"), data.get("email"))) :  new HashSet<>(Collections.singletonList(data.get("email")));
-            mailService.sendReminderMessage(emails, data.get("entityName"), data.get("electionType"), template);
-            emailDAO.insertEmail(voteId, data.get("electionId"), Integer.valueOf(data.get("dacUserId")), 3, new Date(), template.toString());
-            voteDAO.updateVoteReminderFlag(voteId, true);
+            // The email is recorded and the reminder flagged once it has been sent
+            mailService.sendReminderMessage(emails, data.get("entityName"), data.get("electionType"), template,
+                    new EmailRecord(EmailRecord.REMINDER, data.get("electionId"), voteId, Collections.singletonList(Integer.valueOf(data.get("dacUserId")))));
         }
     }
 
@@ -172,14 +173,20 @@ public class EmailNotifierService extends AbstractEmailNotifierAPI {
             String electionType = retrieveElectionTypeString(election.getElectionType());
             String entityId = election.getReferenceId();
             String entityName = retrieveReferenceId(election.getElectionType(), election.getReferenceId());
+            List<DACUser> users = new ArrayList<>();
+            List<NewCaseTemplate> models = new ArrayList<>();
             for(Vote vote: votes){
                 DACUser user = describeDACUserById(vote.getDacUserId());
                 if(electionType.equals(ElectionTypeString.DATA_ACCESS.getValue())) {
                     rpVoteId = findRpVoteId(election.getElectionId(), user.getDacUserId());
                 }
                 String serverUrl = generateUserVoteUrl(SERVER_URL, electionType, vote.getVoteId().toString(), entityId, rpVoteId);
-                Writer template = templateHelper.getNewCaseTemplate(user.getDisplayName(), electionType, entityName, serverUrl);
-                sendNewCaseMessage(getEmails(Collections.singletonList(user)), electionType, entityName, template);
+                users.add(user);
+                models.add(new NewCaseTemplate(user.getDisplayName(), electionType, entityName, serverUrl));
+            }
+            List<Writer> templates = templateHelper.getNewCaseTemplates(models);
+            for(int i = 0; i < users.size(); i++){
+                sendNewCaseMessage(getEmails(Collections.singletonList(users.get(i))), electionType, entityName, templates.get(i));
             }
         }
     }
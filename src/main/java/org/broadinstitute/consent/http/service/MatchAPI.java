@@ -22,4 +22,13 @@ public interface MatchAPI {
 
     void createMatches(List<Match> matches);
 
+    void deleteMatchesForConsent(String consentId);
+
+    void deleteMatchesForPurpose(String purposeId);
+
+    /**
+     * Replace every match for a consent with the provided matches in a single transaction.
+     */
+    void replaceMatchesForConsent(String consentId, List<Match> matches);
+
 }
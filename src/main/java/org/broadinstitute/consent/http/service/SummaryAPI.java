@@ -2,6 +2,7 @@ package org.broadinstitute.consent.http.service;
 
 import org.broadinstitute.consent.http.models.Summary;
 
+import javax.ws.rs.core.StreamingOutput;
 import java.io.File;
 import java.util.List;
 
@@ -9,9 +10,9 @@ public interface SummaryAPI {
 
     Summary describeConsentSummaryCases();
 
-    File describeConsentSummaryDetail();
+    StreamingOutput describeConsentSummaryDetail();
 
-    File describeDataAccessRequestSummaryDetail();
+    StreamingOutput describeDataAccessRequestSummaryDetail();
 
     Summary describeDataRequestSummaryCases(String electionType);
 
@@ -0,0 +1,53 @@
+package org.broadinstitute.consent.http.service;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.lifecycle.ServerLifecycleListener;
+import org.eclipse.jetty.server.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Marks the un-reviewed data access requests created before they were tracked once the server is accepting traffic,
+ * so startup does not wait on a scan of the requests. See {@link DataAccessRequestAPI#backfillUnReviewedDARs()}.
+ */
+public class UnReviewedDARBackfill implements Managed, ServerLifecycleListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnReviewedDARBackfill.class);
+
+    private final DataAccessRequestAPI dataAccessRequestAPI;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "un-reviewed-dar-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UnReviewedDARBackfill(DataAccessRequestAPI dataAccessRequestAPI) {
+        this.dataAccessRequestAPI = dataAccessRequestAPI;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void serverStarted(Server server) {
+        executor.submit(this::run);
+    }
+
+    private void run() {
+        try {
+            dataAccessRequestAPI.backfillUnReviewedDARs();
+        } catch (Throwable e) {
+            logger.error("Un-reviewed data access request backfill failed, it will resume on the next start: " + e.getMessage(), e);
+        }
+    }
+
+}
@@ -26,11 +26,17 @@ public class UseRestrictionConverter {
     private static final Logger LOGGER = LoggerFactory.getLogger("UseRestrictionConverter");
     private static final ObjectMapper mapper = new ObjectMapper();
     private final ServicesConfiguration servicesConfiguration;
+    private final UseRestrictionTranslationCache translationCache;
     private Client client;
 
     public UseRestrictionConverter(Client client, ServicesConfiguration config) {
+        this(client, config, null);
+    }
+
+    public UseRestrictionConverter(Client client, ServicesConfiguration config, UseRestrictionTranslationCache translationCache) {
         this.client = client;
         this.servicesConfiguration = config;
+        this.translationCache = translationCache;
     }
 
     @SuppressWarnings("unchecked")
@@ -94,7 +100,17 @@ public class UseRestrictionConverter {
         return dataUseDTO;
     }
 
+    /**
+     * Translates the research purpose through the ontology service, unless the same purpose was translated before.
+     */
     public UseRestriction parseUseRestriction(DataUseDTO dto) {
+        if (translationCache != null) {
+            return translationCache.get(dto, this::translateUseRestriction);
+        }
+        return translateUseRestriction(dto);
+    }
+
+    private UseRestriction translateUseRestriction(DataUseDTO dto) {
         WebTarget target = client.target(servicesConfiguration.getDARTranslateUrl());
         Response response = target.request(MediaType.APPLICATION_JSON).post(Entity.json(dto.toString()));
         if (response.getStatus() == 200) {
@@ -0,0 +1,125 @@
+package org.broadinstitute.consent.http.service;
+
+import org.broadinstitute.consent.http.models.grammar.And;
+import org.broadinstitute.consent.http.models.grammar.Everything;
+import org.broadinstitute.consent.http.models.grammar.Named;
+import org.broadinstitute.consent.http.models.grammar.Not;
+import org.broadinstitute.consent.http.models.grammar.Nothing;
+import org.broadinstitute.consent.http.models.grammar.Only;
+import org.broadinstitute.consent.http.models.grammar.Or;
+import org.broadinstitute.consent.http.models.grammar.Some;
+import org.broadinstitute.consent.http.models.grammar.UseRestriction;
+import org.broadinstitute.consent.http.service.ontology.OntologyHierarchy;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * In-process evaluation of a research purpose against a consent use restriction. A purpose matches a consent when
+ * the purpose restriction is subsumed by the consent restriction.
+ *
+ * Subsumption is decided structurally over the restriction grammar, using the ontology hierarchy for named classes.
+ * Structural subsumption is sound but not complete: it can prove a match but not the absence of one. Anything it can't
+ * prove is left undecided, and callers should defer to the ontology service.
+ */
+public class UseRestrictionMatcher {
+
+    private final Supplier<OntologyHierarchy> hierarchySupplier;
+
+    public UseRestrictionMatcher(Supplier<OntologyHierarchy> hierarchySupplier) {
+        this.hierarchySupplier = hierarchySupplier;
+    }
+
+    /**
+     * @param consent The consent use restriction
+     * @param purpose The data access request research purpose
+     * @return True if the match can be proved locally, empty otherwise.
+     */
+    public Optional<Boolean> match(UseRestriction consent, UseRestriction purpose) {
+        if (consent == null || purpose == null) {
+            return Optional.empty();
+        }
+        OntologyHierarchy hierarchy = hierarchySupplier.get();
+        if (isSubsumed(purpose, consent, hierarchy)) {
+            return Optional.of(true);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return True if every instance of the sub restriction is an instance of the super restriction.
+     */
+    boolean isSubsumed(UseRestriction sub, UseRestriction sup, OntologyHierarchy hierarchy) {
+        if (sup instanceof Everything || sub instanceof Nothing) {
+            return true;
+        }
+        if (sub instanceof Or) {
+            return Arrays.stream(((Or) sub).getOperands()).allMatch(o -> isSubsumed(o, sup, hierarchy));
+        }
+        if (sup instanceof And) {
+            return Arrays.stream(((And) sup).getOperands()).allMatch(o -> isSubsumed(sub, o, hierarchy));
+        }
+        if (sup instanceof Or && Arrays.stream(((Or) sup).getOperands()).anyMatch(o -> isSubsumed(sub, o, hierarchy))) {
+            return true;
+        }
+        if (sub instanceof And && Arrays.stream(((And) sub).getOperands()).anyMatch(o -> isSubsumed(o, sup, hierarchy))) {
+            return true;
+        }
+        if (sub instanceof Not && sup instanceof Not) {
+            return isSubsumed(((Not) sup).getOperand(), ((Not) sub).getOperand(), hierarchy);
+        }
+        if (sup instanceof Not) {
+            return isDisjoint(sub, ((Not) sup).getOperand(), hierarchy);
+        }
+        if (sub instanceof Named && sup instanceof Named) {
+            return hierarchy.isSubClassOf(((Named) sub).getName(), ((Named) sup).getName());
+        }
+        if (sub instanceof Some && sup instanceof Some) {
+            Some subSome = (Some) sub;
+            Some supSome = (Some) sup;
+            return Objects.equals(subSome.getProperty(), supSome.getProperty()) &&
+                    isSubsumed(subSome.getTarget(), supSome.getTarget(), hierarchy);
+        }
+        if (sub instanceof Only && sup instanceof Only) {
+            Only subOnly = (Only) sub;
+            Only supOnly = (Only) sup;
+            return Objects.equals(subOnly.getProperty(), supOnly.getProperty()) &&
+                    isSubsumed(subOnly.getTarget(), supOnly.getTarget(), hierarchy);
+        }
+        return sub.equals(sup);
+    }
+
+    /**
+     * @return True if the two restrictions can have no common instances.
+     */
+    boolean isDisjoint(UseRestriction first, UseRestriction second, OntologyHierarchy hierarchy) {
+        if (first instanceof Nothing || second instanceof Nothing) {
+            return true;
+        }
+        if (first instanceof Or) {
+            return Arrays.stream(((Or) first).getOperands()).allMatch(o -> isDisjoint(o, second, hierarchy));
+        }
+        if (second instanceof Or) {
+            return Arrays.stream(((Or) second).getOperands()).allMatch(o -> isDisjoint(first, o, hierarchy));
+        }
+        if (first instanceof And && Arrays.stream(((And) first).getOperands()).anyMatch(o -> isDisjoint(o, second, hierarchy))) {
+            return true;
+        }
+        if (second instanceof And && Arrays.stream(((And) second).getOperands()).anyMatch(o -> isDisjoint(first, o, hierarchy))) {
+            return true;
+        }
+        if (first instanceof Not) {
+            return isSubsumed(second, ((Not) first).getOperand(), hierarchy);
+        }
+        if (second instanceof Not) {
+            return isSubsumed(first, ((Not) second).getOperand(), hierarchy);
+        }
+        if (first instanceof Named && second instanceof Named) {
+            return hierarchy.areDisjoint(((Named) first).getName(), ((Named) second).getName());
+        }
+        return false;
+    }
+
+}
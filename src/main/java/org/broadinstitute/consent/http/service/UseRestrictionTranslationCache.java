@@ -0,0 +1,161 @@
+package org.broadinstitute.consent.http.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import org.broadinstitute.consent.http.db.UseRestrictionTranslationDAO;
+import org.broadinstitute.consent.http.models.DataUseDTO;
+import org.broadinstitute.consent.http.models.grammar.UseRestriction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the use restriction the ontology service translates each research purpose into, so the same answers
+ * aren't sent for translation again. Purposes are keyed by a hash of their canonical form. Translations are kept in
+ * memory and in the use_restriction_translation table, where other instances and restarts find them.
+ *
+ * Every translation belongs to a version of the indexed ontologies, and only translations made under the current
+ * version are used. When the version changes, the entries held in memory are dropped. Stored entries are keyed by
+ * version as well, since instances may briefly run on different versions, and are only removed once they expire
+ * after TTL_DAYS. Until the version is known nothing is cached and every purpose goes to the ontology service.
+ */
+public class UseRestrictionTranslationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UseRestrictionTranslationCache.class);
+    private static final Gson gson = new Gson();
+    private static final long TTL_DAYS = 30;
+    private static final long MAX_ENTRIES = 10000;
+
+    private final UseRestrictionTranslationDAO translationDAO;
+    private final Supplier<String> ontologyVersion;
+    private final Cache<String, String> translations;
+    private final Meter hits;
+    private final Meter storedHits;
+    private final Meter misses;
+    private volatile String currentVersion;
+
+    public UseRestrictionTranslationCache(UseRestrictionTranslationDAO translationDAO, Supplier<String> ontologyVersion, MetricRegistry metrics) {
+        this.translationDAO = translationDAO;
+        this.ontologyVersion = ontologyVersion;
+        this.translations = CacheBuilder.newBuilder().
+                maximumSize(MAX_ENTRIES).
+                expireAfterWrite(TTL_DAYS, TimeUnit.DAYS).
+                build();
+        this.hits = metrics.meter(MetricRegistry.name(UseRestrictionTranslationCache.class, "hits"));
+        this.storedHits = metrics.meter(MetricRegistry.name(UseRestrictionTranslationCache.class, "storedHits"));
+        this.misses = metrics.meter(MetricRegistry.name(UseRestrictionTranslationCache.class, "misses"));
+        metrics.register(MetricRegistry.name(UseRestrictionTranslationCache.class, "size"), (Gauge<Long>) translations::size);
+    }
+
+    /**
+     * Returns the restriction remembered for the purpose, or translates it and remembers the result. A null
+     * translation isn't remembered. Each call gets its own copy of the restriction.
+     */
+    public UseRestriction get(DataUseDTO purpose, Function<DataUseDTO, UseRestriction> translate) {
+        String version = ontologyVersion.get();
+        if (version == null) {
+            return translate.apply(purpose);
+        }
+        checkVersion(version);
+        String purposeHash = purposeHash(purpose);
+        String key = version + ":" + purposeHash;
+        String restriction = translations.getIfPresent(key);
+        if (restriction != null) {
+            hits.mark();
+        } else {
+            restriction = findStored(purposeHash, version);
+            if (restriction != null) {
+                storedHits.mark();
+            } else {
+                misses.mark();
+                UseRestriction translated = translate.apply(purpose);
+                if (translated == null) {
+                    return null;
+                }
+                restriction = translated.toString();
+                store(purposeHash, version, restriction);
+            }
+            translations.put(key, restriction);
+        }
+        try {
+            return UseRestriction.parse(restriction);
+        } catch (IOException e) {
+            translations.invalidate(key);
+            return translate.apply(purpose);
+        }
+    }
+
+    /**
+     * Hash of the purpose with its lists sorted and without duplicates, so answers given in a different order share
+     * an entry.
+     */
+    @VisibleForTesting
+    static String purposeHash(DataUseDTO purpose) {
+        DataUseDTO canonical = gson.fromJson(purpose.toString(), DataUseDTO.class);
+        canonical.setDiseaseRestrictions(sorted(canonical.getDiseaseRestrictions()));
+        canonical.setPopulationRestrictions(sorted(canonical.getPopulationRestrictions()));
+        return Hashing.sha256().hashString(canonical.toString(), StandardCharsets.UTF_8).toString();
+    }
+
+    private static List<String> sorted(List<String> values) {
+        return values == null ? null : new ArrayList<>(new TreeSet<>(values));
+    }
+
+    private void checkVersion(String version) {
+        if (version.equals(currentVersion)) {
+            return;
+        }
+        synchronized (this) {
+            if (!version.equals(currentVersion)) {
+                translations.invalidateAll();
+                try {
+                    int deleted = translationDAO.deleteExpiredRestrictions(expiry());
+                    logger.info("Ontology version is now " + version + ", dropped " + deleted + " expired translations.");
+                } catch (Exception e) {
+                    logger.error("Unable to drop expired translations: " + e.getMessage());
+                }
+                currentVersion = version;
+            }
+        }
+    }
+
+    private String findStored(String purposeHash, String version) {
+        try {
+            return translationDAO.findRestriction(purposeHash, version, expiry());
+        } catch (Exception e) {
+            logger.error("Unable to read stored translation: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String purposeHash, String version, String restriction) {
+        try {
+            // Replaces an expired translation of the purpose under this version
+            translationDAO.deleteRestriction(purposeHash, version);
+            translationDAO.insertRestriction(purposeHash, version, restriction, new Date());
+        } catch (Exception e) {
+            // Another request stored the same purpose first.
+            logger.debug("Unable to store translation: " + e.getMessage());
+        }
+    }
+
+    private Date expiry() {
+        return new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(TTL_DAYS));
+    }
+
+}
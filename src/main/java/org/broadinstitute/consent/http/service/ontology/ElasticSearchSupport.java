@@ -13,6 +13,8 @@ import java.util.stream.Collectors;
 @SuppressWarnings("WeakerAccess")
 public class ElasticSearchSupport {
 
+    public static final String TERM_TYPE = "ontology_term";
+
     public static RestClient createRestClient(ElasticSearchConfiguration configuration) {
         HttpHost[] hosts = configuration.
             getServers().
@@ -27,7 +29,7 @@ public class ElasticSearchSupport {
     }
 
     public static String getTermIdPath(String index, String termId) throws UnsupportedEncodingException {
-        return "/" + index + "/ontology_term/" + URLEncoder.encode(termId, "UTF-8");
+        return "/" + index + "/" + TERM_TYPE + "/" + URLEncoder.encode(termId, "UTF-8");
     }
 
     public static String getClusterHealthPath(String index) {
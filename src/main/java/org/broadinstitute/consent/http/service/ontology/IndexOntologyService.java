@@ -15,7 +15,7 @@ import java.util.List;
 public class IndexOntologyService implements Managed {
 
     private final String indexName;
-    private IndexerUtils utils = new IndexerUtils();
+    private final IndexerUtils utils;
     private RestClient client;
 
     @Override
@@ -30,6 +30,7 @@ public class IndexOntologyService implements Managed {
 
     public IndexOntologyService(ElasticSearchConfiguration config) {
         this.indexName = config.getIndexName();
+        this.utils = new IndexerUtils(config.getBulkBatchSize(), config.getBulkConcurrency());
         this.client = ElasticSearchSupport.createRestClient(config);
     }
 
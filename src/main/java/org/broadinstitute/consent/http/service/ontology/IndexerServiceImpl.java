@@ -21,12 +21,18 @@ public class IndexerServiceImpl implements IndexerService {
 
     private final StoreOntologyService storeService;
     private final IndexOntologyService indexService;
+    private final OntologyHierarchyLoader hierarchyLoader;
     private static final ObjectMapper mapper = new ObjectMapper();
 
 
     public IndexerServiceImpl(StoreOntologyService storeService, IndexOntologyService indexService) {
+        this(storeService, indexService, null);
+    }
+
+    public IndexerServiceImpl(StoreOntologyService storeService, IndexOntologyService indexService, OntologyHierarchyLoader hierarchyLoader) {
         this.storeService = storeService;
         this.indexService = indexService;
+        this.hierarchyLoader = hierarchyLoader;
     }
 
 
@@ -46,6 +52,7 @@ public class IndexerServiceImpl implements IndexerService {
                 );
                 storeService.storeOntologyConfigurationFile(mapToStreamParser(configMap));
             }
+            refreshHierarchy();
             return okResponseBuilder(streamRecList);
         } else {
             return Response.notModified().build();
@@ -81,11 +88,18 @@ public class IndexerServiceImpl implements IndexerService {
 
             //Delete file from CloudStorage
             storeService.deleteFile(fileURL);
+            refreshHierarchy();
             return Response.ok().build();
         }
         return Response.notModified().build();
     }
 
+    private void refreshHierarchy() {
+        if (hierarchyLoader != null) {
+            hierarchyLoader.refreshAsync();
+        }
+    }
+
     private void deleteFileFromMap(Map<String, HashMap> configMap,String fileUrl) {
         configMap.remove(fileUrl);
     }
@@ -1,11 +1,13 @@
 package org.broadinstitute.consent.http.service.ontology;
 
 import com.google.common.collect.Lists;
-import com.twitter.util.CountDownLatch;
-import org.apache.commons.io.IOUtils;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.apache.http.HttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
 import org.broadinstitute.consent.http.models.ontology.StreamRec;
 import org.broadinstitute.consent.http.models.ontology.Term;
 import org.elasticsearch.client.Response;
@@ -14,6 +16,7 @@ import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.reasoner.InferenceType;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
 import org.semanticweb.owlapi.reasoner.structural.StructuralReasonerFactory;
@@ -22,10 +25,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.InternalServerErrorException;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -40,6 +51,26 @@ public class IndexerUtils {
     private static final String FIELD_DEPRECATED_PROPERTY = "deprecated";
     private static final Logger logger = LoggerFactory.getLogger(IndexerUtils.class);
     private static final ArrayList<String> IRI_FILTERS = new ArrayList<>(Arrays.asList("DOID", "DUOS", "DUO"));
+    private static final int DEFAULT_BULK_BATCH_SIZE = 500;
+    private static final int DEFAULT_BULK_CONCURRENCY = 4;
+
+    private final int bulkBatchSize;
+    private final int bulkConcurrency;
+    private final int termParallelism;
+
+    public IndexerUtils() {
+        this(DEFAULT_BULK_BATCH_SIZE, DEFAULT_BULK_CONCURRENCY);
+    }
+
+    /**
+     * @param bulkBatchSize Number of terms sent in each _bulk request
+     * @param bulkConcurrency Maximum number of _bulk requests in flight at once
+     */
+    public IndexerUtils(int bulkBatchSize, int bulkConcurrency) {
+        this.bulkBatchSize = Math.max(1, bulkBatchSize);
+        this.bulkConcurrency = Math.max(1, bulkConcurrency);
+        this.termParallelism = Runtime.getRuntime().availableProcessors();
+    }
 
     private Boolean isValidOWLClass(OWLClass owlClass) {
         return owlClass != null &&
@@ -73,35 +104,61 @@ public class IndexerUtils {
     /**
      * Generate terms from an ontology file, along with any direct ontology imports.
      *
+     * The ontology is spooled to a temporary file rather than held in memory, and once the terms are generated the
+     * stream record is pointed at that file so it can be re-read by the storage service. The file is removed once that
+     * stream is closed, or right away when the terms can't be generated. Terms are generated in parallel across OWL
+     * classes.
+     *
      * @param streamRec The StreamRec that refers to an an ontology file.
      * @return Collection of Terms generated from the ontology file
      * @throws IOException The IOException
      * @throws OWLOntologyCreationException The OWLOntologyCreationException
      */
     public Collection<Term> generateTerms(StreamRec streamRec) throws IOException, OWLOntologyCreationException {
-        //Just to be capable of read InputStream multiple times
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        IOUtils.copy(streamRec.getStream(), baos);
-        byte[] bytes = baos.toByteArray();
+        Path ontologyFile = Files.createTempFile("ontology", null);
+        try {
+            try (InputStream stream = streamRec.getStream()) {
+                Files.copy(stream, ontologyFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Collection<Term> terms = generateTerms(ontologyFile, streamRec.getOntologyType());
+            // Reset stream so it can be re-read by the storage service
+            streamRec.setStream(Files.newInputStream(ontologyFile, StandardOpenOption.DELETE_ON_CLOSE));
+            return terms;
+        } catch (IOException | OWLOntologyCreationException | RuntimeException e) {
+            Files.deleteIfExists(ontologyFile);
+            throw e;
+        }
+    }
 
-        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
-        OWLOntology ontology = manager.loadOntologyFromOntologyDocument(new ByteArrayInputStream(bytes));
-        // Reset stream so it can be re-read by the storage service
-        streamRec.setStream(new ByteArrayInputStream(bytes));
+    private Collection<Term> generateTerms(Path ontologyFile, String ontologyType) throws IOException, OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createConcurrentOWLOntologyManager();
+        OWLOntology ontology = manager.loadOntologyFromOntologyDocument(ontologyFile.toFile());
 
         OWLReasonerFactory reasonerFactory = new StructuralReasonerFactory();
         OWLReasoner reasoner = reasonerFactory.createNonBufferingReasoner(ontology);
+        // Compute the hierarchy up front so concurrent parent lookups below only read from it.
+        reasoner.precomputeInferences(InferenceType.CLASS_HIERARCHY);
 
         Set<OWLClass> owlClasses = ontology.classesInSignature().collect(Collectors.toSet());
         owlClasses.addAll(ontology.
                 directImports().
                 flatMap(HasClassesInSignature::classesInSignature).
                 collect(Collectors.toSet()));
-        return owlClasses.
-                stream().
-                filter(this::isValidOWLClass).
-                map(o -> generateTerm(o, streamRec.getOntologyType(), ontology, reasoner)).
-                collect(Collectors.toSet());
+        ForkJoinPool pool = new ForkJoinPool(termParallelism);
+        try {
+            return pool.submit(() -> owlClasses.
+                    parallelStream().
+                    filter(this::isValidOWLClass).
+                    map(o -> generateTerm(o, ontologyType, ontology, reasoner)).
+                    collect(Collectors.toSet())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
     }
 
     /**
@@ -174,7 +231,7 @@ public class IndexerUtils {
         List<Set<OWLClass>> parentSets = getParentSets(owlClass, reasoner);
         Collections.reverse(parentSets);
         List<Set<OWLClass>> filteredSets = new ArrayList<>();
-        List<String> owlClassCache = new ArrayList<>();
+        Set<String> owlClassCache = new HashSet<>();
         for (Set<OWLClass> classSet : parentSets) {
             // For any nodes in this set that have not been seen, create a new node set for adding
             Set<OWLClass> filteredParentSet = classSet.stream().
@@ -222,34 +279,58 @@ public class IndexerUtils {
     }
 
     /**
-     * Push terms to the ES instance
+     * Push terms to the ES instance through the _bulk API. Terms are sent in batches of the configured size with at
+     * most the configured number of batches in flight; further batches wait until an earlier one completes.
      *
      * @param client The ES client
      * @param indexName The index
      * @param terms Collection of Terms that will be populated
-     * @return True if there are no errors, exception otherwise
+     * @return True if every batch was indexed without errors
      * @throws IOException The exception
      */
     public Boolean bulkUploadTerms(RestClient client, String indexName, Collection<Term> terms) throws IOException {
-        // Set the partition relatively small so we can fail fast for incremental uploads
-        List<List<Term>> termLists = Lists.partition(new ArrayList<>(terms), 100);
-        for (List<Term> termList: termLists) {
-            final CountDownLatch latch = new CountDownLatch(termList.size());
-            ResponseListener listener = createResponseListener(latch);
-            for (Term term: termList) {
+        List<List<Term>> termLists = Lists.partition(new ArrayList<>(terms), bulkBatchSize);
+        Semaphore inFlight = new Semaphore(bulkConcurrency);
+        AtomicBoolean successful = new AtomicBoolean(true);
+        try {
+            for (List<Term> termList: termLists) {
                 HttpEntity entity = new NStringEntity(
-                    term.toString(),
-                    ContentType.APPLICATION_JSON);
-                client.performRequestAsync("PUT",
-                    ElasticSearchSupport.getTermIdPath(indexName, term.getId()),
+                    bulkIndexBody(indexName, termList),
+                    ContentType.create("application/x-ndjson", StandardCharsets.UTF_8));
+                inFlight.acquire();
+                client.performRequestAsync("POST",
+                    "/_bulk",
                     Collections.emptyMap(),
                     entity,
-                    listener,
+                    createBulkResponseListener(inFlight, successful),
                     ElasticSearchSupport.jsonHeader);
             }
-            latch.await();
+            // Wait for the remaining batches
+            inFlight.acquire(bulkConcurrency);
+            inFlight.release(bulkConcurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        return successful.get();
+    }
+
+    /**
+     * @return Newline delimited bulk index actions for the terms, each followed by its source document.
+     */
+    private String bulkIndexBody(String indexName, List<Term> terms) {
+        StringBuilder body = new StringBuilder();
+        for (Term term : terms) {
+            JsonObject metadata = new JsonObject();
+            metadata.addProperty("_index", indexName);
+            metadata.addProperty("_type", ElasticSearchSupport.TERM_TYPE);
+            metadata.addProperty("_id", term.getId());
+            JsonObject action = new JsonObject();
+            action.add("index", metadata);
+            body.append(action.toString()).append('\n');
+            body.append(term.toString()).append('\n');
         }
-        return true;
+        return body.toString();
     }
 
     /**
@@ -285,26 +366,36 @@ public class IndexerUtils {
     }
 
     /**
-     * Create a response handler that will appropriately deal with the response from Elastic Search
+     * Create a response handler for a bulk request. The bulk API reports per-item failures in a successful response,
+     * so the body is checked for errors as well. A body that doesn't say whether there were errors is a failure.
      *
-     * @param latch The countdown latch to decrement with each successful response
+     * @param inFlight The permit to release once the request completes
+     * @param successful Flag cleared if the request or any of its items fail
      * @return The ResponseListener
      */
-    private ResponseListener createResponseListener(CountDownLatch latch) {
+    private ResponseListener createBulkResponseListener(Semaphore inFlight, AtomicBoolean successful) {
         return new ResponseListener() {
             @Override
             public void onSuccess(Response response) {
-                latch.countDown();
+                try {
+                    String body = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity());
+                    JsonElement errors = body.isEmpty() ? null : new JsonParser().parse(body).getAsJsonObject().get("errors");
+                    if (errors == null || errors.isJsonNull() || errors.getAsBoolean()) {
+                        logger.error("Errors indexing terms: " + body);
+                        successful.set(false);
+                    }
+                } catch (Exception e) {
+                    logger.error("Unable to read bulk response: " + e.getMessage());
+                    successful.set(false);
+                } finally {
+                    inFlight.release();
+                }
             }
             @Override
             public void onFailure(Exception exception) {
                 logger.error(exception.getMessage());
-                latch.countDown();
-                try {
-                    throw new IOException(exception);
-                } catch (IOException e) {
-                    logger.error(exception.getMessage());
-                }
+                successful.set(false);
+                inFlight.release();
             }
         };
     }
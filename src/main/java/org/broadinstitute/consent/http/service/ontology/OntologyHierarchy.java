@@ -0,0 +1,145 @@
+package org.broadinstitute.consent.http.service.ontology;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.StreamDocumentSource;
+import org.semanticweb.owlapi.model.MissingImportHandlingStrategy;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyLoaderConfiguration;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.parameters.Imports;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.structural.StructuralReasonerFactory;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory view of the class hierarchy of one or more OWL ontologies, keyed by class IRI. Holds the transitive
+ * closure of super classes and the declared disjoint classes so that subsumption questions can be answered without
+ * a reasoner round-trip.
+ */
+public class OntologyHierarchy {
+
+    private static final OntologyHierarchy EMPTY = new OntologyHierarchy(Collections.emptyMap(), Collections.emptyMap());
+
+    private final Map<String, Set<String>> ancestors;
+    private final Map<String, Set<String>> disjoints;
+
+    private OntologyHierarchy(Map<String, Set<String>> ancestors, Map<String, Set<String>> disjoints) {
+        this.ancestors = ancestors;
+        this.disjoints = disjoints;
+    }
+
+    public static OntologyHierarchy empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build a hierarchy from ontology documents. Imports that cannot be resolved are skipped, so only the classes
+     * present in the supplied documents (and reachable imports) are known.
+     *
+     * @param streams Streams of OWL documents. Streams are consumed but not closed.
+     * @return The merged hierarchy
+     * @throws OWLOntologyCreationException If a document cannot be parsed
+     */
+    public static OntologyHierarchy load(Collection<InputStream> streams) throws OWLOntologyCreationException {
+        Map<String, Set<String>> ancestors = new HashMap<>();
+        Map<String, Set<String>> disjoints = new HashMap<>();
+        OWLOntologyLoaderConfiguration loaderConfiguration = new OWLOntologyLoaderConfiguration().
+                setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT);
+        StructuralReasonerFactory reasonerFactory = new StructuralReasonerFactory();
+        for (InputStream stream : streams) {
+            // Separate managers so documents that share an ontology IRI don't collide
+            OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+            OWLOntology ontology = manager.loadOntologyFromOntologyDocument(new StreamDocumentSource(stream), loaderConfiguration);
+            OWLReasoner reasoner = reasonerFactory.createNonBufferingReasoner(ontology);
+            ontology.classesInSignature(Imports.INCLUDED).
+                    filter(c -> !c.isOWLThing() && !c.isOWLNothing()).
+                    forEach(c -> {
+                        ancestors.computeIfAbsent(c.toStringID(), k -> new HashSet<>()).
+                                addAll(toIds(reasoner.getSuperClasses(c, false).entities().collect(Collectors.toSet())));
+                        Set<String> disjointIds = toIds(reasoner.getDisjointClasses(c).entities().collect(Collectors.toSet()));
+                        if (!disjointIds.isEmpty()) {
+                            disjoints.computeIfAbsent(c.toStringID(), k -> new HashSet<>()).addAll(disjointIds);
+                        }
+                    });
+            reasoner.dispose();
+        }
+        return new OntologyHierarchy(ancestors, disjoints);
+    }
+
+    private static Set<String> toIds(Set<OWLClass> classes) {
+        return classes.stream().
+                filter(c -> !c.isOWLThing() && !c.isOWLNothing()).
+                map(OWLClass::toStringID).
+                collect(Collectors.toSet());
+    }
+
+    public boolean isEmpty() {
+        return ancestors.isEmpty();
+    }
+
+    public int size() {
+        return ancestors.size();
+    }
+
+    /**
+     * @param classId The class IRI
+     * @return True if the class was declared in one of the loaded ontologies
+     */
+    public boolean contains(String classId) {
+        return ancestors.containsKey(classId);
+    }
+
+    /**
+     * @param subClassId   The candidate sub class IRI
+     * @param superClassId The candidate super class IRI
+     * @return True if both are the same class or the first is a (transitive) sub class of the second
+     */
+    public boolean isSubClassOf(String subClassId, String superClassId) {
+        return subClassId.equals(superClassId) ||
+                ancestors.getOrDefault(subClassId, Collections.emptySet()).contains(superClassId);
+    }
+
+    /**
+     * Two classes are disjoint if either of them, or any of their ancestors, is declared disjoint with the other
+     * or one of its ancestors.
+     *
+     * @param classId      First class IRI
+     * @param otherClassId Second class IRI
+     * @return True if the classes can have no common instances
+     */
+    public boolean areDisjoint(String classId, String otherClassId) {
+        if (disjoints.isEmpty()) {
+            return false;
+        }
+        Set<String> lineage = lineage(classId);
+        Set<String> otherLineage = lineage(otherClassId);
+        return declaresDisjoint(lineage, otherLineage) || declaresDisjoint(otherLineage, lineage);
+    }
+
+    private boolean declaresDisjoint(Set<String> lineage, Set<String> otherLineage) {
+        for (String id : lineage) {
+            Set<String> declared = disjoints.get(id);
+            if (declared != null && !Collections.disjoint(declared, otherLineage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<String> lineage(String classId) {
+        Set<String> lineage = new HashSet<>(ancestors.getOrDefault(classId, Collections.emptySet()));
+        lineage.add(classId);
+        return lineage;
+    }
+
+}
@@ -0,0 +1,110 @@
+package org.broadinstitute.consent.http.service.ontology;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.http.HttpResponse;
+import com.google.common.hash.Hashing;
+import io.dropwizard.lifecycle.Managed;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps an {@link OntologyHierarchy} built from the ontology files that have been stored and indexed through
+ * {@link IndexerService}. Loading happens off the startup path; until it completes the hierarchy is empty.
+ */
+public class OntologyHierarchyLoader implements Managed {
+
+    private static final Logger logger = LoggerFactory.getLogger(OntologyHierarchyLoader.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final StoreOntologyService storeService;
+    private final AtomicReference<OntologyHierarchy> hierarchy = new AtomicReference<>(OntologyHierarchy.empty());
+    private final AtomicReference<String> version = new AtomicReference<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ontology-hierarchy-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OntologyHierarchyLoader(StoreOntologyService storeService) {
+        this.storeService = storeService;
+    }
+
+    @Override
+    public void start() {
+        refreshAsync();
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public OntologyHierarchy getHierarchy() {
+        return hierarchy.get();
+    }
+
+    /**
+     * @return A hash of the stored configuration file that lists the indexed ontology files, which changes whenever a
+     * file is indexed or removed. Null until the first load completes.
+     */
+    public String getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Schedule a reload of the hierarchy. The current hierarchy stays in use until the new one is ready.
+     */
+    public void refreshAsync() {
+        executor.submit(this::refresh);
+    }
+
+    /**
+     * Reload the hierarchy from every ontology file listed in the stored configuration file.
+     */
+    @SuppressWarnings("unchecked")
+    public void refresh() {
+        List<InputStream> streams = new ArrayList<>();
+        try {
+            String configString = storeService.retrieveConfigurationFile();
+            if (StringUtils.isEmpty(configString)) {
+                logger.warn("No indexed ontologies found, local matching will defer to the ontology service.");
+                version.set(versionOf(""));
+                return;
+            }
+            Map<String, Object> configMap = mapper.readValue(configString, Map.class);
+            for (String fileUrl : configMap.keySet()) {
+                HttpResponse response = storeService.retrieveFile(fileUrl);
+                streams.add(response.getContent());
+            }
+            OntologyHierarchy loaded = OntologyHierarchy.load(streams);
+            hierarchy.set(loaded);
+            version.set(versionOf(configString));
+            logger.info("Loaded ontology hierarchy with " + loaded.size() + " classes from " + streams.size() + " files.");
+        } catch (Throwable e) {
+            logger.error("Unable to load ontology hierarchy: " + e.getMessage(), e);
+        } finally {
+            streams.forEach(s -> {
+                try {
+                    s.close();
+                } catch (Exception e) {
+                    logger.debug("Error closing ontology stream: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private static String versionOf(String configString) {
+        return Hashing.sha256().hashString(configString, StandardCharsets.UTF_8).toString();
+    }
+
+}
@@ -1,12 +1,18 @@
 package org.broadinstitute.consent.http.service.validate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import com.mongodb.Block;
 import com.mongodb.client.FindIterable;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.broadinstitute.consent.http.configurations.ServicesConfiguration;
 import org.broadinstitute.consent.http.db.ConsentDAO;
 import org.broadinstitute.consent.http.models.dto.UseRestrictionDTO;
+import org.broadinstitute.consent.http.models.grammar.UseRestriction;
 import org.broadinstitute.consent.http.models.validate.ValidateResponse;
 import org.broadinstitute.consent.http.service.AbstractDataAccessRequestAPI;
 import org.broadinstitute.consent.http.service.DataAccessRequestAPI;
@@ -17,37 +23,58 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
+/**
+ * Validates use restrictions against the ontology service. The nightly validation of every consent and data access
+ * request only sends restrictions that changed since they were last validated, tracked by a checksum stored with each
+ * row. The checksum covers the canonical JSON of the restriction and the version of the indexed ontologies, so every
+ * restriction is validated again once after the ontologies change. Identical restrictions are sent once,
+ * VALIDATION_THREADS at a time, and restrictions that don't parse with the local grammar are invalid without a call.
+ *
+ * Checksums are only stored for definitive answers: a restriction the service couldn't be asked about is marked
+ * invalid, as before, and validated again on the next run.
+ */
 public class UseRestrictionValidator extends AbstractUseRestrictionValidatorAPI{
 
+    private static final int TIMEOUT_MILLIS = 10000;
+    private static final int VALIDATION_THREADS = 8;
+    private static final ObjectMapper canonicalMapper = new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
     private Client client;
     private ConsentDAO consentDAO;
     private DataAccessRequestAPI dataAccessAPI;
     private static final Logger logger = LoggerFactory.getLogger(UseRestrictionValidator.class);
     private String validateUrl;
+    private Supplier<String> ontologyVersion;
 
-    public static void initInstance(Client client, ServicesConfiguration config, ConsentDAO consentDAO) {
-        AbstractUseRestrictionValidatorAPI.UseRestrictionValidatorAPIHolder.setInstance(new UseRestrictionValidator(client, config, consentDAO));
+    public static void initInstance(Client client, ServicesConfiguration config, ConsentDAO consentDAO, Supplier<String> ontologyVersion) {
+        AbstractUseRestrictionValidatorAPI.UseRestrictionValidatorAPIHolder.setInstance(new UseRestrictionValidator(client, config, consentDAO, AbstractDataAccessRequestAPI.getInstance(), ontologyVersion));
     }
 
-    private UseRestrictionValidator(Client client, ServicesConfiguration config, ConsentDAO consentDAO){
-        this.client = ClientBuilder.newClient();
-        this.dataAccessAPI = AbstractDataAccessRequestAPI.getInstance();
-        client.property(ClientProperties.CONNECT_TIMEOUT, 10000);
-        client.property(ClientProperties.READ_TIMEOUT,    10000);
+    @VisibleForTesting
+    UseRestrictionValidator(Client client, ServicesConfiguration config, ConsentDAO consentDAO, DataAccessRequestAPI dataAccessAPI, Supplier<String> ontologyVersion){
+        this.client = client;
+        this.dataAccessAPI = dataAccessAPI;
         this.validateUrl = config.getValidateUseRestrictionURL();
         this.consentDAO = consentDAO;
+        this.ontologyVersion = ontologyVersion;
     }
 
     public void validateUseRestriction(String useRestriction) throws IllegalArgumentException {
-        Response res = client.target(validateUrl).request("application/json").post(Entity.json(useRestriction));
+        Response res = post(useRestriction);
         if (res.getStatus() == Response.Status.OK.getStatusCode()) {
             ValidateResponse entity = res.readEntity(ValidateResponse.class);
             if (!entity.isValid()) {
@@ -58,6 +85,16 @@ public class UseRestrictionValidator extends AbstractUseRestrictionValidatorAPI{
         }
     }
 
+    /**
+     * Timeouts are set on each request rather than on the shared client, which the rest of the application uses too.
+     */
+    private Response post(String useRestriction) {
+        return client.target(validateUrl).request("application/json").
+                property(ClientProperties.CONNECT_TIMEOUT, TIMEOUT_MILLIS).
+                property(ClientProperties.READ_TIMEOUT, TIMEOUT_MILLIS).
+                post(Entity.json(useRestriction));
+    }
+
     @Override
     public void setClient(Client client) {
         this.client = client;
@@ -65,56 +102,171 @@ public class UseRestrictionValidator extends AbstractUseRestrictionValidatorAPI{
 
     @Override
     public void validateConsentUseRestriction(){
+        String version = StringUtils.defaultString(ontologyVersion.get());
         List<UseRestrictionDTO> useRestrictionDTOList = consentDAO.findConsentUseRestrictions();
-        List<UseRestrictionDTO> invalidUseRestrictionDTOList = new ArrayList<>();
-        List<UseRestrictionDTO> validUseRestrictionDTOList = new ArrayList<>();
+        Map<String, String> restrictions = new HashMap<>();
+        List<UseRestrictionDTO> changed = new ArrayList<>();
+        List<String> checksums = new ArrayList<>();
         if(CollectionUtils.isNotEmpty(useRestrictionDTOList)){
             useRestrictionDTOList.forEach(us -> {
-                try{
-                    validateUseRestriction(us.getUseRestriction().toString());
-                    validUseRestrictionDTOList.add(us);
-                }catch (IllegalArgumentException iae){
-                    invalidUseRestrictionDTOList.add(us);
+                String restriction = canonicalize(us.getUseRestriction());
+                String checksum = checksum(version, restriction);
+                if (!checksum.equals(us.getChecksum())) {
+                    restrictions.put(checksum, restriction);
+                    changed.add(us);
+                    checksums.add(checksum);
                 }
             });
         }
-        logger.info("invalid consent use restrictions: " + invalidUseRestrictionDTOList.size());
-        updateConsentValidUseRestriction(invalidUseRestrictionDTOList, false);
-        logger.info("valid consent use restrictions: "+ validUseRestrictionDTOList.size());
-        updateConsentValidUseRestriction(validUseRestrictionDTOList, true);
+        Map<String, Boolean> results = validateAll(restrictions);
+        List<String> consentIds = new ArrayList<>();
+        List<Boolean> valid = new ArrayList<>();
+        List<String> validatedChecksums = new ArrayList<>();
+        for (int i = 0; i < changed.size(); i++) {
+            Boolean result = results.get(checksums.get(i));
+            consentIds.add(changed.get(i).getId());
+            valid.add(Boolean.TRUE.equals(result));
+            validatedChecksums.add(result != null ? checksums.get(i) : null);
+        }
+        logger.info("consent use restrictions unchanged: " + (useRestrictionDTOList == null ? 0 : useRestrictionDTOList.size() - changed.size()) +
+                ", validated: " + changed.size() + " (" + restrictions.size() + " distinct), invalid: " + valid.stream().filter(v -> !v).count());
+        if (!consentIds.isEmpty()) {
+            consentDAO.updateConsentRestrictionValidation(consentIds, valid, validatedChecksums);
+        }
     }
 
     @Override
     public void validateDARUseRestriction(){
+        String version = StringUtils.defaultString(ontologyVersion.get());
         FindIterable<Document> darUseRestriction = dataAccessAPI.findDARUseRestrictions();
-        List<Document> invalidUseRestrictionList = new ArrayList<>();
-        List<Document> validUseRestrictionList = new ArrayList<>();
+        Map<String, String> restrictions = new HashMap<>();
+        List<Document> changed = new ArrayList<>();
+        List<String> checksums = new ArrayList<>();
+        int[] unchanged = {0};
         if(darUseRestriction != null){
             darUseRestriction.forEach((Block<Document>) dar -> {
-                try {
-                    String restriction = new Gson().toJson(dar.get(DarConstants.RESTRICTION, Map.class));
-                    validateUseRestriction(restriction);
-                    validUseRestrictionList.add(dar);
-                }catch(Exception e){
-                    invalidUseRestrictionList.add(dar);
+                String restriction = canonicalize(new Gson().toJson(dar.get(DarConstants.RESTRICTION, Map.class)));
+                String checksum = checksum(version, restriction);
+                if (checksum.equals(dar.getString(DarConstants.RESTRICTION_CHECKSUM))) {
+                    unchanged[0]++;
+                } else {
+                    restrictions.put(checksum, restriction);
+                    changed.add(dar);
+                    checksums.add(checksum);
                 }
             });
         }
-        logger.info("invalid dar use restrictions: " + invalidUseRestrictionList.size());
-        updateDARValidUseRestriction(invalidUseRestrictionList, false);
-        logger.info("valid dar use restrictions: " + validUseRestrictionList.size());
-        updateDARValidUseRestriction(validUseRestrictionList, true);
+        Map<String, Boolean> results = validateAll(restrictions);
+        List<Boolean> valid = new ArrayList<>();
+        List<String> validatedChecksums = new ArrayList<>();
+        for (String checksum : checksums) {
+            Boolean result = results.get(checksum);
+            valid.add(Boolean.TRUE.equals(result));
+            validatedChecksums.add(result != null ? checksum : null);
+        }
+        logger.info("dar use restrictions unchanged: " + unchanged[0] + ", validated: " + changed.size() +
+                " (" + restrictions.size() + " distinct), invalid: " + valid.stream().filter(v -> !v).count());
+        dataAccessAPI.updateDARUseRestrictionValidation(changed, valid, validatedChecksums);
     }
 
-    private void updateDARValidUseRestriction(List<Document> useRestrictionList, Boolean validUseRestriction){
-        List<String> darCodes = useRestrictionList.stream().map(sc -> sc.getString(DarConstants.DAR_CODE)).collect(Collectors.toList());
-        dataAccessAPI.updateDARUseRestrictionValidation(darCodes, validUseRestriction);
-   }
+    /**
+     * Validates each distinct restriction once, keyed by checksum. A restriction has no result when the service
+     * couldn't answer for it.
+     */
+    private Map<String, Boolean> validateAll(Map<String, String> restrictions) {
+        Map<String, Boolean> results = new HashMap<>();
+        if (restrictions.isEmpty()) {
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(VALIDATION_THREADS, restrictions.size()), r -> {
+            Thread thread = new Thread(r, "use-restriction-validator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, Future<Boolean>> pending = new HashMap<>();
+            restrictions.forEach((checksum, restriction) -> pending.put(checksum, executor.submit(() -> isValid(restriction))));
+            for (Map.Entry<String, Future<Boolean>> entry : pending.entrySet()) {
+                try {
+                    results.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    logger.error("Error validating use restriction: " + e.getCause().getMessage());
+                    results.put(entry.getKey(), null);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted validating use restrictions");
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
 
-    private void updateConsentValidUseRestriction(List<UseRestrictionDTO> useRestrictionDTOList, Boolean validUseRestriction) {
-        if(CollectionUtils.isNotEmpty(useRestrictionDTOList)){
-            List<String> consentIdList = useRestrictionDTOList.stream().map(sc -> sc.getId()).collect(Collectors.toList());
-            consentDAO.updateConsentValidUseRestriction(consentIdList, validUseRestriction);
+    /**
+     * @return Whether the service found the restriction valid, or null if it couldn't be asked.
+     */
+    private Boolean isValid(String restriction) {
+        try {
+            return isValidUseRestriction(restriction);
+        } catch (IllegalStateException e) {
+            logger.error(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Restrictions that don't parse with the local grammar are invalid without a call.
+     */
+    @Override
+    public boolean isValidUseRestriction(String useRestriction) throws IllegalStateException {
+        try {
+            UseRestriction.parse(useRestriction);
+        } catch (IOException e) {
+            return false;
+        }
+        Response res;
+        try {
+            res = post(useRestriction);
+        } catch (Exception e) {
+            throw new IllegalStateException("Error posting use restriction: " + e.getMessage(), e);
+        }
+        if (res.getStatus() != Response.Status.OK.getStatusCode()) {
+            throw new IllegalStateException("Error response validating use restriction: " + res.readEntity(String.class));
+        }
+        ValidateResponse entity = res.readEntity(ValidateResponse.class);
+        if (entity == null) {
+            throw new IllegalStateException("Empty response validating use restriction");
+        }
+        return entity.isValid();
+    }
+
+    @Override
+    public String useRestrictionChecksum(String useRestriction) {
+        return checksum(StringUtils.defaultString(ontologyVersion.get()), canonicalize(useRestriction));
+    }
+
+    /**
+     * The restriction with its object keys sorted, so the same restriction stored with keys in a different order has
+     * the same checksum.
+     */
+    @VisibleForTesting
+    static String canonicalize(String restriction) {
+        if (restriction == null) {
+            return "null";
         }
+        try {
+            return canonicalMapper.writeValueAsString(canonicalMapper.readValue(restriction, Object.class));
+        } catch (IOException e) {
+            return restriction;
+        }
+    }
+
+    /**
+     * The version is empty until the ontologies are first loaded, which validates everything again once they are.
+     */
+    private static String checksum(String version, String restriction) {
+        return Hashing.sha256().hashString(version + "\n" + restriction, StandardCharsets.UTF_8).toString();
     }
-}
\ No newline at end of file
+
+}
@@ -7,6 +7,17 @@ public interface UseRestrictionValidatorAPI {
 
     void validateUseRestriction(String useRestriction) throws IllegalArgumentException;
 
+    /**
+     * @return Whether the ontology service found the restriction valid.
+     * @throws IllegalStateException if the service couldn't be asked or didn't answer with a result.
+     */
+    boolean isValidUseRestriction(String useRestriction) throws IllegalStateException;
+
+    /**
+     * @return The checksum the nightly validation stores with a restriction once it has a result for it.
+     */
+    String useRestrictionChecksum(String useRestriction);
+
     void validateConsentUseRestriction();
 
     void validateDARUseRestriction();
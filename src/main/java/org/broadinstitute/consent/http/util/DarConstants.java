@@ -21,6 +21,8 @@ public class DarConstants {
 
     public static final String VALID_RESTRICTION = "valid_restriction";
 
+    public static final String RESTRICTION_CHECKSUM = "restriction_checksum";
+
     public static final String RUS = "rus";
 
     public static final String ID = "_id";
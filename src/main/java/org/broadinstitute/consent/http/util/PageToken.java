@@ -0,0 +1,67 @@
+package org.broadinstitute.consent.http.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque keyset pagination token. Listings are sorted by sort date and then id, both descending, and the token holds
+ * the sort date and id of the last item returned so the next page starts right after it. Items without a sort date
+ * come after every dated item, and the token of such an item has no sort date.
+ */
+public class PageToken {
+
+    private static final String SEPARATOR = "|";
+
+    private final Date sortDate;
+
+    private final String id;
+
+    public PageToken(Date sortDate, String id) {
+        this.sortDate = sortDate;
+        this.id = id;
+    }
+
+    /**
+     * @return The sort date of the last item returned, or null when it had none.
+     */
+    public Date getSortDate() {
+        return sortDate;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String encode() {
+        String key = (sortDate == null ? "" : String.valueOf(sortDate.getTime())) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded token, or null when no token was given.
+     * @throws IllegalArgumentException when the token was not produced by {@link #encode()}.
+     */
+    public static PageToken decode(String token) throws IllegalArgumentException {
+        if (token == null || token.trim().isEmpty()) {
+            return null;
+        }
+        String key;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token: " + token);
+        }
+        int separator = key.indexOf(SEPARATOR);
+        if (separator < 0 || separator == key.length() - 1) {
+            throw new IllegalArgumentException("Invalid page token: " + token);
+        }
+        try {
+            Date sortDate = separator == 0 ? null : new Date(Long.parseLong(key.substring(0, separator)));
+            return new PageToken(sortDate, key.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page token: " + token);
+        }
+    }
+
+}
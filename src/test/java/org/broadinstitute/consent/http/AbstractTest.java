@@ -162,6 +162,7 @@ abstract public class AbstractTest extends ResourcedTest {
         Mockito.when(responseMock.readEntity(ValidateResponse.class)).thenReturn(entity);
 
         Mockito.when(builderMock.post(Entity.json(Mockito.anyString()))).thenReturn(responseMock);
+        Mockito.when(builderMock.property(Mockito.anyString(), Mockito.any())).thenReturn(builderMock);
         Mockito.when(webTargetMock.request(MediaType.APPLICATION_JSON)).thenReturn(builderMock);
         final Client clientMock= Mockito.mock(Client.class);
         Mockito.when(clientMock.target(Mockito.anyString())).thenReturn(webTargetMock);
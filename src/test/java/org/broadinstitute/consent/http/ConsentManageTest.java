@@ -7,6 +7,7 @@ import org.broadinstitute.consent.http.enumeration.ElectionType;
 import org.broadinstitute.consent.http.models.ConsentManage;
 import org.broadinstitute.consent.http.models.Election;
 import org.broadinstitute.consent.http.models.Vote;
+import org.broadinstitute.consent.http.resources.Resource;
 import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -14,8 +15,11 @@ import org.junit.Test;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.Response;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class ConsentManageTest extends ElectionVoteServiceTest {
 
@@ -61,6 +65,28 @@ public class ConsentManageTest extends ElectionVoteServiceTest {
         delete(client, electionConsentPathById(CONSENT_ID_2, electionId_2));
     }
 
+    @Test
+    public void testConsentManagePagination() throws IOException {
+        Client client = ClientBuilder.newClient();
+        List<ConsentManage> consentManage = getJson(client, consentManagePath()).readEntity(new GenericType<List<ConsentManage>>() { });
+        Assert.assertTrue(consentManage.size() > 1);
+
+        List<String> pagedIds = new ArrayList<>();
+        String pageToken = null;
+        do {
+            Response response = getJson(client, consentManagePath() + "?limit=1" + (pageToken == null ? "" : "&pageToken=" + pageToken));
+            List<ConsentManage> page = response.readEntity(new GenericType<List<ConsentManage>>() { });
+            Assert.assertTrue(page.size() <= 1);
+            page.forEach(c -> pagedIds.add(c.getConsentId()));
+            pageToken = response.getHeaderString(Resource.NEXT_PAGE_TOKEN_HEADER);
+        } while (pageToken != null);
+        Assert.assertEquals(consentManage.stream().map(ConsentManage::getConsentId).collect(Collectors.toList()), pagedIds);
+
+        List<ConsentManage> unreviewed = getJson(client, consentManagePath() + "?status=un-reviewed").readEntity(new GenericType<List<ConsentManage>>() { });
+        unreviewed.forEach(c -> Assert.assertEquals("un-reviewed", c.getElectionStatus()));
+        checkStatus(BAD_REQUEST, getJson(client, consentManagePath() + "?pageToken=invalid"));
+    }
+
     @Test
     public void testFindElectionByNonExistentVoteId()  throws IOException {
         Client client = ClientBuilder.newClient();
@@ -7,6 +7,7 @@ import org.broadinstitute.consent.http.models.DataSet;
 import org.glassfish.jersey.media.multipart.MultiPart;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.glassfish.jersey.media.multipart.file.FileDataBodyPart;
+import org.json.JSONObject;
 import org.junit.ClassRule;
 import org.junit.Test;
 
@@ -22,7 +23,10 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class DataSetResourceTest extends DataSetServiceTest {
@@ -102,6 +106,22 @@ public class DataSetResourceTest extends DataSetServiceTest {
         checkStatus(200, response);
     }
 
+    @Test
+    public void testDownloadDataSetsTSV() throws Exception {
+        Client client = ClientBuilder.newClient();
+        List<Integer> ids = Arrays.asList(1, 2, 3);
+        Response jsonResponse = post(client, downloadDataSetsPath(false), ids);
+        checkStatus(200, jsonResponse);
+        String expected = new JSONObject(jsonResponse.readEntity(String.class)).getString("datasets");
+        mockValidateTokenResponse();
+        Response tsvResponse = client.target(downloadDataSetsPath(true))
+                .request("text/tab-separated-values")
+                .header("Authorization", "Bearer access_token")
+                .post(Entity.json(ids));
+        checkStatus(200, tsvResponse);
+        assertEquals(expected, tsvResponse.readEntity(String.class));
+    }
+
     private MultiPart createFormData(String name, String ext) throws URISyntaxException, IOException {
         MultiPart multiPart = new MultiPart();
         multiPart.setMediaType(MediaType.MULTIPART_FORM_DATA_TYPE);
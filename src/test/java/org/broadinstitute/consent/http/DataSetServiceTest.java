@@ -13,4 +13,8 @@ public abstract class DataSetServiceTest extends AbstractTest{
             return String.format("/dataset?overwrite=%s", overwrite);
         }
     }
+
+    public String downloadDataSetsPath(Boolean tsv) {
+        return path2Url(tsv ? "/dataset/download/tsv" : "/dataset/download");
+    }
 }
@@ -0,0 +1,110 @@
+package org.broadinstitute.consent.http.authentication;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.broadinstitute.consent.http.models.AuthUser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.charset.Charset;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.when;
+
+public class OAuthAuthenticatorTest {
+
+    private static final String TOKEN = "0cx2G9gKm4XZdK8BFxoWy7AE025tvq";
+
+    @Mock
+    private HttpClient httpClient;
+    @Mock
+    private HttpResponse response;
+    @Mock
+    private HttpEntity entity;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private MetricRegistry metrics;
+    private OAuthAuthenticator authenticator;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(httpClient.execute(Mockito.any())).thenReturn(response);
+        when(response.getEntity()).thenReturn(entity);
+        when(entity.getContent()).thenAnswer(invocation -> IOUtils.toInputStream(
+                "{\"aud\": \"clientId\", \"expires_in\": \"60\", \"email\": \"oauthuser@broadinstitute.org\"}",
+                Charset.defaultCharset()));
+        metrics = new MetricRegistry();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        authenticator = new OAuthAuthenticator(httpClient, metrics, ticker);
+    }
+
+    @Test
+    public void testTokenIsValidatedOnce() throws Exception {
+        Optional<AuthUser> first = authenticator.authenticate(TOKEN);
+        Optional<AuthUser> second = authenticator.authenticate(TOKEN);
+        Assert.assertEquals("oauthuser@broadinstitute.org", first.get().getName());
+        Assert.assertEquals("oauthuser@broadinstitute.org", second.get().getName());
+        Mockito.verify(httpClient, Mockito.times(1)).execute(Mockito.any());
+        Assert.assertEquals(1L, gauge("hits"));
+        Assert.assertEquals(1L, gauge("misses"));
+    }
+
+    @Test
+    public void testTokenIsValidatedAgainAfterExpiry() throws Exception {
+        authenticator.authenticate(TOKEN);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        Assert.assertTrue(authenticator.authenticate(TOKEN).isPresent());
+        Mockito.verify(httpClient, Mockito.times(2)).execute(Mockito.any());
+        Assert.assertEquals(1L, metrics.counter(MetricRegistry.name(OAuthAuthenticator.class, "tokenCache", "expirations")).getCount());
+    }
+
+    @Test
+    public void testTokenWithoutLifetimeIsValidatedOnce() throws Exception {
+        when(entity.getContent()).thenAnswer(invocation -> IOUtils.toInputStream(
+                "{\"aud\": \"clientId\", \"email\": \"oauthuser@broadinstitute.org\"}", Charset.defaultCharset()));
+        Assert.assertTrue(authenticator.authenticate(TOKEN).isPresent());
+        Assert.assertTrue(authenticator.authenticate(TOKEN).isPresent());
+        Mockito.verify(httpClient, Mockito.times(1)).execute(Mockito.any());
+    }
+
+    @Test
+    public void testExpiredTokenIsValidatedOncePerRequest() throws Exception {
+        when(entity.getContent()).thenAnswer(invocation -> IOUtils.toInputStream(
+                "{\"aud\": \"clientId\", \"expires_in\": \"0\", \"email\": \"oauthuser@broadinstitute.org\"}", Charset.defaultCharset()));
+        Assert.assertTrue(authenticator.authenticate(TOKEN).isPresent());
+        Mockito.verify(httpClient, Mockito.times(1)).execute(Mockito.any());
+    }
+
+    @Test
+    public void testInvalidTokenIsNotCached() throws Exception {
+        when(entity.getContent()).thenAnswer(invocation -> IOUtils.toInputStream(
+                "{\"error_description\": \"Invalid Value\"}", Charset.defaultCharset()));
+        Assert.assertFalse(authenticator.authenticate(TOKEN).isPresent());
+        Assert.assertFalse(authenticator.authenticate(TOKEN).isPresent());
+        Mockito.verify(httpClient, Mockito.times(2)).execute(Mockito.any());
+        Assert.assertEquals(0L, gauge("size"));
+    }
+
+    private long gauge(String name) {
+        Gauge gauge = metrics.getGauges().get(MetricRegistry.name(OAuthAuthenticator.class, "tokenCache", name));
+        return ((Number) gauge.getValue()).longValue();
+    }
+
+}
@@ -0,0 +1,98 @@
+package org.broadinstitute.consent.http.cloudstore;
+
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.commons.io.IOUtils;
+import org.broadinstitute.consent.http.WithMockServer;
+import org.broadinstitute.consent.http.configurations.StoreConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.Header;
+
+import java.nio.charset.Charset;
+
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * Runs the store against a local stand-in for the GCS JSON and XML APIs.
+ */
+public class GCSStoreTest implements WithMockServer {
+
+    private static final int PORT = 9494;
+    private static final String ENDPOINT = "http://localhost:" + PORT + "/";
+    private static final String BUCKET = "bucket";
+
+    private ClientAndServer server;
+    private GCSStore store;
+
+    @Before
+    public void setUp() {
+        server = startMockServer(PORT);
+        StoreConfiguration config = new StoreConfiguration();
+        config.setEndpoint(ENDPOINT);
+        config.setBucket(BUCKET);
+        config.setApiRootUrl(ENDPOINT);
+        store = new GCSStore(config, new NetHttpTransport(), request -> { }, MoreExecutors.newDirectExecutorService());
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null && server.isRunning()) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testPutStorageDocumentUsesResumableUpload() throws Exception {
+        server.when(request().withMethod("POST").withPath("/upload/storage/v1/b/" + BUCKET + "/o").
+                withQueryStringParameter("uploadType", "resumable")).
+                respond(response().withStatusCode(200).withHeader("Location", ENDPOINT + "upload/session/1"));
+        server.when(request().withMethod("PUT").withPath("/upload/session/1")).
+                respond(response().withStatusCode(200).
+                        withHeader("Content-Type", "application/json").
+                        withBody("{\"bucket\": \"" + BUCKET + "\", \"name\": \"dul.pdf\"}"));
+
+        String url = store.putStorageDocument(IOUtils.toInputStream("content", Charset.defaultCharset()), "application/pdf", "dul.pdf");
+
+        Assert.assertEquals(ENDPOINT + BUCKET + "/dul.pdf", url);
+        server.verify(request().withMethod("PUT").withPath("/upload/session/1").withBody("content"));
+    }
+
+    @Test
+    public void testGetStorageDocumentRange() throws Exception {
+        mockRangedDocument();
+        HttpResponse response = store.getStorageDocument(ENDPOINT + BUCKET + "/dul.pdf", "bytes=0-3");
+        Assert.assertEquals(206, response.getStatusCode());
+        Assert.assertEquals("bytes 0-3/7", response.getHeaders().getContentRange());
+        Assert.assertEquals("cont", IOUtils.toString(response.getContent(), Charset.defaultCharset()));
+    }
+
+    @Test
+    public void testGetStorageDocumentAsync() throws Exception {
+        mockRangedDocument();
+        HttpResponse response = store.getStorageDocumentAsync(ENDPOINT + BUCKET + "/dul.pdf", "bytes=0-3").get();
+        Assert.assertEquals("cont", IOUtils.toString(response.getContent(), Charset.defaultCharset()));
+    }
+
+    @Test
+    public void testDeleteStorageDocumentAsync() throws Exception {
+        server.when(request().withMethod("DELETE").withPath("/" + BUCKET + "/dul.pdf")).
+                respond(response().withStatusCode(204));
+        Assert.assertTrue(store.deleteStorageDocumentAsync(ENDPOINT + BUCKET + "/dul.pdf").get());
+        Assert.assertFalse(store.deleteStorageDocumentAsync(ENDPOINT + BUCKET + "/missing.pdf").get());
+    }
+
+    private void mockRangedDocument() {
+        server.when(request().withMethod("GET").withPath("/" + BUCKET + "/dul.pdf").
+                withHeader(new Header("Range", "bytes=0-3"))).
+                respond(response().withStatusCode(206).
+                        withHeader("Content-Range", "bytes 0-3/7").
+                        withBody("cont"));
+    }
+
+}
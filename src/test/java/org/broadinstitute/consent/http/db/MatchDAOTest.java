@@ -0,0 +1,76 @@
+package org.broadinstitute.consent.http.db;
+
+import com.google.common.io.Resources;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.broadinstitute.consent.http.AbstractTest;
+import org.broadinstitute.consent.http.ConsentApplication;
+import org.broadinstitute.consent.http.configurations.ConsentConfiguration;
+import org.broadinstitute.consent.http.models.Match;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class MatchDAOTest extends AbstractTest {
+
+    @SuppressWarnings("UnstableApiUsage")
+    @ClassRule
+    public static final DropwizardAppRule<ConsentConfiguration> RULE = new DropwizardAppRule<>(
+            ConsentApplication.class, Resources.getResource("consent-config.yml").getFile());
+
+    @Override
+    public DropwizardAppRule<ConsentConfiguration> rule() {
+        return RULE;
+    }
+
+    private MatchDAO matchDAO;
+
+    @Before
+    public void setUp() {
+        matchDAO = getApplicationJdbi().onDemand(MatchDAO.class);
+    }
+
+    @Test
+    public void testInsertAllAndDeleteByConsentId() {
+        String consentId = RandomStringUtils.randomAlphanumeric(10);
+        List<Match> matches = createMatches(consentId, 1200);
+        matchDAO.insertAll(matches);
+        Assert.assertEquals(1200, matchDAO.findMatchByConsentId(consentId).size());
+
+        matchDAO.deleteMatchesByConsentId(consentId);
+        Assert.assertTrue(matchDAO.findMatchByConsentId(consentId).isEmpty());
+    }
+
+    @Test
+    public void testDeleteByPurposeId() {
+        String consentId = RandomStringUtils.randomAlphanumeric(10);
+        List<Match> matches = createMatches(consentId, 2);
+        matchDAO.insertAll(matches);
+        String purposeId = matches.get(0).getPurpose();
+
+        matchDAO.deleteMatchesByPurposeId(purposeId);
+        Assert.assertTrue(matchDAO.findMatchByPurposeId(purposeId).isEmpty());
+        Assert.assertEquals(1, matchDAO.findMatchByConsentId(consentId).size());
+        matchDAO.deleteMatchesByConsentId(consentId);
+    }
+
+    private List<Match> createMatches(String consentId, int count) {
+        List<Match> matches = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Match match = new Match();
+            match.setConsent(consentId);
+            match.setPurpose(RandomStringUtils.randomAlphanumeric(24));
+            match.setMatch(i % 2 == 0);
+            match.setFailed(false);
+            match.setCreateDate(new Date());
+            matches.add(match);
+        }
+        return matches;
+    }
+
+}
@@ -0,0 +1,205 @@
+package org.broadinstitute.consent.http.db.mongo;
+
+import com.google.common.io.Resources;
+import com.mongodb.Block;
+import com.mongodb.MongoClient;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.broadinstitute.consent.http.AbstractTest;
+import org.broadinstitute.consent.http.ConsentApplication;
+import org.broadinstitute.consent.http.configurations.ConsentConfiguration;
+import org.broadinstitute.consent.http.models.Page;
+import org.broadinstitute.consent.http.service.DatabaseDataAccessRequestAPI;
+import org.broadinstitute.consent.http.util.DarConstants;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.in;
+
+public class MongoConsentDBTest extends AbstractTest {
+
+    private static final String TEST_DATABASE_NAME = "TestConsentIndexes";
+
+    @SuppressWarnings("UnstableApiUsage")
+    @ClassRule
+    public static final DropwizardAppRule<ConsentConfiguration> RULE = new DropwizardAppRule<>(
+            ConsentApplication.class, Resources.getResource("consent-config.yml").getFile());
+
+    @Override
+    public DropwizardAppRule<ConsentConfiguration> rule() {
+        return RULE;
+    }
+
+    private MongoConsentDB mongoi;
+
+    @Before
+    public void setUp() throws Exception {
+        MongoClient mongo = setUpMongoClient();
+        mongoi = new MongoConsentDB(mongo, TEST_DATABASE_NAME);
+        mongoi.configureMongo();
+        Document restriction = new Document("type", "everything");
+        mongoi.getDataAccessRequestCollection().insertMany(Arrays.asList(
+                createDar(Arrays.asList(1, 2), restriction),
+                createDar(Collections.singletonList(2), restriction),
+                createDar(Collections.singletonList(3), restriction),
+                createDar(Collections.singletonList(1), null)));
+        DatabaseDataAccessRequestAPI.getInstance().setMongoDBInstance(mongoi);
+    }
+
+    @After
+    public void tearDown() {
+        shutDownMongo();
+    }
+
+    @Test
+    public void testDescribeDataAccessWithDataSetIdAndRestriction() {
+        List<Document> dars = DatabaseDataAccessRequestAPI.getInstance().describeDataAccessWithDataSetIdAndRestriction(Arrays.asList(1, 2));
+        // The request referencing both datasets is only returned once, and the one without a restriction is skipped
+        Assert.assertEquals(2, dars.size());
+        Assert.assertTrue(DatabaseDataAccessRequestAPI.getInstance().describeDataAccessWithDataSetIdAndRestriction(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testDatasetQueriesUseIndex() {
+        assertIndexScan(and(in(DarConstants.DATASET_ID, Arrays.asList(1, 2)), exists(DarConstants.RESTRICTION)), null);
+        assertIndexScan(new Document(DarConstants.USER_ID, 1), new Document(DarConstants.SORT_DATE, -1));
+        assertIndexScan(new Document(), new Document(DarConstants.SORT_DATE, -1));
+    }
+
+    @Test
+    public void testReserveSequenceRange() {
+        long first = mongoi.reserveSequenceRange(DarConstants.DAR_CODE_COUNTER, 5);
+        long next = mongoi.reserveSequenceRange(DarConstants.DAR_CODE_COUNTER, 1);
+        Assert.assertEquals(first + 5, next);
+        Assert.assertEquals(String.valueOf(next + 1), mongoi.getNextSequence(DarConstants.DAR_CODE_COUNTER));
+    }
+
+    @Test
+    public void testBackfillCodes() {
+        mongoi.getPartialDataAccessRequestCollection().insertMany(Arrays.asList(
+                createDar(Collections.singletonList(1), null),
+                createDar(Collections.singletonList(2), null)));
+        Assert.assertFalse(mongoi.isCodeBackfillComplete());
+        mongoi.backfillCodes();
+        Assert.assertTrue(mongoi.isCodeBackfillComplete());
+
+        Set<String> darCodes = new HashSet<>();
+        mongoi.getDataAccessRequestCollection().find().forEach((Block<Document>) dar -> darCodes.add(dar.getString(DarConstants.DAR_CODE)));
+        Assert.assertEquals(4, darCodes.size());
+        darCodes.forEach(code -> Assert.assertTrue(code.startsWith("DAR-")));
+
+        Set<String> partialCodes = new HashSet<>();
+        mongoi.getPartialDataAccessRequestCollection().find().forEach((Block<Document>) dar -> partialCodes.add(dar.getString(DarConstants.PARTIAL_DAR_CODE)));
+        Assert.assertEquals(2, partialCodes.size());
+        partialCodes.forEach(code -> Assert.assertTrue(code.startsWith("PARTIAL DAR-")));
+    }
+
+    @Test
+    public void testBackfillCodesResumesAfterLastProcessedId() {
+        Object lastId = mongoi.getDataAccessRequestCollection().find().sort(new Document(DarConstants.ID, 1)).first().get(DarConstants.ID);
+        mongoi.getMigrationsCollection().insertOne(new Document(DarConstants.ID, "dar_code_backfill").append("dataAccessRequest", lastId));
+        mongoi.backfillCodes();
+        Assert.assertNull(mongoi.getDataAccessRequestCollection().find(eq(DarConstants.ID, lastId)).first().get(DarConstants.DAR_CODE));
+        Assert.assertEquals(3, mongoi.getDataAccessRequestCollection().count(exists(DarConstants.DAR_CODE)));
+
+        // Once complete, the backfill is skipped on later runs
+        mongoi.getDataAccessRequestCollection().insertOne(createDar(Collections.singletonList(4), null));
+        mongoi.backfillCodes();
+        Assert.assertEquals(3, mongoi.getDataAccessRequestCollection().count(exists(DarConstants.DAR_CODE)));
+    }
+
+    @Test
+    public void testUnReviewedDARCount() {
+        Assert.assertFalse(mongoi.isUnReviewedBackfillComplete());
+        // Requests created before they were tracked are marked on first read, none of them has an election yet
+        Assert.assertEquals(Integer.valueOf(4), DatabaseDataAccessRequestAPI.getInstance().getTotalUnReviewedDAR());
+        Assert.assertTrue(mongoi.isUnReviewedBackfillComplete());
+
+        String darId = mongoi.getDataAccessRequestCollection().find().first().get(DarConstants.ID).toString();
+        DatabaseDataAccessRequestAPI.getInstance().deleteDataAccessRequestById(darId);
+        Assert.assertEquals(Integer.valueOf(3), DatabaseDataAccessRequestAPI.getInstance().getTotalUnReviewedDAR());
+
+        // Repeated changes to the same request are only counted once
+        DatabaseDataAccessRequestAPI.getInstance().deleteDataAccessRequestById(darId);
+        String otherId = mongoi.getDataAccessRequestCollection().find().first().get(DarConstants.ID).toString();
+        mongoi.markUnReviewed(otherId);
+        Assert.assertEquals(Integer.valueOf(3), DatabaseDataAccessRequestAPI.getInstance().getTotalUnReviewedDAR());
+    }
+
+    @Test
+    public void testPartialManagePagination() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            mongoi.getPartialDataAccessRequestCollection().insertOne(createDar(Collections.singletonList(i), null).
+                    append(DarConstants.SORT_DATE, new Date(now - i * 1000)));
+        }
+        Page<Document> first = DatabaseDataAccessRequestAPI.getInstance().describePartialDataAccessRequestManage(1, null, null, 2);
+        Assert.assertEquals(2, first.getItems().size());
+        Assert.assertNotNull(first.getNextPageToken());
+        Page<Document> second = DatabaseDataAccessRequestAPI.getInstance().describePartialDataAccessRequestManage(1, null, first.getNextPageToken(), 2);
+        Assert.assertEquals(1, second.getItems().size());
+        Assert.assertNull(second.getNextPageToken());
+        Assert.assertEquals(new Date(now - 2000), second.getItems().get(0).getDate(DarConstants.SORT_DATE));
+
+        Page<Document> byDataSet = DatabaseDataAccessRequestAPI.getInstance().describePartialDataAccessRequestManage(1, 1, null, null);
+        Assert.assertEquals(1, byDataSet.getItems().size());
+        Assert.assertNull(byDataSet.getNextPageToken());
+    }
+
+    @Test
+    public void testPartialManagePaginationWithoutSortDates() {
+        mongoi.getPartialDataAccessRequestCollection().insertOne(createDar(Collections.singletonList(1), null));
+        for (int i = 0; i < 2; i++) {
+            Document undated = createDar(Collections.singletonList(1), null);
+            undated.remove(DarConstants.SORT_DATE);
+            mongoi.getPartialDataAccessRequestCollection().insertOne(undated);
+        }
+        Set<Object> pagedIds = new HashSet<>();
+        String pageToken = null;
+        do {
+            Page<Document> page = DatabaseDataAccessRequestAPI.getInstance().describePartialDataAccessRequestManage(1, null, pageToken, 1);
+            page.getItems().forEach(dar -> pagedIds.add(dar.get(DarConstants.ID)));
+            pageToken = page.getNextPageToken();
+        } while (pageToken != null);
+        Assert.assertEquals(3, pagedIds.size());
+    }
+
+    private void assertIndexScan(Bson filter, Document sort) {
+        Document find = new Document("find", "dataAccessRequest").
+                append("filter", filter.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()));
+        if (sort != null) {
+            find.append("sort", sort);
+        }
+        Document explain = mongoi.getMongoClient().getDatabase(TEST_DATABASE_NAME).
+                runCommand(new Document("explain", find).append("verbosity", "queryPlanner"));
+        Document winningPlan = (Document) ((Document) explain.get("queryPlanner")).get("winningPlan");
+        String plan = winningPlan.toJson();
+        Assert.assertTrue("Expected an index scan but got: " + plan, plan.contains("IXSCAN"));
+        Assert.assertFalse("Unexpected collection scan: " + plan, plan.contains("COLLSCAN"));
+    }
+
+    private Document createDar(List<Integer> datasetIds, Document restriction) {
+        Document dar = new Document(DarConstants.DATASET_ID, datasetIds).
+                append(DarConstants.USER_ID, 1).
+                append(DarConstants.SORT_DATE, new Date());
+        if (restriction != null) {
+            dar.append(DarConstants.RESTRICTION, restriction);
+        }
+        return dar;
+    }
+
+}
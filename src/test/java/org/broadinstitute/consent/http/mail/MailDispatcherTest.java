@@ -0,0 +1,268 @@
+package org.broadinstitute.consent.http.mail;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sendgrid.Content;
+import com.sendgrid.Email;
+import com.sendgrid.Mail;
+import com.sendgrid.Request;
+import com.sendgrid.SendGrid;
+import org.broadinstitute.consent.http.WithMockServer;
+import org.broadinstitute.consent.http.configurations.MailConfiguration;
+import org.broadinstitute.consent.http.db.MailMessageDAO;
+import org.broadinstitute.consent.http.db.MailOutboxDAO;
+import org.broadinstitute.consent.http.db.VoteDAO;
+import org.broadinstitute.consent.http.models.mail.EmailRecord;
+import org.broadinstitute.consent.http.models.mail.QueuedMail;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.verify.VerificationTimes;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.TransactionCallback;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+import static org.mockserver.model.JsonBody.json;
+
+/**
+ * Sends through a local stand-in for the SendGrid API, or a mocked client where failures are needed. The database
+ * is mocked, with transactions run against a mocked handle.
+ */
+public class MailDispatcherTest implements WithMockServer {
+
+    private static final int PORT = 9495;
+    private static final String FROM = "from@broadinstitute.org";
+    private static final String SUBJECT = "Log vote on Data Use Limitations case id: DUL-1.";
+
+    @Mock
+    private SendGrid sendGrid;
+    @Mock
+    private DBI jdbi;
+    @Mock
+    private Handle handle;
+    @Mock
+    private MailOutboxDAO outboxDAO;
+    @Mock
+    private MailMessageDAO mailMessageDAO;
+    @Mock
+    private VoteDAO voteDAO;
+
+    private ClientAndServer server;
+    private MailDispatcher dispatcher;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(jdbi.inTransaction(any(TransactionCallback.class))).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArguments()[0]).inTransaction(handle, null));
+        when(handle.attach(MailOutboxDAO.class)).thenReturn(outboxDAO);
+        when(handle.attach(MailMessageDAO.class)).thenReturn(mailMessageDAO);
+        when(handle.attach(VoteDAO.class)).thenReturn(voteDAO);
+        server = startMockServer(PORT);
+        server.when(request().withMethod("POST").withPath("/v3/mail/send")).respond(response().withStatusCode(202));
+        MailConfiguration config = new MailConfiguration();
+        config.setSendGridApiKey("test");
+        config.setGoogleAccount(FROM);
+        config.setSendGridTestHost("localhost:" + PORT);
+        dispatcher = new MailDispatcher(config, jdbi, outboxDAO, new MetricRegistry());
+        when(outboxDAO.claimMessage(anyLong(), anyInt(), any(Date.class))).thenReturn(1);
+        when(outboxDAO.deleteMessage(anyLong())).thenReturn(1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dispatcher.stop();
+        if (server != null && server.isRunning()) {
+            server.stop();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSubmittedMessagesAreStored() throws Exception {
+        EmailRecord record = new EmailRecord(EmailRecord.NEW_DAR, "DAR-1", null, Arrays.asList(1, 2));
+        when(outboxDAO.insertSubmission(eq(EmailRecord.NEW_DAR), eq("DAR-1"), (Integer) isNull(), eq("1,2"), eq(1), any(Date.class))).thenReturn(7L);
+        dispatcher.submit(Arrays.asList(mail("a@broadinstitute.org", "Content"), mail("b@broadinstitute.org", "Content")), record);
+        ArgumentCaptor<List> stored = ArgumentCaptor.forClass(List.class);
+        verify(outboxDAO).insertMessages(stored.capture());
+        Assert.assertEquals(1, stored.getValue().size());
+        QueuedMail queued = (QueuedMail) stored.getValue().get(0);
+        Assert.assertEquals(Arrays.asList("a@broadinstitute.org", "b@broadinstitute.org"), queued.recipients());
+        Assert.assertEquals(Long.valueOf(7), queued.getSubmissionId());
+        server.verify(request().withPath("/v3/mail/send"), VerificationTimes.exactly(0));
+        verify(mailMessageDAO, never()).insertBulkEmailNoVotes(anyListOf(Integer.class), anyString(), anyInt(), any(Date.class), anyString());
+    }
+
+    @Test
+    public void testMessagesToSeveralRecipientsAreSentInOneCallAndRecorded() {
+        QueuedMail first = queued(1L, "Content", 7L, "a@broadinstitute.org", "b@broadinstitute.org");
+        QueuedMail second = queued(2L, "Content", null, "c@broadinstitute.org");
+        when(outboxDAO.findDueMessages(any(Date.class), anyInt())).thenReturn(Arrays.asList(first, second));
+        when(outboxDAO.findPendingMessages(7L)).thenReturn(0);
+        when(outboxDAO.findSubmissionRecord(7L)).thenReturn(new EmailRecord(EmailRecord.NEW_DAR, "DAR-1", null, Arrays.asList(1, 2)));
+        dispatcher.drain();
+        server.verify(request().withPath("/v3/mail/send"), VerificationTimes.exactly(1));
+        server.verify(request().withPath("/v3/mail/send").withBody(json("{\"personalizations\": [" +
+                "{\"to\": [{\"email\": \"a@broadinstitute.org\"}]}, " +
+                "{\"to\": [{\"email\": \"b@broadinstitute.org\"}]}, " +
+                "{\"to\": [{\"email\": \"c@broadinstitute.org\"}]}]}")));
+        verify(mailMessageDAO).insertBulkEmailNoVotes(eq(Arrays.asList(1, 2)), eq("DAR-1"), eq(EmailRecord.NEW_DAR), any(Date.class), eq("Content"));
+        verify(outboxDAO).deleteMessage(1L);
+        verify(outboxDAO).deleteMessage(2L);
+        verify(outboxDAO).deleteSubmission(7L);
+    }
+
+    @Test
+    public void testSubmissionIsRecordedOnceEveryMessageIsSent() {
+        when(outboxDAO.findDueMessages(any(Date.class), anyInt())).thenReturn(Collections.singletonList(queued(1L, "Content", 7L, "a@broadinstitute.org")));
+        when(outboxDAO.findPendingMessages(7L)).thenReturn(1);
+        dispatcher.drain();
+        verify(outboxDAO).decrementPendingMessages(7L);
+        verify(outboxDAO, never()).findSubmissionRecord(anyLong());
+        verify(mailMessageDAO, never()).insertBulkEmailNoVotes(anyListOf(Integer.class), anyString(), anyInt(), any(Date.class), anyString());
+        verify(outboxDAO, never()).deleteSubmission(anyLong());
+    }
+
+    @Test
+    public void testMessageRemovedElsewhereIsNotCounted() {
+        when(outboxDAO.findDueMessages(any(Date.class), anyInt())).thenReturn(Collections.singletonList(queued(1L, "Content", 7L, "a@broadinstitute.org")));
+        when(outboxDAO.deleteMessage(1L)).thenReturn(0);
+        dispatcher.drain();
+        verify(outboxDAO, never()).decrementPendingMessages(anyLong());
+    }
+
+    @Test
+    public void testReminderIsFlaggedOnceSent() {
+        QueuedMail reminder = queued(1L, "Content", 8L, "a@broadinstitute.org");
+        when(outboxDAO.findDueMessages(any(Date.class), anyInt())).thenReturn(Collections.singletonList(reminder));
+        when(outboxDAO.findPendingMessages(8L)).thenReturn(0);
+        when(outboxDAO.findSubmissionRecord(8L)).thenReturn(new EmailRecord(EmailRecord.REMINDER, "10", 5, Collections.singletonList(3)));
+        dispatcher.drain();
+        verify(mailMessageDAO).insertEmail(eq(5), eq("10"), eq(3), eq(EmailRecord.REMINDER), any(Date.class), eq("Content"));
+        verify(voteDAO).updateVoteReminderFlag(5, true);
+        verify(outboxDAO).deleteMessage(1L);
+    }
+
+    @Test
+    public void testFailedCallsAreRetriedWithoutRecording() throws Exception {
+        MailDispatcher mockedDispatcher = mockedDispatcher();
+        when(sendGrid.makeCall(any(Request.class))).thenThrow(new IOException("unavailable"));
+        QueuedMail reminder = queued(1L, "Content", 8L, "a@broadinstitute.org");
+        when(outboxDAO.findDueMessages(any(Date.class), anyInt())).thenReturn(Collections.singletonList(reminder));
+        long before = System.currentTimeMillis();
+        mockedDispatcher.drain();
+        ArgumentCaptor<Date> nextAttempt = ArgumentCaptor.forClass(Date.class);
+        verify(outboxDAO).updateMessageFailure(eq(1L), nextAttempt.capture(), eq("unavailable"), eq(false));
+        Assert.assertTrue(nextAttempt.getValue().getTime() >= before + mockedDispatcher.backoffMillis(1));
+        verify(mailMessageDAO, never()).insertEmail(anyInt(), anyString(), anyInt(), anyInt(), any(Date.class), anyString());
+        verify(voteDAO, never()).updateVoteReminderFlag(anyInt(), anyBoolean());
+        verify(outboxDAO, never()).deleteMessage(anyLong());
+        verify(outboxDAO, never()).decrementPendingMessages(anyLong());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws Exception {
+        MailDispatcher mockedDispatcher = mockedDispatcher();
+        when(sendGrid.makeCall(any(Request.class))).thenThrow(new IOException("unavailable"));
+        QueuedMail message = queued(1L, "Content", null, "a@broadinstitute.org");
+        message.setAttempts(MailDispatcher.MAX_ATTEMPTS - 1);
+        when(outboxDAO.findDueMessages(any(Date.class), anyInt())).thenReturn(Collections.singletonList(message));
+        mockedDispatcher.drain();
+        verify(outboxDAO).updateMessageFailure(eq(1L), any(Date.class), eq("unavailable"), eq(true));
+    }
+
+    @Test
+    public void testMessagesClaimedElsewhereAreSkipped() {
+        when(outboxDAO.findDueMessages(any(Date.class), anyInt())).thenReturn(Collections.singletonList(queued(1L, "Content", null, "a@broadinstitute.org")));
+        when(outboxDAO.claimMessage(eq(1L), anyInt(), any(Date.class))).thenReturn(0);
+        dispatcher.drain();
+        server.verify(request().withPath("/v3/mail/send"), VerificationTimes.exactly(0));
+        verify(outboxDAO, never()).deleteMessage(anyLong());
+    }
+
+    @Test
+    public void testQueueKeepsDifferentContentApart() {
+        List<QueuedMail> queued = MailDispatcher.queue(Arrays.asList(mail("a@broadinstitute.org", "First"),
+                mail("b@broadinstitute.org", "Second"), mail("c@broadinstitute.org", "First")), new Date());
+        Assert.assertEquals(2, queued.size());
+        Assert.assertEquals(2, queued.get(0).recipients().size());
+        Assert.assertEquals(1, queued.get(1).recipients().size());
+    }
+
+    @Test
+    public void testQueueSplitsAtThePersonalizationLimit() {
+        List<Mail> messages = new ArrayList<>();
+        for (int i = 0; i <= MailDispatcher.MAX_PERSONALIZATIONS; i++) {
+            messages.add(mail("user" + i + "@broadinstitute.org", "Content"));
+        }
+        List<QueuedMail> queued = MailDispatcher.queue(messages, new Date());
+        Assert.assertEquals(2, queued.size());
+        Assert.assertEquals(MailDispatcher.MAX_PERSONALIZATIONS, queued.get(0).recipients().size());
+    }
+
+    @Test
+    public void testMergeSplitsAtThePersonalizationLimit() {
+        List<String> recipients = new ArrayList<>();
+        for (int i = 0; i < MailDispatcher.MAX_PERSONALIZATIONS; i++) {
+            recipients.add("user" + i + "@broadinstitute.org");
+        }
+        List<List<QueuedMail>> calls = MailDispatcher.merge(Arrays.asList(
+                queued(1L, "Content", null, recipients.toArray(new String[0])),
+                queued(2L, "Content", null, "a@broadinstitute.org"),
+                queued(3L, "Other", null, "b@broadinstitute.org")));
+        Assert.assertEquals(3, calls.size());
+        Assert.assertEquals(MailDispatcher.MAX_PERSONALIZATIONS, MailDispatcher.toMail(calls.get(0)).getPersonalization().size());
+    }
+
+    @Test
+    public void testBackoffMillis() {
+        MailDispatcher mockedDispatcher = new MailDispatcher(sendGrid, jdbi, outboxDAO, new MetricRegistry(), 1000);
+        Assert.assertEquals(1000, mockedDispatcher.backoffMillis(1));
+        Assert.assertEquals(4000, mockedDispatcher.backoffMillis(3));
+        Assert.assertEquals(MailDispatcher.MAX_BACKOFF_MILLIS, mockedDispatcher.backoffMillis(30));
+    }
+
+    private MailDispatcher mockedDispatcher() {
+        when(sendGrid.getHost()).thenReturn("localhost:" + PORT);
+        when(sendGrid.getVersion()).thenReturn("v3");
+        when(sendGrid.getRequestHeaders()).thenReturn(Collections.emptyMap());
+        return new MailDispatcher(sendGrid, jdbi, outboxDAO, new MetricRegistry(), 10);
+    }
+
+    private Mail mail(String to, String content) {
+        return new Mail(new Email(FROM), SUBJECT, new Email(to), new Content("text/html", content));
+    }
+
+    private QueuedMail queued(Long id, String content, Long submissionId, String... to) {
+        QueuedMail queued = new QueuedMail(FROM, Arrays.asList(to), SUBJECT, content, new Date());
+        queued.setId(id);
+        queued.setSubmissionId(submissionId);
+        return queued;
+    }
+
+}
@@ -1,16 +1,29 @@
 package org.broadinstitute.consent.http.mail;
 
+import com.codahale.metrics.MetricRegistry;
 import org.broadinstitute.consent.http.configurations.MailConfiguration;
+import org.broadinstitute.consent.http.db.MailOutboxDAO;
+import org.broadinstitute.consent.http.models.mail.QueuedMail;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.TransactionCallback;
 
 import javax.mail.MessagingException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Collections;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
 public class MailServiceTest {
 
     private static String TO = "to@broadinstitute.org";
@@ -19,13 +32,25 @@ public class MailServiceTest {
     private MailServiceAPI mailService;
     private Writer template;
 
+    @Mock
+    private DBI jdbi;
+    @Mock
+    private Handle handle;
+    @Mock
+    private MailOutboxDAO outboxDAO;
+
     @Before
+    @SuppressWarnings("unchecked")
     public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(jdbi.inTransaction(any(TransactionCallback.class))).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArguments()[0]).inTransaction(handle, null));
+        when(handle.attach(MailOutboxDAO.class)).thenReturn(outboxDAO);
         MailConfiguration config = new MailConfiguration();
         config.setSendGridApiKey("test");
         config.setGoogleAccount("from@broadinstitute.org");
         config.setActivateEmailNotifications(false);
-        MailService.initInstance(config);
+        MailService.initInstance(config, new MailDispatcher(config, jdbi, outboxDAO, new MetricRegistry()));
         mailService = AbstractMailServiceAPI.MailServiceAPIHolder.getInstance();
         template = new StringWriter();
         template.write("Email Content");
@@ -43,17 +68,18 @@ public class MailServiceTest {
         config.setSendGridApiKey("test");
         config.setGoogleAccount("from@broadinstitute.org");
         config.setActivateEmailNotifications(true);
-        MailService.initInstance(config);
+        doThrow(new RuntimeException("database unavailable")).when(outboxDAO).insertMessages(anyListOf(QueuedMail.class));
+        MailService.initInstance(config, new MailDispatcher(config, jdbi, outboxDAO, new MetricRegistry()));
         mailService = AbstractMailServiceAPI.MailServiceAPIHolder.getInstance();
         Assert.assertNotNull(mailService);
-        mailService.sendCollectMessage(Collections.singleton(TO), ID, TYPE, template);
+        mailService.sendCollectMessage(Collections.singleton(TO), ID, TYPE, template, null);
     }
 
     @Test
     public void testCollectMessage() throws Exception {
         Assert.assertNotNull(mailService);
         try {
-            mailService.sendCollectMessage(Collections.singleton(TO), ID, TYPE, template);
+            mailService.sendCollectMessage(Collections.singleton(TO), ID, TYPE, template, null);
         } catch (Exception e) {
             Assert.fail("Should not throw exception");
         }
@@ -73,7 +99,7 @@ public class MailServiceTest {
     public void testReminderMessage() throws Exception {
         Assert.assertNotNull(mailService);
         try {
-            mailService.sendReminderMessage(Collections.singleton(TO), ID, TYPE, template);
+            mailService.sendReminderMessage(Collections.singleton(TO), ID, TYPE, template, null);
         } catch (Exception e) {
             Assert.fail("Should not throw exception");
         }
@@ -93,7 +119,7 @@ public class MailServiceTest {
     public void testNewDARRequests() throws Exception {
         Assert.assertNotNull(mailService);
         try {
-            mailService.sendNewDARRequests(Collections.singleton(TO), ID, TYPE, template);
+            mailService.sendNewDARRequests(Collections.singleton(TO), ID, TYPE, template, null);
         } catch (Exception e) {
             Assert.fail("Should not throw exception");
         }
@@ -67,6 +67,17 @@ public class FreeMarkerTemplateHelperTest {
         assertTrue(parsedTemplate.getElementById("userName").text().equals("Hello NewCase User!"));
     }
 
+    @Test
+    public void testGetNewCaseTemplates() throws Exception {
+        List<Writer> templates = helper.getNewCaseTemplates(Arrays.asList(
+                new NewCaseTemplate("First User", "DARELECTION-1", "DAR-1", "localhost:1234/1"),
+                new NewCaseTemplate("Second User", "DARELECTION-1", "DAR-1", "localhost:1234/2")));
+        assertTrue(templates.size() == 2);
+        assertTrue(getAsHtmlDoc(templates.get(0).toString()).getElementById("userName").text().equals("Hello First User!"));
+        assertTrue(getAsHtmlDoc(templates.get(1).toString()).getElementById("userName").text().equals("Hello Second User!"));
+        assertTrue(templates.get(1).toString().contains("localhost:1234/2"));
+    }
+
     @Test
     public void testGetReminderTemplate() throws Exception {
         Writer template = helper.getReminderTemplate("Reminder User", "DARELECTION-1", "DAR-1", "localhost:1234");
@@ -0,0 +1,106 @@
+package org.broadinstitute.consent.http.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import org.broadinstitute.consent.http.db.ConsentDAO;
+import org.broadinstitute.consent.http.models.Consent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConsentCacheTest {
+
+    private static final String CONSENT_ID = "consent-1";
+
+    @Mock
+    private ConsentDAO consentDAO;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private MetricRegistry metrics;
+    private ConsentCache cache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(consentDAO.findConsentById(CONSENT_ID)).thenAnswer(invocation -> consent("ORSP-1"));
+        when(consentDAO.findConsentFromDatasetID(1)).thenAnswer(invocation -> consent("ORSP-1"));
+        metrics = new MetricRegistry();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        cache = new ConsentCache(consentDAO, metrics, ticker);
+    }
+
+    @Test
+    public void testConsentIsReadOnce() {
+        Consent first = cache.findConsentById(CONSENT_ID);
+        first.setLastElectionStatus("Open");
+        Consent second = cache.findConsentById(CONSENT_ID);
+        assertNotSame(first, second);
+        assertNull(second.getLastElectionStatus());
+        verify(consentDAO, times(1)).findConsentById(CONSENT_ID);
+        assertEquals(1L, gauge("consents", "hits"));
+        assertEquals(0.5, (Double) metrics.getGauges().get(MetricRegistry.name(ConsentCache.class, "consents", "hitRate")).getValue(), 0.0);
+    }
+
+    @Test
+    public void testConsentIsReadAgainAfterExpiry() {
+        cache.findConsentById(CONSENT_ID);
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        cache.findConsentById(CONSENT_ID);
+        verify(consentDAO, times(2)).findConsentById(CONSENT_ID);
+    }
+
+    @Test
+    public void testMissingConsentIsNotCached() {
+        assertNull(cache.findConsentById("unknown"));
+        assertNull(cache.findConsentById("unknown"));
+        verify(consentDAO, times(2)).findConsentById("unknown");
+    }
+
+    @Test
+    public void testInvalidateConsentDropsDataSetEntries() {
+        assertEquals("ORSP-1", cache.findConsentNameByDataSetId("1"));
+        cache.findConsentById(CONSENT_ID);
+        cache.invalidateConsent(CONSENT_ID);
+        cache.findConsentById(CONSENT_ID);
+        cache.findConsentByDataSetId(1);
+        verify(consentDAO, times(2)).findConsentById(CONSENT_ID);
+        verify(consentDAO, times(2)).findConsentFromDatasetID(1);
+    }
+
+    @Test
+    public void testInvalidateDataSets() {
+        cache.findConsentByDataSetId(1);
+        cache.invalidateDataSets(Collections.singletonList(1));
+        cache.findConsentByDataSetId(1);
+        verify(consentDAO, times(2)).findConsentFromDatasetID(1);
+    }
+
+    private Consent consent(String name) {
+        Consent consent = new Consent();
+        consent.setConsentId(CONSENT_ID);
+        consent.setName(name);
+        return consent;
+    }
+
+    private long gauge(String cacheName, String name) {
+        return (Long) metrics.getGauges().get(MetricRegistry.name(ConsentCache.class, cacheName, name)).getValue();
+    }
+
+}
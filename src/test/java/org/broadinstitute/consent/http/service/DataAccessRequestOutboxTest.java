@@ -0,0 +1,193 @@
+package org.broadinstitute.consent.http.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.broadinstitute.consent.http.db.DarOutboxDAO;
+import org.broadinstitute.consent.http.models.DarOutboxTask;
+import org.broadinstitute.consent.http.service.validate.UseRestrictionValidatorAPI;
+import org.broadinstitute.consent.http.util.DarConstants;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DataAccessRequestOutboxTest {
+
+    @Mock
+    private DarOutboxDAO outboxDAO;
+    @Mock
+    private DataAccessRequestAPI dataAccessRequestAPI;
+    @Mock
+    private MatchProcessAPI matchProcessAPI;
+    @Mock
+    private EmailNotifierAPI emailApi;
+    @Mock
+    private UseRestrictionValidatorAPI useRestrictionValidatorAPI;
+
+    private DataAccessRequestOutbox outbox;
+    private Document dar;
+    private String darId;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        outbox = new DataAccessRequestOutbox(outboxDAO, dataAccessRequestAPI, matchProcessAPI, emailApi,
+                useRestrictionValidatorAPI, new MetricRegistry());
+        darId = new ObjectId().toHexString();
+        dar = new Document(DarConstants.ID, darId).
+                append(DarConstants.DAR_CODE, "DAR-1").
+                append(DarConstants.RESTRICTION, new Document("type", "everything"));
+        when(dataAccessRequestAPI.describeDataAccessRequestById(darId)).thenReturn(dar);
+        when(outboxDAO.claimTask(anyLong(), anyInt(), any(Date.class))).thenReturn(1);
+    }
+
+    @After
+    public void tearDown() {
+        outbox.stop();
+    }
+
+    @Test
+    public void testEnqueue() {
+        // Another instance already queued the match task
+        doAnswer(invocation -> {
+            DarOutboxTask task = (DarOutboxTask) invocation.getArguments()[0];
+            if (task.getIdempotencyKey().startsWith("MATCH:")) {
+                throw new UnableToExecuteStatementException(new SQLIntegrityConstraintViolationException("duplicate key", "23505"), null);
+            }
+            return null;
+        }).when(outboxDAO).insertTask(any(DarOutboxTask.class));
+        outbox.enqueue(Collections.singletonList(dar));
+        ArgumentCaptor<DarOutboxTask> tasks = ArgumentCaptor.forClass(DarOutboxTask.class);
+        verify(outboxDAO, times(3)).insertTask(tasks.capture());
+        assertEquals("VALIDATE_RESTRICTION:" + darId, tasks.getAllValues().get(0).getIdempotencyKey());
+        assertEquals("EMAIL:" + darId, tasks.getAllValues().get(2).getIdempotencyKey());
+        verify(outboxDAO, timeout(1000).atLeastOnce()).findDueTasks(any(Date.class), anyInt());
+    }
+
+    @Test(expected = UnableToExecuteStatementException.class)
+    public void testEnqueueFailsOnOtherErrors() {
+        doThrow(new UnableToExecuteStatementException(new SQLException("connection closed", "08003"), null)).
+                when(outboxDAO).insertTask(any(DarOutboxTask.class));
+        outbox.enqueue(Collections.singletonList(dar));
+    }
+
+    @Test
+    public void testDrainRunsAndDeletesTasks() throws Exception {
+        when(outboxDAO.findDueTasks(any(Date.class), anyInt())).thenReturn(
+                tasks(task(1L, DataAccessRequestOutbox.TaskType.MATCH, 0), task(2L, DataAccessRequestOutbox.TaskType.EMAIL, 0)),
+                Collections.<DarOutboxTask>emptyList());
+        outbox.drain();
+        verify(matchProcessAPI).processMatchesForPurpose(darId);
+        verify(emailApi).sendNewDARRequestMessage("DAR-1");
+        verify(outboxDAO).deleteTask(1L);
+        verify(outboxDAO).deleteTask(2L);
+    }
+
+    @Test
+    public void testDrainSkipsTasksClaimedElsewhere() throws Exception {
+        when(outboxDAO.findDueTasks(any(Date.class), anyInt())).thenReturn(tasks(task(1L, DataAccessRequestOutbox.TaskType.MATCH, 0)));
+        when(outboxDAO.claimTask(eq(1L), anyInt(), any(Date.class))).thenReturn(0);
+        outbox.drain();
+        verify(matchProcessAPI, never()).processMatchesForPurpose(anyString());
+        verify(outboxDAO, never()).deleteTask(anyLong());
+    }
+
+    @Test
+    public void testDrainRetriesFailedTask() throws Exception {
+        when(outboxDAO.findDueTasks(any(Date.class), anyInt())).thenReturn(tasks(task(1L, DataAccessRequestOutbox.TaskType.EMAIL, 2)));
+        doThrow(new RuntimeException("mail server down")).when(emailApi).sendNewDARRequestMessage(anyString());
+        long before = System.currentTimeMillis();
+        outbox.drain();
+        ArgumentCaptor<Date> nextAttempt = ArgumentCaptor.forClass(Date.class);
+        verify(outboxDAO).updateTaskFailure(eq(1L), nextAttempt.capture(), eq("mail server down"), eq(false));
+        assertTrue(nextAttempt.getValue().getTime() >= before + DataAccessRequestOutbox.backoffMillis(3));
+        verify(outboxDAO, never()).deleteTask(anyLong());
+    }
+
+    @Test
+    public void testDrainGivesUpAfterMaxAttempts() throws Exception {
+        when(outboxDAO.findDueTasks(any(Date.class), anyInt())).thenReturn(
+                tasks(task(1L, DataAccessRequestOutbox.TaskType.MATCH, DataAccessRequestOutbox.MAX_ATTEMPTS - 1)));
+        doThrow(new RuntimeException("ontology unavailable")).when(matchProcessAPI).processMatchesForPurpose(anyString());
+        outbox.drain();
+        verify(outboxDAO).updateTaskFailure(eq(1L), any(Date.class), eq("ontology unavailable"), eq(true));
+    }
+
+    @Test
+    public void testDrainMarksInvalidRestriction() throws Exception {
+        when(outboxDAO.findDueTasks(any(Date.class), anyInt())).thenReturn(
+                tasks(task(1L, DataAccessRequestOutbox.TaskType.VALIDATE_RESTRICTION, 0)));
+        when(useRestrictionValidatorAPI.isValidUseRestriction(anyString())).thenReturn(false);
+        when(useRestrictionValidatorAPI.useRestrictionChecksum(anyString())).thenReturn("checksum");
+        outbox.drain();
+        verify(dataAccessRequestAPI).updateDARUseRestrictionValidation(Collections.singletonList(dar),
+                Collections.singletonList(false), Collections.singletonList("checksum"));
+        verify(outboxDAO).deleteTask(1L);
+    }
+
+    @Test
+    public void testDrainRetriesRestrictionWhenServiceFails() throws Exception {
+        when(outboxDAO.findDueTasks(any(Date.class), anyInt())).thenReturn(
+                tasks(task(1L, DataAccessRequestOutbox.TaskType.VALIDATE_RESTRICTION, 0)));
+        when(useRestrictionValidatorAPI.isValidUseRestriction(anyString())).thenThrow(new IllegalStateException("ontology unavailable"));
+        outbox.drain();
+        verify(dataAccessRequestAPI, never()).updateDARUseRestrictionValidation(anyListOf(Document.class), anyListOf(Boolean.class), anyListOf(String.class));
+        verify(outboxDAO).updateTaskFailure(eq(1L), any(Date.class), eq("ontology unavailable"), eq(false));
+        verify(outboxDAO, never()).deleteTask(anyLong());
+    }
+
+    @Test
+    public void testDrainSkipsDeletedRequest() throws Exception {
+        when(dataAccessRequestAPI.describeDataAccessRequestById(darId)).thenReturn(null);
+        when(outboxDAO.findDueTasks(any(Date.class), anyInt())).thenReturn(tasks(task(1L, DataAccessRequestOutbox.TaskType.EMAIL, 0)));
+        outbox.drain();
+        verify(emailApi, never()).sendNewDARRequestMessage(anyString());
+        verify(outboxDAO).deleteTask(1L);
+    }
+
+    @Test
+    public void testBackoffMillis() {
+        assertEquals(DataAccessRequestOutbox.BASE_BACKOFF_MILLIS, DataAccessRequestOutbox.backoffMillis(1));
+        assertEquals(DataAccessRequestOutbox.BASE_BACKOFF_MILLIS * 4, DataAccessRequestOutbox.backoffMillis(3));
+        assertEquals(DataAccessRequestOutbox.MAX_BACKOFF_MILLIS, DataAccessRequestOutbox.backoffMillis(50));
+    }
+
+    private DarOutboxTask task(Long id, DataAccessRequestOutbox.TaskType type, int attempts) {
+        DarOutboxTask task = new DarOutboxTask(type.name(), darId, new Date());
+        task.setId(id);
+        task.setAttempts(attempts);
+        return task;
+    }
+
+    private List<DarOutboxTask> tasks(DarOutboxTask... tasks) {
+        return Arrays.asList(tasks);
+    }
+
+}
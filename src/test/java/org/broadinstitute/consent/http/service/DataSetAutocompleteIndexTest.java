@@ -0,0 +1,110 @@
+package org.broadinstitute.consent.http.service;
+
+import org.broadinstitute.consent.http.db.AutocompleteEntryMapper;
+import org.broadinstitute.consent.http.db.DataSetDAO;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DataSetAutocompleteIndexTest {
+
+    @Mock
+    private DataSetDAO dataSetDAO;
+
+    private DataSetAutocompleteIndex index;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(dataSetDAO.getAutocompleteEntries()).thenReturn(Arrays.asList(
+                row(1, "SC-100", "Study of Heart", "Broad", "ORSP-1"),
+                row(2, "SC-200", "Cardiac Cohort", "Heartland Institute", "ORSP-2"),
+                row(3, "SC-300", "Lung Study", "Broad", "ORSP-3")));
+        index = new DataSetAutocompleteIndex(dataSetDAO);
+    }
+
+    @Test
+    public void testSearchRanksPrefixMatchesFirst() {
+        List<Map<String, String>> results = index.search("heart", null);
+        assertEquals(Arrays.asList("2", "1"), ids(results));
+        assertEquals("SC-200 | Cardiac Cohort | Heartland Institute | ORSP-2", results.get(0).get("concatenation"));
+    }
+
+    @Test
+    public void testSearchIgnoresCaseAndMatchesSubstrings() {
+        assertEquals(Arrays.asList("1", "3"), ids(index.search("STUD", null)));
+        assertEquals(Collections.singletonList("3"), ids(index.search("-3", null)));
+        assertTrue(index.search("kidney", null).isEmpty());
+    }
+
+    @Test
+    public void testSearchLimit() {
+        assertEquals(Arrays.asList("1", "2"), ids(index.search("sc-", 2)));
+    }
+
+    @Test
+    public void testRefresh() {
+        index.search("sc-", null);
+        when(dataSetDAO.getAutocompleteEntriesByDataSetIds(anyCollectionOf(Integer.class))).thenReturn(
+                Collections.singletonList(row(1, "SC-100", "Kidney Study", "Broad", "ORSP-1")));
+        index.refresh(Arrays.asList(1, 3));
+        assertEquals(Collections.singletonList("1"), ids(index.search("kidney", null)));
+        assertTrue(index.search("of heart", null).isEmpty());
+        assertTrue(index.search("lung", null).isEmpty());
+    }
+
+    @Test
+    public void testRebuildKeepsNewerRefresh() {
+        index.search("sc-", null);
+        List<Map<String, String>> snapshot = dataSetDAO.getAutocompleteEntries();
+        when(dataSetDAO.getAutocompleteEntriesByDataSetIds(anyCollectionOf(Integer.class))).thenReturn(
+                Collections.singletonList(row(1, "SC-100", "Kidney Study", "Broad", "ORSP-1")));
+        // The dataset is refreshed while the rebuild is still reading the old rows
+        when(dataSetDAO.getAutocompleteEntries()).thenAnswer(invocation -> {
+            index.refresh(Collections.singletonList(1));
+            return snapshot;
+        });
+        index.rebuild();
+        assertEquals(Collections.singletonList("1"), ids(index.search("kidney", null)));
+        assertTrue(index.search("of heart", null).isEmpty());
+        assertEquals(Collections.singletonList("3"), ids(index.search("lung", null)));
+    }
+
+    @Test
+    public void testFailedLoadIsNotRetriedOnEverySearch() {
+        when(dataSetDAO.getAutocompleteEntries()).thenThrow(new RuntimeException("unavailable"));
+        assertTrue(index.search("heart", null).isEmpty());
+        assertTrue(index.search("heart", null).isEmpty());
+        verify(dataSetDAO, times(1)).getAutocompleteEntries();
+    }
+
+    private List<String> ids(List<Map<String, String>> results) {
+        return results.stream().map(r -> r.get("id")).collect(Collectors.toList());
+    }
+
+    private Map<String, String> row(Integer id, String objectId, String name, String propertyValue, String consentName) {
+        Map<String, String> row = new HashMap<>();
+        row.put(AutocompleteEntryMapper.ID, id.toString());
+        row.put(AutocompleteEntryMapper.OBJECT_ID, objectId);
+        row.put(AutocompleteEntryMapper.NAME, name);
+        row.put(AutocompleteEntryMapper.PROPERTY_VALUE, propertyValue);
+        row.put(AutocompleteEntryMapper.CONSENT_NAME, consentName);
+        return row;
+    }
+
+}
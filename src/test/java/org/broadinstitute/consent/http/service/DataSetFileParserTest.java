@@ -1,12 +1,18 @@
 package org.broadinstitute.consent.http.service;
 
 import org.broadinstitute.consent.http.models.DataSet;
+import org.broadinstitute.consent.http.models.Dictionary;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class DataSetFileParserTest {
 
@@ -59,4 +65,31 @@ public class DataSetFileParserTest {
         Assert.assertTrue(results.size() == 1);
         Assert.assertTrue(results.get(0).getAlias().equals(DATASET_ALIAS_4));
     }
+
+    @Test
+    public void testParseTSVFileReportsRowNumbers() throws Exception {
+        List<String> keys = Arrays.asList("Dataset Name", "Data Type", "Species", "Phenotype/Indication",
+                "# of participants", "Description", "dbGAP", "Data Depositor", "Principal Investigator(PI)",
+                "Sample Collection ID", "Consent ID");
+        List<Dictionary> fields = IntStream.range(0, keys.size()).
+                mapToObj(i -> new Dictionary(i + 1, keys.get(i), i == 0, i, i)).
+                collect(Collectors.toList());
+        File file = File.createTempFile("datasets", ".tsv");
+        try {
+            Files.write(file.toPath(), Arrays.asList(
+                    String.join("\t", keys),
+                    "First\tDNA\thuman\tcancer\t10\tdesc\turl\tJohn\tMark\tSC-1\t",
+                    "\tDNA\thuman\tcancer\t10\tdesc\turl\tJohn\tMark\tSC-2\t",
+                    "Third\tDNA\thuman\tcancer\t10\tdesc\turl\tJohn\tMark\t\t",
+                    "Fourth\tDNA"), StandardCharsets.UTF_8);
+            ParseResult result = dataSetFileParser.parseTSVFile(file, fields, 0, false, Arrays.asList(DATASET_1, DATASET_2));
+            Assert.assertEquals(3, result.getDatasets().size());
+            Assert.assertEquals(Arrays.asList(
+                    "Dataset  - The required field: Dataset Name is empty in row 2.",
+                    "Dataset Third - Consent ID or Sample Collection ID is required in row 3.",
+                    "Row 4 has 2 columns. Expected quantity: 11"), result.getErrors());
+        } finally {
+            file.delete();
+        }
+    }
 }
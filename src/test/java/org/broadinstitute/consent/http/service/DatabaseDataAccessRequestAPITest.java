@@ -1,5 +1,7 @@
 package org.broadinstitute.consent.http.service;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.broadinstitute.consent.http.db.ConsentDAO;
 import org.broadinstitute.consent.http.db.DACUserDAO;
@@ -21,8 +23,10 @@ import org.mockito.MockitoAnnotations;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.anyObject;
@@ -64,7 +68,8 @@ public class DatabaseDataAccessRequestAPITest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        databaseDataAccessRequestAPI = new DatabaseDataAccessRequestAPI(mongo, converter, electionDAO, consentDAO, voteDAO, dacUserDAO, dataSetDAO, researcherPropertyDAO);
+        databaseDataAccessRequestAPI = new DatabaseDataAccessRequestAPI(mongo, converter, electionDAO, consentDAO, voteDAO, dacUserDAO, dataSetDAO, researcherPropertyDAO,
+                new ConsentCache(consentDAO, new MetricRegistry()), MoreExecutors.newDirectExecutorService());
     }
 
     @Test
@@ -152,5 +157,15 @@ public class DatabaseDataAccessRequestAPITest {
         return RandomStringUtils.random(10, true, false);
     }
 
-}
+    @Test
+    public void testEntryNamesAreUnique() {
+        Set<String> usedNames = new HashSet<>();
+        Document first = new Document(DarConstants.ID, "1").append(DarConstants.DAR_CODE, "DAR-1");
+        Document sameCode = new Document(DarConstants.ID, "2").append(DarConstants.DAR_CODE, "DAR-1");
+        Document noCode = new Document(DarConstants.ID, "3");
+        Assert.assertEquals("FullDARApplication-DAR-1.pdf", DatabaseDataAccessRequestAPI.entryName(first, usedNames));
+        Assert.assertEquals("FullDARApplication-2.pdf", DatabaseDataAccessRequestAPI.entryName(sameCode, usedNames));
+        Assert.assertEquals("FullDARApplication-3.pdf", DatabaseDataAccessRequestAPI.entryName(noCode, usedNames));
+    }
 
+}
@@ -1,8 +1,10 @@
 package org.broadinstitute.consent.http.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.Gson;
 import org.broadinstitute.consent.http.configurations.ServicesConfiguration;
+import org.broadinstitute.consent.http.enumeration.MatchMode;
 import org.broadinstitute.consent.http.models.Consent;
 import org.broadinstitute.consent.http.models.DataSet;
 import org.broadinstitute.consent.http.models.Match;
@@ -36,6 +38,7 @@ import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class DatabaseMatchingServiceAPITest {
@@ -90,7 +93,7 @@ public class DatabaseMatchingServiceAPITest {
         MockitoAnnotations.initMocks(this);
         setUpMockedResponses();
         when(config.getMatchURL()).thenReturn("http://ontology.org/match");
-        matchApi = new DatabaseMatchingServiceAPI(clientMock, config, consentAPI, dataAccessAPI, dsAPI);
+        matchApi = new DatabaseMatchingServiceAPI(clientMock, config, consentAPI, dataAccessAPI, dsAPI, MoreExecutors.newDirectExecutorService());
 
         when(dataAccessAPI.describeDataAccessRequestById("NullDar")).thenReturn(null);
 
@@ -183,6 +186,39 @@ public class DatabaseMatchingServiceAPITest {
         assertTrue(matches.size() == 0);
     }
 
+    @Test
+    public void testFindSingleMatchLocal() {
+        UseRestrictionMatcher localMatcher = mock(UseRestrictionMatcher.class);
+        when(localMatcher.match(any(UseRestriction.class), any(UseRestriction.class))).thenReturn(Optional.of(false));
+        DatabaseMatchingServiceAPI localApi = new DatabaseMatchingServiceAPI(clientMock, config, consentAPI, dataAccessAPI, dsAPI, localMatcher, MatchMode.LOCAL, MoreExecutors.newDirectExecutorService());
+        // The remote service fails for CONS-2, so a successful result means the local engine decided the match.
+        Match match = localApi.findSingleMatch("CONS-2", "DAR-2");
+        assertTrue(!Objects.isNull(match));
+        assertTrue(!match.getMatch());
+        assertTrue(!match.getFailed());
+    }
+
+    @Test
+    public void testFindSingleMatchLocalFallback() {
+        UseRestrictionMatcher localMatcher = mock(UseRestrictionMatcher.class);
+        when(localMatcher.match(any(UseRestriction.class), any(UseRestriction.class))).thenReturn(Optional.empty());
+        DatabaseMatchingServiceAPI localApi = new DatabaseMatchingServiceAPI(clientMock, config, consentAPI, dataAccessAPI, dsAPI, localMatcher, MatchMode.LOCAL, MoreExecutors.newDirectExecutorService());
+        Match match = localApi.findSingleMatch("CONS-1", "DAR-2");
+        assertTrue(!Objects.isNull(match));
+        assertTrue(match.getMatch());
+    }
+
+    @Test
+    public void testFindSingleMatchCrossCheck() {
+        UseRestrictionMatcher localMatcher = mock(UseRestrictionMatcher.class);
+        when(localMatcher.match(any(UseRestriction.class), any(UseRestriction.class))).thenReturn(Optional.of(false));
+        DatabaseMatchingServiceAPI crossCheckApi = new DatabaseMatchingServiceAPI(clientMock, config, consentAPI, dataAccessAPI, dsAPI, localMatcher, MatchMode.CROSS_CHECK, MoreExecutors.newDirectExecutorService());
+        // The remote result wins when the two engines disagree
+        Match match = crossCheckApi.findSingleMatch("CONS-1", "DAR-2");
+        assertTrue(!Objects.isNull(match));
+        assertTrue(match.getMatch());
+    }
+
     private static Document getSampleDar() throws IOException {
         Document document = new Document();
         document.putAll(jsonAsMap(sampleDar1));
@@ -1,8 +1,12 @@
 package org.broadinstitute.consent.http.service;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
@@ -18,6 +22,8 @@ import org.broadinstitute.consent.http.db.VoteDAO;
 import org.broadinstitute.consent.http.db.mongo.MongoConsentDB;
 import org.broadinstitute.consent.http.enumeration.ElectionType;
 import org.broadinstitute.consent.http.enumeration.VoteType;
+import org.broadinstitute.consent.http.models.Consent;
+import org.broadinstitute.consent.http.models.DACUser;
 import org.broadinstitute.consent.http.models.Election;
 import org.broadinstitute.consent.http.models.Summary;
 import org.broadinstitute.consent.http.models.Vote;
@@ -27,10 +33,15 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import javax.ws.rs.core.StreamingOutput;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.when;
 
 public class DatabaseSummaryAPITest {
@@ -133,6 +144,48 @@ public class DatabaseSummaryAPITest {
         assertThat(count, is(2));
     }
 
+    @Test
+    public void testDescribeConsentSummaryDetailEmpty() throws Exception {
+        when(electionDAO.findElectionsWithFinalVoteByTypeAndStatusPage(anyString(), anyObject(), anyInt(), anyInt())).thenReturn(Collections.emptyList());
+        assertTrue(Objects.isNull(databaseSummaryAPI.describeConsentSummaryDetail()));
+        assertTrue(Objects.isNull(databaseSummaryAPI.describeDataAccessRequestSummaryDetail()));
+    }
+
+    @Test
+    public void testDescribeConsentSummaryDetailStreamsPages() throws Exception {
+        List<Election> firstPage = new ArrayList<>();
+        List<Vote> firstPageVotes = new ArrayList<>();
+        for (int i = 1; i <= DatabaseSummaryAPI.SUMMARY_PAGE_SIZE; i++) {
+            firstPage.add(new Election(i, ElectionType.TRANSLATE_DUL.getValue(), "Closed", new Date(), "consent", new Date(), false, i));
+            firstPageVotes.add(new Vote(i, true, 1, new Date(), new Date(), i, "", VoteType.CHAIRPERSON.getValue(), false, false));
+        }
+        List<Election> secondPage = Collections.singletonList(
+                new Election(1000, ElectionType.TRANSLATE_DUL.getValue(), "Closed", new Date(), "consent", new Date(), false, 1000));
+        List<Vote> secondPageVotes = Collections.singletonList(
+                new Vote(1000, true, 1, new Date(), new Date(), 1000, "", VoteType.CHAIRPERSON.getValue(), false, false));
+        when(electionDAO.findElectionsWithFinalVoteByTypeAndStatusPage(anyString(), anyObject(), eq(0), anyInt())).thenReturn(firstPage);
+        when(electionDAO.findElectionsWithFinalVoteByTypeAndStatusPage(anyString(), anyObject(), eq(DatabaseSummaryAPI.SUMMARY_PAGE_SIZE), anyInt())).thenReturn(secondPage);
+        when(voteDAO.findMaxNumberOfDACMembersByElectionTypeAndStatus(anyString(), anyObject())).thenReturn(1);
+        when(voteDAO.findVotesByElectionIds(anyObject())).thenReturn(firstPageVotes, secondPageVotes);
+        Consent consent = new Consent();
+        consent.setConsentId("consent");
+        consent.setName("Consent");
+        consent.setCreateDate(new Timestamp(new Date().getTime()));
+        when(consentDAO.findConsentsFromConsentsIDs(anyObject())).thenReturn(Collections.singletonList(consent));
+        when(dacUserDAO.findUsers(anyObject())).thenReturn(Collections.singletonList(new DACUser(1, "chair@test.org", "Chair", new Date())));
+
+        StreamingOutput output = databaseSummaryAPI.describeConsentSummaryDetail();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        output.write(stream);
+
+        String[] rows = stream.toString(StandardCharsets.UTF_8.name()).split(System.lineSeparator());
+        assertThat(rows.length, is(DatabaseSummaryAPI.SUMMARY_PAGE_SIZE + 2));
+        assertTrue(rows[1].startsWith("\"Consent\""));
+        // Votes and users are looked up once per page rather than once per report
+        Mockito.verify(voteDAO, Mockito.times(2)).findVotesByElectionIds(anyObject());
+        Mockito.verify(electionDAO, Mockito.times(2)).findElectionsWithFinalVoteByTypeAndStatusPage(anyString(), anyObject(), anyInt(), anyInt());
+    }
+
     /** Private methods for mocking **/
 
     private List<Election> electionsList(String electionType, String status){
@@ -1,5 +1,6 @@
 package org.broadinstitute.consent.http.service;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.io.Resources;
 import io.dropwizard.testing.junit.DropwizardAppRule;
 import org.broadinstitute.consent.http.AbstractTest;
@@ -14,16 +15,23 @@ import org.broadinstitute.consent.http.db.VoteDAO;
 import org.broadinstitute.consent.http.db.mongo.MongoConsentDB;
 import org.broadinstitute.consent.http.enumeration.ElectionStatus;
 import org.broadinstitute.consent.http.enumeration.ElectionType;
+import org.broadinstitute.consent.http.enumeration.VoteType;
 import org.broadinstitute.consent.http.models.Consent;
 import org.broadinstitute.consent.http.models.DACUser;
 import org.broadinstitute.consent.http.models.Election;
+import org.broadinstitute.consent.http.models.Vote;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.TransactionCallback;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -31,12 +39,20 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static org.broadinstitute.consent.http.enumeration.UserRoles.MEMBER;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ElectionAPITest extends AbstractTest {
 
+    @Mock
+    private DBI jdbi;
+    @Mock
+    private Handle handle;
     @Mock
     private ElectionDAO electionDAO;
     @Mock
@@ -55,6 +71,7 @@ public class ElectionAPITest extends AbstractTest {
     private DatabaseElectionAPI electionAPI;
 
     private static final String consentId = UUID.randomUUID().toString();
+    private static final Integer electionId = 10;
     private Consent consent = new Consent();
 
     @ClassRule
@@ -67,9 +84,17 @@ public class ElectionAPITest extends AbstractTest {
     }
 
     @Before
+    @SuppressWarnings("unchecked")
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        electionAPI = Mockito.spy(new DatabaseElectionAPI(electionDAO, consentDAO, dacUserDAO, mongo, voteDAO, mailMessageDAO, dataSetDAO));
+        when(jdbi.inTransaction(any(TransactionCallback.class))).thenAnswer(invocation ->
+                ((TransactionCallback<Integer>) invocation.getArguments()[0]).inTransaction(handle, null));
+        when(handle.attach(ElectionDAO.class)).thenReturn(electionDAO);
+        when(handle.attach(ConsentDAO.class)).thenReturn(consentDAO);
+        when(handle.attach(VoteDAO.class)).thenReturn(voteDAO);
+        when(electionDAO.insertElection(any(), any(), any(), any(), any(), any(), any(), any(), any())).thenReturn(electionId);
+        electionAPI = Mockito.spy(new DatabaseElectionAPI(jdbi, electionDAO, consentDAO, dacUserDAO, mongo, voteDAO, mailMessageDAO, dataSetDAO,
+                new ConsentCache(consentDAO, new MetricRegistry())));
         consent.setConsentId(consentId);
         consent.setTranslatedUseRestriction("Translated");
     }
@@ -83,9 +108,35 @@ public class ElectionAPITest extends AbstractTest {
         when(consentDAO.checkConsentbyId(consentId)).thenReturn(consentId);
         when(consentDAO.findConsentById(consentId)).thenReturn(consent);
         Election election = createConsentElection();
-        when(electionDAO.findElectionWithFinalVoteById(any())).thenReturn(election);
+        when(electionDAO.findElectionWithFinalVoteById(electionId)).thenReturn(election);
         Election savedElection = electionAPI.createElection(election, consentId, ElectionType.TRANSLATE_DUL);
         assertNotNull(savedElection);
+        verify(consentDAO).updateConsentUpdateStatus(consentId, false);
+        verify(voteDAO, never()).insertElectionVotes(anyListOf(Vote.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCreateConsentElectionWithVotes() throws Exception {
+        DACUserDAO userDAO = getApplicationJdbi().onDemand(DACUserDAO.class);
+        DACUser chair = userDAO.findChairpersonUser();
+        Set<DACUser> chairsWithRoles = userDAO.findUsersWithRoles(Collections.singletonList(chair.getDacUserId()));
+        when(dacUserDAO.findDACUsersEnabledToVote()).thenReturn(chairsWithRoles);
+        when(consentDAO.checkConsentbyId(consentId)).thenReturn(consentId);
+        when(consentDAO.findConsentById(consentId)).thenReturn(consent);
+        Election election = createConsentElection();
+        when(electionDAO.findElectionWithFinalVoteById(electionId)).thenReturn(election);
+        assertNotNull(electionAPI.createElectionWithVotes(election, consentId, ElectionType.TRANSLATE_DUL, false));
+
+        ArgumentCaptor<List> votes = ArgumentCaptor.forClass(List.class);
+        verify(voteDAO).insertElectionVotes(votes.capture());
+        List<Vote> inserted = votes.getValue();
+        assertEquals(Arrays.asList(VoteType.DAC.getValue(), VoteType.CHAIRPERSON.getValue()),
+                inserted.stream().map(Vote::getType).collect(Collectors.toList()));
+        inserted.forEach(vote -> {
+            assertEquals(electionId, vote.getElectionId());
+            assertEquals(chair.getDacUserId(), vote.getDacUserId());
+        });
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -113,6 +164,19 @@ public class ElectionAPITest extends AbstractTest {
         electionAPI.createElection(election, consentId, ElectionType.TRANSLATE_DUL);
     }
 
+    @Test
+    public void testElectionVotes() {
+        DACUserDAO userDAO = getApplicationJdbi().onDemand(DACUserDAO.class);
+        DACUser chair = userDAO.findChairpersonUser();
+        Set<DACUser> chairsWithRoles = userDAO.findUsersWithRoles(Collections.singletonList(chair.getDacUserId()));
+        List<Vote> consentVotes = DatabaseVoteAPI.electionVotes(chairsWithRoles, 1, ElectionType.TRANSLATE_DUL, false);
+        assertEquals(2, consentVotes.size());
+        List<Vote> accessVotes = DatabaseVoteAPI.electionVotes(chairsWithRoles, 1, ElectionType.DATA_ACCESS, false);
+        assertEquals(4, accessVotes.size());
+        List<Vote> manualReviewVotes = DatabaseVoteAPI.electionVotes(chairsWithRoles, 1, ElectionType.DATA_ACCESS, true);
+        assertEquals(3, manualReviewVotes.size());
+    }
+
     private Election createConsentElection() {
         Election election = new Election();
         election.setStatus(ElectionStatus.OPEN.getValue());
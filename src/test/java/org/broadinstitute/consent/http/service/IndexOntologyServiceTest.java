@@ -1,6 +1,7 @@
 package org.broadinstitute.consent.http.service;
 
 import com.google.common.io.Resources;
+import org.apache.commons.io.IOUtils;
 import org.broadinstitute.consent.http.WithMockServer;
 import org.broadinstitute.consent.http.configurations.ElasticSearchConfiguration;
 import org.broadinstitute.consent.http.models.ontology.StreamRec;
@@ -14,6 +15,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.HttpRequest;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLOntology;
@@ -24,7 +26,9 @@ import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
 import org.semanticweb.owlapi.reasoner.structural.StructuralReasonerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -50,6 +54,7 @@ public class IndexOntologyServiceTest implements WithMockServer {
         client = ElasticSearchSupport.createRestClient(configuration);
         this.ontologyService = new IndexOntologyService(configuration);
         server = startMockServer(9200);
+        server.when(request().withPath("/_bulk")).respond(response().withStatusCode(200).withBody("{\"errors\": false, \"items\": []}"));
         server.when(request()).respond(response().withStatusCode(200));
     }
 
@@ -98,6 +103,10 @@ public class IndexOntologyServiceTest implements WithMockServer {
             Collection<Term> terms = indexUtils.generateTerms(streamRec);
             Assert.assertNotNull(terms);
             Assert.assertFalse(terms.isEmpty());
+            // The ontology can still be read for storage after terms have been generated
+            try (InputStream stream = streamRec.getStream()) {
+                Assert.assertEquals(IOUtils.toString(url.openStream(), Charset.defaultCharset()), IOUtils.toString(stream, Charset.defaultCharset()));
+            }
         } catch (Exception e) {
             Assert.fail(e.getMessage());
         }
@@ -160,6 +169,32 @@ public class IndexOntologyServiceTest implements WithMockServer {
         }
     }
 
+    @Test
+    public void testBulkUploadTermsInBatches() throws Exception {
+        Collection<Term> terms = getTerms();
+        IndexerUtils batchingUtils = new IndexerUtils(10, 2);
+        Assert.assertTrue(batchingUtils.bulkUploadTerms(client, INDEX_NAME, terms));
+        HttpRequest[] requests = server.retrieveRecordedRequests(request().withMethod("POST").withPath("/_bulk"));
+        Assert.assertEquals((terms.size() + 9) / 10, requests.length);
+        String firstBatch = requests[0].getBodyAsString();
+        Assert.assertEquals(20, firstBatch.split("\n").length);
+        Assert.assertTrue(firstBatch.startsWith("{\"index\":{\"_index\":\"" + INDEX_NAME + "\",\"_type\":\"ontology_term\""));
+    }
+
+    @Test
+    public void testBulkUploadTermsWithErrors() throws Exception {
+        server.reset();
+        server.when(request().withPath("/_bulk")).respond(response().withStatusCode(200).withBody("{\"errors\": true, \"items\": []}"));
+        Assert.assertFalse(indexUtils.bulkUploadTerms(client, INDEX_NAME, getTerms()));
+    }
+
+    @Test
+    public void testBulkUploadTermsWithUnreadableResponse() throws Exception {
+        server.reset();
+        server.when(request().withPath("/_bulk")).respond(response().withStatusCode(200).withBody("{\"items\": []}"));
+        Assert.assertFalse(indexUtils.bulkUploadTerms(client, INDEX_NAME, getTerms()));
+    }
+
     @Test
     public void testBulkDeprecateTerms() {
         try {
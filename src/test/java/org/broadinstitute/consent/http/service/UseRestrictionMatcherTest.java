@@ -0,0 +1,99 @@
+package org.broadinstitute.consent.http.service;
+
+import com.google.common.io.Resources;
+import org.broadinstitute.consent.http.models.grammar.And;
+import org.broadinstitute.consent.http.models.grammar.Everything;
+import org.broadinstitute.consent.http.models.grammar.Named;
+import org.broadinstitute.consent.http.models.grammar.Not;
+import org.broadinstitute.consent.http.models.grammar.Nothing;
+import org.broadinstitute.consent.http.models.grammar.Or;
+import org.broadinstitute.consent.http.models.grammar.UseRestriction;
+import org.broadinstitute.consent.http.service.ontology.OntologyHierarchy;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Optional;
+
+public class UseRestrictionMatcherTest {
+
+    private static final String DUOS = "http://www.broadinstitute.org/ontologies/DUOS/";
+    private static final Named MALE = new Named(DUOS + "male");
+    private static final Named FEMALE = new Named(DUOS + "female");
+    private static final Named BOYS = new Named(DUOS + "boys");
+    private static final Named GIRLS = new Named(DUOS + "girls");
+    private static final Named PEDIATRIC = new Named(DUOS + "pediatric");
+    private static final Named CONTROL = new Named(DUOS + "control");
+    private static final Named UNKNOWN = new Named("http://purl.obolibrary.org/obo/DOID_0000000");
+
+    private static OntologyHierarchy hierarchy;
+    private static UseRestrictionMatcher matcher;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        try (InputStream stream = Resources.getResource("data-use.owl").openStream()) {
+            hierarchy = OntologyHierarchy.load(Collections.singletonList(stream));
+        }
+        matcher = new UseRestrictionMatcher(() -> hierarchy);
+    }
+
+    @Test
+    public void testHierarchy() {
+        Assert.assertTrue(hierarchy.contains(BOYS.getName()));
+        Assert.assertTrue(hierarchy.isSubClassOf(BOYS.getName(), MALE.getName()));
+        Assert.assertTrue(hierarchy.isSubClassOf(BOYS.getName(), DUOS + "phenotypic_sex"));
+        Assert.assertFalse(hierarchy.isSubClassOf(MALE.getName(), BOYS.getName()));
+        Assert.assertTrue(hierarchy.areDisjoint(BOYS.getName(), GIRLS.getName()));
+        Assert.assertFalse(hierarchy.areDisjoint(BOYS.getName(), PEDIATRIC.getName()));
+    }
+
+    @Test
+    public void testNamedSubsumption() {
+        assertMatch(MALE, BOYS, true);
+        assertUndecided(BOYS, MALE);
+        assertMatch(PEDIATRIC, new And(BOYS, CONTROL), true);
+        assertMatch(new And(PEDIATRIC, MALE), BOYS, true);
+        assertMatch(new Or(FEMALE, MALE), BOYS, true);
+        assertUndecided(MALE, new Or(BOYS, GIRLS));
+    }
+
+    @Test
+    public void testNegation() {
+        assertMatch(new Not(FEMALE), BOYS, true);
+        assertUndecided(new Not(MALE), BOYS);
+        assertUndecided(new Not(PEDIATRIC), new Not(GIRLS));
+        assertMatch(new Not(GIRLS), new Not(PEDIATRIC), true);
+        assertMatch(new And(new Not(CONTROL), PEDIATRIC), new And(new Not(CONTROL), GIRLS), true);
+    }
+
+    @Test
+    public void testEverythingAndNothing() {
+        assertMatch(new Everything(), BOYS, true);
+        assertMatch(BOYS, new Nothing(), true);
+        assertUndecided(new Nothing(), BOYS);
+    }
+
+    @Test
+    public void testUndecided() {
+        Assert.assertFalse(matcher.match(MALE, UNKNOWN).isPresent());
+        Assert.assertFalse(matcher.match(new Not(CONTROL), new And(UNKNOWN, BOYS)).isPresent());
+        Assert.assertFalse(matcher.match(null, BOYS).isPresent());
+        UseRestrictionMatcher emptyMatcher = new UseRestrictionMatcher(OntologyHierarchy::empty);
+        Assert.assertFalse(emptyMatcher.match(MALE, BOYS).isPresent());
+        Assert.assertEquals(Optional.of(true), emptyMatcher.match(MALE, new And(MALE, UNKNOWN)));
+    }
+
+    private void assertMatch(UseRestriction consent, UseRestriction purpose, boolean expected) {
+        Assert.assertEquals(Optional.of(expected), matcher.match(consent, purpose));
+    }
+
+    /**
+     * Structural subsumption can't prove the absence of a match, so non-matches are left to the ontology service.
+     */
+    private void assertUndecided(UseRestriction consent, UseRestriction purpose) {
+        Assert.assertFalse(matcher.match(consent, purpose).isPresent());
+    }
+
+}
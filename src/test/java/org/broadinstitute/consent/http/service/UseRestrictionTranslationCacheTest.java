@@ -0,0 +1,114 @@
+package org.broadinstitute.consent.http.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.broadinstitute.consent.http.db.UseRestrictionTranslationDAO;
+import org.broadinstitute.consent.http.models.DataUseDTO;
+import org.broadinstitute.consent.http.models.grammar.Everything;
+import org.broadinstitute.consent.http.models.grammar.UseRestriction;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class UseRestrictionTranslationCacheTest {
+
+    private static final String DOID = "http://purl.obolibrary.org/obo/DOID_";
+
+    @Mock
+    private UseRestrictionTranslationDAO translationDAO;
+
+    private final AtomicReference<String> version = new AtomicReference<>("v1");
+    private final AtomicInteger translations = new AtomicInteger();
+    private final Function<DataUseDTO, UseRestriction> translate = dto -> {
+        translations.incrementAndGet();
+        return new Everything();
+    };
+    private UseRestrictionTranslationCache cache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        cache = new UseRestrictionTranslationCache(translationDAO, version::get, new MetricRegistry());
+    }
+
+    @Test
+    public void testSamePurposeIsTranslatedOnce() {
+        assertTrue(cache.get(purpose(DOID + "162", DOID + "1612"), translate) instanceof Everything);
+        assertTrue(cache.get(purpose(DOID + "1612", DOID + "162"), translate) instanceof Everything);
+        assertEquals(1, translations.get());
+        verify(translationDAO, times(1)).deleteRestriction(anyString(), eq("v1"));
+        verify(translationDAO, times(1)).insertRestriction(anyString(), eq("v1"), eq(new Everything().toString()), any(Date.class));
+    }
+
+    @Test
+    public void testStoredTranslationIsUsed() {
+        when(translationDAO.findRestriction(anyString(), eq("v1"), any(Date.class))).thenReturn(new Everything().toString());
+        assertTrue(cache.get(purpose(DOID + "162"), translate) instanceof Everything);
+        assertEquals(0, translations.get());
+        verify(translationDAO, never()).insertRestriction(anyString(), anyString(), anyString(), any(Date.class));
+    }
+
+    @Test
+    public void testNothingIsCachedUntilTheVersionIsKnown() {
+        version.set(null);
+        cache.get(purpose(DOID + "162"), translate);
+        cache.get(purpose(DOID + "162"), translate);
+        assertEquals(2, translations.get());
+        verifyZeroInteractions(translationDAO);
+    }
+
+    @Test
+    public void testVersionChangeKeepsOtherVersions() {
+        cache.get(purpose(DOID + "162"), translate);
+        version.set("v2");
+        cache.get(purpose(DOID + "162"), translate);
+        assertEquals(2, translations.get());
+        verify(translationDAO, times(2)).deleteExpiredRestrictions(any(Date.class));
+        verify(translationDAO, times(1)).deleteRestriction(anyString(), eq("v1"));
+        verify(translationDAO, times(1)).deleteRestriction(anyString(), eq("v2"));
+        verify(translationDAO, times(1)).insertRestriction(anyString(), eq("v2"), anyString(), any(Date.class));
+    }
+
+    @Test
+    public void testFailedTranslationIsNotCached() {
+        assertNull(cache.get(purpose(DOID + "162"), dto -> null));
+        verify(translationDAO, never()).insertRestriction(anyString(), anyString(), anyString(), any(Date.class));
+    }
+
+    @Test
+    public void testPurposeHash() {
+        assertEquals(UseRestrictionTranslationCache.purposeHash(purpose(DOID + "162", DOID + "1612")),
+                UseRestrictionTranslationCache.purposeHash(purpose(DOID + "1612", DOID + "162", DOID + "162")));
+        DataUseDTO commercial = purpose(DOID + "162");
+        commercial.setCommercialUse(true);
+        assertNotEquals(UseRestrictionTranslationCache.purposeHash(purpose(DOID + "162")),
+                UseRestrictionTranslationCache.purposeHash(commercial));
+    }
+
+    private DataUseDTO purpose(String... diseases) {
+        DataUseDTO dto = new DataUseDTO();
+        dto.setMethodsResearch(true);
+        dto.setDiseaseRestrictions(Arrays.asList(diseases));
+        return dto;
+    }
+
+}
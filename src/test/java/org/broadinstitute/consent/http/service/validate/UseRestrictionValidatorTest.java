@@ -0,0 +1,178 @@
+package org.broadinstitute.consent.http.service.validate;
+
+import org.broadinstitute.consent.http.WithMockServer;
+import org.broadinstitute.consent.http.configurations.ServicesConfiguration;
+import org.broadinstitute.consent.http.db.ConsentDAO;
+import org.broadinstitute.consent.http.models.dto.UseRestrictionDTO;
+import org.broadinstitute.consent.http.service.DataAccessRequestAPI;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.Header;
+import org.mockserver.verify.VerificationTimes;
+
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.MediaType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+public class UseRestrictionValidatorTest implements WithMockServer {
+
+    private static final String EVERYTHING = "{\"type\":\"everything\"}";
+    private static final String NAMED = "{\"type\":\"named\",\"name\":\"http://purl.obolibrary.org/obo/DOID_162\"}";
+    private static final String NAMED_REORDERED = "{\"name\":\"http://purl.obolibrary.org/obo/DOID_162\",\"type\":\"named\"}";
+
+    @Mock
+    private ConsentDAO consentDAO;
+
+    @Mock
+    private DataAccessRequestAPI dataAccessAPI;
+
+    private ClientAndServer mockServer;
+    private UseRestrictionValidator validator;
+    private final Integer port = 9100;
+    private final AtomicReference<String> version = new AtomicReference<>("v1");
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mockServer = startMockServer(port);
+        mockServer.when(request().withMethod("POST").withPath("/validate/userestriction")).respond(
+                response().withStatusCode(200)
+                        .withHeaders(new Header("Content-Type", MediaType.APPLICATION_JSON))
+                        .withBody("{\"valid\": true}"));
+        ServicesConfiguration config = new ServicesConfiguration();
+        config.setOntologyURL("http://localhost:" + port + "/");
+        validator = new UseRestrictionValidator(ClientBuilder.newClient(), config, consentDAO, dataAccessAPI, version::get);
+    }
+
+    @After
+    public void tearDown() {
+        mockServer.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIdenticalRestrictionsAreValidatedOnce() {
+        when(consentDAO.findConsentUseRestrictions()).thenReturn(Arrays.asList(
+                new UseRestrictionDTO("first", NAMED, "consent-1"),
+                new UseRestrictionDTO("second", NAMED_REORDERED, "consent-2")));
+        validator.validateConsentUseRestriction();
+        mockServer.verify(request().withPath("/validate/userestriction"), VerificationTimes.exactly(1));
+        ArgumentCaptor<List> valid = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List> checksums = ArgumentCaptor.forClass(List.class);
+        verify(consentDAO).updateConsentRestrictionValidation(anyListOf(String.class), valid.capture(), checksums.capture());
+        assertEquals(Arrays.asList(true, true), valid.getValue());
+        assertEquals(checksums.getValue().get(0), checksums.getValue().get(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUnchangedRestrictionsAreSkipped() {
+        UseRestrictionDTO validated = new UseRestrictionDTO("first", EVERYTHING, "consent-1");
+        when(consentDAO.findConsentUseRestrictions()).thenReturn(Collections.singletonList(validated));
+        validator.validateConsentUseRestriction();
+        ArgumentCaptor<List> checksums = ArgumentCaptor.forClass(List.class);
+        verify(consentDAO).updateConsentRestrictionValidation(anyListOf(String.class), anyListOf(Boolean.class), checksums.capture());
+
+        validated.setChecksum((String) checksums.getValue().get(0));
+        mockServer.reset();
+        validator.validateConsentUseRestriction();
+        mockServer.verify(request().withPath("/validate/userestriction"), VerificationTimes.exactly(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testOntologyChangeValidatesAgain() {
+        UseRestrictionDTO validated = new UseRestrictionDTO("first", EVERYTHING, "consent-1");
+        when(consentDAO.findConsentUseRestrictions()).thenReturn(Collections.singletonList(validated));
+        validator.validateConsentUseRestriction();
+        ArgumentCaptor<List> checksums = ArgumentCaptor.forClass(List.class);
+        verify(consentDAO).updateConsentRestrictionValidation(anyListOf(String.class), anyListOf(Boolean.class), checksums.capture());
+
+        validated.setChecksum((String) checksums.getValue().get(0));
+        version.set("v2");
+        mockServer.reset();
+        mockServer.when(request().withMethod("POST").withPath("/validate/userestriction")).respond(
+                response().withStatusCode(200)
+                        .withHeaders(new Header("Content-Type", MediaType.APPLICATION_JSON))
+                        .withBody("{\"valid\": true}"));
+        validator.validateConsentUseRestriction();
+        mockServer.verify(request().withPath("/validate/userestriction"), VerificationTimes.exactly(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUnparseableRestrictionIsInvalidWithoutACall() {
+        when(consentDAO.findConsentUseRestrictions()).thenReturn(Collections.singletonList(
+                new UseRestrictionDTO("first", "{\"type\":\"unknown\"}", "consent-1")));
+        validator.validateConsentUseRestriction();
+        mockServer.verify(request().withPath("/validate/userestriction"), VerificationTimes.exactly(0));
+        ArgumentCaptor<List> valid = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List> checksums = ArgumentCaptor.forClass(List.class);
+        verify(consentDAO).updateConsentRestrictionValidation(anyListOf(String.class), valid.capture(), checksums.capture());
+        assertEquals(Collections.singletonList(false), valid.getValue());
+        assertNotNull(checksums.getValue().get(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testServiceErrorIsValidatedAgain() {
+        mockServer.reset();
+        mockServer.when(request().withMethod("POST").withPath("/validate/userestriction")).respond(
+                response().withStatusCode(500).withBody("Exception"));
+        when(consentDAO.findConsentUseRestrictions()).thenReturn(Collections.singletonList(
+                new UseRestrictionDTO("first", EVERYTHING, "consent-1")));
+        validator.validateConsentUseRestriction();
+        ArgumentCaptor<List> valid = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List> checksums = ArgumentCaptor.forClass(List.class);
+        verify(consentDAO).updateConsentRestrictionValidation(anyListOf(String.class), valid.capture(), checksums.capture());
+        assertEquals(Collections.singletonList(false), valid.getValue());
+        assertNull(checksums.getValue().get(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testServiceErrorIsNotAnAnswer() {
+        mockServer.reset();
+        mockServer.when(request().withMethod("POST").withPath("/validate/userestriction")).respond(
+                response().withStatusCode(500).withBody("Exception"));
+        validator.isValidUseRestriction(EVERYTHING);
+    }
+
+    @Test
+    public void testIsValidUseRestriction() {
+        assertTrue(validator.isValidUseRestriction(EVERYTHING));
+        assertFalse(validator.isValidUseRestriction("{\"type\":\"unknown\"}"));
+    }
+
+    @Test
+    public void testNoConsents() {
+        when(consentDAO.findConsentUseRestrictions()).thenReturn(Collections.emptyList());
+        validator.validateConsentUseRestriction();
+        verify(consentDAO, never()).updateConsentRestrictionValidation(anyListOf(String.class), anyListOf(Boolean.class), anyListOf(String.class));
+    }
+
+    @Test
+    public void testCanonicalize() {
+        assertEquals(UseRestrictionValidator.canonicalize(NAMED), UseRestrictionValidator.canonicalize(NAMED_REORDERED));
+    }
+
+}